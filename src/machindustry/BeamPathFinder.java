@@ -58,6 +58,21 @@ public class BeamPathFinder
 	*/
 	private static final byte EMPTY = (byte)2;
 
+	/**
+	 * Breadth-first search rays in all directions
+	*/
+	private static final byte ALL_RAYS = (byte)15;
+
+	/**
+	 * Distance fields kept for different targets of one request
+	*/
+	private static final int FIELDS = 8;
+
+	/**
+	 * Maximum tiles passed by beam node hop
+	*/
+	private static final int BEAM_RANGE = 10;
+
 	/**
 	 * Internal map height
 	*/
@@ -91,22 +106,93 @@ public class BeamPathFinder
 	/**
 	 * Path nodes indices map. Stores -1 or index of valid path node.
 	*/
-	private final int[] iMap;
+	private final TileInts iMap;
 
 	/**
 	 * Path nodes map. Stores false or true for valid path node.
 	*/
-	private final boolean[] pMap;
+	private final TileBits pMap;
+
+	/**
+	 * Blocked tiles of internal map, built with energy rays
+	*/
+	private final TileBits bMap;
+
+	/**
+	 * Energy tiles of internal map, masks never block them
+	*/
+	private final TileBits nMap;
 
 	/**
 	 * Stores path nodes during path evaluation
 	*/
-	private final ArrayList<PathNode> pathNodes1;
+	private final PathStack pathNodes1;
 
 	/**
 	 * Stores path nodes during path reduction
 	*/
-	private final ArrayList<PathNode> pathNodes2;
+	private final PathStack pathNodes2;
+
+	/**
+	 * Breadth-first search beam nodes count map, created on first breadth-first search
+	*/
+	private int[] dMap = null;
+
+	/**
+	 * Breadth-first search previous path node index map, created on first breadth-first search
+	*/
+	private int[] sMap = null;
+
+	/**
+	 * Breadth-first search rays map, stores directions to search from tile
+	*/
+	private byte[] rMap = null;
+
+	/**
+	 * Breadth-first search targets map, created on first breadth-first search.
+	 * Stores 0 or index of target in search targets plus 1.
+	*/
+	private int[] tMap = null;
+
+	/**
+	 * Breadth-first search tiles reached with current beam nodes count
+	*/
+	private int[] queue1 = null;
+
+	/**
+	 * Breadth-first search tiles reached with next beam nodes count
+	*/
+	private int[] queue2 = null;
+
+	/**
+	 * Breadth-first search tiles reached with current beam nodes count size
+	*/
+	private int queue1Size = 0;
+
+	/**
+	 * Breadth-first search tiles reached with next beam nodes count size
+	*/
+	private int queue2Size = 0;
+
+	/**
+	 * Distance fields from targets, built on first path building if DistanceField is set
+	*/
+	private PathField field = null;
+
+	/**
+	 * Internal map version, distance fields built for older versions are outdated
+	*/
+	private long mapStamp = 0;
+
+	/**
+	 * Distances to energy tiles ahead, built on first path building after map updates
+	*/
+	private PathRays rays = null;
+
+	/**
+	 * Internal map version energy rays are built for
+	*/
+	private long raysStamp = -1;
 
 	/**
 	 * How much evaluations done before timer check
@@ -118,6 +204,21 @@ public class BeamPathFinder
 	*/
 	public long BuildTime = (long)-1;
 
+	/**
+	 * Index of the first tile used by the last path found with breadth-first search, -1 if there is no such path
+	*/
+	public int PathStart = -1;
+
+	/**
+	 * Index of the target reached by the last path found with breadth-first search, -1 if there is no such path
+	*/
+	public int PathEnd = -1;
+
+	/**
+	 * Steer greedy walk by distance field from target instead of straight distance, knows walls
+	*/
+	public boolean DistanceField = false;
+
 	/**
 	 * Protects beam tower from shortening its range with beam node
 	 * @param x - building x coordinate
@@ -176,6 +277,330 @@ public class BeamPathFinder
 				break;
 	}
 
+	/**
+	 * Evaluates distance from tile to the target for greedy walk, distance field is used if it is enabled
+	*/
+	private int Distance(final int i, final int manhattan)
+	{
+		if (DistanceField)
+		{
+			final int distance = field.Distance(i);
+
+			// Tiles that can not reach target are evaluated last but not dropped, masks of candidate pairs differ a bit
+			return distance == Integer.MAX_VALUE ? Integer.MAX_VALUE - 1 : distance;
+		}
+
+		return manhattan;
+	}
+
+	/**
+	 * Evaluates tiles count beam node hop passes from tile in direction with energy rays instead of checking tiles
+	 * one by one. Energy tile can go only to adjacent tile of the same building or to empty tiles, any hop stops
+	 * at energy tile.
+	 * @param idx    - Tile of the hop
+	 * @param length - Tiles in direction until the map border, but not more than beam node range
+	 * @param delta  - Index difference of adjacent tiles in direction
+	 * @param rotate - Direction of the hop
+	*/
+	private int Hop(final int idx, final int length, final int delta, final int rotate)
+	{
+		final int energy = rays.Rays[idx * 4 + rotate];
+
+		if (aMap[idx] == ENERGY)
+		{
+			if (energy == 1)
+				return eMap[idx + delta] == eMap[idx] ? 1 : 0;
+
+			return Math.min(length, energy - 1);
+		}
+
+		return Math.min(length, energy);
+	}
+
+	/**
+	 * Evaluates path with breadth-first search over beam node hops and stores it in pathNodes1.
+	 * Tiles are searched in layers of beam nodes count, energy tiles do not need beam node, so they
+	 * are added to current layer and the rest tiles are added to next layer (0-1 breadth-first search).
+	 * Hops follow the same rules as greedy walk, so first reached target has the fewest beam nodes.
+	 * Search starts from all first tiles at once and stops at the first reached target, first tiles
+	 * are pushed in reverse order, so the earlier ones are searched first within the same beam nodes count.
+	 * @return tile of reached target if path is found, -1 if there is no path or time exceeded
+	*/
+	private int SearchPath(final int[] starts, final int[] targets, final long startTime)
+	{
+		long evaluations = 0;
+
+		if (dMap == null)
+		{
+			dMap = new int[_size];
+			sMap = new int[_size];
+			rMap = new byte[_size];
+			tMap = new int[_size];
+			queue1 = new int[_size];
+			queue2 = new int[_size];
+		}
+
+		Arrays.fill(dMap, Integer.MAX_VALUE);
+
+		int count = 0;
+
+		for (int k = 0; k < targets.length; ++k)
+			tMap[targets[k]] = k + 1;
+
+		queue1Size = 0;
+		queue2Size = 0;
+
+		for (int k = starts.length - 1; k >= 0; --k)
+		{
+			final int idx1 = starts[k];
+
+			dMap[idx1] = 0;
+			sMap[idx1] = -1;
+			rMap[idx1] = ALL_RAYS;
+
+			queue1[queue1Size++] = idx1;
+		}
+
+		int reached = -1;
+
+		// Yes I hate recursion
+		while (queue1Size != 0)
+		{
+			if (Frequency != -1)
+			{
+				// If time exceeds return failure
+				if (evaluations >= Frequency)
+				{
+					if (startTime + BuildTime <= System.nanoTime())
+						break;
+					else
+						evaluations = 0;
+				}
+				else
+					++evaluations;
+			}
+
+			final int idx = queue1[--queue1Size];
+
+			final int x = idx % _width;
+			final int y = idx / _width;
+
+			final int rays = rMap[idx];
+
+			if ((rays & (1 << RIGHT)) != 0)
+				reached = SearchRay(idx, count, Math.min(BEAM_RANGE, _width - 1 - x), 1, RIGHT);
+
+			if (reached == -1 && (rays & (1 << UPPER)) != 0)
+				reached = SearchRay(idx, count, Math.min(BEAM_RANGE, _height - 1 - y), _width, UPPER);
+
+			if (reached == -1 && (rays & (1 << LEFT)) != 0)
+				reached = SearchRay(idx, count, Math.min(BEAM_RANGE, x), -1, LEFT);
+
+			if (reached == -1 && (rays & (1 << BOTTOM)) != 0)
+				reached = SearchRay(idx, count, Math.min(BEAM_RANGE, y), -_width, BOTTOM);
+
+			if (reached != -1)
+			{
+				SearchTrace(reached);
+				break;
+			}
+
+			// Go to next layer when current is over
+			if (queue1Size == 0)
+			{
+				final int[] queue = queue1;
+
+				queue1 = queue2;
+				queue2 = queue;
+
+				queue1Size = queue2Size;
+				queue2Size = 0;
+
+				++count;
+			}
+		}
+
+		for (int k = 0; k < targets.length; ++k)
+			tMap[targets[k]] = 0;
+
+		return reached;
+	}
+
+	/**
+	 * Adds tiles that can be reached from the given tile in one direction to breadth-first search layers.
+	 * Every tile gets the fewest beam nodes when it is reached first time, so the rest hops to it are skipped.
+	 * Empty tile reached by hop does not search back, these tiles are already reached with less or the same
+	 * beam nodes. Only the farthest tile of the hop searches ahead, the nearer tiles would reach the same tiles.
+	 * @return tile of reached target, -1 if target is not reached
+	 * @param idx    - Tile of the hop
+	 * @param count  - Beam nodes count of the tile of the hop
+	 * @param length - Tiles in direction until the map border, but not more than beam node range
+	 * @param delta  - Index difference of adjacent tiles in direction
+	 * @param rotate - Direction of the hop
+	*/
+	private int SearchRay(final int idx, final int count, final int length, final int delta, final int rotate)
+	{
+		final int hop = Hop(idx, length, delta, rotate);
+
+		// Yes I do not want modulo operation here, (rotate ^ 2) is rotate plus/minus 180 degrees
+		final byte next = (byte)(ALL_RAYS & ~(1 << rotate) & ~(1 << (rotate ^ 2)));
+
+		int far = -1;
+
+		for (int i = 1, ii = idx + delta; i <= hop; ++i, ii += delta)
+		{
+			if (aMap[ii] != BLOCK)
+			{
+				if (dMap[ii] == Integer.MAX_VALUE)
+				{
+					sMap[ii] = idx;
+
+					if (tMap[ii] != 0)
+						return ii;
+
+					if (aMap[ii] == ENERGY)
+					{
+						dMap[ii] = count;
+						rMap[ii] = ALL_RAYS;
+						queue1[queue1Size++] = ii;
+					}
+					else
+					{
+						dMap[ii] = count + 1;
+						rMap[ii] = next;
+						queue2[queue2Size++] = ii;
+					}
+
+					far = ii;
+				}
+				else
+					far = -1;
+			}
+		}
+
+		if (far != -1)
+			rMap[far] |= (byte)(1 << rotate);
+
+		return -1;
+	}
+
+	/**
+	 * Builds energy rays and blocked and energy tile layers from internal map if it was updated after the last build
+	*/
+	private void BuildRays()
+	{
+		if (raysStamp != mapStamp)
+		{
+			if (rays == null)
+				rays = new PathRays(_height, _width, BEAM_RANGE);
+
+			rays.Build(_map, ENERGY);
+			bMap.Match(_map, BLOCK);
+			nMap.Match(_map, ENERGY);
+			raysStamp = mapStamp;
+		}
+	}
+
+	/**
+	 * Fills masked tile state map and path evaluation maps before path building
+	*/
+	private void FillMaps(final TileBits masks)
+	{
+		// Masks never change energy tiles, so energy rays are built from internal map
+		BuildRays();
+
+		// Copy tiles
+		System.arraycopy(_map, 0, aMap, 0, _size);
+
+		// Mask tiles with blocks, zero words of masks are skipped 64 tiles at once
+		if (masks != null)
+			for (int i = masks.Next(0); i != -1; i = masks.Next(i + 1))
+				if (_map[i] != ENERGY)
+					aMap[i] = BLOCK;
+
+		// Clear path nodes indices map to -1 by generation
+		iMap.Clear();
+
+		// Map all blocked tiles to pMap, masked tiles are blocked unless they are energy tiles
+		pMap.Copy(bMap);
+
+		if (masks != null)
+		{
+			pMap.Or(masks);
+			pMap.AndNot(nMap);
+		}
+	}
+
+	/**
+	 * Builds path with breadth-first search, path has the fewest beam nodes, so it needs no reduction
+	 * @return List of building plans if success, null if failure, first tile and target indices are stored in PathStart and PathEnd
+	*/
+	private LinkedList<BuildPlan> SearchBuildPath(final int[] starts, final int[] targets, final long startTime)
+	{
+		PathStart = -1;
+		PathEnd = -1;
+
+		final int reached = SearchPath(starts, targets, startTime);
+
+		if (reached == -1)
+			return null;
+
+		final LinkedList<BuildPlan> buildPath = new LinkedList<BuildPlan>();
+
+		for (int i = 0; i < pathNodes1.Size(); ++i)
+			if (aMap[pathNodes1.I(i)] != ENERGY)
+				buildPath.addLast(new BuildPlan(pathNodes1.X(i), pathNodes1.Y(i), 0, Blocks.beamNode));
+
+		final int start = pathNodes1.I(0);
+
+		PathStart = 0;
+		PathEnd = 0;
+
+		while (starts[PathStart] != start)
+			++PathStart;
+
+		while (targets[PathEnd] != reached)
+			++PathEnd;
+
+		return buildPath;
+	}
+
+	/**
+	 * Stores path from first tile to the tile before target in pathNodes1
+	*/
+	private void SearchTrace(final int idx2)
+	{
+		int next = idx2;
+		int idx = sMap[idx2];
+
+		while (idx != -1)
+		{
+			final int x = idx % _width;
+			final int y = idx / _width;
+
+			final int nx = next % _width;
+			final int ny = next / _width;
+
+			int r;
+
+			if (nx > x)
+				r = RIGHT;
+			else if (ny > y)
+				r = UPPER;
+			else if (nx < x)
+				r = LEFT;
+			else
+				r = BOTTOM;
+
+			pathNodes1.Add(r, Math.abs(nx - x) + Math.abs(ny - y), x, y, idx);
+
+			next = idx;
+			idx = sMap[idx];
+		}
+
+		pathNodes1.Reverse();
+	}
+
 	public BeamPathFinder(int height, int width)
 	{
 		_height = height;
@@ -184,10 +609,12 @@ public class BeamPathFinder
 		_map = new byte[_size];
 		aMap = new byte[_size];
 		eMap = new int[_size];
-		iMap = new int[_size];
-		pMap = new boolean[_size];
-		pathNodes1 = new ArrayList<PathNode>(_size);
-		pathNodes2 = new ArrayList<PathNode>(_size);
+		iMap = new TileInts(_size, -1);
+		pMap = new TileBits(_size);
+		bMap = new TileBits(_size);
+		nMap = new TileBits(_size);
+		pathNodes1 = new PathStack(256);
+		pathNodes2 = new PathStack(256);
 	}
 
 	public BeamPathFinder(int height, int width, long freq, long time)
@@ -230,9 +657,9 @@ public class BeamPathFinder
 	 * @param tile1      - First energy tile of the path (starting coordinates)
 	 * @param tile2      - Last energy tile of the path (destination coordinates)
 	 * @param targetMode - Determines whether to keep target/previous direction settings
-	 * @param masks      - Boolean map that protects tiles from pathing
+	 * @param masks      - Tile layer that protects tiles from pathing
 	*/
-	public LinkedList<BuildPlan> BuildPath(final Tile tile1, final Tile tile2, final boolean targetMode, final boolean[] masks)
+	public LinkedList<BuildPlan> BuildPath(final Tile tile1, final Tile tile2, final boolean targetMode, final TileBits masks)
 	{
 		return BuildPath((int)tile1.x, (int)tile1.y, (int)tile2.x, (int)tile2.y, targetMode, masks);
 	}
@@ -245,9 +672,34 @@ public class BeamPathFinder
 	 * @param x2         - Last energy tile of the path (destination coordinate)
 	 * @param y2         - Last energy tile of the path (destination coordinate)
 	 * @param targetMode - Determines whether to keep target/previous direction settings
-	 * @param masks      - Boolean map that protects tiles from pathing
+	 * @param masks      - Tile layer that protects tiles from pathing
+	*/
+	public LinkedList<BuildPlan> BuildPath(final int x1, final int y1, final int x2, final int y2, final boolean targetMode, final TileBits masks)
+	{
+		return BuildPath(x1, y1, x2, y2, targetMode, masks, PathEngine.GREEDY);
+	}
+
+	/**
+	 * Builds path for beam nodes
+	 * @return             List of building plans if success, null if failure
+	 * @param x1         - First energy tile of the path (starting coordinate)
+	 * @param y1         - First energy tile of the path (starting coordinate)
+	 * @param x2         - Last energy tile of the path (destination coordinate)
+	 * @param y2         - Last energy tile of the path (destination coordinate)
+	 * @param targetMode - Determines whether to keep target/previous direction settings (greedy engine only)
+	 * @param masks      - Tile layer that protects tiles from pathing
+	 * @param engine     - Path search engine, GREEDY or BFS
 	*/
-	public LinkedList<BuildPlan> BuildPath(int x1, int y1, final int x2, final int y2, final boolean targetMode, final boolean[] masks)
+	public LinkedList<BuildPlan> BuildPath
+	(
+		int x1,
+		int y1,
+		final int x2,
+		final int y2,
+		final boolean targetMode,
+		final TileBits masks,
+		final PathEngine engine
+	)
 	{
 		long startTime = System.nanoTime();
 		long evaluations = 0;
@@ -274,28 +726,10 @@ public class BeamPathFinder
 		*/
 		final int[] evaluateRotateOrder = new int[4];
 
-		// Copy tiles
-		if (masks == null)
-			System.arraycopy(_map, 0, aMap, 0, _size);
-		// Copy masked with blocks tiles
-		else
-		{
-			for (int i = 0; i < _size; ++i)
-				if (masks[i])
-					aMap[i] = _map[i] == ENERGY ? ENERGY : BLOCK;
-				else
-					aMap[i] = _map[i];
-		}
-
-		// Fill path nodes indices map with -1
-		Arrays.fill(iMap, -1);
-
-		// Map all blocked tiles to pMap
-		for (int i = 0; i < _size; ++i)
-			pMap[i] = aMap[i] == BLOCK;
+		FillMaps(masks);
 
-		pathNodes1.clear();
-		pathNodes2.clear();
+		pathNodes1.Clear();
+		pathNodes2.Clear();
 
 		int pRotate;
 
@@ -317,6 +751,21 @@ public class BeamPathFinder
 
 		final int dRotate = pRotate;
 
+		// Breadth-first search path has the fewest beam nodes, so it needs no reduction
+		if (engine == PathEngine.BFS)
+			return SearchBuildPath(new int[] { idx1 }, new int[] { idx2 }, startTime);
+
+		if (DistanceField)
+		{
+			if (field == null)
+				field = new PathField(_height, _width, FIELDS);
+
+			field.Build(pMap, new int[] { idx2 }, 10, mapStamp * 2 + (masks == null ? 1 : 0));
+		}
+
+		// One node serves every evaluation step, path nodes store copies of it
+		final PathNode pathNode = new PathNode(Integer.MAX_VALUE, 0, -1, -1, -1);
+
 		// Path evaluation
 		// Yes I hate recursion
 		while (x1 != x2 || y1 != y2)
@@ -408,8 +857,6 @@ public class BeamPathFinder
 					evaluateRotateOrder[3] = pRotate - 2;
 			}
 
-			// _height + _width should be enought
-			// 
 			// PathNode stores distance in r field during evaluations
 			// PathNode stores rotation in r field after evaluations
 			// 
@@ -417,16 +864,13 @@ public class BeamPathFinder
 			// PathNode stores coordinates in x, y fields
 			// 
 			// mStep is stored in PathNode s field during evaluations
-			PathNode pathNode = new PathNode(_height + _width, mStep, x1, y1, idx);
+			pathNode.Set(Integer.MAX_VALUE, mStep, x1, y1, idx);
 
 			/**
 			 * Let first tile rotate any direction
 			*/
-			final int aRotate = pathNodes1.size() == 0 ? -1 : mRotate;
-			pMap[idx] = true;
-
-			final boolean energy = aMap[idx] == ENERGY;
-			final int index = eMap[idx];
+			final int aRotate = pathNodes1.Size() == 0 ? -1 : mRotate;
+			pMap.Set(idx);
 
 			final int xAbs = Math.abs(x1 - x2);
 			final int yAbs = Math.abs(y1 - y2);
@@ -438,26 +882,19 @@ public class BeamPathFinder
 					{
 						if (aRotate != LEFT)
 						{
-							final int xMax = x1 + 10;
-							final int xMin = x1 + 1;
+							final int xMax = x1 + Hop(idx, Math.min(BEAM_RANGE, _width - 1 - x1), 1, RIGHT);
 
-							for (int ix = xMin, ii = idx + 1; ix <= xMax; ++ix, ++ii)
-								if (ix < _width && (!energy || aMap[ii] != ENERGY || (ix == xMin && eMap[ii] == index)))
-								{
-									final int distance = Math.abs(ix - x2) + yAbs;
-
-									if (pathNode.r > distance && !pMap[ii])
-									{
-										pathNode.r = distance;
-										pathNode.s = ix - x1;
-										mRotate = RIGHT;
-									}
+							for (int ix = x1 + 1, ii = idx + 1; ix <= xMax; ++ix, ++ii)
+							{
+								final int distance = Distance(ii, Math.abs(ix - x2) + yAbs);
 
-									if (aMap[ii] == ENERGY)
-										break;
+								if (pathNode.r > distance && !pMap.Get(ii))
+								{
+									pathNode.r = distance;
+									pathNode.s = ix - x1;
+									mRotate = RIGHT;
 								}
-								else
-									break;
+							}
 						}
 
 						break;
@@ -467,26 +904,19 @@ public class BeamPathFinder
 					{
 						if (aRotate != BOTTOM)
 						{
-							final int yMax = y1 + 10;
-							final int yMin = y1 + 1;
+							final int yMax = y1 + Hop(idx, Math.min(BEAM_RANGE, _height - 1 - y1), _width, UPPER);
 
-							for (int iy = yMin, ii = idx + _width; iy <= yMax; ++iy, ii += _width)
-								if (iy < _height && (!energy || aMap[ii] != ENERGY || (iy == yMin && eMap[ii] == index)))
-								{
-									final int distance = xAbs + Math.abs(iy - y2);
-
-									if (pathNode.r > distance && !pMap[ii])
-									{
-										pathNode.r = distance;
-										pathNode.s = iy - y1;
-										mRotate = UPPER;
-									}
+							for (int iy = y1 + 1, ii = idx + _width; iy <= yMax; ++iy, ii += _width)
+							{
+								final int distance = Distance(ii, xAbs + Math.abs(iy - y2));
 
-									if (aMap[ii] == ENERGY)
-										break;
+								if (pathNode.r > distance && !pMap.Get(ii))
+								{
+									pathNode.r = distance;
+									pathNode.s = iy - y1;
+									mRotate = UPPER;
 								}
-								else
-									break;
+							}
 						}
 
 						break;
@@ -496,26 +926,19 @@ public class BeamPathFinder
 					{
 						if (aRotate != RIGHT)
 						{
-							final int xMax = x1 - 1;
-							final int xMin = x1 - 10;
+							final int xMin = x1 - Hop(idx, Math.min(BEAM_RANGE, x1), -1, LEFT);
 
-							for (int ix = xMax, ii = idx - 1; ix >= xMin; --ix, --ii)
-								if (ix >= 0 && (!energy || aMap[ii] != ENERGY || (ix == xMax && eMap[ii] == index)))
-								{
-									final int distance = Math.abs(ix - x2) + yAbs;
-
-									if (pathNode.r > distance && !pMap[ii])
-									{
-										pathNode.r = distance;
-										pathNode.s = x1 - ix;
-										mRotate = LEFT;
-									}
+							for (int ix = x1 - 1, ii = idx - 1; ix >= xMin; --ix, --ii)
+							{
+								final int distance = Distance(ii, Math.abs(ix - x2) + yAbs);
 
-									if (aMap[ii] == ENERGY)
-										break;
+								if (pathNode.r > distance && !pMap.Get(ii))
+								{
+									pathNode.r = distance;
+									pathNode.s = x1 - ix;
+									mRotate = LEFT;
 								}
-								else
-									break;
+							}
 						}
 
 						break;
@@ -525,26 +948,19 @@ public class BeamPathFinder
 					{
 						if (aRotate != UPPER)
 						{
-							final int yMax = y1 - 1;
-							final int yMin = y1 - 10;
+							final int yMin = y1 - Hop(idx, Math.min(BEAM_RANGE, y1), -_width, BOTTOM);
 
-							for (int iy = yMax, ii = idx - _width; iy >= yMin; --iy, ii -= _width)
-								if (iy >= 0 && (!energy || aMap[ii] != ENERGY || (iy == yMax && eMap[ii] == index)))
-								{
-									final int distance = xAbs + Math.abs(iy - y2);
-
-									if (pathNode.r > distance && !pMap[ii])
-									{
-										pathNode.r = distance;
-										pathNode.s = y1 - iy;
-										mRotate = BOTTOM;
-									}
+							for (int iy = y1 - 1, ii = idx - _width; iy >= yMin; --iy, ii -= _width)
+							{
+								final int distance = Distance(ii, xAbs + Math.abs(iy - y2));
 
-									if (aMap[ii] == ENERGY)
-										break;
+								if (pathNode.r > distance && !pMap.Get(ii))
+								{
+									pathNode.r = distance;
+									pathNode.s = y1 - iy;
+									mRotate = BOTTOM;
 								}
-								else
-									break;
+							}
 						}
 
 						break;
@@ -557,16 +973,16 @@ public class BeamPathFinder
 			// If no path found get back to previous position or return failure
 			if (mRotate == -1)
 			{
-				if (pathNodes1.size() == 0)
+				if (pathNodes1.Size() == 0)
 					return null;
 				else
 				{
-					pathNodes1.remove(pathNodes1.size() - 1);
+					pathNodes1.RemoveLast();
 
-					if (pathNodes1.size() == 0)
+					if (pathNodes1.Size() == 0)
 						pRotate = dRotate;
 					else
-						pRotate = pathNodes1.get(pathNodes1.size() - 1).r;
+						pRotate = pathNodes1.R(pathNodes1.Size() - 1);
 				}
 			}
 			// Else save position and get ahead
@@ -577,7 +993,7 @@ public class BeamPathFinder
 
 				pRotate = mRotate;
 
-				pathNodes1.add(pathNode);
+				pathNodes1.Add(pathNode);
 
 				switch (mRotate)
 				{
@@ -604,104 +1020,147 @@ public class BeamPathFinder
 		}
 
 		// Fill indices map
-		for (int i = 0; i < pathNodes1.size(); ++i)
-			iMap[pathNodes1.get(i).i] = i;
+		for (int i = 0; i < pathNodes1.Size(); ++i)
+			iMap.Put(pathNodes1.I(i), i);
 
 		// Path reduction
-		for (int i = 0; i < pathNodes1.size(); ++i)
+		for (int i = 0; i < pathNodes1.Size(); ++i)
 		{
-			final PathNode pathNode = pathNodes1.get(i);
-			final int idx3 = pathNode.i;
-
-			final boolean energy = aMap[idx3] == ENERGY;
-			final int index = eMap[idx3];
+			final int idx3 = pathNodes1.I(i);
+			final int x3 = pathNodes1.X(i);
+			final int y3 = pathNodes1.Y(i);
 
 			int j = i;
 
-			int max = pathNode.x + 10;
-			int min = pathNode.x + 1;
+			final int xMax = x3 + Hop(idx3, Math.min(BEAM_RANGE, _width - 1 - x3), 1, RIGHT);
 
-			for (int ix = min, ii = idx3 + 1; ix <= max; ++ix, ++ii)
-				if (ix < _width && (!energy || aMap[ii] != ENERGY || (ix == min && eMap[ii] == index)))
-				{
-					int jj = iMap[ii];
+			for (int ix = x3 + 1, ii = idx3 + 1; ix <= xMax; ++ix, ++ii)
+				if (j < iMap.Get(ii))
+					j = iMap.Get(ii);
 
-					if (j < jj)
-						j = jj;
+			final int yMax = y3 + Hop(idx3, Math.min(BEAM_RANGE, _height - 1 - y3), _width, UPPER);
 
-					if (aMap[ii] == ENERGY)
-						break;
-				}
-				else
-					break;
+			for (int iy = y3 + 1, ii = idx3 + _width; iy <= yMax; ++iy, ii += _width)
+				if (j < iMap.Get(ii))
+					j = iMap.Get(ii);
 
-			max = pathNode.y + 10;
-			min = pathNode.y + 1;
+			final int xMin = x3 - Hop(idx3, Math.min(BEAM_RANGE, x3), -1, LEFT);
 
-			for (int iy = min, ii = idx3 + _width; iy <= max; ++iy, ii += _width)
-				if (iy < _height && (!energy || aMap[ii] != ENERGY || (iy == min && eMap[ii] == index)))
-				{
-					int jj = iMap[ii];
+			for (int ix = x3 - 1, ii = idx3 - 1; ix >= xMin; --ix, --ii)
+				if (j < iMap.Get(ii))
+					j = iMap.Get(ii);
 
-					if (j < jj)
-						j = jj;
+			final int yMin = y3 - Hop(idx3, Math.min(BEAM_RANGE, y3), -_width, BOTTOM);
 
-					if (aMap[ii] == ENERGY)
-						break;
-				}
-				else
-					break;
+			for (int iy = y3 - 1, ii = idx3 - _width; iy >= yMin; --iy, ii -= _width)
+				if (j < iMap.Get(ii))
+					j = iMap.Get(ii);
 
-			max = pathNode.x - 1;
-			min = pathNode.x - 10;
+			if (i != j)
+				i = j - 1;
 
-			for (int ix = max, ii = idx3 - 1; ix >= min; --ix, --ii)
-				if (ix >= 0 && (!energy || aMap[ii] != ENERGY || (ix == max && eMap[ii] == index)))
-				{
-					int jj = iMap[ii];
+			if (aMap[idx3] != ENERGY)
+				buildPath.addLast(new BuildPlan(x3, y3, 0, Blocks.beamNode));
+		}
 
-					if (j < jj)
-						j = jj;
+		return buildPath;
+	}
 
-					if (aMap[ii] == ENERGY)
-						break;
-				}
-				else
-					break;
+	/**
+	 * Builds path for beam nodes from any first energy tile to any target energy tile with single breadth-first
+	 * search instead of search per each pair, first tiles order only breaks ties between equally good paths
+	 * @return          List of building plans if success, null if failure,
+	 *                  first tile and target indices are stored in PathStart and PathEnd
+	 * @param points1 - First energy tiles of the path in priority order (starting coordinates)
+	 * @param points2 - Last energy tiles of the path in priority order (destination coordinates)
+	 * @param masks   - Tile layer that protects tiles from pathing
+	 * @param engine  - Path search engine, greedy walk is not supported
+	*/
+	public LinkedList<BuildPlan> BuildPath
+	(
+		final ArrayList<Point> points1,
+		final ArrayList<Point> points2,
+		final TileBits masks,
+		final PathEngine engine
+	)
+	{
+		long startTime = System.nanoTime();
 
-			max = pathNode.y - 1;
-			min = pathNode.y - 10;
+		PathStart = -1;
+		PathEnd = -1;
 
-			for (int iy = max, ii = idx3 - _width; iy >= min; --iy, ii -= _width)
-				if (iy >= 0 && (!energy || aMap[ii] != ENERGY || (iy == max && eMap[ii] == index)))
-				{
-					int jj = iMap[ii];
+		if (engine == PathEngine.GREEDY)
+			throw new IllegalArgumentException("Greedy walk does not support multiple first tiles and targets");
 
-					if (j < jj)
-						j = jj;
+		final Tiles tiles = Vars.world.tiles;
 
-					if (aMap[ii] == ENERGY)
-						break;
-				}
-				else
-					break;
+		if (tiles == null)
+			throw new NullPointerException("Vars.world.tiles is null");
 
-			if (i != j)
-				i = j - 1;
+		final int size1 = points1.size();
+		final int size2 = points2.size();
 
-			if (aMap[idx3] != ENERGY)
-				buildPath.addLast(new BuildPlan(pathNode.x, pathNode.y, 0, Blocks.beamNode));
+		final int[] targets = new int[size2];
+		int count2 = 0;
+
+		for (int k = 0; k < size2; ++k)
+			if (_map[points2.get(k).i] == ENERGY)
+				targets[count2++] = points2.get(k).i;
+
+		final int[] starts = new int[size1];
+		int count1 = 0;
+
+		// Check if first and last tiles are not different energy tiles
+		for (int k = 0; k < size1; ++k)
+		{
+			final int idx1 = points1.get(k).i;
+
+			boolean valid = _map[idx1] == ENERGY;
+
+			for (int j = 0; j < count2 && valid; ++j)
+				valid = idx1 != targets[j];
+
+			if (valid)
+				starts[count1++] = idx1;
+		}
+
+		if (count1 == 0 || count2 == 0)
+			return null;
+
+		FillMaps(masks);
+
+		pathNodes1.Clear();
+		pathNodes2.Clear();
+
+		final LinkedList<BuildPlan> buildPath = SearchBuildPath(Arrays.copyOf(starts, count1), Arrays.copyOf(targets, count2), startTime);
+
+		if (buildPath != null)
+		{
+			final int start = starts[PathStart];
+			final int end = targets[PathEnd];
+
+			PathStart = 0;
+			PathEnd = 0;
+
+			while (points1.get(PathStart).i != start)
+				++PathStart;
+
+			while (points2.get(PathEnd).i != end)
+				++PathEnd;
 		}
 
 		return buildPath;
 	}
 
+
 	/**
 	 * Updates internal map from building validation map
 	 * @param map - Building validation map
 	*/
-	public void UpdateMap(final boolean[] map)
+	public void UpdateMap(final TileBits map)
 	{
+		++mapStamp;
+
 		final Team team = Vars.player.team();
 		final Tiles tiles = Vars.world.tiles;
 
@@ -719,7 +1178,7 @@ public class BeamPathFinder
 				final Block block = tile.block();
 				final Building build = tile.build;
 
-				if (map[i])
+				if (map.Get(i))
 				{
 					if (block.hasPower && build != null && build.team == team)
 					{
@@ -744,6 +1203,8 @@ public class BeamPathFinder
 	*/
 	public void UpdateMap(final BuildPlan[] buildPlans)
 	{
+		++mapStamp;
+
 		// Not update breaking plans because can not use their space until they are finished
 		// Divide all tiles under buildings on map
 		for (BuildPlan buildPlan : buildPlans)
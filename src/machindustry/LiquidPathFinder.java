@@ -131,6 +131,132 @@ public class LiquidPathFinder
 	*/
 	private static final byte EMPTY = (byte)5;
 
+	/**
+	 * A* cost of one tile passed by conduit, junction or bridge
+	*/
+	private static final int TILE_COST = 1;
+
+	/**
+	 * Packed tile state map: masked tile state bits, (byte) cast reads state back with INVISIBLE sign
+	*/
+	private static final int STATE = 0xFF;
+
+	/**
+	 * Packed tile state map: path node rotation bits, rotation r is ROTATED << r
+	*/
+	private static final int ROTATED = 1 << 8;
+
+	/**
+	 * Packed tile state map: path node bit
+	*/
+	private static final int PATH = 1 << 12;
+
+	/**
+	 * Packed tile state map: output liquids bit
+	*/
+	private static final int OUTPUT = 1 << 13;
+
+	/**
+	 * Packed tile state map: invisible tile rotation bit, set if it is RIGHT or LEFT, read for INVISIBLE tiles only
+	*/
+	private static final int HORIZONTAL = 1 << 14;
+
+	/**
+	 * Packed tile state map: bridge protection count unit, count takes all bits from it
+	*/
+	private static final int BRIDGE = 1 << 16;
+
+	/**
+	 * A* cost of one building placed on path
+	*/
+	private static final int NODE_COST = 2;
+
+	/**
+	 * A* extra cost of bridge, bridges are evaluated only if there is block ahead anyway
+	*/
+	private static final int BRIDGE_COST = 2;
+
+	/**
+	 * A* extra cost of turn, keeps path straight when there is a choice
+	*/
+	private static final int TURN_COST = 1;
+
+	/**
+	 * A* minimal cost of one tile (4-tile bridge), used by heuristic
+	*/
+	private static final int ESTIMATE_COST = TILE_COST + (NODE_COST + BRIDGE_COST) / 4;
+
+	/**
+	 * A* state mode of tile reached by conduit
+	*/
+	private static final int SEARCH_CONDUIT = 0;
+
+	/**
+	 * A* state mode of tile reached by bridge
+	*/
+	private static final int SEARCH_BRIDGE = 1;
+
+	/**
+	 * A* state mode of tile reached by conduit and protected by end-chain bridge behind it (see ProtectAhead),
+	 * mode is SEARCH_PROTECTED plus count of protected tiles straight ahead of the tile
+	*/
+	private static final int SEARCH_PROTECTED = 2;
+
+	/**
+	 * A* costs multiplier, first tiles and targets order is added to first states cost, so it only breaks ties between equal paths
+	*/
+	private static final int COST_SCALE = 64;
+
+	/**
+	 * Distance fields kept for different targets of one request
+	*/
+	private static final int FIELDS = 8;
+
+	/**
+	 * Anytime A* heuristic weights in WEIGHT_SCALE units, from fast first path to the cheapest one
+	*/
+	private static final int[] WEIGHTS = new int[] { 12, 6, 5, 4 };
+
+	/**
+	 * Anytime A* heuristic weight of 1
+	*/
+	private static final int WEIGHT_SCALE = 4;
+
+	/**
+	 * Minimum map size parallel A* search is used on, smaller maps are searched faster than threads start
+	*/
+	private static final int PARALLEL_SIZE = 256 * 256;
+
+	/**
+	 * Time in nanoseconds the portfolio race loser gets to beat the winner path before it is cancelled
+	*/
+	private static final long PORTFOLIO_GRACE = (long)2000000;
+
+	/**
+	 * Tiles between endpoints bounding box and search window borders, window margin doubles after each failure
+	*/
+	private static final int WINDOW_MARGIN = 16;
+
+	/**
+	 * Blocked tiles around search window, evaluations read up to bridge range tiles ahead of window tiles
+	*/
+	private static final int WINDOW_RING = 4;
+
+	/**
+	 * Maximum tiles passed by one hop of bridge
+	*/
+	private static final int BRIDGE_RANGE = 4;
+
+	/**
+	 * A* state modes count, states of one tile and rotation take eight values, the last two are never used
+	*/
+	private static final int SEARCH_MODES = SEARCH_PROTECTED + BRIDGE_RANGE;
+
+	/**
+	 * Maximum tiles passed by one straight conduit run of A* search, longer runs skip turns that walls far ahead need
+	*/
+	private static final int JUMP_RANGE = 16;
+
 	/**
 	 * Internal map height
 	*/
@@ -152,51 +278,179 @@ public class LiquidPathFinder
 	private final byte[] _map;
 
 	/**
-	 * Internal masked tile state map
+	 * Path nodes indices map. Stores -1 or index of valid path node.
 	*/
-	private final byte[] aMap;
+	private final TileInts iMap;
 
 	/**
-	 * Bridges protected tiles map. Stores count of bridges that are protecting tile.
+	 * Packed tile state map, so evaluation step reads one int per tile:
+	 * masked tile state (STATE), path node rotations (ROTATED), path node (PATH), output liquids (OUTPUT),
+	 * invisible rotation (HORIZONTAL) and count of bridges that are protecting tile (BRIDGE). Rotations do not invert
+	 * when get to previous position so they prevent from stucking in dead-end but let algorithm to check different
+	 * rotations of same path.
 	*/
-	private final int[] bMap;
+	private final int[] kMap;
 
 	/**
-	 * Path nodes indices map. Stores -1 or index of valid path node.
+	 * Evaluation node of greedy walk, A* search and path replay, it stores distance in r field and step in s field
 	*/
-	private final int[] iMap;
+	private final PathNode evaluateNode = new PathNode(Integer.MAX_VALUE, 0, -1, -1, -1);
 
 	/**
-	 * Internal output liquids map
+	 * Evaluation nodes of parallel A* search, one per search thread, created with parallel search
 	*/
-	private final boolean[] oMap;
+	private PathNode[] parallelNodes = null;
 
 	/**
-	 * Path nodes map. Stores false or true for valid path node.
+	 * Stores path nodes during path evaluation
 	*/
-	private final boolean[] pMap;
+	private final PathStack pathNodes1;
 
 	/**
-	 * Path nodes rotation map: ([RIGHT][UPPER][LEFT][BOTTOM]).
-	 * Does not invert when get to previous position so this map prevents from stucking in dead-end
-	 * but lets algorithm to check different rotations of same path (very specific need case).
+	 * Stores path nodes during path reduction
 	*/
-	private final boolean[] rMap;
+	private final PathStack pathNodes2;
 
 	/**
-	 * Internal invisible rotation map
+	 * A* forward search states costs and parents, created on first A* search. Search state is (i * 4 + r) * 8 + m,
+	 * where i is tile index, r is incoming rotation and m is mode of the tile (see SEARCH_CONDUIT, SEARCH_BRIDGE,
+	 * SEARCH_PROTECTED).
+	 * Forward and backward searches keep only states they reached instead of eight ints per tile each.
 	*/
-	private final boolean[] vMap;
+	private PathStates gStates1 = null;
 
 	/**
-	 * Stores path nodes during path evaluation
+	 * A* backward search states costs to target and children (-1 for last tile), created on first bidirectional search
 	*/
-	private final ArrayList<PathNode> pathNodes1;
+	private PathStates gStates2 = null;
 
 	/**
-	 * Stores path nodes during path reduction
+	 * A* first tiles map, created on first A* search. Stores 0 or index of first tile in search first tiles plus 1.
+	*/
+	private int[] fMap = null;
+
+	/**
+	 * A* targets map, created on first A* search. Stores 0 or index of target in search targets plus 1.
+	*/
+	private int[] tMap = null;
+
+	/**
+	 * A* forward search open list
+	*/
+	private PathHeap heap1 = null;
+
+	/**
+	 * A* backward search open list
+	*/
+	private PathHeap heap2 = null;
+
+	/**
+	 * Parallel A* search, created on first search if Parallel is set
+	*/
+	private PathParallel parallel = null;
+
+	/**
+	 * Chunks abstraction of internal map, built on first search if Clusters is set
+	*/
+	private PathClusters clusters = null;
+
+	/**
+	 * Whether A* search is restricted to the corridor of chunks
+	*/
+	private boolean corridor = false;
+
+	/**
+	 * Distance fields from targets, built on first path building if DistanceField is set
+	*/
+	private PathField field = null;
+
+	/**
+	 * Path nodes map distance fields are built on, filled only if DistanceField is set
+	*/
+	private TileBits lMap = null;
+
+	/**
+	 * Internal map version, distance fields built for older versions are outdated
+	*/
+	private long mapStamp = 0;
+
+	/**
+	 * A* heuristic weight in WEIGHT_SCALE units
+	*/
+	private int weight = WEIGHT_SCALE;
+
+	/**
+	 * A* cost of the last path found by search
+	*/
+	private int pathCost = Integer.MAX_VALUE;
+
+	/**
+	 * Finder with its own maps that runs greedy walk of portfolio race, created on first race
+	*/
+	private LiquidPathFinder racer = null;
+
+	/**
+	 * Thread greedy walk of portfolio race runs on, kept between races
+	*/
+	private PathWorker raceWorker = null;
+
+	/**
+	 * Greedy walk path of the last race, stored by racer thread
+	*/
+	private LinkedList<BuildPlan> racePath = null;
+
+	/**
+	 * Greedy walk failure of the last race, stored by racer thread
+	*/
+	private Throwable raceFailure = null;
+
+	/**
+	 * Search is cancelled at time checks after this time, portfolio race sets it for the loser
+	*/
+	private volatile long cancelTime = Long.MAX_VALUE;
+
+	/**
+	 * Search window, maps are filled and path is searched inside it only
+	*/
+	private int wMinX = 0;
+	private int wMinY = 0;
+	private int wMaxX = 0;
+	private int wMaxY = 0;
+
+	/**
+	 * Connected components of passable tiles, built on first search
+	*/
+	private PathComponents components = null;
+
+	/**
+	 * Blocked tiles of internal map, map updates keep it where they write tiles, components are built from it
+	*/
+	private TileBits cMap;
+
+	/**
+	 * Blocked tiles written by running map update, it replaces cMap at the end of update if they differ
+	*/
+	private TileBits nMap;
+
+	/**
+	 * Stamp of blocked tiles, it is changed only by map updates that change cMap
 	*/
-	private final ArrayList<PathNode> pathNodes2;
+	private long blockedStamp = 0;
+
+	/**
+	 * Blocked tiles stamp components were built for
+	*/
+	private long componentsStamp = -1;
+
+	/**
+	 * Distances to protected tiles ahead, built on first search after map updates
+	*/
+	private PathRays rays = null;
+
+	/**
+	 * Internal map stamp protect rays were built for
+	*/
+	private long raysStamp = -1;
 
 	/**
 	 * How much evaluations done before timer check
@@ -213,6 +467,105 @@ public class LiquidPathFinder
 	*/
 	public boolean Manhattan = false;
 
+	/**
+	 * Index of the first tile used by the last path found with A* search, -1 if there is no such path
+	*/
+	public int PathStart = -1;
+
+	/**
+	 * Build plans limit, path of that many plans or more is failure for every engine. Greedy walk and A* searches give up
+	 * partial paths as soon as the least plans a path through them takes reach it (see PlansBound).
+	*/
+	public int PlansLimit = Integer.MAX_VALUE;
+
+	/**
+	 * Endpoints the last path was rejected for without search, flags of PathComponents
+	*/
+	public int PathEnclosed = PathComponents.ENCLOSED_NONE;
+
+	/**
+	 * Search coarse corridor of chunks first and refine path inside it, speeds up A* on large maps
+	*/
+	public boolean Clusters = false;
+
+	/**
+	 * Steer greedy walk and A* search by distance field from targets instead of straight distance, knows walls
+	*/
+	public boolean DistanceField = false;
+
+	/**
+	 * Landmark distance tables that bound A* heuristic from below far from targets, not used if null
+	*/
+	public PathLandmarks Landmarks = null;
+
+	/**
+	 * Find path with inflated A* heuristic first and search again with lower weights while time remains,
+	 * the cheapest path is returned, so time exceeded after the first path is not a failure
+	*/
+	public boolean Anytime = false;
+
+	/**
+	 * Use hash distributed A* search on several threads for big maps, see PathParallel.
+	 * Bidirectional search stays on one thread.
+	*/
+	public boolean Parallel = false;
+
+	/**
+	 * Fill maps and search path inside window around endpoints, window grows only if there is no path in it.
+	 * Not used with distance field because it is built on the whole map.
+	*/
+	public boolean Window = false;
+
+	/**
+	 * A* search passes straight conduit runs over open tiles as one move and turns only at decision points (blocks and
+	 * buildings nearby, target line), expands much less states on open ground but path may have a bit more turns
+	*/
+	public boolean Jump = false;
+
+	/**
+	 * Evaluates distance from tile to the target for path evaluations, distance field is used if it is enabled
+	*/
+	private int Distance(final int i, final int dx, final int dy)
+	{
+		if (DistanceField)
+		{
+			final int distance = field.Distance(i);
+
+			// Tiles that can not reach targets are evaluated last but not dropped, masks of candidate pairs differ a bit
+			return distance == Integer.MAX_VALUE ? Integer.MAX_VALUE - 1 : distance;
+		}
+
+		return Manhattan ? Math.abs(dx) + Math.abs(dy) : dx * dx + dy * dy;
+	}
+
+	/**
+	 * Evaluates bridge move from tile, bridge lands on the nearest tile it can land on and must not pass over another bridge
+	 * @return bridge step, 0 if there is no bridge move
+	 * @param idx    - Tile of the bridge
+	 * @param room   - Tiles in direction until the map border
+	 * @param delta  - Index difference of adjacent tiles in direction
+	 * @param rotate - Direction of the bridge
+	*/
+	private int BridgeMove(final int idx, final int room, final int delta, final int rotate)
+	{
+		// Bridge can not land on dead-end, rays of landing tile except the one heading back are checked
+		final int side1 = (rotate + 1) & 3;
+		final int side2 = (rotate + 3) & 3;
+
+		for (int k = 2, i = idx + delta * 2; k <= BRIDGE_RANGE && k <= room; ++k, i += delta)
+		{
+			if ((kMap[i] & PATH) == 0 && ((kMap[i] & ROTATED << rotate) == 0 || (kMap[i] & ROTATED << side1) == 0 || (kMap[i] & ROTATED << side2) == 0)
+				&& (byte)kMap[i] != INVISIBLE && (byte)kMap[i] != COLLIDE && (byte)kMap[i] != DAMAGE)
+				return k;
+
+			// Bridge can not pass over another bridge
+			if ((byte)kMap[i] == PROTECT || iMap.Get(i) != -1)
+				return 0;
+		}
+
+		return 0;
+	}
+
 	/**
 	 * Evaluates the possibility of turning the path to the right and the distance to the target.
 	 * Parameters are almost equal to BuildPath's local variables
@@ -230,89 +583,83 @@ public class LiquidPathFinder
 		final int pStep
 	)
 	{
-		// Check bMap to prevent mixing liquids due to mid- and end-chain bridges input rules difference
+		// Check BRIDGE count to prevent mixing liquids due to mid- and end-chain bridges input rules difference
 		// Check iMap to prevent bridge loops and bridge opposite rotations
-		// Check oMap to prevent mixing liquids due to unforseen input
-		// Check pMap to prevent path nodes collision
-		// Check rMap to prevent stucking in dead-end
-		// Check vMap to prevent junction collision
+		// Check OUTPUT bit to prevent mixing liquids due to unforseen input
+		// Check PATH bit to prevent path nodes collision
+		// Check ROTATED bits to prevent stucking in dead-end
+		// Check HORIZONTAL bit to prevent junction collision
 		if (x1 + 1 < _width)
 		{
 			final int dx = (x1 + 1) - x2;
 			final int dy = y1 - y2;
 
-			final int distance = Manhattan ? Math.abs(dx) + Math.abs(dy) : dx * dx + dy * dy;
+			final int distance = Distance(idx + 1, dx, dy);
 
 			final int right_1_1 = idx + 1;
-			final int right_1_4 = idx4 + 4;
 
 			final int right_2_1 = idx + 2;
-			final int right_2_4 = idx4 + 8;
-
 			final int right_3_1 = idx + 3;
-			final int right_3_4 = idx4 + 12;
-
 			final int right_4_1 = idx + 4;
-			final int right_4_4 = idx4 + 16;
 
 			final int upper_1_1 = idx + _width;
 			final int left_1_1 = idx - 1;
 			final int bottom_1_1 = idx - _width;
 
 			// Evaluate bridges only if there is block ahead to prevent full-bridge paths
-			if (!pMap[right_1_1] && (!rMap[right_1_4 + RIGHT] || !rMap[right_1_4 + UPPER] || !rMap[right_1_4 + BOTTOM]) && (pStep <= 1 || bMap[idx] == 0))
+			if ((kMap[right_1_1] & PATH) == 0 && ((kMap[right_1_1] & ROTATED << RIGHT) == 0 || (kMap[right_1_1] & ROTATED << UPPER) == 0 || (kMap[right_1_1] & ROTATED << BOTTOM) == 0) && (pStep <= 1 || (kMap[idx] & -BRIDGE) == 0))
 			{
 				// Check if invisible rotation same as evaluated
-				if (aMap[idx] == INVISIBLE && vMap[idx])
+				if ((byte)kMap[idx] == INVISIBLE && (kMap[idx] & HORIZONTAL) != 0)
 					return false;
 
 				// Check if liquids output block is behind
 				// pStep == 1 is to let first tile conduit accept input and bridge cross danger building
-				if ((aMap[idx] == COLLIDE || aMap[idx] == DANGER) && pStep == 1 && x1 - 1 >= 0 && oMap[left_1_1])
+				if (((byte)kMap[idx] == COLLIDE || (byte)kMap[idx] == DANGER) && pStep == 1 && x1 - 1 >= 0 && (kMap[left_1_1] & OUTPUT) != 0)
 					return false;
 
 				// Check if end-chain bridge heading to another bridge
 				// pStep > 1 is to ensure that previous tile is bridge
-				if (pStep > 1 && ((x1 + 1 < _width && aMap[right_1_1] == PROTECT) || (x1 + 2 < _width && aMap[right_2_1] == PROTECT)
-					|| (x1 + 3 < _width && aMap[right_3_1] == PROTECT) || (x1 + 4 < _width && aMap[right_4_1] == PROTECT)))
+				if (pStep > 1 && rays.Rays[idx4 + RIGHT] <= BRIDGE_RANGE && ((x1 + 1 < _width && (byte)kMap[right_1_1] == PROTECT) || (x1 + 2 < _width && (byte)kMap[right_2_1] == PROTECT)
+					|| (x1 + 3 < _width && (byte)kMap[right_3_1] == PROTECT) || (x1 + 4 < _width && (byte)kMap[right_4_1] == PROTECT)))
 					return false;
 
 				// Check if there is bridge ahead, pStep > 1 is to ensure that previous tile is bridge
 				if (pStep > 1)
 				{
-					if (x1 + 1 < _width && pMap[right_1_1])
+					if (x1 + 1 < _width && (kMap[right_1_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[right_1_1];
+						final int idx1 = iMap.Get(right_1_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (x1 + 2 < _width && pMap[right_2_1])
+					if (x1 + 2 < _width && (kMap[right_2_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[right_2_1];
+						final int idx1 = iMap.Get(right_2_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (x1 + 3 < _width && pMap[right_3_1])
+					if (x1 + 3 < _width && (kMap[right_3_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[right_3_1];
+						final int idx1 = iMap.Get(right_3_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (x1 + 4 < _width && pMap[right_4_1])
+					if (x1 + 4 < _width && (kMap[right_4_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[right_4_1];
+						final int idx1 = iMap.Get(right_4_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 				}
@@ -324,69 +671,39 @@ public class LiquidPathFinder
 					return true;
 				}
 			}
-			else if (bMap[idx] == 0 && aMap[right_1_1] != PROTECT && iMap[right_1_1] == -1)
+			else if ((kMap[idx] & -BRIDGE) == 0 && (byte)kMap[right_1_1] != PROTECT && iMap.Get(right_1_1) == -1)
 			{
 				// Check this tile is invsible or another bridge heading to this tile
-				if (aMap[idx] == INVISIBLE || aMap[idx] == COLLIDE || aMap[idx] == DAMAGE)
+				if ((byte)kMap[idx] == INVISIBLE || (byte)kMap[idx] == COLLIDE || (byte)kMap[idx] == DAMAGE)
 					return false;
 
 				// Check if liquids output block is nearby
-				if (aMap[idx] == DANGER)
+				if ((byte)kMap[idx] == DANGER)
 				{
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != BOTTOM && pStep != 0 && y1 + 1 < _height && oMap[upper_1_1])
+					if (pRotate != BOTTOM && pStep != 0 && y1 + 1 < _height && (kMap[upper_1_1] & OUTPUT) != 0)
 						return false;
 
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != RIGHT && pStep != 0 && x1 - 1 >= 0 && oMap[left_1_1])
+					if (pRotate != RIGHT && pStep != 0 && x1 - 1 >= 0 && (kMap[left_1_1] & OUTPUT) != 0)
 						return false;
 
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != UPPER && pStep != 0 && y1 - 1 >= 0 && oMap[bottom_1_1])
+					if (pRotate != UPPER && pStep != 0 && y1 - 1 >= 0 && (kMap[bottom_1_1] & OUTPUT) != 0)
 						return false;
 				}
 
-				// Check if bridge ahead is invisible or under damage
-				if (x1 + 2 < _width && !pMap[right_2_1] && (!rMap[right_2_4 + RIGHT] || !rMap[right_2_4 + UPPER] || !rMap[right_2_4 + BOTTOM])
-					&& aMap[right_2_1] != INVISIBLE && aMap[right_2_1] != COLLIDE && aMap[right_2_1] != DAMAGE)
-				{
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 2;
-						return true;
-					}
-				}
-				else if (x1 + 3 < _width && !pMap[right_3_1] && (!rMap[right_3_4 + RIGHT] || !rMap[right_3_4 + UPPER] || !rMap[right_3_4 + BOTTOM])
-					&& aMap[right_3_1] != INVISIBLE && aMap[right_3_1] != COLLIDE && aMap[right_3_1] != DAMAGE)
-				{
-					// Check if there is another bridge in between (1_1 check in above else if)
-					if (aMap[right_2_1] == PROTECT || iMap[right_2_1] != -1)
-						return false;
+				// Check if bridge ahead is invisible, under damage or passes over another bridge
+				final int step = BridgeMove(idx, _width - 1 - x1, 1, RIGHT);
 
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 3;
-						return true;
-					}
-				}
-				else if (x1 + 4 < _width && !pMap[right_4_1] && (!rMap[right_4_4 + RIGHT] || !rMap[right_4_4 + UPPER] || !rMap[right_4_4 + BOTTOM])
-					&& aMap[right_4_1] != INVISIBLE && aMap[right_4_1] != COLLIDE && aMap[right_4_1] != DAMAGE)
+				if (step != 0 && pathNode.r > distance)
 				{
-					// Check if there is another bridge in between (1_1 check in above else if)
-					if (aMap[right_2_1] == PROTECT || iMap[right_2_1] != -1 || aMap[right_3_1] == PROTECT || iMap[right_3_1] != -1)
-						return false;
-
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 4;
-						return true;
-					}
+					pathNode.r = distance;
+					pathNode.s = step;
+					return true;
 				}
 			}
 		}
@@ -411,91 +728,83 @@ public class LiquidPathFinder
 		final int pStep
 	)
 	{
-		// Check bMap to prevent mixing liquids due to mid- and end-chain bridges input rules difference
+		// Check BRIDGE count to prevent mixing liquids due to mid- and end-chain bridges input rules difference
 		// Check iMap to prevent bridge loops and bridge opposite rotations
-		// Check oMap to prevent mixing liquids due to unforseen input
-		// Check pMap to prevent path nodes collision
-		// Check rMap to prevent stucking in dead-end
-		// Check vMap to prevent junction collision
+		// Check OUTPUT bit to prevent mixing liquids due to unforseen input
+		// Check PATH bit to prevent path nodes collision
+		// Check ROTATED bits to prevent stucking in dead-end
+		// Check HORIZONTAL bit to prevent junction collision
 		if (y1 + 1 < _height)
 		{
 			final int dx = x1 - x2;
 			final int dy = (y1 + 1) - y2;
 
-			final int distance = Manhattan ? Math.abs(dx) + Math.abs(dy) : dx * dx + dy * dy;
-
-			final int width4 = _width * 4;
+			final int distance = Distance(idx + _width, dx, dy);
 
 			final int upper_1_1 = idx + _width;
-			final int upper_1_4 = idx4 + width4;
 
 			final int upper_2_1 = idx + _width * 2;
-			final int upper_2_4 = idx4 + width4 * 2;
-
 			final int upper_3_1 = idx + _width * 3;
-			final int upper_3_4 = idx4 + width4 * 3;
-
 			final int upper_4_1 = idx + _width * 4;
-			final int upper_4_4 = idx4 + width4 * 4;
 
 			final int right_1_1 = idx + 1;
 			final int left_1_1 = idx - 1;
 			final int bottom_1_1 = idx - _width;
 
 			// Evaluate bridges only if there is block ahead to prevent full-bridge paths
-			if (!pMap[upper_1_1] && (!rMap[upper_1_4 + UPPER] || !rMap[upper_1_4 + RIGHT] || !rMap[upper_1_4 + LEFT]) && (pStep <= 1 || bMap[idx] == 0))
+			if ((kMap[upper_1_1] & PATH) == 0 && ((kMap[upper_1_1] & ROTATED << UPPER) == 0 || (kMap[upper_1_1] & ROTATED << RIGHT) == 0 || (kMap[upper_1_1] & ROTATED << LEFT) == 0) && (pStep <= 1 || (kMap[idx] & -BRIDGE) == 0))
 			{
 				// Check if invisible rotation same as evaluated
-				if (aMap[idx] == INVISIBLE && !vMap[idx])
+				if ((byte)kMap[idx] == INVISIBLE && (kMap[idx] & HORIZONTAL) == 0)
 					return false;
 
 				// Check if liquids output block is behind
 				// pStep == 1 is to let first tile conduit accept input and bridge cross danger building
-				if ((aMap[idx] == COLLIDE || aMap[idx] == DANGER) && pStep == 1 && y1 - 1 >= 0 && oMap[bottom_1_1])
+				if (((byte)kMap[idx] == COLLIDE || (byte)kMap[idx] == DANGER) && pStep == 1 && y1 - 1 >= 0 && (kMap[bottom_1_1] & OUTPUT) != 0)
 					return false;
 
 				// Check if end-chain bridge heading to another bridge
 				// pStep > 1 is to ensure that previous tile is bridge
-				if (pStep > 1 && ((y1 + 1 < _height && aMap[upper_1_1] == PROTECT) || (y1 + 2 < _height && aMap[upper_2_1] == PROTECT)
-					|| (y1 + 3 < _height && aMap[upper_3_1] == PROTECT) || (y1 + 4 < _height && aMap[upper_4_1] == PROTECT)))
+				if (pStep > 1 && rays.Rays[idx4 + UPPER] <= BRIDGE_RANGE && ((y1 + 1 < _height && (byte)kMap[upper_1_1] == PROTECT) || (y1 + 2 < _height && (byte)kMap[upper_2_1] == PROTECT)
+					|| (y1 + 3 < _height && (byte)kMap[upper_3_1] == PROTECT) || (y1 + 4 < _height && (byte)kMap[upper_4_1] == PROTECT)))
 					return false;
 
 				// Check if there is bridge ahead, pStep > 1 is to ensure that previous tile is bridge
 				if (pStep > 1)
 				{
-					if (y1 + 1 < _height && pMap[upper_1_1])
+					if (y1 + 1 < _height && (kMap[upper_1_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[upper_1_1];
+						final int idx1 = iMap.Get(upper_1_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (y1 + 2 < _height && pMap[upper_2_1])
+					if (y1 + 2 < _height && (kMap[upper_2_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[upper_2_1];
+						final int idx1 = iMap.Get(upper_2_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (y1 + 3 < _height && pMap[upper_3_1])
+					if (y1 + 3 < _height && (kMap[upper_3_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[upper_3_1];
+						final int idx1 = iMap.Get(upper_3_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (y1 + 4 < _height && pMap[upper_4_1])
+					if (y1 + 4 < _height && (kMap[upper_4_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[upper_4_1];
+						final int idx1 = iMap.Get(upper_4_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 				}
@@ -507,69 +816,39 @@ public class LiquidPathFinder
 					return true;
 				}
 			}
-			else if (bMap[idx] == 0 && aMap[upper_1_1] != PROTECT && iMap[upper_1_1] == -1)
+			else if ((kMap[idx] & -BRIDGE) == 0 && (byte)kMap[upper_1_1] != PROTECT && iMap.Get(upper_1_1) == -1)
 			{
 				// Check this tile is invsible or another bridge heading to this tile
-				if (aMap[idx] == INVISIBLE || aMap[idx] == COLLIDE || aMap[idx] == DAMAGE)
+				if ((byte)kMap[idx] == INVISIBLE || (byte)kMap[idx] == COLLIDE || (byte)kMap[idx] == DAMAGE)
 					return false;
 
 				// Check if liquids output block is nearby
-				if (aMap[idx] == DANGER)
+				if ((byte)kMap[idx] == DANGER)
 				{
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != LEFT && pStep != 0 && x1 + 1 < _width && oMap[right_1_1])
+					if (pRotate != LEFT && pStep != 0 && x1 + 1 < _width && (kMap[right_1_1] & OUTPUT) != 0)
 						return false;
 
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != RIGHT && pStep != 0 && x1 - 1 >= 0 && oMap[left_1_1])
+					if (pRotate != RIGHT && pStep != 0 && x1 - 1 >= 0 && (kMap[left_1_1] & OUTPUT) != 0)
 						return false;
 
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != UPPER && pStep != 0 && y1 - 1 >= 0 && oMap[bottom_1_1])
+					if (pRotate != UPPER && pStep != 0 && y1 - 1 >= 0 && (kMap[bottom_1_1] & OUTPUT) != 0)
 						return false;
 				}
 
-				// Check if bridge ahead is invisible or under damage
-				if (y1 + 2 < _height && !pMap[upper_2_1] && (!rMap[upper_2_4 + UPPER] || !rMap[upper_2_4 + RIGHT] || !rMap[upper_2_4 + LEFT])
-					&& aMap[upper_2_1] != INVISIBLE && aMap[upper_2_1] != COLLIDE && aMap[upper_2_1] != DAMAGE)
-				{
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 2;
-						return true;
-					}
-				}
-				else if (y1 + 3 < _height && !pMap[upper_3_1] && (!rMap[upper_3_4 + UPPER] || !rMap[upper_3_4 + RIGHT] || !rMap[upper_3_4 + LEFT])
-					&& aMap[upper_3_1] != INVISIBLE && aMap[upper_3_1] != COLLIDE && aMap[upper_3_1] != DAMAGE)
-				{
-					// Check if there is another bridge in between (1_1 check in above else if)
-					if (aMap[upper_2_1] == PROTECT || iMap[upper_2_1] != -1)
-						return false;
+				// Check if bridge ahead is invisible, under damage or passes over another bridge
+				final int step = BridgeMove(idx, _height - 1 - y1, _width, UPPER);
 
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 3;
-						return true;
-					}
-				}
-				else if (y1 + 4 < _height && !pMap[upper_4_1] && (!rMap[upper_4_4 + UPPER] || !rMap[upper_4_4 + RIGHT] || !rMap[upper_4_4 + LEFT])
-					&& aMap[upper_4_1] != INVISIBLE && aMap[upper_4_1] != COLLIDE && aMap[upper_4_1] != DAMAGE)
+				if (step != 0 && pathNode.r > distance)
 				{
-					// Check if there is another bridge in between (1_1 check in above else if)
-					if (aMap[upper_2_1] == PROTECT || iMap[upper_2_1] != -1 || aMap[upper_3_1] == PROTECT || iMap[upper_3_1] != -1)
-						return false;
-
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 4;
-						return true;
-					}
+					pathNode.r = distance;
+					pathNode.s = step;
+					return true;
 				}
 			}
 		}
@@ -594,89 +873,83 @@ public class LiquidPathFinder
 		final int pStep
 	)
 	{
-		// Check bMap to prevent mixing liquids due to mid- and end-chain bridges input rules difference
+		// Check BRIDGE count to prevent mixing liquids due to mid- and end-chain bridges input rules difference
 		// Check iMap to prevent bridge loops and bridge opposite rotations
-		// Check oMap to prevent mixing liquids due to unforseen input
-		// Check pMap to prevent path nodes collision
-		// Check rMap to prevent stucking in dead-end
-		// Check vMap to prevent junction collision
+		// Check OUTPUT bit to prevent mixing liquids due to unforseen input
+		// Check PATH bit to prevent path nodes collision
+		// Check ROTATED bits to prevent stucking in dead-end
+		// Check HORIZONTAL bit to prevent junction collision
 		if (x1 - 1 >= 0)
 		{
 			final int dx = (x1 - 1) - x2;
 			final int dy = y1 - y2;
 
-			final int distance = Manhattan ? Math.abs(dx) + Math.abs(dy) : dx * dx + dy * dy;
+			final int distance = Distance(idx - 1, dx, dy);
 
 			final int left_1_1 = idx - 1;
-			final int left_1_4 = idx4 - 4;
 
 			final int left_2_1 = idx - 2;
-			final int left_2_4 = idx4 - 8;
-
 			final int left_3_1 = idx - 3;
-			final int left_3_4 = idx4 - 12;
-
 			final int left_4_1 = idx - 4;
-			final int left_4_4 = idx4 - 16;
 
 			final int right_1_1 = idx + 1;
 			final int upper_1_1 = idx + _width;
 			final int bottom_1_1 = idx - _width;
 
 			// Evaluate bridges only if there is block ahead to prevent full-bridge paths
-			if (!pMap[left_1_1] && (!rMap[left_1_4 + LEFT] || !rMap[left_1_4 + UPPER] || !rMap[left_1_4 + BOTTOM]) && (pStep <= 1 || bMap[idx] == 0))
+			if ((kMap[left_1_1] & PATH) == 0 && ((kMap[left_1_1] & ROTATED << LEFT) == 0 || (kMap[left_1_1] & ROTATED << UPPER) == 0 || (kMap[left_1_1] & ROTATED << BOTTOM) == 0) && (pStep <= 1 || (kMap[idx] & -BRIDGE) == 0))
 			{
 				// Check if invisible rotation same as evaluated
-				if (aMap[idx] == INVISIBLE && vMap[idx])
+				if ((byte)kMap[idx] == INVISIBLE && (kMap[idx] & HORIZONTAL) != 0)
 					return false;
 
 				// Check if liquids output block is behind
 				// pStep == 1 is to let first tile conduit accept input and bridge cross danger building
-				if ((aMap[idx] == COLLIDE || aMap[idx] == DANGER) && pStep == 1 && x1 + 1 < _width && oMap[right_1_1])
+				if (((byte)kMap[idx] == COLLIDE || (byte)kMap[idx] == DANGER) && pStep == 1 && x1 + 1 < _width && (kMap[right_1_1] & OUTPUT) != 0)
 					return false;
 
 				// Check if end-chain bridge heading to another bridge
 				// pStep > 1 is to ensure that previous tile is bridge
-				if (pStep > 1 && ((x1 - 1 >= 0 && aMap[left_1_1] == PROTECT) || (x1 - 2 >= 0 && aMap[left_2_1] == PROTECT)
-					|| (x1 - 3 >= 0 && aMap[left_3_1] == PROTECT) || (x1 - 4 >= 0 && aMap[left_4_1] == PROTECT)))
+				if (pStep > 1 && rays.Rays[idx4 + LEFT] <= BRIDGE_RANGE && ((x1 - 1 >= 0 && (byte)kMap[left_1_1] == PROTECT) || (x1 - 2 >= 0 && (byte)kMap[left_2_1] == PROTECT)
+					|| (x1 - 3 >= 0 && (byte)kMap[left_3_1] == PROTECT) || (x1 - 4 >= 0 && (byte)kMap[left_4_1] == PROTECT)))
 					return false;
 
 				// Check if there is bridge ahead, pStep > 1 is to ensure that previous tile is bridge
 				if (pStep > 1)
 				{
-					if (x1 - 1 >= 0 && pMap[left_1_1])
+					if (x1 - 1 >= 0 && (kMap[left_1_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[left_1_1];
+						final int idx1 = iMap.Get(left_1_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (x1 - 2 >= 0 && pMap[left_2_1])
+					if (x1 - 2 >= 0 && (kMap[left_2_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[left_2_1];
+						final int idx1 = iMap.Get(left_2_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (x1 - 3 >= 0 && pMap[left_3_1])
+					if (x1 - 3 >= 0 && (kMap[left_3_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[left_3_1];
+						final int idx1 = iMap.Get(left_3_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (x1 - 4 >= 0 && pMap[left_4_1])
+					if (x1 - 4 >= 0 && (kMap[left_4_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[left_4_1];
+						final int idx1 = iMap.Get(left_4_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 				}
@@ -688,69 +961,39 @@ public class LiquidPathFinder
 					return true;
 				}
 			}
-			else if (bMap[idx] == 0 && aMap[left_1_1] != PROTECT && iMap[left_1_1] == -1)
+			else if ((kMap[idx] & -BRIDGE) == 0 && (byte)kMap[left_1_1] != PROTECT && iMap.Get(left_1_1) == -1)
 			{
 				// Check this tile is invsible or another bridge heading to this tile
-				if (aMap[idx] == INVISIBLE || aMap[idx] == COLLIDE || aMap[idx] == DAMAGE)
+				if ((byte)kMap[idx] == INVISIBLE || (byte)kMap[idx] == COLLIDE || (byte)kMap[idx] == DAMAGE)
 					return false;
 
 				// Check if liquids output block is nearby
-				if (aMap[idx] == DANGER)
+				if ((byte)kMap[idx] == DANGER)
 				{
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != LEFT && pStep != 0 && x1 + 1 < _width && oMap[right_1_1])
+					if (pRotate != LEFT && pStep != 0 && x1 + 1 < _width && (kMap[right_1_1] & OUTPUT) != 0)
 						return false;
 
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != BOTTOM && pStep != 0 && y1 + 1 < _height && oMap[upper_1_1])
+					if (pRotate != BOTTOM && pStep != 0 && y1 + 1 < _height && (kMap[upper_1_1] & OUTPUT) != 0)
 						return false;
 
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != UPPER && pStep != 0 && y1 - 1 >= 0 && oMap[bottom_1_1])
+					if (pRotate != UPPER && pStep != 0 && y1 - 1 >= 0 && (kMap[bottom_1_1] & OUTPUT) != 0)
 						return false;
 				}
 
-				// Check if bridge ahead is invisible or under damage
-				if (x1 - 2 >= 0 && !pMap[left_2_1] && (!rMap[left_2_4 + LEFT] || !rMap[left_2_4 + UPPER] || !rMap[left_2_4 + BOTTOM])
-					&& aMap[left_2_1] != INVISIBLE && aMap[left_2_1] != COLLIDE && aMap[left_2_1] != DAMAGE)
-				{
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 2;
-						return true;
-					}
-				}
-				else if (x1 - 3 >= 0 && !pMap[left_3_1] && (!rMap[left_3_4 + LEFT] || !rMap[left_3_4 + UPPER] || !rMap[left_3_4 + BOTTOM])
-					&& aMap[left_3_1] != INVISIBLE && aMap[left_3_1] != COLLIDE && aMap[left_3_1] != DAMAGE)
-				{
-					// Check if there is another bridge in between (1_1 check in above else if)
-					if (aMap[left_2_1] == PROTECT || iMap[left_2_1] != -1)
-						return false;
+				// Check if bridge ahead is invisible, under damage or passes over another bridge
+				final int step = BridgeMove(idx, x1, -1, LEFT);
 
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 3;
-						return true;
-					}
-				}
-				else if (x1 - 4 >= 0 && !pMap[left_4_1] && (!rMap[left_4_4 + LEFT] || !rMap[left_4_4 + UPPER] || !rMap[left_4_4 + BOTTOM])
-					&& aMap[left_4_1] != INVISIBLE && aMap[left_4_1] != COLLIDE && aMap[left_4_1] != DAMAGE)
+				if (step != 0 && pathNode.r > distance)
 				{
-					// Check if there is another bridge in between (1_1 check in above else if)
-					if (aMap[left_2_1] == PROTECT || iMap[left_2_1] != -1 || aMap[left_3_1] == PROTECT || iMap[left_3_1] != -1)
-						return false;
-
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 4;
-						return true;
-					}
+					pathNode.r = distance;
+					pathNode.s = step;
+					return true;
 				}
 			}
 		}
@@ -775,91 +1018,83 @@ public class LiquidPathFinder
 		final int pStep
 	)
 	{
-		// Check bMap to prevent mixing liquids due to mid- and end-chain bridges input rules difference
+		// Check BRIDGE count to prevent mixing liquids due to mid- and end-chain bridges input rules difference
 		// Check iMap to prevent bridge loops and bridge opposite rotations
-		// Check oMap to prevent mixing liquids due to unforseen input
-		// Check pMap to prevent path nodes collision
-		// Check rMap to prevent stucking in dead-end
-		// Check vMap to prevent junction collision
+		// Check OUTPUT bit to prevent mixing liquids due to unforseen input
+		// Check PATH bit to prevent path nodes collision
+		// Check ROTATED bits to prevent stucking in dead-end
+		// Check HORIZONTAL bit to prevent junction collision
 		if (y1 - 1 >= 0)
 		{
 			final int dx = x1 - x2;
 			final int dy = (y1 - 1) - y2;
 
-			final int distance = Manhattan ? Math.abs(dx) + Math.abs(dy) : dx * dx + dy * dy;
-
-			final int width4 = _width * 4;
+			final int distance = Distance(idx - _width, dx, dy);
 
 			final int bottom_1_1 = idx - _width;
-			final int bottom_1_4 = idx4 - width4;
 
 			final int bottom_2_1 = idx - _width * 2;
-			final int bottom_2_4 = idx4 - width4 * 2;
-
 			final int bottom_3_1 = idx - _width * 3;
-			final int bottom_3_4 = idx4 - width4 * 3;
-
 			final int bottom_4_1 = idx - _width * 4;
-			final int bottom_4_4 = idx4 - width4 * 4;
 
 			final int right_1_1 = idx + 1;
 			final int upper_1_1 = idx + _width;
 			final int left_1_1 = idx - 1;
 
 			// Evaluate bridges only if there is block ahead to prevent full-bridge paths
-			if (!pMap[bottom_1_1] && (!rMap[bottom_1_4 + BOTTOM] || !rMap[bottom_1_4 + RIGHT] || !rMap[bottom_1_4 + LEFT]) && (pStep <= 1 || bMap[idx] == 0))
+			if ((kMap[bottom_1_1] & PATH) == 0 && ((kMap[bottom_1_1] & ROTATED << BOTTOM) == 0 || (kMap[bottom_1_1] & ROTATED << RIGHT) == 0 || (kMap[bottom_1_1] & ROTATED << LEFT) == 0) && (pStep <= 1 || (kMap[idx] & -BRIDGE) == 0))
 			{
 				// Check if invisible rotation same as evaluated
-				if (aMap[idx] == INVISIBLE && !vMap[idx])
+				if ((byte)kMap[idx] == INVISIBLE && (kMap[idx] & HORIZONTAL) == 0)
 					return false;
 
 				// Check if liquids output block is behind
 				// pStep == 1 is to let first tile conduit accept input and bridge cross danger building
-				if ((aMap[idx] == COLLIDE || aMap[idx] == DANGER) && pStep == 1 && y1 + 1 < _height && oMap[upper_1_1])
+				if (((byte)kMap[idx] == COLLIDE || (byte)kMap[idx] == DANGER) && pStep == 1 && y1 + 1 < _height && (kMap[upper_1_1] & OUTPUT) != 0)
 					return false;
 
 				// Check if end-chain bridge heading to another bridge
 				// pStep > 1 is to ensure that previous tile is bridge
-				if (pStep > 1 && ((y1 - 1 >= 0 && aMap[bottom_1_1] == PROTECT) || (y1 - 2 >= 0 && aMap[bottom_2_1] == PROTECT)
-					|| (y1 - 3 >= 0 && aMap[bottom_3_1] == PROTECT) || (y1 - 4 >= 0 && aMap[bottom_4_1] == PROTECT)))
+				if (pStep > 1 && rays.Rays[idx4 + BOTTOM] <= BRIDGE_RANGE && ((y1 - 1 >= 0 && (byte)kMap[bottom_1_1] == PROTECT) || (y1 - 2 >= 0 && (byte)kMap[bottom_2_1] == PROTECT)
+					|| (y1 - 3 >= 0 && (byte)kMap[bottom_3_1] == PROTECT) || (y1 - 4 >= 0 && (byte)kMap[bottom_4_1] == PROTECT)))
 					return false;
 
 				// Check if there is bridge ahead, pStep > 1 is to ensure that previous tile is bridge
 				if (pStep > 1)
 				{
-					if (y1 - 1 >= 0 && pMap[bottom_1_1])
+					if (y1 - 1 >= 0 && (kMap[bottom_1_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[bottom_1_1];
+						final int idx1 = iMap.Get(bottom_1_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (y1 - 2 >= 0 && pMap[bottom_2_1])
+					if (y1 - 2 >= 0 && (kMap[bottom_2_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[bottom_2_1];
+						final int idx1 = iMap.Get(bottom_2_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (y1 - 3 >= 0 && pMap[bottom_3_1])
+					if (y1 - 3 >= 0 && (kMap[bottom_3_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[bottom_3_1];
+						final int idx1 = iMap.Get(bottom_3_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 
-					if (y1 - 4 >= 0 && pMap[bottom_4_1])
+					if (y1 - 4 >= 0 && (kMap[bottom_4_1] & PATH) != 0)
 					{
-						final int idx1 = iMap[bottom_4_1];
+						final int idx1 = iMap.Get(bottom_4_1);
 						final int idx0 = idx1 - 1;
 
-						if ((idx1 >= 0 && pathNodes1.get(idx1).s != 1) || (idx0 >= 0 && pathNodes1.get(idx0).s != 1))
+						if ((idx1 >= 0 && pathNodes1.S(idx1) != 1) || (idx0 >= 0 && pathNodes1.S(idx0) != 1))
 							return false;
 					}
 				}
@@ -871,69 +1106,39 @@ public class LiquidPathFinder
 					return true;
 				}
 			}
-			else if (bMap[idx] == 0 && aMap[bottom_1_1] != PROTECT && iMap[bottom_1_1] == -1)
+			else if ((kMap[idx] & -BRIDGE) == 0 && (byte)kMap[bottom_1_1] != PROTECT && iMap.Get(bottom_1_1) == -1)
 			{
 				// Check this tile is invsible or another bridge heading to this tile
-				if (aMap[idx] == INVISIBLE || aMap[idx] == COLLIDE || aMap[idx] == DAMAGE)
+				if ((byte)kMap[idx] == INVISIBLE || (byte)kMap[idx] == COLLIDE || (byte)kMap[idx] == DAMAGE)
 					return false;
 
 				// Check if liquids output block is nearby
-				if (aMap[idx] == DANGER)
+				if ((byte)kMap[idx] == DANGER)
 				{
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != LEFT && pStep != 0 && x1 + 1 < _width && oMap[right_1_1])
+					if (pRotate != LEFT && pStep != 0 && x1 + 1 < _width && (kMap[right_1_1] & OUTPUT) != 0)
 						return false;
 
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != BOTTOM && pStep != 0 && y1 + 1 < _height && oMap[upper_1_1])
+					if (pRotate != BOTTOM && pStep != 0 && y1 + 1 < _height && (kMap[upper_1_1] & OUTPUT) != 0)
 						return false;
 
 					// Bridges do not accept input from sides where another bridges connected
 					// pStep != 0 is to let first tile accept any input
-					if (pRotate != RIGHT && pStep != 0 && x1 - 1 >= 0 && oMap[left_1_1])
+					if (pRotate != RIGHT && pStep != 0 && x1 - 1 >= 0 && (kMap[left_1_1] & OUTPUT) != 0)
 						return false;
 				}
 
-				// Check if bridge ahead is invisible or under damage
-				if (y1 - 2 >= 0 && !pMap[bottom_2_1] && (!rMap[bottom_2_4 + BOTTOM] || !rMap[bottom_2_4 + RIGHT] || !rMap[bottom_2_4 + LEFT])
-					&& aMap[bottom_2_1] != INVISIBLE && aMap[bottom_2_1] != COLLIDE && aMap[bottom_2_1] != DAMAGE)
-				{
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 2;
-						return true;
-					}
-				}
-				else if (y1 - 3 >= 0 && !pMap[bottom_3_1] && (!rMap[bottom_3_4 + BOTTOM] || !rMap[bottom_3_4 + RIGHT] || !rMap[bottom_3_4 + LEFT])
-					&& aMap[bottom_3_1] != INVISIBLE && aMap[bottom_3_1] != COLLIDE && aMap[bottom_3_1] != DAMAGE)
-				{
-					// Check if there is another bridge in between (1_1 check in above else if)
-					if (aMap[bottom_2_1] == PROTECT || iMap[bottom_2_1] != -1)
-						return false;
+				// Check if bridge ahead is invisible, under damage or passes over another bridge
+				final int step = BridgeMove(idx, y1, -_width, BOTTOM);
 
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 3;
-						return true;
-					}
-				}
-				else if (y1 - 4 >= 0 && !pMap[bottom_4_1] && (!rMap[bottom_4_4 + BOTTOM] || !rMap[bottom_4_4 + RIGHT] || !rMap[bottom_4_4 + LEFT])
-					&& aMap[bottom_4_1] != INVISIBLE && aMap[bottom_4_1] != COLLIDE && aMap[bottom_4_1] != DAMAGE)
+				if (step != 0 && pathNode.r > distance)
 				{
-					// Check if there is another bridge in between (1_1 check in above else if)
-					if (aMap[bottom_2_1] == PROTECT || iMap[bottom_2_1] != -1 || aMap[bottom_3_1] == PROTECT || iMap[bottom_3_1] != -1)
-						return false;
-
-					if (pathNode.r > distance)
-					{
-						pathNode.r = distance;
-						pathNode.s = 4;
-						return true;
-					}
+					pathNode.r = distance;
+					pathNode.s = step;
+					return true;
 				}
 			}
 		}
@@ -941,6 +1146,90 @@ public class LiquidPathFinder
 		return false;
 	}
 
+	/**
+	 * Evaluates the possibility of turning the path to the given rotation and the distance to the target.
+	 * Parameters are almost equal to BuildPath's local variables
+	*/
+	private boolean EvaluateRotate
+	(
+		final int rotate,
+		final PathNode pathNode,
+		final int idx,
+		final int idx4,
+		final int x1,
+		final int y1,
+		final int x2,
+		final int y2,
+		final int pRotate,
+		final int pStep
+	)
+	{
+		switch (rotate)
+		{
+			case RIGHT:
+				return EvaluateRightRotate(pathNode, idx, idx4, x1, y1, x2, y2, pRotate, pStep);
+
+			case UPPER:
+				return EvaluateUpperRotate(pathNode, idx, idx4, x1, y1, x2, y2, pRotate, pStep);
+
+			case LEFT:
+				return EvaluateLeftRotate(pathNode, idx, idx4, x1, y1, x2, y2, pRotate, pStep);
+
+			case BOTTOM:
+				return EvaluateBottomRotate(pathNode, idx, idx4, x1, y1, x2, y2, pRotate, pStep);
+
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Updates chunks abstraction with blocked tiles of internal map rectangle, if it is built
+	 * @param x1 - Rectangle left x (inclusive)
+	 * @param y1 - Rectangle bottom y (inclusive)
+	 * @param x2 - Rectangle right x (exclusive)
+	 * @param y2 - Rectangle upper y (exclusive)
+	*/
+	private void UpdateClusters(int x1, int y1, int x2, int y2)
+	{
+		if (clusters == null)
+			return;
+
+		x1 = Math.max(x1, 0);
+		y1 = Math.max(y1, 0);
+		x2 = Math.min(x2, _width);
+		y2 = Math.min(y2, _height);
+
+		for (int y = y1; y < y2; ++y)
+			for (int x = x1, i = x1 + y * _width; x < x2; ++x, ++i)
+				clusters.Update(i, _map[i] == PROTECT || _map[i] == BLOCK);
+	}
+
+	/**
+	 * Makes internal map tile blocked, blocked tiles of running map update follow it
+	*/
+	private void BlockTile(final int i)
+	{
+		_map[i] = BLOCK;
+		nMap.Set(i);
+	}
+
+	/**
+	 * Replaces blocked tiles with the ones written by map update if they differ
+	*/
+	private void UpdateBlocked()
+	{
+		if (nMap.Equals(cMap))
+			return;
+
+		final TileBits map = cMap;
+
+		cMap = nMap;
+		nMap = map;
+
+		++blockedStamp;
+	}
+
 	/**
 	 * Evaluates building liquids output influence on nearby tiles (only bridge)
 	 * @param r - building rotation
@@ -980,7 +1269,7 @@ public class LiquidPathFinder
 
 				// Bridge outputs to conduit so make block there since it is end-chain bridge
 				if (x_beg < _width)
-					_map[i_beg] = BLOCK;
+					BlockTile(i_beg);
 
 				break;
 			}
@@ -1009,7 +1298,7 @@ public class LiquidPathFinder
 
 				// Bridge outputs to conduit so make block there since it is end-chain bridge
 				if (y_beg < _height)
-					_map[i_beg] = BLOCK;
+					BlockTile(i_beg);
 
 				break;
 			}
@@ -1038,7 +1327,7 @@ public class LiquidPathFinder
 
 				// Bridge outputs to conduit so make block there since it is end-chain bridge
 				if (x_beg >= 0)
-					_map[i_beg] = BLOCK;
+					BlockTile(i_beg);
 
 				break;
 			}
@@ -1067,7 +1356,7 @@ public class LiquidPathFinder
 
 				// Bridge outputs to conduit so make block there since it is end-chain bridge
 				if (y_beg >= 0)
-					_map[i_beg] = BLOCK;
+					BlockTile(i_beg);
 
 				break;
 			}
@@ -1100,7 +1389,7 @@ public class LiquidPathFinder
 					final int ii = i + 1;
 
 					if (x < _width - 1 && _map[ii] != INVISIBLE && _map[ii] != PROTECT)
-						_map[ii] = BLOCK;
+						BlockTile(ii);
 
 					break;
 				}
@@ -1110,7 +1399,7 @@ public class LiquidPathFinder
 					final int ii = i + _width;
 
 					if (y < _height - 1 && _map[ii] != INVISIBLE && _map[ii] != PROTECT)
-						_map[ii] = BLOCK;
+						BlockTile(ii);
 
 					break;
 				}
@@ -1120,7 +1409,7 @@ public class LiquidPathFinder
 					final int ii = i - 1;
 
 					if (x > 0 && _map[ii] != INVISIBLE && _map[ii] != PROTECT)
-						_map[ii] = BLOCK;
+						BlockTile(ii);
 
 					break;
 				}
@@ -1130,7 +1419,7 @@ public class LiquidPathFinder
 					final int ii = i - _width;
 
 					if (y > 0 && _map[ii] != INVISIBLE && _map[ii] != PROTECT)
-						_map[ii] = BLOCK;
+						BlockTile(ii);
 
 					break;
 				}
@@ -1148,16 +1437,16 @@ public class LiquidPathFinder
 			final int bottom = i - _width;
 
 			if (x < _width - 1 && _map[right] != INVISIBLE && _map[right] != PROTECT)
-				_map[right] = BLOCK;
+				BlockTile(right);
 
 			if (y < _height - 1 && _map[upper] != INVISIBLE && _map[upper] != PROTECT)
-				_map[upper] = BLOCK;
+				BlockTile(upper);
 
 			if (x > 0 && _map[left] != INVISIBLE && _map[left] != PROTECT)
-				_map[left] = BLOCK;
+				BlockTile(left);
 
 			if (y > 0 && _map[bottom] != INVISIBLE && _map[bottom] != PROTECT)
-				_map[bottom] = BLOCK;
+				BlockTile(bottom);
 		}
 		// Make connected to building tiles danger
 		else
@@ -1240,243 +1529,2170 @@ public class LiquidPathFinder
 		}
 	}
 
-	public LiquidPathFinder(int height, int width)
-	{
-		_height = height;
-		_width = width;
-		_size = height * width;
-		_map = new byte[_size];
-		aMap = new byte[_size];
-		bMap = new int[_size];
-		iMap = new int[_size];
-		oMap = new boolean[_size];
-		pMap = new boolean[_size];
-		rMap = new boolean[_size * 4];
-		vMap = new boolean[_size];
-		pathNodes1 = new ArrayList<PathNode>(_size);
-		pathNodes2 = new ArrayList<PathNode>(_size);
-	}
-
-	public LiquidPathFinder(int height, int width, long freq, long time, boolean manh)
-	{
-		this(height, width);
-
-		Frequency = freq;
-		BuildTime = time;
-		Manhattan = manh;
-	}
-
-	/**
-	 * Builds path for liquid resources using bridges, conduits and junctions
-	 * @return             List of building plans if success, null if failure
-	 * @param tile1      - First tile of the path (starting coordinates)
-	 * @param tile2      - Tile after the last tile of the path (destination coordinates)
-	 * @param mustRotate - Required rotation of first tile if it is conduit, -1 if any;
-	 *                     must not be any if first tile is invisible
-	 * @param targetMode - Determines whether to keep target/previous direction settings
-	*/
-	public LinkedList<BuildPlan> BuildPath
-	(
-		final Tile tile1,
-		final Tile tile2,
-		final int mustRotate,
-		final boolean targetMode
-	)
-	{
-		return BuildPath
-		(
-			(int)tile1.x,
-			(int)tile1.y,
-			(int)tile2.x,
-			(int)tile2.y,
-			-1,
-			-1,
-			mustRotate,
-			targetMode,
-			null
-		);
-	}
-
-	/**
-	 * Builds path for liquid resources using bridges, conduits and junctions
-	 * @return             List of building plans if success, null if failure
-	 * @param x1         - First tile of the path (starting coordinate)
-	 * @param y1         - First tile of the path (starting coordinate)
-	 * @param x2         - Tile after the last tile of the path (destination coordinate)
-	 * @param y2         - Tile after the last tile of the path (destination coordinate)
-	 * @param mustRotate - Required rotation of first tile if it is conduit, -1 if any;
-	 *                     must not be any if first tile is invisible
-	 * @param targetMode - Determines whether to keep target/previous direction settings
-	*/
-	public LinkedList<BuildPlan> BuildPath
-	(
-		final int x1,
-		final int y1,
-		final int x2,
-		final int y2,
-		final int mustRotate,
-		final boolean targetMode
-	)
-	{
-		return BuildPath
-		(
-			x1,
-			y1,
-			x2,
-			y2,
-			-1,
-			-1,
-			mustRotate,
-			targetMode,
-			null
-		);
-	}
-
-	/**
-	 * Builds path for liquid resources using bridges, conduits and junctions
-	 * @return             List of building plans if success, null if failure
-	 * @param tile1      - First tile of the path (starting coordinates)
-	 * @param tile2      - Tile after the last tile of the path (destination coordinates)
-	 * @param overrideXY - Tile with overriden state, [-1; -1] if no such tile (override coordinates)
-	 * @param mustRotate - Required rotation of first tile if it is conduit, -1 if any;
-	 *                     must not be any if first tile is invisible
-	 * @param targetMode - Determines whether to keep target/previous direction settings
-	 * @param masks      - Boolean map that protects tiles from pathing
-	*/
-	public LinkedList<BuildPlan> BuildPath
-	(
-		final Tile tile1,
-		final Tile tile2,
-		final Tile overrideXY,
-		final int mustRotate,
-		final boolean targetMode,
-		final boolean[] masks
-	)
-	{
-		return BuildPath
-		(
-			(int)tile1.x,
-			(int)tile1.y,
-			(int)tile2.x,
-			(int)tile2.y,
-			(int)overrideXY.x,
-			(int)overrideXY.y,
-			mustRotate,
-			targetMode,
-			masks
-		);
-	}
-
 	/**
-	 * Builds path for liquid resources using bridges, conduits and junctions
-	 * @return             List of building plans if success, null if failure
-	 * @param x1         - First tile of the path (starting coordinate)
-	 * @param y1         - First tile of the path (starting coordinate)
-	 * @param x2         - Tile after the last tile of the path (destination coordinate)
-	 * @param y2         - Tile after the last tile of the path (destination coordinate)
-	 * @param overrideX  - Tile with overriden state, -1 if no such tile (override coordinate)
-	 * @param overrideY  - Tile with overriden state, -1 if no such tile (override coordinate)
-	 * @param mustRotate - Required rotation of first tile if it is conduit, -1 if any;
-	 *                     must not be any if first tile is invisible
-	 * @param targetMode - Determines whether to keep target/previous direction settings
-	 * @param masks      - Boolean map that protects tiles from pathing
+	 * Reduces path stored in pathNodes1 and converts it to building plans
+	 * @return             List of building plans
+	 * @param mustRotate - Required rotation of first tile if it is conduit, -1 if any
 	*/
-	public LinkedList<BuildPlan> BuildPath
-	(
-		int x1,
-		int y1,
-		final int x2,
-		final int y2,
-		final int overrideX,
-		final int overrideY,
-		final int mustRotate,
-		final boolean targetMode,
-		final boolean[] masks
-	)
+	private LinkedList<BuildPlan> ConstructPath(final int mustRotate)
 	{
-		long startTime = System.nanoTime();
-		long evaluations = 0;
-
-		final int idx1 = x1 + y1 * _width;
-		final int idx2 = x2 + y2 * _width;
-
-		final Tiles tiles = Vars.world.tiles;
-
-		if (tiles == null)
-			throw new NullPointerException("Vars.world.tiles is null");
-
-		// Check if first tile equal to tile after last tile of path
-		if (idx1 == idx2)
-			return new LinkedList<BuildPlan>();
-
-		// Check if first tile is unbuildable
-		if ((_map[idx1] == PROTECT || _map[idx1] == BLOCK) && overrideX != x1 && overrideY != y1)
-			return null;
-
 		/**
 		 * Stores building plans constructed from path nodes
 		*/
 		final LinkedList<BuildPlan> buildPath = new LinkedList<BuildPlan>();
 
-		/**
-		 * Evaluate rotate order. Yes I am greedy.
-		*/
-		final int[] evaluateRotateOrder = targetMode ? new int[4] : new int[3];
-
-		// Copy tiles
-		if (masks == null)
-			System.arraycopy(_map, 0, aMap, 0, _size);
-		// Copy masked with blocks tiles
-		else
-		{
-			for (int i = 0; i < _size; ++i)
-				if (masks[i])
-					aMap[i] = _map[i] == PROTECT ? PROTECT : BLOCK;
-				else
-					aMap[i] = _map[i];
-		}
+		int r0 = -1;
+		int s0 = 1;
 
-		if (overrideX >= 0 && overrideX < _width && overrideY >= 0 && overrideY < _height)
-			aMap[overrideX + overrideY * _width] = EMPTY;
+		// Not rotate first tile if must rotate is defined
+		if (mustRotate != -1)
+			pathNodes2.Add(pathNodes1, 0);
 
-		// Mask tile after last tile with block
-		aMap[idx2] = _map[idx2] == PROTECT ? PROTECT : BLOCK;
+		// Path reduction
+		for (int i = mustRotate == -1 ? 0 : 1; i < pathNodes1.Size(); ++i)
+		{
+			int ii = -1;
+			int rr = -1;
 
-		// Fill bridge protected tiles map with 0
-		Arrays.fill(bMap, 0);
+			// Reduction moves i ahead, node is added by its own index
+			final int k = i;
 
-		// Fill path nodes indices map with -1
-		Arrays.fill(iMap, -1);
+			final int idx3 = pathNodes1.I(i);
+			final int x3 = pathNodes1.X(i);
+			final int y3 = pathNodes1.Y(i);
 
-		// Map all blocked tiles to pMap and rMap
-		for (int i = 0, j = 0; i < _size; ++i, j += 4)
-			if (aMap[i] == PROTECT || aMap[i] == BLOCK)
+			if ((byte)kMap[idx3] != INVISIBLE && (byte)kMap[idx3] != COLLIDE && (byte)kMap[idx3] != DANGER)
 			{
-				pMap[i] = true;
+				final int r1 = pathNodes1.R(i);
+				final int s1 = pathNodes1.S(i);
 
-				rMap[j + RIGHT] = true;
-				rMap[j + UPPER] = true;
-				rMap[j + LEFT] = true;
-				rMap[j + BOTTOM] = true;
-			}
-			else
-			{
-				pMap[i] = false;
+				final int right = idx3 + 1;
+				final int upper = idx3 + _width;
+				final int left = idx3 - 1;
+				final int bottom = idx3 - _width;
 
-				rMap[j + RIGHT] = false;
-				rMap[j + UPPER] = false;
-				rMap[j + LEFT] = false;
-				rMap[j + BOTTOM] = false;
-			}
+				final int rightIndex = x3 + 1 < _width ? iMap.Get(right) : -1;
+				final int upperIndex = y3 + 1 < _height ? iMap.Get(upper) : -1;
+				final int leftIndex = x3 - 1 >= 0 ? iMap.Get(left) : -1;
+				final int bottomIndex = y3 - 1 >= 0 ? iMap.Get(bottom) : -1;
 
-		pathNodes1.clear();
-		pathNodes2.clear();
+				if (r1 != RIGHT && r0 != LEFT && i < rightIndex && ii < rightIndex && (x3 - 1 < 0 || (kMap[left] & OUTPUT) == 0) && (byte)kMap[right] != INVISIBLE)
+				{
+					ii = rightIndex;
+					rr = RIGHT;
+				}
 
-		int pRotate;
-		int pStep = 1;
+				if (r1 != UPPER && r0 != BOTTOM && i < upperIndex && ii < upperIndex && (y3 - 1 < 0 || (kMap[bottom] & OUTPUT) == 0) && (byte)kMap[upper] != INVISIBLE)
+				{
+					ii = upperIndex;
+					rr = UPPER;
+				}
 
-		// Rotate in target direction
-		if (Math.abs(x1 - x2) > Math.abs(y1 - y2))
+				if (r1 != LEFT && r0 != RIGHT && i < leftIndex && ii < leftIndex && (x3 + 1 >= _width || (kMap[right] & OUTPUT) == 0) && (byte)kMap[left] != INVISIBLE)
+				{
+					ii = leftIndex;
+					rr = LEFT;
+				}
+
+				if (r1 != BOTTOM && r0 != UPPER && i < bottomIndex && ii < bottomIndex && (y3 + 1 >= _height || (kMap[upper] & OUTPUT) == 0) && (byte)kMap[bottom] != INVISIBLE)
+				{
+					ii = bottomIndex;
+					rr = BOTTOM;
+				}
+
+				if (ii != -1 && s1 == 1 && s0 == 1 && pathNodes1.S(ii) == 1 && (ii == 0 || pathNodes1.S(ii - 1) == 1))
+				{
+					pathNodes1.SetR(i, rr);
+					i = ii - 1;
+				}
+			}
+
+			pathNodes2.Add(pathNodes1, k);
+
+			r0 = pathNodes1.R(k);
+			s0 = pathNodes1.S(k);
+		}
+
+		// Path building
+		// Process in reverse order because it is safer to build
+		for (int i = pathNodes2.Size() - 1; i >= 0; --i)
+		{
+			// Bridge steps are 1 (end-chain bridge), 2, 3, 4; conduit and junction step is 1
+			if (pathNodes2.S(i) == 1 && (i == 0 || pathNodes2.S(i - 1) == 1))
+			{
+				int idx3 = pathNodes2.I(i);
+
+				if ((byte)kMap[idx3] == INVISIBLE)
+					buildPath.addLast(new BuildPlan(pathNodes2.X(i), pathNodes2.Y(i), pathNodes2.R(i), Blocks.reinforcedLiquidJunction));
+				else
+					buildPath.addLast(new BuildPlan(pathNodes2.X(i), pathNodes2.Y(i), pathNodes2.R(i), Blocks.reinforcedConduit));
+			}
+			else
+				buildPath.addLast(new BuildPlan(pathNodes2.X(i), pathNodes2.Y(i), pathNodes2.R(i), Blocks.reinforcedBridgeConduit));
+		}
+
+		BuildPlan buildPlan1 = null;
+		BuildPlan buildPlan2 = null;
+
+		final ListIterator<BuildPlan> iterator = buildPath.listIterator();
+
+		// Bridges, conduits and junctions reduction (have you ever seen 1-3 conduits between bridges in manual path building?)
+		while (iterator.hasNext())
+		{
+			final BuildPlan buildPlan = iterator.next();
+
+			if (buildPlan.block == Blocks.reinforcedBridgeConduit)
+			{
+				BuildPlan clear = null;
+
+				if (buildPlan2 != null)
+				{
+					final Tile nTile = buildPlan.tile();
+					final Tile pTile = buildPlan2.tile();
+
+					switch (buildPlan.rotation)
+					{
+						case RIGHT:
+							if (nTile.y == pTile.y && (nTile.x + 1 == pTile.x || nTile.x + 2 == pTile.x || nTile.x + 3 == pTile.x || nTile.x + 4 == pTile.x))
+								clear = buildPlan2;
+							break;
+
+						case UPPER:
+							if (nTile.x == pTile.x && (nTile.y + 1 == pTile.y || nTile.y + 2 == pTile.y || nTile.y + 3 == pTile.y || nTile.y + 4 == pTile.y))
+								clear = buildPlan2;
+							break;
+
+						case LEFT:
+							if (nTile.y == pTile.y && (nTile.x - 1 == pTile.x || nTile.x - 2 == pTile.x || nTile.x - 3 == pTile.x || nTile.x - 4 == pTile.x))
+								clear = buildPlan2;
+							break;
+
+						case BOTTOM:
+							if (nTile.x == pTile.x && (nTile.y - 1 == pTile.y || nTile.y - 2 == pTile.y || nTile.y - 3 == pTile.y || nTile.y - 4 == pTile.y))
+								clear = buildPlan2;
+							break;
+
+						default:
+							break;
+					}
+				}
+
+				if (clear != null)
+					buildPlan1 = buildPlan2;
+				else if (buildPlan1 != null)
+				{
+					final Tile nTile = buildPlan.tile();
+					final Tile pTile = buildPlan1.tile();
+
+					switch (buildPlan.rotation)
+					{
+						case RIGHT:
+							if (nTile.y == pTile.y && (nTile.x + 1 == pTile.x || nTile.x + 2 == pTile.x || nTile.x + 3 == pTile.x || nTile.x + 4 == pTile.x))
+								clear = buildPlan1;
+							break;
+
+						case UPPER:
+							if (nTile.x == pTile.x && (nTile.y + 1 == pTile.y || nTile.y + 2 == pTile.y || nTile.y + 3 == pTile.y || nTile.y + 4 == pTile.y))
+								clear = buildPlan1;
+							break;
+
+						case LEFT:
+							if (nTile.y == pTile.y && (nTile.x - 1 == pTile.x || nTile.x - 2 == pTile.x || nTile.x - 3 == pTile.x || nTile.x - 4 == pTile.x))
+								clear = buildPlan1;
+							break;
+
+						case BOTTOM:
+							if (nTile.x == pTile.x && (nTile.y - 1 == pTile.y || nTile.y - 2 == pTile.y || nTile.y - 3 == pTile.y || nTile.y - 4 == pTile.y))
+								clear = buildPlan1;
+							break;
+
+						default:
+							break;
+					}
+				}
+
+				// Yes I hate Java LinkedList iterators implementation
+				if (clear != null)
+				{
+					iterator.previous();
+
+					while (iterator.previous() != clear)
+						iterator.remove();
+
+					iterator.next();
+					iterator.next();
+				}
+
+				buildPlan2 = buildPlan1;
+				buildPlan1 = buildPlan;
+			}
+		}
+
+		final ListIterator<BuildPlan> iterator1 = buildPath.listIterator();
+		final ListIterator<BuildPlan> iterator2 = buildPath.listIterator();
+
+		// Bridges order reversing because it is safer to build
+		while (iterator1.hasNext())
+		{
+			buildPlan1 = iterator1.next();
+			buildPlan2 = iterator2.next();
+
+			if (buildPlan1.block == Blocks.reinforcedBridgeConduit)
+			{
+				int count = 1;
+
+				while (iterator2.hasNext())
+				{
+					buildPlan2 = iterator2.next();
+
+					if (buildPlan2.block != Blocks.reinforcedBridgeConduit)
+					{
+						buildPlan2 = iterator2.previous();
+						break;
+					}
+
+					++count;
+				}
+
+				buildPlan2 = iterator2.previous();
+
+				final int moves = 2 - count % 2;
+				count /= 2;
+
+				for (int i = 0; i < count; ++i)
+				{
+					iterator1.set(buildPlan2);
+					iterator2.set(buildPlan1);
+
+					buildPlan1 = iterator1.next();
+					buildPlan2 = iterator2.previous();
+				}
+
+				--count;
+
+				for (int i = 0; i < count; ++i)
+				{
+					iterator1.next();
+					iterator2.next();
+				}
+
+				for (int i = 0; i < moves; ++i)
+					iterator2.next();
+			}
+		}
+
+		return buildPath;
+	}
+
+	/**
+	 * Checks with connected components whether first tiles are cut off from targets, components are rebuilt after
+	 * map updates that change blocked tiles. Masks are not used, so rejected path would not be found by search for sure.
+	 * @return true if there is no path, enclosed endpoints are stored in PathEnclosed
+	*/
+	private boolean Enclosed(final int[] starts, final int[] targets, final int overrideX, final int overrideY)
+	{
+		if (components == null)
+			components = new PathComponents(_height, _width, BRIDGE_RANGE);
+
+		// Most map updates do not change passable tiles, components are kept then
+		if (componentsStamp != blockedStamp)
+		{
+			components.Build(cMap);
+			componentsStamp = blockedStamp;
+		}
+
+		final int override = overrideX >= 0 && overrideX < _width && overrideY >= 0 && overrideY < _height
+			? overrideX + overrideY * _width : -1;
+
+		PathEnclosed = components.Enclosed(starts, targets, override);
+		return PathEnclosed != PathComponents.ENCLOSED_NONE;
+	}
+
+	/**
+	 * Builds protect rays from internal map if it was updated after the last build
+	*/
+	private void BuildRays()
+	{
+		if (raysStamp != mapStamp)
+		{
+			if (rays == null)
+				rays = new PathRays(_height, _width, BRIDGE_RANGE);
+
+			rays.Build(_map, PROTECT);
+			raysStamp = mapStamp;
+		}
+	}
+
+	/**
+	 * Checks whether build time is exceeded or portfolio race cancelled the search
+	*/
+	private boolean Expired(final long startTime)
+	{
+		final long time = System.nanoTime();
+		return startTime + BuildTime <= time || cancelTime <= time;
+	}
+
+	/**
+	 * Fills packed tile state map before path building: masked tile states, blocked tiles as path nodes of all
+	 * rotations and zero bridge protection counts. Output and invisible rotation flags written by UpdateMap are kept.
+	*/
+	private void FillMaps(final TileBits masks, final int overrideX, final int overrideY, final int[] targets)
+	{
+		// Masked and window tiles are protected only if they are protected on internal map,
+		// so protect rays of internal map tell where there is no protected tile for sure
+		BuildRays();
+
+		// Window with ring of blocked tiles around it, tiles outside of it are never read by evaluations
+		final int minX = Math.max(wMinX - WINDOW_RING, 0);
+		final int minY = Math.max(wMinY - WINDOW_RING, 0);
+		final int maxX = Math.min(wMaxX + WINDOW_RING, _width - 1);
+		final int maxY = Math.min(wMaxY + WINDOW_RING, _height - 1);
+
+		// Flags of UpdateMap, the rest of tile bits belong to path building
+		final int flags = OUTPUT | HORIZONTAL;
+
+		// Clear path nodes indices map to -1 by generation, tiles are not touched
+		iMap.Clear();
+
+		for (int y = minY; y <= maxY; ++y)
+		{
+			final int beg = minX + y * _width;
+			final int end = maxX + y * _width + 1;
+
+			// Ring tiles are blocked, so window part of the row is empty for rows of the ring
+			final boolean ring = y < wMinY || y > wMaxY;
+			final int wBeg = ring ? end : beg + wMinX - minX;
+			final int wEnd = ring ? end : end - maxX + wMaxX;
+
+			// Copy tiles, this drops path node, rotations and bridge protection count of every tile
+			for (int i = beg; i < end; ++i)
+				kMap[i] = (kMap[i] & flags) | (i >= wBeg && i < wEnd ? _map[i] & STATE : BLOCK);
+
+			// Mask tiles with blocks, zero words of masks are skipped 64 tiles at once
+			if (masks != null)
+				for (int i = masks.Next(wBeg, wEnd); i != -1; i = masks.Next(i + 1, wEnd))
+					if (_map[i] != PROTECT)
+						kMap[i] = (kMap[i] & flags) | BLOCK;
+		}
+
+		if (overrideX >= wMinX && overrideX <= wMaxX && overrideY >= wMinY && overrideY <= wMaxY)
+			kMap[overrideX + overrideY * _width] = (kMap[overrideX + overrideY * _width] & flags) | EMPTY;
+
+		// Mask tiles after last tile with block
+		for (int k = 0; k < targets.length; ++k)
+			kMap[targets[k]] = (kMap[targets[k]] & flags) | (_map[targets[k]] == PROTECT ? PROTECT : BLOCK);
+
+		// Blocked tiles are path nodes of all rotations
+		for (int y = minY; y <= maxY; ++y)
+			for (int i = minX + y * _width, end = maxX + y * _width; i <= end; ++i)
+				if ((byte)kMap[i] == PROTECT || (byte)kMap[i] == BLOCK)
+					kMap[i] |= PATH | ROTATED * 15;
+
+		if (DistanceField)
+		{
+			if (field == null)
+			{
+				field = new PathField(_height, _width, FIELDS);
+				lMap = new TileBits(_size);
+			}
+
+			for (int y = minY; y <= maxY; ++y)
+				for (int i = minX + y * _width, end = maxX + y * _width; i <= end; ++i)
+					lMap.Put(i, (kMap[i] & PATH) != 0);
+
+			field.Build(lMap, targets, 4, mapStamp * 2 + (masks == null ? 1 : 0));
+		}
+
+		if (Landmarks != null)
+			Landmarks.Prepare(targets);
+	}
+
+	/**
+	 * Races greedy walk on racer thread against A* search on this thread. First path found wins unless the other engine
+	 * finds path with less plans in grace time, the loser is cancelled at its next time check. A* search that fails
+	 * leaves greedy walk all its build time.
+	 * @return List of building plans if success, null if failure
+	*/
+	private LinkedList<BuildPlan> RaceBuildPath
+	(
+		final int x1,
+		final int y1,
+		final int x2,
+		final int y2,
+		final int overrideX,
+		final int overrideY,
+		final int mustRotate,
+		final boolean targetMode,
+		final TileBits masks
+	)
+	{
+		if (racer == null)
+		{
+			racer = new LiquidPathFinder(_height, _width);
+			raceWorker = new PathWorker("machindustry-race");
+		}
+
+		// Racer searches on its own maps, so engines do not share any scratch data
+		System.arraycopy(_map, 0, racer._map, 0, _size);
+		System.arraycopy(kMap, 0, racer.kMap, 0, _size);
+
+		racer.Frequency = Frequency;
+		racer.BuildTime = BuildTime;
+		racer.Manhattan = Manhattan;
+		racer.PlansLimit = PlansLimit;
+		racer.Window = Window;
+
+		// Racer reads components built by this finder for the same map
+		racer.mapStamp = mapStamp;
+		racer.cMap.Copy(cMap);
+		racer.blockedStamp = blockedStamp;
+		racer.components = components;
+		racer.componentsStamp = componentsStamp;
+
+		// Rays are built before the race, so finders never build them at once
+		BuildRays();
+
+		racer.rays = rays;
+		racer.raysStamp = raysStamp;
+
+		racer.racePath = null;
+		racer.raceFailure = null;
+		racer.cancelTime = Long.MAX_VALUE;
+
+		cancelTime = Long.MAX_VALUE;
+
+		raceWorker.Start(() ->
+		{
+			try
+			{
+				racer.racePath = racer.BuildPath(x1, y1, x2, y2, overrideX, overrideY, mustRotate, targetMode, masks, PathEngine.GREEDY);
+
+				// A* search gets grace time to find cheaper path
+				if (racer.racePath != null)
+					cancelTime = System.nanoTime() + PORTFOLIO_GRACE;
+			}
+			catch (Throwable e)
+			{
+				racer.raceFailure = e;
+			}
+		});
+
+		LinkedList<BuildPlan> exactPath = null;
+		boolean finished = false;
+
+		try
+		{
+			exactPath = BuildPath(x1, y1, x2, y2, overrideX, overrideY, mustRotate, targetMode, masks, PathEngine.ASTAR);
+			finished = true;
+		}
+		finally
+		{
+			// Greedy walk gets grace time to find path with less plans, it is stopped at once if A* search threw
+			if (!finished)
+				racer.cancelTime = 0;
+			else if (exactPath != null)
+				racer.cancelTime = System.nanoTime() + PORTFOLIO_GRACE;
+
+			while (!raceWorker.Join())
+				racer.cancelTime = 0;
+
+			cancelTime = Long.MAX_VALUE;
+		}
+
+		if (racer.raceFailure != null)
+			throw new RuntimeException("Portfolio greedy walk failed", racer.raceFailure);
+
+		final LinkedList<BuildPlan> greedyPath = racer.racePath;
+
+		racer.racePath = null;
+
+		if (greedyPath != null && (exactPath == null || greedyPath.size() < exactPath.size()))
+			return greedyPath;
+
+		return exactPath;
+	}
+
+	/**
+	 * Checks if end-chain bridge path node protects tiles ahead, it does if its side tiles except input one output liquids
+	 * @param mRotate - Node rotation
+	 * @param pRotate - Previous node rotation
+	*/
+	private boolean ProtectsAhead(final int idx, final int x1, final int y1, final int mRotate, final int pRotate)
+	{
+		switch (mRotate)
+		{
+			case RIGHT:
+				return (pRotate != BOTTOM && y1 + 1 < _height && (kMap[idx + _width] & OUTPUT) != 0)
+					|| (pRotate != RIGHT && x1 - 1 >= 0 && (kMap[idx - 1] & OUTPUT) != 0)
+					|| (pRotate != UPPER && y1 - 1 >= 0 && (kMap[idx - _width] & OUTPUT) != 0);
+
+			case UPPER:
+				return (pRotate != LEFT && x1 + 1 < _width && (kMap[idx + 1] & OUTPUT) != 0)
+					|| (pRotate != RIGHT && x1 - 1 >= 0 && (kMap[idx - 1] & OUTPUT) != 0)
+					|| (pRotate != UPPER && y1 - 1 >= 0 && (kMap[idx - _width] & OUTPUT) != 0);
+
+			case LEFT:
+				return (pRotate != LEFT && x1 + 1 < _width && (kMap[idx + 1] & OUTPUT) != 0)
+					|| (pRotate != BOTTOM && y1 + 1 < _height && (kMap[idx + _width] & OUTPUT) != 0)
+					|| (pRotate != UPPER && y1 - 1 >= 0 && (kMap[idx - _width] & OUTPUT) != 0);
+
+			case BOTTOM:
+				return (pRotate != LEFT && x1 + 1 < _width && (kMap[idx + 1] & OUTPUT) != 0)
+					|| (pRotate != BOTTOM && y1 + 1 < _height && (kMap[idx + _width] & OUTPUT) != 0)
+					|| (pRotate != RIGHT && x1 - 1 >= 0 && (kMap[idx - 1] & OUTPUT) != 0);
+
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Adds delta to bridge protection count of tiles ahead of end-chain bridge path node if its side tiles output items,
+	 * so path never starts bridge on them (see Evaluate*Rotate). Greedy walk and path replay call it with +1 when
+	 * node is placed and with -1 when node is taken back.
+	 * @param idx     - Node tile index
+	 * @param x1      - Node tile x coordinate
+	 * @param y1      - Node tile y coordinate
+	 * @param mRotate - Node rotation
+	 * @param pRotate - Previous node rotation
+	*/
+	private void ProtectAhead(final int idx, final int x1, final int y1, final int mRotate, final int pRotate, final int delta)
+	{
+		if (!ProtectsAhead(idx, x1, y1, mRotate, pRotate))
+			return;
+
+		switch (mRotate)
+		{
+			case RIGHT:
+			{
+				for (int i = x1 + 1, j = idx + 1; i <= x1 + 4; ++i, ++j)
+					if (i < _width)
+						kMap[j] += BRIDGE * delta;
+					else
+						break;
+
+				break;
+			}
+
+			case UPPER:
+			{
+				for (int i = y1 + 1, j = idx + _width; i <= y1 + 4; ++i, j += _width)
+					if (i < _height)
+						kMap[j] += BRIDGE * delta;
+					else
+						break;
+
+				break;
+			}
+
+			case LEFT:
+			{
+				for (int i = x1 - 1, j = idx - 1; i >= x1 - 4; --i, --j)
+					if (i >= 0)
+						kMap[j] += BRIDGE * delta;
+					else
+						break;
+
+				break;
+			}
+
+			case BOTTOM:
+			{
+				for (int i = y1 - 1, j = idx - _width; i >= y1 - 4; --i, j -= _width)
+					if (i >= 0)
+						kMap[j] += BRIDGE * delta;
+					else
+						break;
+
+				break;
+			}
+
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Replays path stored in pathNodes1 with the rules that depend on the whole path (path nodes collision, bridges over
+	 * path nodes, bridges heading to path bridges, bridges on tiles protected after turns). A* states know protected tiles
+	 * straight ahead of the last end-chain bridge (see SEARCH_PROTECTED), the rest needs the whole path.
+	 * Marks path nodes and protects tiles ahead of end-chain bridges like greedy walk does, undoes both on failure.
+	 * @return -1 if path is valid, index of the tile that led to rules violation otherwise
+	*/
+	private int ReplayPath(final int x2, final int y2, final int dRotate)
+	{
+		final PathNode pathNode = evaluateNode;
+		final int last = pathNodes1.Size() - 1;
+
+		int pRotate = dRotate;
+		int pStep = 0;
+
+		// Last path node is heading to the target and is not marked like greedy walk does
+		for (int j = 0; j < last; ++j)
+		{
+			final int r = pathNodes1.R(j);
+			final int s = pathNodes1.S(j);
+			final int idx = pathNodes1.I(j);
+
+			pathNode.r = Integer.MAX_VALUE;
+			pathNode.s = 0;
+
+			if (!EvaluateRotate(r, pathNode, idx, idx * 4, pathNodes1.X(j), pathNodes1.Y(j), x2, y2, pRotate, pStep) || pathNode.s != s)
+			{
+				for (int k = 0; k < j; ++k)
+				{
+					final int kIdx = pathNodes1.I(k);
+
+					iMap.Put(kIdx, -1);
+
+					if (k != 0 && pathNodes1.S(k) == 1 && pathNodes1.S(k - 1) != 1)
+						ProtectAhead(kIdx, pathNodes1.X(k), pathNodes1.Y(k), pathNodes1.R(k), pathNodes1.R(k - 1), -1);
+
+					kMap[kIdx] &= ~PATH;
+					kMap[kIdx] &= ~(ROTATED << pathNodes1.R(k));
+				}
+
+				return pathNodes1.I(j + 1);
+			}
+
+			iMap.Put(idx, j);
+			kMap[idx] |= PATH;
+			kMap[idx] |= ROTATED << r;
+
+			// If node is end-chain bridge then protect tiles ahead like greedy walk does
+			if (s == 1 && pStep != 1 && j != 0)
+				ProtectAhead(idx, pathNodes1.X(j), pathNodes1.Y(j), r, pRotate, 1);
+
+			pRotate = r;
+			pStep = s;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Evaluates path with A* search and stores it in pathNodes1. Moves are generated by Evaluate*Rotate methods, so
+	 * search follows the same rules as greedy walk except the ones that depend on the whole path (see ReplayPath).
+	 * Bidirectional search also grows backward from the tiles that can be last, backward moves are forward moves
+	 * checked in reverse, so both searches see the same graph and costs. Bidirectional search stops as soon as
+	 * frontiers meet, so it trades path cost for less expanded states when target is hidden in dense blocks.
+	 * Search starts from all first tiles at once and stops at the first state that can head to any target,
+	 * moves are evaluated in direction of the first target like greedy walk does.
+	 * @return true if path is found, false if there is no path or time exceeded
+	*/
+	private boolean SearchPath
+	(
+		final int[] starts,
+		final int[] dRotates,
+		final int[] mustRotates,
+		final int[] targets,
+		final boolean bidirectional,
+		final long startTime
+	)
+	{
+		long evaluations = 0;
+
+		if (heap1 == null)
+		{
+			gStates1 = new PathStates(256);
+			heap1 = new PathHeap(256);
+		}
+
+		if (fMap == null)
+		{
+			fMap = new int[_size];
+			tMap = new int[_size];
+		}
+
+		if (bidirectional && heap2 == null)
+		{
+			gStates2 = new PathStates(256);
+			heap2 = new PathHeap(256);
+		}
+
+		gStates1.Clear();
+
+		if (gStates2 != null)
+			gStates2.Clear();
+
+		heap1.Clear();
+		pathNodes1.Clear();
+
+		final int x2 = targets[0] % _width;
+		final int y2 = targets[0] / _width;
+
+		// Targets bounding box, forward heuristic estimates distance to it
+		int minX2 = x2;
+		int minY2 = y2;
+		int maxX2 = x2;
+		int maxY2 = y2;
+
+		for (int k = 0; k < targets.length; ++k)
+		{
+			final int x = targets[k] % _width;
+			final int y = targets[k] / _width;
+
+			minX2 = Math.min(minX2, x);
+			minY2 = Math.min(minY2, y);
+			maxX2 = Math.max(maxX2, x);
+			maxY2 = Math.max(maxY2, y);
+
+			tMap[targets[k]] = k + 1;
+		}
+
+		// First tiles bounding box, backward heuristic estimates distance to it
+		int minX1 = Integer.MAX_VALUE;
+		int minY1 = Integer.MAX_VALUE;
+		int maxX1 = Integer.MIN_VALUE;
+		int maxY1 = Integer.MIN_VALUE;
+
+		// First tiles and targets order costs are limited to keep their sum less than any move cost
+		for (int k = 0; k < starts.length; ++k)
+		{
+			final int x = starts[k] % _width;
+			final int y = starts[k] / _width;
+
+			minX1 = Math.min(minX1, x);
+			minY1 = Math.min(minY1, y);
+			maxX1 = Math.max(maxX1, x);
+			maxY1 = Math.max(maxY1, y);
+
+			final int cost = Math.min(k, COST_SCALE / 2 - 1);
+
+			fMap[starts[k]] = k + 1;
+
+			SearchPush(gStates1, heap1, (starts[k] * 4 + dRotates[k]) * 8 + SEARCH_CONDUIT, cost, -1, cost + SearchTargetEstimate(x, y, minX2, minY2, maxX2, maxY2));
+		}
+
+		final PathNode pathNode = evaluateNode;
+
+		final int[] states = new int[4];
+		final int[] costs = new int[4];
+
+		// Cheapest path through meeting state
+		int best = Integer.MAX_VALUE;
+		int meet = -1;
+
+		if (bidirectional)
+		{
+			heap2.Clear();
+
+			// Backward search starts from states that can be last path node
+			for (int k = 0; k < targets.length; ++k)
+				for (int r = 0; r < 4; ++r)
+				{
+					int x = targets[k] % _width;
+					int y = targets[k] / _width;
+
+					switch (r)
+					{
+						case RIGHT:
+							++x;
+							break;
+
+						case UPPER:
+							++y;
+							break;
+
+						case LEFT:
+							--x;
+							break;
+
+						case BOTTOM:
+							--y;
+							break;
+
+						default:
+							break;
+					}
+
+					if (x < 0 || x >= _width || y < 0 || y >= _height)
+						continue;
+
+					final int idx = x + y * _width;
+					final int first = fMap[idx];
+
+					// First tile can be last with its own state only
+					if (first != 0)
+					{
+						final int start = (idx * 4 + dRotates[first - 1]) * 8 + SEARCH_CONDUIT;
+						final int fRotate = SearchFinish(idx, x, y, dRotates[first - 1]);
+
+						if (fRotate != -1)
+						{
+							final int cost = SearchRank(idx, fRotate);
+
+							if (cost < gStates2.Cost(start))
+							{
+								SearchPush(gStates2, heap2, start, cost, -1, cost);
+
+								if (gStates1.Cost(start) + cost < best)
+								{
+									best = gStates1.Cost(start) + cost;
+									meet = start;
+								}
+							}
+						}
+
+						continue;
+					}
+
+					if ((kMap[idx] & PATH) != 0)
+						continue;
+
+					for (int state = idx * 32; state < idx * 32 + 32; ++state)
+					{
+						if ((state & 7) >= SEARCH_MODES)
+							continue;
+
+						final int fRotate = SearchFinish(idx, x, y, (state >> 3) & 3);
+
+						if (fRotate != -1)
+						{
+							final int cost = SearchRank(idx, fRotate);
+
+							if (cost < gStates2.Cost(state))
+								SearchPush(gStates2, heap2, state, cost, -1, cost + SearchEstimate(x, y, minX1, minY1, maxX1, maxY1, 0));
+						}
+					}
+				}
+		}
+
+		boolean found = false;
+
+		while (true)
+		{
+			if (Frequency != -1)
+			{
+				// If time exceeds return failure
+				if (evaluations >= Frequency)
+				{
+					if (Expired(startTime))
+						break;
+					else
+						evaluations = 0;
+				}
+				else
+					++evaluations;
+			}
+
+			boolean forward = true;
+
+			if (bidirectional)
+			{
+				// Frontiers met, path goes through the cheapest meeting state of last expansion
+				if (meet != -1)
+				{
+					SearchTrace(meet, true, gStates1);
+
+					pathCost = best;
+					found = true;
+					break;
+				}
+
+				// Empty open list means all its states are closed and none of them met the other search
+				if (heap1.IsEmpty() || heap2.IsEmpty())
+					break;
+
+				// Expand smaller open list to keep both frontiers balanced, backward search pushes up to 24 states per tile
+				forward = heap1.Size() <= heap2.Size() * 2;
+			}
+			else if (heap1.IsEmpty())
+				break;
+
+			if (forward)
+			{
+				final long key = heap1.PeekKey();
+				final int state = heap1.Pop();
+				final int g = gStates1.Cost(state);
+
+				final int idx = state >> 5;
+
+				// Skip state if it was pushed again with lower cost or path through it can not have less plans than limit
+				if (Integer.MAX_VALUE - (int)key != g || SearchLimit(idx % _width, idx / _width, minX1, minY1, maxX1, maxY1, minX2, minY2, maxX2, maxY2))
+					continue;
+
+				final int count = SearchExpand(pathNode, state, gStates1.Parent(state), g, mustRotates, x2, y2, states, costs);
+
+				// State can be last, its tile is heading to the target
+				// Bidirectional search has such tiles as backward search first states
+				if (count < 0)
+				{
+					if (!bidirectional)
+					{
+						SearchTrace(state, false, gStates1);
+
+						pathCost = g;
+						found = true;
+						break;
+					}
+
+					continue;
+				}
+
+				for (int k = 0; k < count; ++k)
+				{
+					final int mState = states[k];
+					final int mCost = costs[k];
+
+					if (mCost < gStates1.Cost(mState))
+					{
+						final int mIdx = mState >> 5;
+						SearchPush(gStates1, heap1, mState, mCost, state, mCost + SearchTargetEstimate(mIdx % _width, mIdx / _width, minX2, minY2, maxX2, maxY2));
+
+						final int bCost = bidirectional ? gStates2.Cost(mState) : Integer.MAX_VALUE;
+
+						if (bCost != Integer.MAX_VALUE && mCost + bCost < best)
+						{
+							best = mCost + bCost;
+							meet = mState;
+						}
+					}
+				}
+			}
+			else
+			{
+				final long key = heap2.PeekKey();
+				final int state = heap2.Pop();
+				final int g = gStates2.Cost(state);
+
+				final int idx = state >> 5;
+				final int first = fMap[idx];
+
+				// Skip state if it was pushed again with lower cost
+				// First tile state has no previous states
+				if (Integer.MAX_VALUE - (int)key != g || (first != 0 && state == (idx * 4 + dRotates[first - 1]) * 8 + SEARCH_CONDUIT))
+					continue;
+
+				final int x = idx % _width;
+				final int y = idx / _width;
+
+				// Path through state can not have less plans than limit
+				if (SearchLimit(x, y, minX1, minY1, maxX1, maxY1, minX2, minY2, maxX2, maxY2))
+					continue;
+
+				final int mRotate = (state >> 3) & 3;
+				final int mMode = state & 7;
+
+				// Tile is reached by conduit from adjacent tile or by bridge from 2-4 tiles behind
+				final int kMin = mMode != SEARCH_BRIDGE ? 1 : 2;
+				final int kMax = mMode != SEARCH_BRIDGE ? 1 : BRIDGE_RANGE;
+
+				for (int k = kMin; k <= kMax; ++k)
+				{
+					int px = x;
+					int py = y;
+
+					switch (mRotate)
+					{
+						case RIGHT:
+							px -= k;
+							break;
+
+						case UPPER:
+							py -= k;
+							break;
+
+						case LEFT:
+							px += k;
+							break;
+
+						case BOTTOM:
+							py += k;
+							break;
+
+						default:
+							break;
+					}
+
+					if (px < 0 || px >= _width || py < 0 || py >= _height)
+						break;
+
+					if (corridor && !clusters.Corridor(px, py))
+						continue;
+
+					final int pIdx = px + py * _width;
+					final int pFirst = fMap[pIdx];
+
+					// Tiles in front of target are never left by forward search
+					if (SearchFront(pIdx, px, py))
+						continue;
+
+					if (pFirst == 0 && (kMap[pIdx] & PATH) != 0)
+						continue;
+
+					// First tile has its own state only
+					final int pStart = pFirst == 0 ? -1 : (pIdx * 4 + dRotates[pFirst - 1]) * 8 + SEARCH_CONDUIT;
+
+					final int pStateMin = pFirst == 0 ? pIdx * 32 : pStart;
+					final int pStateMax = pFirst == 0 ? pIdx * 32 + 31 : pStart;
+
+					for (int pState = pStateMin; pState <= pStateMax; ++pState)
+					{
+						final int pMode = pState & 7;
+
+						if (pMode >= SEARCH_MODES)
+							continue;
+
+						final int pRotate = (pState >> 3) & 3;
+						final int pStep = pState == pStart ? 0 : (pMode == SEARCH_BRIDGE ? 2 : 1);
+
+						// Previous state leads to this one if forward move from it gives this mode
+						if (SearchMode(pIdx, px, py, mRotate, pRotate, pMode, k) != mMode)
+							continue;
+
+						if (SearchStep(pathNode, pIdx, px, py, x2, y2, mRotate, pRotate, pStep, pStep == 0 ? mustRotates[pFirst - 1] : -1) != k)
+							continue;
+
+						final int pCost = g + (k * TILE_COST + NODE_COST + (k == 1 ? 0 : BRIDGE_COST)
+							+ (pStep != 0 && mRotate != pRotate ? TURN_COST : 0)) * COST_SCALE;
+
+						if (pCost < gStates2.Cost(pState))
+						{
+							SearchPush(gStates2, heap2, pState, pCost, state, pCost + SearchEstimate(px, py, minX1, minY1, maxX1, maxY1, 0));
+
+							final int fCost = gStates1.Cost(pState);
+
+							if (fCost != Integer.MAX_VALUE && pCost + fCost < best)
+							{
+								best = pCost + fCost;
+								meet = pState;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		for (int k = 0; k < starts.length; ++k)
+			fMap[starts[k]] = 0;
+
+		for (int k = 0; k < targets.length; ++k)
+			tMap[targets[k]] = 0;
+
+		return found;
+	}
+
+	/**
+	 * Evaluates path like single direction SearchPath does with hash distributed A* search on several threads
+	 * (see PathParallel). Search goes on after the first path found while there are cheaper states, running out of
+	 * time returns the cheapest path found instead of failure.
+	 * @return true if path is found, false if there is no path or time exceeded before any path is found
+	*/
+	private boolean SearchPathParallel
+	(
+		final int[] starts,
+		final int[] dRotates,
+		final int[] mustRotates,
+		final int[] targets,
+		final long startTime
+	)
+	{
+		if (parallel == null)
+		{
+			parallel = new PathParallel(PathParallel.AvailableThreads());
+			parallelNodes = new PathNode[parallel.Threads];
+
+			for (int k = 0; k < parallelNodes.length; ++k)
+				parallelNodes[k] = new PathNode(Integer.MAX_VALUE, 0, -1, -1, -1);
+		}
+
+		// Goal path is gathered from search threads to be traced
+		if (gStates1 == null)
+			gStates1 = new PathStates(256);
+
+		if (fMap == null)
+		{
+			fMap = new int[_size];
+			tMap = new int[_size];
+		}
+
+		pathNodes1.Clear();
+
+		final int x2 = targets[0] % _width;
+		final int y2 = targets[0] / _width;
+
+		// Targets bounding box, heuristic estimates distance to it
+		int aMinX2 = x2;
+		int aMinY2 = y2;
+		int aMaxX2 = x2;
+		int aMaxY2 = y2;
+
+		for (int k = 0; k < targets.length; ++k)
+		{
+			final int x = targets[k] % _width;
+			final int y = targets[k] / _width;
+
+			aMinX2 = Math.min(aMinX2, x);
+			aMinY2 = Math.min(aMinY2, y);
+			aMaxX2 = Math.max(aMaxX2, x);
+			aMaxY2 = Math.max(aMaxY2, y);
+
+			tMap[targets[k]] = k + 1;
+		}
+
+		final int minX2 = aMinX2;
+		final int minY2 = aMinY2;
+		final int maxX2 = aMaxX2;
+		final int maxY2 = aMaxY2;
+
+		// First tiles bounding box, plans limit counts distance to it
+		int aMinX1 = Integer.MAX_VALUE;
+		int aMinY1 = Integer.MAX_VALUE;
+		int aMaxX1 = Integer.MIN_VALUE;
+		int aMaxY1 = Integer.MIN_VALUE;
+
+		final int[] states = new int[starts.length];
+		final int[] costs = new int[starts.length];
+
+		for (int k = 0; k < starts.length; ++k)
+		{
+			final int x = starts[k] % _width;
+			final int y = starts[k] / _width;
+
+			aMinX1 = Math.min(aMinX1, x);
+			aMinY1 = Math.min(aMinY1, y);
+			aMaxX1 = Math.max(aMaxX1, x);
+			aMaxY1 = Math.max(aMaxY1, y);
+
+			states[k] = (starts[k] * 4 + dRotates[k]) * 8 + SEARCH_CONDUIT;
+			costs[k] = Math.min(k, COST_SCALE / 2 - 1);
+
+			fMap[starts[k]] = k + 1;
+		}
+
+		final int minX1 = aMinX1;
+		final int minY1 = aMinY1;
+		final int maxX1 = aMaxX1;
+		final int maxY1 = aMaxY1;
+
+		final PathNode[] pathNodes = parallelNodes;
+
+		final PathParallel.Graph graph = new PathParallel.Graph()
+		{
+			@Override
+			public int Expand(int thread, int state, int parent, int cost, int[] states, int[] costs)
+			{
+				final int idx = state >> 5;
+
+				// Path through state can not have less plans than limit, it has no moves
+				if (SearchLimit(idx % _width, idx / _width, minX1, minY1, maxX1, maxY1, minX2, minY2, maxX2, maxY2))
+					return 0;
+
+				return SearchExpand(pathNodes[thread], state, parent, cost, mustRotates, x2, y2, states, costs);
+			}
+
+			@Override
+			public int Estimate(int state)
+			{
+				final int idx = state >> 5;
+				return SearchTargetEstimate(idx % _width, idx / _width, minX2, minY2, maxX2, maxY2);
+			}
+		};
+
+		boolean found = false;
+
+		try
+		{
+			if (parallel.Search(graph, states, costs, startTime, Frequency, BuildTime))
+			{
+				parallel.Path(gStates1);
+				SearchTrace(parallel.Goal, false, gStates1);
+
+				pathCost = parallel.Cost;
+				found = true;
+			}
+		}
+		finally
+		{
+			for (int k = 0; k < starts.length; ++k)
+				fMap[starts[k]] = 0;
+
+			for (int k = 0; k < targets.length; ++k)
+				tMap[targets[k]] = 0;
+		}
+
+		return found;
+	}
+
+	/**
+	 * A* heuristic, tiles to pass before reaching given distance to bounding box
+	*/
+	private int SearchEstimate(final int x, final int y, final int minX, final int minY, final int maxX, final int maxY, final int distance)
+	{
+		final int dx = Math.max(Math.max(minX - x, x - maxX), 0);
+		final int dy = Math.max(Math.max(minY - y, y - maxY), 0);
+
+		return Math.max(dx + dy - distance, 0) * ESTIMATE_COST * COST_SCALE * weight / WEIGHT_SCALE;
+	}
+
+	/**
+	 * Forward A* heuristic, tiles to pass before tile in front of targets
+	*/
+	private int SearchTargetEstimate(final int x, final int y, final int minX, final int minY, final int maxX, final int maxY)
+	{
+		final int dx = Math.max(Math.max(minX - x, x - maxX), 0);
+		final int dy = Math.max(Math.max(minY - y, y - maxY), 0);
+
+		int distance = dx + dy;
+
+		// Distance field knows walls, bounding box is left for tiles that can not reach targets
+		if (DistanceField && field.Distance(x + y * _width) != Integer.MAX_VALUE)
+			distance = field.Distance(x + y * _width);
+
+		// Landmarks know walls far from targets
+		if (Landmarks != null)
+			distance = Math.max(distance, Landmarks.Estimate(x + y * _width));
+
+		return Math.max(distance - 1, 0) * ESTIMATE_COST * COST_SCALE * weight / WEIGHT_SCALE;
+	}
+
+	/**
+	 * Least plans of path passing that many tiles, plan passes up to 4 tiles. Tiles are counted before path reduction,
+	 * so path that reduction cuts loops off can end under the bound.
+	*/
+	private static int PlansBound(final int distance)
+	{
+		return 1 + (distance + 2) / 4;
+	}
+
+	/**
+	 * @return true if path through tile can not have less plans than limit, path passes at least tiles to first tiles and targets bounding boxes
+	*/
+	private boolean SearchLimit
+	(
+		final int x,
+		final int y,
+		final int minX1,
+		final int minY1,
+		final int maxX1,
+		final int maxY1,
+		final int minX2,
+		final int minY2,
+		final int maxX2,
+		final int maxY2
+	)
+	{
+		if (PlansLimit == Integer.MAX_VALUE)
+			return false;
+
+		final int dx1 = Math.max(Math.max(minX1 - x, x - maxX1), 0);
+		final int dy1 = Math.max(Math.max(minY1 - y, y - maxY1), 0);
+		final int dx2 = Math.max(Math.max(minX2 - x, x - maxX2), 0);
+		final int dy2 = Math.max(Math.max(minY2 - y, y - maxY2), 0);
+
+		return PlansBound(dx1 + dy1 + dx2 + dy2) >= PlansLimit;
+	}
+
+	/**
+	 * Mode of A* state the move leads to, protected tiles ahead of end-chain bridge are counted down while path goes straight
+	 * @param mStep - Move step
+	 * @return mode of the next state, -1 if bridge starts on tile protected by end-chain bridge like replay would find out
+	*/
+	private int SearchMode(final int idx, final int x, final int y, final int mRotate, final int pRotate, final int pMode, final int mStep)
+	{
+		if (mStep != 1)
+			return pMode >= SEARCH_PROTECTED ? -1 : SEARCH_BRIDGE;
+
+		if (pMode == SEARCH_BRIDGE && ProtectsAhead(idx, x, y, mRotate, pRotate))
+			return SEARCH_PROTECTED + BRIDGE_RANGE - 1;
+
+		if (pMode > SEARCH_PROTECTED && mRotate == pRotate)
+			return pMode - 1;
+
+		return SEARCH_CONDUIT;
+	}
+
+	/**
+	 * Evaluates forward moves of A* search state, moves are generated by Evaluate*Rotate methods like greedy walk does.
+	 * Tile in front of target has no moves, it can be last or it is dropped.
+	 * @return moves count, (~rotation of last path node) if state can be last
+	*/
+	private int SearchExpand
+	(
+		final PathNode pathNode,
+		final int state,
+		final int parent,
+		final int g,
+		final int[] mustRotates,
+		final int x2,
+		final int y2,
+		final int[] states,
+		final int[] costs
+	)
+	{
+		final int idx = state >> 5;
+
+		final int x = idx % _width;
+		final int y = idx / _width;
+
+		final int pRotate = (state >> 3) & 3;
+		final int pMode = state & 7;
+
+		/**
+		 * step == 0 for first tile to let it accept input, bridge steps are not used by evaluations
+		*/
+		final int pStep = parent == -1 ? 0 : (pMode == SEARCH_BRIDGE ? 2 : 1);
+
+		// Drop tile in front of target if it can not be last like greedy walk does
+		if (SearchFront(idx, x, y))
+		{
+			final int fRotate = SearchFinish(idx, x, y, pRotate);
+			return fRotate == -1 ? 0 : ~fRotate;
+		}
+
+		final int mustRotate = pStep == 0 ? mustRotates[fMap[idx] - 1] : -1;
+
+		int count = 0;
+
+		for (int mRotate = 0; mRotate < 4; ++mRotate)
+		{
+			final int mStep = SearchStep(pathNode, idx, x, y, x2, y2, mRotate, pRotate, pStep, mustRotate);
+
+			if (mStep == 0)
+				continue;
+
+			final int mMode = SearchMode(idx, x, y, mRotate, pRotate, pMode, mStep);
+
+			if (mMode == -1)
+				continue;
+
+			int mx = x;
+			int my = y;
+
+			switch (mRotate)
+			{
+				case RIGHT:
+					mx += mStep;
+					break;
+
+				case UPPER:
+					my += mStep;
+					break;
+
+				case LEFT:
+					mx -= mStep;
+					break;
+
+				case BOTTOM:
+					my -= mStep;
+					break;
+
+				default:
+					break;
+			}
+
+			if (corridor && !clusters.Corridor(mx, my))
+				continue;
+
+			// Straight conduit passes open tiles at once (see SearchRun), protected tiles are passed one by one
+			final int mRun = Jump && mMode == SEARCH_CONDUIT ? SearchRun(pathNode, mx, my, x2, y2, mRotate) : 0;
+
+			if (mRun != 0)
+			{
+				final int dx = mx - x;
+				final int dy = my - y;
+
+				mx += dx * mRun;
+				my += dy * mRun;
+			}
+
+			states[count] = ((mx + my * _width) * 4 + mRotate) * 8 + mMode;
+			costs[count] = g + ((mStep + mRun) * TILE_COST + (mRun + 1) * NODE_COST + (mStep == 1 ? 0 : BRIDGE_COST)
+				+ (pStep != 0 && mRotate != pRotate ? TURN_COST : 0)) * COST_SCALE;
+
+			++count;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Checks if tile is free and empty, turns from its sides are never restricted
+	*/
+	private boolean SearchOpen(final int x, final int y)
+	{
+		if (x < 0 || x >= _width || y < 0 || y >= _height)
+			return false;
+
+		final int idx = x + y * _width;
+		return (kMap[idx] & PATH) == 0 && (byte)kMap[idx] == EMPTY;
+	}
+
+	/**
+	 * Evaluates straight conduit run from tile reached by conduit (see Jump). Run passes empty tiles with open tiles on both
+	 * sides while straight conduit is possible, it stops in line with target, in front of target, out of corridor
+	 * and after JUMP_RANGE tiles.
+	 * @return tiles passed by the run after the given tile
+	*/
+	private int SearchRun(final PathNode pathNode, final int x, final int y, final int x2, final int y2, final int rotate)
+	{
+		final int dx = rotate == RIGHT ? 1 : (rotate == LEFT ? -1 : 0);
+		final int dy = rotate == UPPER ? 1 : (rotate == BOTTOM ? -1 : 0);
+
+		int rx = x;
+		int ry = y;
+
+		// Yes I hate recursion
+		while (Math.abs(rx - x) + Math.abs(ry - y) < JUMP_RANGE)
+		{
+			final int idx = rx + ry * _width;
+
+			// Turn to the target is decision point
+			if ((dx != 0 ? rx == x2 : ry == y2) || SearchFront(idx, rx, ry))
+				break;
+
+			// Blocks and buildings nearby change turns, so their tiles are decision points
+			if ((byte)kMap[idx] != EMPTY || !SearchOpen(rx - dy, ry + dx) || !SearchOpen(rx + dy, ry - dx))
+				break;
+
+			if (SearchStep(pathNode, idx, rx, ry, x2, y2, rotate, rotate, 1, -1) != 1)
+				break;
+
+			if (corridor && !clusters.Corridor(rx + dx, ry + dy))
+				break;
+
+			rx += dx;
+			ry += dy;
+		}
+
+		return Math.abs(rx - x) + Math.abs(ry - y);
+	}
+
+	/**
+	 * Stores tiles of straight conduit run skipped by A* search in pathNodes1, from the last tile to the first one
+	 * @param idx    - Tile reached by the run
+	 * @param rotate - Direction of the run
+	 * @param step   - Tiles passed by the run
+	*/
+	private void SearchTraceRun(final int idx, final int rotate, final int step)
+	{
+		final int dx = rotate == RIGHT ? 1 : (rotate == LEFT ? -1 : 0);
+		final int dy = rotate == UPPER ? 1 : (rotate == BOTTOM ? -1 : 0);
+
+		final int x = idx % _width;
+		final int y = idx / _width;
+
+		for (int k = 1; k < step; ++k)
+		{
+			final int rx = x - dx * k;
+			final int ry = y - dy * k;
+
+			pathNodes1.Add(rotate, 1, rx, ry, rx + ry * _width);
+		}
+	}
+
+	/**
+	 * Evaluates rotation of last path node heading to the target like greedy walk does,
+	 * target that is earlier in search targets wins if there are several of them
+	 * @return rotation of last path node, -1 if tile can not be last
+	*/
+	private int SearchFinish(final int idx, final int x, final int y, final int pRotate)
+	{
+		final boolean invisible = (byte)kMap[idx] == INVISIBLE;
+
+		int fRotate = -1;
+		int fRank = Integer.MAX_VALUE;
+
+		if (x + 1 < _width)
+		{
+			final int rank = tMap[idx + 1];
+
+			if (rank != 0 && rank < fRank && pRotate != LEFT && (x - 1 < 0 || (kMap[idx - 1] & OUTPUT) == 0) && !(invisible && (kMap[idx] & HORIZONTAL) != 0))
+			{
+				fRotate = RIGHT;
+				fRank = rank;
+			}
+		}
+
+		if (y + 1 < _height)
+		{
+			final int rank = tMap[idx + _width];
+
+			if (rank != 0 && rank < fRank && pRotate != BOTTOM && (y - 1 < 0 || (kMap[idx - _width] & OUTPUT) == 0) && !(invisible && (kMap[idx] & HORIZONTAL) == 0))
+			{
+				fRotate = UPPER;
+				fRank = rank;
+			}
+		}
+
+		if (x - 1 >= 0)
+		{
+			final int rank = tMap[idx - 1];
+
+			if (rank != 0 && rank < fRank && pRotate != RIGHT && (x + 1 >= _width || (kMap[idx + 1] & OUTPUT) == 0) && !(invisible && (kMap[idx] & HORIZONTAL) != 0))
+			{
+				fRotate = LEFT;
+				fRank = rank;
+			}
+		}
+
+		if (y - 1 >= 0)
+		{
+			final int rank = tMap[idx - _width];
+
+			if (rank != 0 && rank < fRank && pRotate != UPPER && (y + 1 >= _height || (kMap[idx + _width] & OUTPUT) == 0) && !(invisible && (kMap[idx] & HORIZONTAL) == 0))
+			{
+				fRotate = BOTTOM;
+				fRank = rank;
+			}
+		}
+
+		return fRotate;
+	}
+
+	/**
+	 * Checks if tile is in front of any target
+	*/
+	private boolean SearchFront(final int idx, final int x, final int y)
+	{
+		return (x + 1 < _width && tMap[idx + 1] != 0) || (y + 1 < _height && tMap[idx + _width] != 0)
+			|| (x - 1 >= 0 && tMap[idx - 1] != 0) || (y - 1 >= 0 && tMap[idx - _width] != 0);
+	}
+
+	/**
+	 * Evaluates backward search first state cost of tile heading to the target in given rotation,
+	 * targets order is added to the cost, so it only breaks ties between equal paths
+	*/
+	private int SearchRank(final int idx, final int fRotate)
+	{
+		int rank;
+
+		switch (fRotate)
+		{
+			case RIGHT:
+				rank = tMap[idx + 1];
+				break;
+
+			case UPPER:
+				rank = tMap[idx + _width];
+				break;
+
+			case LEFT:
+				rank = tMap[idx - 1];
+				break;
+
+			default:
+				rank = tMap[idx - _width];
+				break;
+		}
+
+		return Math.min(rank - 1, COST_SCALE / 2 - 1);
+	}
+
+	/**
+	 * Builds path with A* search, anytime search repeats it with lower heuristic weights while time remains.
+	 * Maps must be filled for the same masks, override tile and targets before.
+	 * @return List of building plans if success, null if failure, first tile index is stored in PathStart
+	*/
+	private LinkedList<BuildPlan> SearchBuildPath
+	(
+		final TileBits masks,
+		final int overrideX,
+		final int overrideY,
+		final int[] starts,
+		final int[] dRotates,
+		final int[] mustRotates,
+		final int[] targets,
+		final boolean bidirectional,
+		final long startTime
+	)
+	{
+		boolean clustered = false;
+
+		if (Clusters)
+		{
+			// Chunks abstraction follows internal map updates since it is built
+			if (clusters == null)
+			{
+				clusters = new PathClusters(_height, _width);
+				UpdateClusters(0, 0, _width, _height);
+			}
+
+			clustered = clusters.Search(starts, targets);
+		}
+
+		if (!Anytime)
+		{
+			corridor = clustered;
+			return SearchReplayPath(starts, dRotates, mustRotates, targets, bidirectional, startTime);
+		}
+
+		LinkedList<BuildPlan> bestPath = null;
+
+		int bestCost = Integer.MAX_VALUE;
+		int bestStart = -1;
+
+		for (int k = 0; k < WEIGHTS.length; ++k)
+		{
+			if (k != 0)
+			{
+				if (Frequency != -1 && Expired(startTime))
+					break;
+
+				// Replayed path and retry blocks are marked in maps
+				FillMaps(masks, overrideX, overrideY, targets);
+
+				pathNodes2.Clear();
+			}
+
+			corridor = clustered;
+			weight = WEIGHTS[k];
+
+			final LinkedList<BuildPlan> buildPath = SearchReplayPath(starts, dRotates, mustRotates, targets, bidirectional, startTime);
+
+			// Lower weight fails on time exceeded mostly, cheapest path found before is kept
+			if (buildPath == null)
+				break;
+
+			if (pathCost < bestCost)
+			{
+				bestPath = buildPath;
+				bestCost = pathCost;
+				bestStart = PathStart;
+			}
+		}
+
+		weight = WEIGHT_SCALE;
+
+		PathStart = bestStart;
+
+		return bestPath;
+	}
+
+	/**
+	 * Builds path with A* search. A* states count protected tiles ahead of end-chain bridges, so search paths pass replay
+	 * unless path meets its own nodes or bridges over them (see ReplayPath). Tile that led to such violation is marked
+	 * as dead-end and search runs again, each run adds one dead-end tile, so runs stop with valid path, with no path or
+	 * by time. Dead-end tiles may cut off valid paths that would pass them in another rotation.
+	 * @return List of building plans if success, null if failure, first tile index is stored in PathStart
+	*/
+	private LinkedList<BuildPlan> SearchReplayPath
+	(
+		final int[] starts,
+		final int[] dRotates,
+		final int[] mustRotates,
+		final int[] targets,
+		final boolean bidirectional,
+		final long startTime
+	)
+	{
+		PathStart = -1;
+
+		boolean firstAttempt = true;
+
+		// Threads are not worth starting on small maps
+		final boolean parallelSearch = Parallel && !bidirectional && _size >= PARALLEL_SIZE && PathParallel.AvailableThreads() >= 2;
+
+		// Yes I hate recursion
+		while (true)
+		{
+			if (parallelSearch ? !SearchPathParallel(starts, dRotates, mustRotates, targets, startTime)
+				: !SearchPath(starts, dRotates, mustRotates, targets, bidirectional, startTime))
+			{
+				// Corridor does not know masks and bridges over chunk borders, search the whole map before giving up
+				if (corridor)
+				{
+					corridor = false;
+					continue;
+				}
+
+				if (!firstAttempt)
+					return null;
+
+				firstAttempt = false;
+
+				boolean retry = false;
+
+				// If failed to start pathing in mustRotate direction then allow bridging and make another attempt
+				for (int k = 0; k < starts.length; ++k)
+					if (mustRotates[k] != -1)
+					{
+						final int idx1 = starts[k];
+
+						final int x1 = idx1 % _width;
+						final int y1 = idx1 / _width;
+
+						if (x1 < _width - 1)
+						{
+							kMap[idx1 + 1] |= PATH | ROTATED * 15;
+						}
+
+						if (y1 < _height - 1)
+						{
+							kMap[idx1 + _width] |= PATH | ROTATED * 15;
+						}
+
+						if (x1 > 0)
+						{
+							kMap[idx1 - 1] |= PATH | ROTATED * 15;
+						}
+
+						if (y1 > 0)
+						{
+							kMap[idx1 - _width] |= PATH | ROTATED * 15;
+						}
+
+						retry = true;
+					}
+
+				if (!retry)
+					return null;
+
+				continue;
+			}
+
+			final int start = pathNodes1.I(0);
+
+			int k = 0;
+
+			while (starts[k] != start)
+				++k;
+
+			final int conflict = ReplayPath(targets[0] % _width, targets[0] / _width, dRotates[k]);
+
+			if (conflict == -1)
+			{
+				final LinkedList<BuildPlan> buildPath = ConstructPath(mustRotates[k]);
+
+				// A* finds the cheapest path only, so path over plans limit is failure
+				if (buildPath.size() >= PlansLimit)
+					return null;
+
+				PathStart = k;
+				return buildPath;
+			}
+
+			// Conflict tile is path node of all rotations
+			kMap[conflict] |= PATH | ROTATED * 15;
+
+			if (Frequency != -1 && Expired(startTime))
+				return null;
+		}
+	}
+
+	/**
+	 * Pushes A* search state to open list, ties are broken in favour of deeper states
+	*/
+	private void SearchPush(final PathStates gStates, final PathHeap heap, final int state, final int cost, final int parent, final int estimate)
+	{
+		gStates.Put(state, cost, parent);
+
+		heap.Push(((long)estimate << 32) | (long)(Integer.MAX_VALUE - cost), state);
+	}
+
+	/**
+	 * Evaluates A* move from tile in given rotation with first tile and invisible tile restrictions of greedy walk
+	 * @return step of the move, 0 if move is not possible
+	*/
+	private int SearchStep
+	(
+		final PathNode pathNode,
+		final int idx,
+		final int x,
+		final int y,
+		final int x2,
+		final int y2,
+		final int mRotate,
+		final int pRotate,
+		final int pStep,
+		final int mustRotate
+	)
+	{
+		final boolean invisible = (byte)kMap[idx] == INVISIBLE;
+
+		// First tile can not rotate against required rotation, the rest tiles can not rotate against previous
+		// Invisible tile keeps its rotation, yes I do not want modulo operation here
+		if (pStep == 0)
+		{
+			if (mustRotate == (mRotate ^ 2) || (invisible && mustRotate != mRotate))
+				return 0;
+		}
+		else if (mRotate == (pRotate ^ 2) || (invisible && pRotate != mRotate))
+			return 0;
+
+		pathNode.r = Integer.MAX_VALUE;
+		pathNode.s = 0;
+		if (!EvaluateRotate(mRotate, pathNode, idx, idx * 4, x, y, x2, y2, pRotate, pStep))
+			return 0;
+
+		// First tile can turn away from required rotation with bridge only
+		if (pStep == 0 && mustRotate != -1 && mRotate != mustRotate && pathNode.s == 1)
+			return 0;
+
+		return pathNode.s;
+	}
+
+	/**
+	 * Stores path from start state through the given state in pathNodes1,
+	 * bidirectional path continues with backward search states
+	*/
+	private void SearchTrace(final int meet, final boolean bidirectional, final PathStates parents)
+	{
+		int state = meet;
+		int next = bidirectional ? gStates2.Parent(meet) : -1;
+
+		while (state != -1)
+		{
+			// Conduit from further than adjacent tile is straight conduit run
+			if (next != -1 && (next & 7) != SEARCH_BRIDGE)
+			{
+				final int idx = state >> 5;
+				final int nIdx = next >> 5;
+
+				SearchTraceRun(nIdx, (next >> 3) & 3, Math.abs(nIdx % _width - idx % _width) + Math.abs(nIdx / _width - idx / _width));
+			}
+
+			SearchTraceNode(state, next);
+
+			next = state;
+			state = parents.Parent(state);
+		}
+
+		pathNodes1.Reverse();
+
+		if (bidirectional)
+		{
+			state = gStates2.Parent(meet);
+
+			while (state != -1)
+			{
+				SearchTraceNode(state, gStates2.Parent(state));
+				state = gStates2.Parent(state);
+			}
+		}
+	}
+
+	/**
+	 * Stores path node of the given state heading to the next state or to the target if there is no next state
+	*/
+	private void SearchTraceNode(final int state, final int next)
+	{
+		final int idx = state >> 5;
+
+		final int x = idx % _width;
+		final int y = idx / _width;
+
+		if (next == -1)
+			pathNodes1.Add(SearchFinish(idx, x, y, (state >> 3) & 3), 1, x, y, idx);
+		else
+		{
+			final int nIdx = next >> 5;
+			final int step = (next & 7) != SEARCH_BRIDGE ? 1 : Math.abs(nIdx % _width - x) + Math.abs(nIdx / _width - y);
+			pathNodes1.Add((next >> 3) & 3, step, x, y, idx);
+		}
+	}
+
+	/**
+	 * Sets search window to bounding box with margin, window is the whole map if Window is not set
+	 * @return true if window is the whole map
+	*/
+	private boolean SetWindow(final int minX, final int minY, final int maxX, final int maxY, final int margin)
+	{
+		if (!Window || DistanceField)
+		{
+			wMinX = 0;
+			wMinY = 0;
+			wMaxX = _width - 1;
+			wMaxY = _height - 1;
+
+			return true;
+		}
+
+		wMinX = Math.max(minX - margin, 0);
+		wMinY = Math.max(minY - margin, 0);
+		wMaxX = Math.min(maxX + margin, _width - 1);
+		wMaxY = Math.min(maxY + margin, _height - 1);
+
+		return wMinX == 0 && wMinY == 0 && wMaxX == _width - 1 && wMaxY == _height - 1;
+	}
+
+	public LiquidPathFinder(int height, int width)
+	{
+		_height = height;
+		_width = width;
+		_size = height * width;
+		_map = new byte[_size];
+		cMap = new TileBits(_size);
+		nMap = new TileBits(_size);
+		iMap = new TileInts(_size, -1);
+		kMap = new int[_size];
+		pathNodes1 = new PathStack(256);
+		pathNodes2 = new PathStack(256);
+
+		wMaxX = _width - 1;
+		wMaxY = _height - 1;
+
+		// Internal map tiles are protected until the first map update
+		cMap.Fill(true);
+	}
+
+	public LiquidPathFinder(int height, int width, long freq, long time, boolean manh)
+	{
+		this(height, width);
+
+		Frequency = freq;
+		BuildTime = time;
+		Manhattan = manh;
+	}
+
+	/**
+	 * Builds path for liquid resources using bridges, conduits and junctions
+	 * @return             List of building plans if success, null if failure
+	 * @param tile1      - First tile of the path (starting coordinates)
+	 * @param tile2      - Tile after the last tile of the path (destination coordinates)
+	 * @param mustRotate - Required rotation of first tile if it is conduit, -1 if any;
+	 *                     must not be any if first tile is invisible
+	 * @param targetMode - Determines whether to keep target/previous direction settings
+	*/
+	public LinkedList<BuildPlan> BuildPath
+	(
+		final Tile tile1,
+		final Tile tile2,
+		final int mustRotate,
+		final boolean targetMode
+	)
+	{
+		return BuildPath
+		(
+			(int)tile1.x,
+			(int)tile1.y,
+			(int)tile2.x,
+			(int)tile2.y,
+			-1,
+			-1,
+			mustRotate,
+			targetMode,
+			null
+		);
+	}
+
+	/**
+	 * Builds path for liquid resources using bridges, conduits and junctions
+	 * @return             List of building plans if success, null if failure
+	 * @param x1         - First tile of the path (starting coordinate)
+	 * @param y1         - First tile of the path (starting coordinate)
+	 * @param x2         - Tile after the last tile of the path (destination coordinate)
+	 * @param y2         - Tile after the last tile of the path (destination coordinate)
+	 * @param mustRotate - Required rotation of first tile if it is conduit, -1 if any;
+	 *                     must not be any if first tile is invisible
+	 * @param targetMode - Determines whether to keep target/previous direction settings
+	*/
+	public LinkedList<BuildPlan> BuildPath
+	(
+		final int x1,
+		final int y1,
+		final int x2,
+		final int y2,
+		final int mustRotate,
+		final boolean targetMode
+	)
+	{
+		return BuildPath
+		(
+			x1,
+			y1,
+			x2,
+			y2,
+			-1,
+			-1,
+			mustRotate,
+			targetMode,
+			null
+		);
+	}
+
+	/**
+	 * Builds path for liquid resources using bridges, conduits and junctions
+	 * @return             List of building plans if success, null if failure
+	 * @param tile1      - First tile of the path (starting coordinates)
+	 * @param tile2      - Tile after the last tile of the path (destination coordinates)
+	 * @param overrideXY - Tile with overriden state, [-1; -1] if no such tile (override coordinates)
+	 * @param mustRotate - Required rotation of first tile if it is conduit, -1 if any;
+	 *                     must not be any if first tile is invisible
+	 * @param targetMode - Determines whether to keep target/previous direction settings
+	 * @param masks      - Tile layer that protects tiles from pathing
+	*/
+	public LinkedList<BuildPlan> BuildPath
+	(
+		final Tile tile1,
+		final Tile tile2,
+		final Tile overrideXY,
+		final int mustRotate,
+		final boolean targetMode,
+		final TileBits masks
+	)
+	{
+		return BuildPath
+		(
+			(int)tile1.x,
+			(int)tile1.y,
+			(int)tile2.x,
+			(int)tile2.y,
+			(int)overrideXY.x,
+			(int)overrideXY.y,
+			mustRotate,
+			targetMode,
+			masks
+		);
+	}
+
+	/**
+	 * Builds path for liquid resources using bridges, conduits and junctions
+	 * @return             List of building plans if success, null if failure
+	 * @param x1         - First tile of the path (starting coordinate)
+	 * @param y1         - First tile of the path (starting coordinate)
+	 * @param x2         - Tile after the last tile of the path (destination coordinate)
+	 * @param y2         - Tile after the last tile of the path (destination coordinate)
+	 * @param overrideX  - Tile with overriden state, -1 if no such tile (override coordinate)
+	 * @param overrideY  - Tile with overriden state, -1 if no such tile (override coordinate)
+	 * @param mustRotate - Required rotation of first tile if it is conduit, -1 if any;
+	 *                     must not be any if first tile is invisible
+	 * @param targetMode - Determines whether to keep target/previous direction settings
+	 * @param masks      - Tile layer that protects tiles from pathing
+	*/
+	public LinkedList<BuildPlan> BuildPath
+	(
+		final int x1,
+		final int y1,
+		final int x2,
+		final int y2,
+		final int overrideX,
+		final int overrideY,
+		final int mustRotate,
+		final boolean targetMode,
+		final TileBits masks
+	)
+	{
+		return BuildPath
+		(
+			x1,
+			y1,
+			x2,
+			y2,
+			overrideX,
+			overrideY,
+			mustRotate,
+			targetMode,
+			masks,
+			PathEngine.GREEDY
+		);
+	}
+
+	/**
+	 * Builds path for liquid resources using bridges, conduits and junctions
+	 * @return             List of building plans if success, null if failure
+	 * @param x1         - First tile of the path (starting coordinate)
+	 * @param y1         - First tile of the path (starting coordinate)
+	 * @param x2         - Tile after the last tile of the path (destination coordinate)
+	 * @param y2         - Tile after the last tile of the path (destination coordinate)
+	 * @param overrideX  - Tile with overriden state, -1 if no such tile (override coordinate)
+	 * @param overrideY  - Tile with overriden state, -1 if no such tile (override coordinate)
+	 * @param mustRotate - Required rotation of first tile if it is conduit, -1 if any;
+	 *                     must not be any if first tile is invisible
+	 * @param targetMode - Determines whether to keep target/previous direction settings (greedy engine only)
+	 * @param masks      - Tile layer that protects tiles from pathing
+	 * @param engine     - Path search engine
+	*/
+	public LinkedList<BuildPlan> BuildPath
+	(
+		int x1,
+		int y1,
+		final int x2,
+		final int y2,
+		final int overrideX,
+		final int overrideY,
+		final int mustRotate,
+		final boolean targetMode,
+		final TileBits masks,
+		final PathEngine engine
+	)
+	{
+		PathEnclosed = PathComponents.ENCLOSED_NONE;
+
+		// Enclosed first tile or target has no path to search for
+		if ((x1 != x2 || y1 != y2) && Enclosed(new int[] { x1 + y1 * _width }, new int[] { x2 + y2 * _width }, overrideX, overrideY))
+			return null;
+
+		if (engine == PathEngine.PORTFOLIO)
+			return RaceBuildPath(x1, y1, x2, y2, overrideX, overrideY, mustRotate, targetMode, masks);
+
+		final long startTime = System.nanoTime();
+
+		LinkedList<BuildPlan> buildPath;
+
+		// Yes I hate recursion
+		for (int margin = WINDOW_MARGIN; ; margin *= 2)
+		{
+			final boolean whole = SetWindow(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2), margin);
+
+			buildPath = WindowBuildPath(x1, y1, x2, y2, overrideX, overrideY, mustRotate, targetMode, masks, engine, startTime);
+
+			// Window grows only if there is no path in it, failure on time exceeded is final
+			if (buildPath != null || whole || (Frequency != -1 && Expired(startTime)))
+				break;
+		}
+
+		return buildPath;
+	}
+
+	/**
+	 * Builds path inside search window, see BuildPath
+	 * @return List of building plans if success, null if failure
+	*/
+	private LinkedList<BuildPlan> WindowBuildPath
+	(
+		int x1,
+		int y1,
+		final int x2,
+		final int y2,
+		final int overrideX,
+		final int overrideY,
+		final int mustRotate,
+		final boolean targetMode,
+		final TileBits masks,
+		final PathEngine engine,
+		final long startTime
+	)
+	{
+		long evaluations = 0;
+
+		/**
+		 * Tiles passed by path nodes so far
+		*/
+		int passed = 0;
+
+		final int idx1 = x1 + y1 * _width;
+		final int idx2 = x2 + y2 * _width;
+
+		final Tiles tiles = Vars.world.tiles;
+
+		if (tiles == null)
+			throw new NullPointerException("Vars.world.tiles is null");
+
+		// Check if first tile equal to tile after last tile of path
+		if (idx1 == idx2)
+			return new LinkedList<BuildPlan>();
+
+		// Check if first tile is unbuildable
+		if ((_map[idx1] == PROTECT || _map[idx1] == BLOCK) && overrideX != x1 && overrideY != y1)
+			return null;
+
+		/**
+		 * Evaluate rotate order. Yes I am greedy.
+		*/
+		final int[] evaluateRotateOrder = targetMode ? new int[4] : new int[3];
+
+		FillMaps(masks, overrideX, overrideY, new int[] { idx2 });
+
+		pathNodes1.Clear();
+		pathNodes2.Clear();
+
+		int pRotate;
+		int pStep = 1;
+
+		// Rotate in target direction
+		if (Math.abs(x1 - x2) > Math.abs(y1 - y2))
 		{
 			if (x1 < x2)
 				pRotate = RIGHT;
@@ -1494,8 +3710,26 @@ public class LiquidPathFinder
 		final int dRotate = pRotate;
 		final int dStep = pStep;
 
+		if (engine == PathEngine.ASTAR || engine == PathEngine.BIDIRECTIONAL)
+			return SearchBuildPath
+			(
+				masks,
+				overrideX,
+				overrideY,
+				new int[] { idx1 },
+				new int[] { dRotate },
+				new int[] { mustRotate },
+				new int[] { idx2 },
+				engine == PathEngine.BIDIRECTIONAL,
+				startTime
+			);
+
 		boolean firstAttempt = true;
 
+		// One node serves every evaluation step, path nodes store copies of it
+		final PathNode pathNode = evaluateNode;
+		final PathNode tPathNode = new PathNode(pathNode);
+
 		// Path evaluation
 		// Yes I hate recursion
 		while (true)
@@ -1505,7 +3739,7 @@ public class LiquidPathFinder
 				// If time exceeds return failure
 				if (evaluations >= Frequency)
 				{
-					if (startTime + BuildTime <= System.nanoTime())
+					if (Expired(startTime))
 						return null;
 					else
 						evaluations = 0;
@@ -1514,10 +3748,14 @@ public class LiquidPathFinder
 					++evaluations;
 			}
 
+			// If path can not have less plans than limit return failure
+			if (PlansBound(passed + Math.abs(x1 - x2) + Math.abs(y1 - y2)) >= PlansLimit)
+				return null;
+
 			/**
 			 * step == 0 for first tile to let it accept input
 			*/
-			final int aStep = pathNodes1.size() == 0 ? 0 : pStep;
+			final int aStep = pathNodes1.Size() == 0 ? 0 : pStep;
 
 			final int dx = x1 - x2;
 			final int dy = y1 - y2;
@@ -1528,7 +3766,7 @@ public class LiquidPathFinder
 			int mRotate = -1;
 			int mStep = 0;
 
-			final boolean invisible = aMap[idx] == INVISIBLE;
+			final boolean invisible = (byte)kMap[idx] == INVISIBLE;
 			boolean drop = false;
 
 			// Rotate last tile in target direction but not against previous
@@ -1538,33 +3776,33 @@ public class LiquidPathFinder
 			{
 				if (dx == -1)
 				{
-					if (pRotate != LEFT && (x1 - 1 < 0 || !oMap[idx - 1]) && !(invisible && vMap[idx]))
+					if (pRotate != LEFT && (x1 - 1 < 0 || (kMap[idx - 1] & OUTPUT) == 0) && !(invisible && (kMap[idx] & HORIZONTAL) != 0))
 					{
-						pathNodes1.add(new PathNode(RIGHT, 1, x1, y1, idx));
+						pathNodes1.Add(RIGHT, 1, x1, y1, idx);
 						break;
 					}
 				}
 				else if (dy == -1)
 				{
-					if (pRotate != BOTTOM && (y1 - 1 < 0 || !oMap[idx - _width]) && !(invisible && !vMap[idx]))
+					if (pRotate != BOTTOM && (y1 - 1 < 0 || (kMap[idx - _width] & OUTPUT) == 0) && !(invisible && (kMap[idx] & HORIZONTAL) == 0))
 					{
-						pathNodes1.add(new PathNode(UPPER, 1, x1, y1, idx));
+						pathNodes1.Add(UPPER, 1, x1, y1, idx);
 						break;
 					}
 				}
 				else if (dx == 1)
 				{
-					if (pRotate != RIGHT && (x1 + 1 >= _width || !oMap[idx + 1]) && !(invisible && vMap[idx]))
+					if (pRotate != RIGHT && (x1 + 1 >= _width || (kMap[idx + 1] & OUTPUT) == 0) && !(invisible && (kMap[idx] & HORIZONTAL) != 0))
 					{
-						pathNodes1.add(new PathNode(LEFT, 1, x1, y1, idx));
+						pathNodes1.Add(LEFT, 1, x1, y1, idx);
 						break;
 					}
 				}
 				else // if (dy == 1)
 				{
-					if (pRotate != UPPER && (y1 + 1 >= _height || !oMap[idx + _width]) && !(invisible && !vMap[idx]))
+					if (pRotate != UPPER && (y1 + 1 >= _height || (kMap[idx + _width] & OUTPUT) == 0) && !(invisible && (kMap[idx] & HORIZONTAL) == 0))
 					{
-						pathNodes1.add(new PathNode(BOTTOM, 1, x1, y1, idx));
+						pathNodes1.Add(BOTTOM, 1, x1, y1, idx);
 						break;
 					}
 				}
@@ -1683,13 +3921,13 @@ public class LiquidPathFinder
 			// PathNode stores coordinates in x, y fields
 			// 
 			// mStep is stored in PathNode s field during evaluations
-			PathNode pathNode = new PathNode(Integer.MAX_VALUE, mStep, x1, y1, idx);
+			pathNode.Set(Integer.MAX_VALUE, mStep, x1, y1, idx);
 
 			// Reset path node index
-			iMap[idx] = -1;
+			iMap.Put(idx, -1);
 
 			// Reset path node
-			pMap[idx] = false;
+			kMap[idx] &= ~PATH;
 
 			// First evaluated rotation have advantage over the rest rotations
 			// evaluateRotateOrder is to make machine keep target/previous rotation until obstacle
@@ -1702,7 +3940,7 @@ public class LiquidPathFinder
 					if (targetMode)
 						for (int i = 0; i < 4; ++i)
 						{
-							PathNode tPathNode = new PathNode(pathNode);
+							tPathNode.Set(pathNode);
 							int tRotate = mRotate;
 
 							switch (evaluateRotateOrder[i])
@@ -1733,7 +3971,7 @@ public class LiquidPathFinder
 
 							if (mustRotate != -1 && mRotate != mustRotate && pathNode.s == 1)
 							{
-								pathNode = tPathNode;
+								pathNode.Set(tPathNode);
 								mRotate = tRotate;
 							}
 						}
@@ -1755,7 +3993,7 @@ public class LiquidPathFinder
 
 						for (int i = 0; i < 4; ++i)
 						{
-							PathNode tPathNode = new PathNode(pathNode);
+							tPathNode.Set(pathNode);
 							int tRotate = mRotate;
 
 							switch (evaluateRotateOrderEx[i])
@@ -1786,7 +4024,7 @@ public class LiquidPathFinder
 
 							if (mustRotate != -1 && mRotate != mustRotate && pathNode.s == 1)
 							{
-								pathNode = tPathNode;
+								pathNode.Set(tPathNode);
 								mRotate = tRotate;
 							}
 						}
@@ -1797,46 +4035,22 @@ public class LiquidPathFinder
 					{
 						if (x1 < _width - 1)
 						{
-							int pidx4 = idx4 + 4;
-							pMap[idx + 1] = true;
-
-							rMap[pidx4 + RIGHT] = true;
-							rMap[pidx4 + UPPER] = true;
-							rMap[pidx4 + LEFT] = true;
-							rMap[pidx4 + BOTTOM] = true;
+							kMap[idx + 1] |= PATH | ROTATED * 15;
 						}
 
 						if (y1 < _height - 1)
 						{
-							int pidx4 = idx4 + _width * 4;
-							pMap[idx + _width] = true;
-
-							rMap[pidx4 + RIGHT] = true;
-							rMap[pidx4 + UPPER] = true;
-							rMap[pidx4 + LEFT] = true;
-							rMap[pidx4 + BOTTOM] = true;
+							kMap[idx + _width] |= PATH | ROTATED * 15;
 						}
 
 						if (x1 > 0)
 						{
-							int pidx4 = idx4 - 4;
-							pMap[idx - 1] = true;
-
-							rMap[pidx4 + RIGHT] = true;
-							rMap[pidx4 + UPPER] = true;
-							rMap[pidx4 + LEFT] = true;
-							rMap[pidx4 + BOTTOM] = true;
+							kMap[idx - 1] |= PATH | ROTATED * 15;
 						}
 
 						if (y1 > 0)
 						{
-							int pidx4 = idx4 - _width * 4;
-							pMap[idx - _width] = true;
-
-							rMap[pidx4 + RIGHT] = true;
-							rMap[pidx4 + UPPER] = true;
-							rMap[pidx4 + LEFT] = true;
-							rMap[pidx4 + BOTTOM] = true;
+							kMap[idx - _width] |= PATH | ROTATED * 15;
 						}
 
 						firstAttempt = false;
@@ -1907,105 +4121,47 @@ public class LiquidPathFinder
 			{
 				// Set all possible rotations
 				if (pRotate != LEFT)
-					rMap[idx4 + RIGHT] = true;
+					kMap[idx] |= ROTATED << RIGHT;
 
 				if (pRotate != BOTTOM)
-					rMap[idx4 + UPPER] = true;
+					kMap[idx] |= ROTATED << UPPER;
 
 				if (pRotate != RIGHT)
-					rMap[idx4 + LEFT] = true;
+					kMap[idx] |= ROTATED << LEFT;
 
 				if (pRotate != UPPER)
-					rMap[idx4 + BOTTOM] = true;
+					kMap[idx] |= ROTATED << BOTTOM;
 
-				if (pathNodes1.size() == 0)
+				if (pathNodes1.Size() == 0)
 					return null;
 				else
 				{
-					final PathNode pPathNode = pathNodes1.remove(pathNodes1.size() - 1);
-
-					x1 = pPathNode.x;
-					y1 = pPathNode.y;
-					idx = pPathNode.i;
-
-					mRotate = pPathNode.r;
-					mStep = pPathNode.s;
-
-					if (pathNodes1.size() == 0)
-					{
-						pRotate = dRotate;
-						pStep = dStep;
-					}
-					else
-					{
-						final PathNode pPathNode1 = pathNodes1.get(pathNodes1.size() - 1);
-
-						pRotate = pPathNode1.r;
-						pStep = pPathNode1.s;
-
-						// If node is end-chain bridge then unprotect tiles ahead
-						if (mStep == 1 && pStep != 1)
-							switch (mRotate)
-							{
-								case RIGHT:
-								{
-									if ((pRotate != BOTTOM && y1 + 1 < _height && oMap[idx + _width])
-										|| (pRotate != RIGHT && x1 - 1 >= 0 && oMap[idx - 1])
-										|| (pRotate != UPPER && y1 - 1 >= 0 && oMap[idx - _width]))
-										for (int i = x1 + 1, j = idx + 1; i <= x1 + 4; ++i, ++j)
-											if (i < _width)
-												--bMap[j];
-											else
-												break;
-
-									break;
-								}
-
-								case UPPER:
-								{
-									if ((pRotate != LEFT && x1 + 1 < _width && oMap[idx + 1])
-										|| (pRotate != RIGHT && x1 - 1 >= 0 && oMap[idx - 1])
-										|| (pRotate != UPPER && y1 - 1 >= 0 && oMap[idx - _width]))
-										for (int i = y1 + 1, j = idx + _width; i <= y1 + 4; ++i, j += _width)
-											if (i < _height)
-												--bMap[j];
-											else
-												break;
+					final int k = pathNodes1.Size() - 1;
 
-									break;
-								}
+					x1 = pathNodes1.X(k);
+					y1 = pathNodes1.Y(k);
+					idx = pathNodes1.I(k);
 
-								case LEFT:
-								{
-									if ((pRotate != LEFT && x1 + 1 < _width && oMap[idx + 1])
-										|| (pRotate != BOTTOM && y1 + 1 < _height && oMap[idx + _width])
-										|| (pRotate != UPPER && y1 - 1 >= 0 && oMap[idx - _width]))
-										for (int i = x1 - 1, j = idx - 1; i >= x1 - 4; --i, --j)
-											if (i >= 0)
-												--bMap[j];
-											else
-												break;
+					mRotate = pathNodes1.R(k);
+					mStep = pathNodes1.S(k);
 
-									break;
-								}
+					pathNodes1.RemoveLast();
 
-								case BOTTOM:
-								{
-									if ((pRotate != LEFT && x1 + 1 < _width && oMap[idx + 1])
-										|| (pRotate != BOTTOM && y1 + 1 < _height && oMap[idx + _width])
-										|| (pRotate != RIGHT && x1 - 1 >= 0 && oMap[idx - 1]))
-										for (int i = y1 - 1, j = idx - _width; i >= y1 - 4; --i, j -= _width)
-											if (i >= 0)
-												--bMap[j];
-											else
-												break;
+					passed -= mStep;
 
-									break;
-								}
+					if (pathNodes1.Size() == 0)
+					{
+						pRotate = dRotate;
+						pStep = dStep;
+					}
+					else
+					{
+						pRotate = pathNodes1.R(k - 1);
+						pStep = pathNodes1.S(k - 1);
 
-								default:
-									break;
-							}
+						// If node is end-chain bridge then unprotect tiles ahead
+						if (mStep == 1 && pStep != 1)
+							ProtectAhead(idx, x1, y1, mRotate, pRotate, -1);
 					}
 				}
 			}
@@ -2015,15 +4171,21 @@ public class LiquidPathFinder
 				pathNode.r = mRotate;
 				mStep = pathNode.s;
 
+				// If node is end-chain bridge then protect tiles ahead
+				if (mStep == 1 && pStep != 1 && pathNodes1.Size() != 0)
+					ProtectAhead(idx, x1, y1, mRotate, pRotate, 1);
+
 				pRotate = mRotate;
 				pStep = mStep;
 
 				// Set path node index, path node and path node rotation
-				iMap[idx] = pathNodes1.size();
-				pMap[idx] = true;
-				rMap[idx4 + mRotate] = true;
+				iMap.Put(idx, pathNodes1.Size());
+				kMap[idx] |= PATH;
+				kMap[idx] |= ROTATED << mRotate;
+
+				pathNodes1.Add(pathNode);
 
-				pathNodes1.add(pathNode);
+				passed += mStep;
 
 				switch (mRotate)
 				{
@@ -2046,323 +4208,182 @@ public class LiquidPathFinder
 					default:
 						break;
 				}
-
-				// If node is end-chain bridge then protect tiles ahead
-				if (mStep == 1 && pStep != 1)
-					switch (mRotate)
-					{
-						case RIGHT:
-						{
-							if ((pRotate != BOTTOM && y1 + 1 < _height && oMap[idx + _width])
-								|| (pRotate != RIGHT && x1 - 1 >= 0 && oMap[idx - 1])
-								|| (pRotate != UPPER && y1 - 1 >= 0 && oMap[idx - _width]))
-								for (int i = x1 + 1, j = idx + 1; i <= x1 + 4; ++i, ++j)
-									if (i < _width)
-										++bMap[j];
-									else
-										break;
-
-							break;
-						}
-
-						case UPPER:
-						{
-							if ((pRotate != LEFT && x1 + 1 < _width && oMap[idx + 1])
-								|| (pRotate != RIGHT && x1 - 1 >= 0 && oMap[idx - 1])
-								|| (pRotate != UPPER && y1 - 1 >= 0 && oMap[idx - _width]))
-								for (int i = y1 + 1, j = idx + _width; i <= y1 + 4; ++i, j += _width)
-									if (i < _height)
-										++bMap[j];
-									else
-										break;
-
-							break;
-						}
-
-						case LEFT:
-						{
-							if ((pRotate != LEFT && x1 + 1 < _width && oMap[idx + 1])
-								|| (pRotate != BOTTOM && y1 + 1 < _height && oMap[idx + _width])
-								|| (pRotate != UPPER && y1 - 1 >= 0 && oMap[idx - _width]))
-								for (int i = x1 - 1, j = idx - 1; i >= x1 - 4; --i, --j)
-									if (i >= 0)
-										++bMap[j];
-									else
-										break;
-
-							break;
-						}
-
-						case BOTTOM:
-						{
-							if ((pRotate != LEFT && x1 + 1 < _width && oMap[idx + 1])
-								|| (pRotate != BOTTOM && y1 + 1 < _height && oMap[idx + _width])
-								|| (pRotate != RIGHT && x1 - 1 >= 0 && oMap[idx - 1]))
-								for (int i = y1 - 1, j = idx - _width; i >= y1 - 4; --i, j -= _width)
-									if (i >= 0)
-										++bMap[j];
-									else
-										break;
-
-							break;
-						}
-
-						default:
-							break;
-					}
 			}
 		}
 
-		PathNode pPathNode = null;
-
-		// Not rotate first tile if must rotate is defined
-		if (mustRotate != -1)
-			pathNodes2.add(pathNodes1.get(0));
-
-		// Path reduction
-		for (int i = mustRotate == -1 ? 0 : 1; i < pathNodes1.size(); ++i)
-		{
-			int ii = -1;
-			int rr = -1;
-
-			final PathNode pathNode = pathNodes1.get(i);
-			final int idx3 = pathNode.i;
-
-			if (aMap[idx3] != INVISIBLE && aMap[idx3] != COLLIDE && aMap[idx3] != DANGER)
-			{
-				final int r1 = pathNode.r;
-				final int r0 = pPathNode == null ? -1 : pPathNode.r;
-				final int s1 = pathNode.s;
-				final int s0 = pPathNode == null ? 1 : pPathNode.s;
-
-				final int right = idx3 + 1;
-				final int upper = idx3 + _width;
-				final int left = idx3 - 1;
-				final int bottom = idx3 - _width;
+		final LinkedList<BuildPlan> buildPath = ConstructPath(mustRotate);
 
-				final int rightIndex = pathNode.x + 1 < _width ? iMap[right] : -1;
-				final int upperIndex = pathNode.y + 1 < _height ? iMap[upper] : -1;
-				final int leftIndex = pathNode.x - 1 >= 0 ? iMap[left] : -1;
-				final int bottomIndex = pathNode.y - 1 >= 0 ? iMap[bottom] : -1;
+		// Path reduction takes plans off, so limit is checked on plans of the whole path
+		return buildPath.size() < PlansLimit ? buildPath : null;
+	}
 
-				if (r1 != RIGHT && r0 != LEFT && i < rightIndex && ii < rightIndex && (pathNode.x - 1 < 0 || !oMap[left]) && aMap[right] != INVISIBLE)
-				{
-					ii = rightIndex;
-					rr = RIGHT;
-				}
+	/**
+	 * Builds path for liquid resources using bridges, conduits and junctions from any first tile to any target with single
+	 * A* search instead of search per each pair, first tiles order only breaks ties between equally good paths
+	 * @return              List of building plans if success, null if failure, first tile index is stored in PathStart
+	 * @param points1     - First tiles of the path in priority order (starting coordinates)
+	 * @param points2     - Tiles after the last tile of the path in priority order (destination coordinates)
+	 * @param overrideX   - Tile with overriden state, -1 if no such tile (override coordinate)
+	 * @param overrideY   - Tile with overriden state, -1 if no such tile (override coordinate)
+	 * @param mustRotates - Required rotations of first tiles if they are conduits, -1 if any;
+	 *                      must not be any if first tile is invisible
+	 * @param masks       - Tile layer that protects tiles from pathing
+	 * @param engine      - Path search engine, greedy walk is not supported
+	*/
+	public LinkedList<BuildPlan> BuildPath
+	(
+		final ArrayList<Point> points1,
+		final ArrayList<Point> points2,
+		final int overrideX,
+		final int overrideY,
+		final int[] mustRotates,
+		final TileBits masks,
+		final PathEngine engine
+	)
+	{
+		long startTime = System.nanoTime();
 
-				if (r1 != UPPER && r0 != BOTTOM && i < upperIndex && ii < upperIndex && (pathNode.y - 1 < 0 || !oMap[bottom]) && aMap[upper] != INVISIBLE)
-				{
-					ii = upperIndex;
-					rr = UPPER;
-				}
+		PathStart = -1;
+		PathEnclosed = PathComponents.ENCLOSED_NONE;
 
-				if (r1 != LEFT && r0 != RIGHT && i < leftIndex && ii < leftIndex && (pathNode.x + 1 >= _width || !oMap[right]) && aMap[left] != INVISIBLE)
-				{
-					ii = leftIndex;
-					rr = LEFT;
-				}
+		if (engine == PathEngine.GREEDY || engine == PathEngine.PORTFOLIO)
+			throw new IllegalArgumentException("Greedy walk does not support multiple first tiles and targets");
 
-				if (r1 != BOTTOM && r0 != UPPER && i < bottomIndex && ii < bottomIndex && (pathNode.y + 1 >= _height || !oMap[upper]) && aMap[bottom] != INVISIBLE)
-				{
-					ii = bottomIndex;
-					rr = BOTTOM;
-				}
+		final Tiles tiles = Vars.world.tiles;
 
-				if (ii != -1 && s1 == 1 && s0 == 1 && pathNodes1.get(ii).s == 1 && (ii == 0 || pathNodes1.get(ii - 1).s == 1))
-				{
-					pathNode.r = rr;
-					i = ii - 1;
-				}
-			}
+		if (tiles == null)
+			throw new NullPointerException("Vars.world.tiles is null");
 
-			pathNodes2.add(pathNode);
-			pPathNode = pathNode;
-		}
+		final int size1 = points1.size();
+		final int size2 = points2.size();
 
-		PathNode pathNode = null;
-		PathNode nPathNode = pathNodes2.get(pathNodes2.size() - 1);
+		if (size1 == 0 || size2 == 0)
+			return null;
 
-		// Path building
-		// Process in reverse order because it is safer to build
-		for (int i = pathNodes2.size() - 1; i >= 0; --i)
-		{
-			pathNode = nPathNode;
-			nPathNode = i == 0 ? null : pathNodes2.get(i - 1);
+		final Point point2 = points2.get(0);
 
-			// Bridge steps are 1 (end-chain bridge), 2, 3, 4; conduit and junction step is 1
-			if (pathNode.s == 1 && (i == 0 || nPathNode.s == 1))
-			{
-				int idx3 = pathNode.i;
+		final int[] targets = new int[size2];
 
-				if (aMap[idx3] == INVISIBLE)
-					buildPath.addLast(new BuildPlan(pathNode.x, pathNode.y, pathNode.r, Blocks.reinforcedLiquidJunction));
-				else
-					buildPath.addLast(new BuildPlan(pathNode.x, pathNode.y, pathNode.r, Blocks.reinforcedConduit));
-			}
-			else
-				buildPath.addLast(new BuildPlan(pathNode.x, pathNode.y, pathNode.r, Blocks.reinforcedBridgeConduit));
-		}
+		for (int k = 0; k < size2; ++k)
+			targets[k] = points2.get(k).i;
 
-		BuildPlan buildPlan1 = null;
-		BuildPlan buildPlan2 = null;
+		final int[] indices = new int[size1];
+		final int[] starts = new int[size1];
+		final int[] dRotates = new int[size1];
+		final int[] aMustRotates = new int[size1];
 
-		final ListIterator<BuildPlan> iterator = buildPath.listIterator();
+		int count = 0;
 
-		// Bridges, conduits and junctions reduction (have you ever seen 1-3 conduits between bridges in manual path building?)
-		while (iterator.hasNext())
+		for (int k = 0; k < size1; ++k)
 		{
-			final BuildPlan buildPlan = iterator.next();
+			final Point point1 = points1.get(k);
 
-			if (buildPlan.block == Blocks.reinforcedBridgeConduit)
-			{
-				BuildPlan clear = null;
+			final int x1 = point1.x;
+			final int y1 = point1.y;
 
-				if (buildPlan2 != null)
+			// Check if first tile equal to tile after last tile of path
+			for (int j = 0; j < size2; ++j)
+				if (point1.i == targets[j])
 				{
-					final Tile nTile = buildPlan.tile();
-					final Tile pTile = buildPlan2.tile();
-
-					switch (buildPlan.rotation)
-					{
-						case RIGHT:
-							if (nTile.y == pTile.y && (nTile.x + 1 == pTile.x || nTile.x + 2 == pTile.x || nTile.x + 3 == pTile.x || nTile.x + 4 == pTile.x))
-								clear = buildPlan2;
-							break;
-
-						case UPPER:
-							if (nTile.x == pTile.x && (nTile.y + 1 == pTile.y || nTile.y + 2 == pTile.y || nTile.y + 3 == pTile.y || nTile.y + 4 == pTile.y))
-								clear = buildPlan2;
-							break;
-
-						case LEFT:
-							if (nTile.y == pTile.y && (nTile.x - 1 == pTile.x || nTile.x - 2 == pTile.x || nTile.x - 3 == pTile.x || nTile.x - 4 == pTile.x))
-								clear = buildPlan2;
-							break;
-
-						case BOTTOM:
-							if (nTile.x == pTile.x && (nTile.y - 1 == pTile.y || nTile.y - 2 == pTile.y || nTile.y - 3 == pTile.y || nTile.y - 4 == pTile.y))
-								clear = buildPlan2;
-							break;
-
-						default:
-							break;
-					}
+					PathStart = k;
+					return new LinkedList<BuildPlan>();
 				}
 
-				if (clear != null)
-					buildPlan1 = buildPlan2;
-				else if (buildPlan1 != null)
-				{
-					final Tile nTile = buildPlan.tile();
-					final Tile pTile = buildPlan1.tile();
-
-					switch (buildPlan.rotation)
-					{
-						case RIGHT:
-							if (nTile.y == pTile.y && (nTile.x + 1 == pTile.x || nTile.x + 2 == pTile.x || nTile.x + 3 == pTile.x || nTile.x + 4 == pTile.x))
-								clear = buildPlan1;
-							break;
+			// Skip first tile if it is unbuildable
+			if ((_map[point1.i] == PROTECT || _map[point1.i] == BLOCK) && overrideX != x1 && overrideY != y1)
+				continue;
 
-						case UPPER:
-							if (nTile.x == pTile.x && (nTile.y + 1 == pTile.y || nTile.y + 2 == pTile.y || nTile.y + 3 == pTile.y || nTile.y + 4 == pTile.y))
-								clear = buildPlan1;
-							break;
+			// Rotate in first target direction
+			if (Math.abs(x1 - point2.x) > Math.abs(y1 - point2.y))
+				dRotates[count] = x1 < point2.x ? RIGHT : LEFT;
+			else
+				dRotates[count] = y1 < point2.y ? UPPER : BOTTOM;
 
-						case LEFT:
-							if (nTile.y == pTile.y && (nTile.x - 1 == pTile.x || nTile.x - 2 == pTile.x || nTile.x - 3 == pTile.x || nTile.x - 4 == pTile.x))
-								clear = buildPlan1;
-							break;
+			indices[count] = k;
+			starts[count] = point1.i;
+			aMustRotates[count] = mustRotates[k];
 
-						case BOTTOM:
-							if (nTile.x == pTile.x && (nTile.y - 1 == pTile.y || nTile.y - 2 == pTile.y || nTile.y - 3 == pTile.y || nTile.y - 4 == pTile.y))
-								clear = buildPlan1;
-							break;
+			++count;
+		}
 
-						default:
-							break;
-					}
-				}
+		if (count == 0)
+			return null;
 
-				// Yes I hate Java LinkedList iterators implementation
-				if (clear != null)
-				{
-					iterator.previous();
+		// Enclosed first tiles or targets have no path to search for
+		if (Enclosed(Arrays.copyOf(starts, count), targets, overrideX, overrideY))
+			return null;
 
-					while (iterator.previous() != clear)
-						iterator.remove();
+		// Bounding box of first tiles and targets, window grows around it
+		int minX = point2.x;
+		int minY = point2.y;
+		int maxX = point2.x;
+		int maxY = point2.y;
 
-					iterator.next();
-					iterator.next();
-				}
+		for (int j = 0; j < size2; ++j)
+		{
+			final Point point = points2.get(j);
 
-				buildPlan2 = buildPlan1;
-				buildPlan1 = buildPlan;
-			}
+			minX = Math.min(minX, point.x);
+			minY = Math.min(minY, point.y);
+			maxX = Math.max(maxX, point.x);
+			maxY = Math.max(maxY, point.y);
 		}
 
-		final ListIterator<BuildPlan> iterator1 = buildPath.listIterator();
-		final ListIterator<BuildPlan> iterator2 = buildPath.listIterator();
-
-		// Bridges order reversing because it is safer to build
-		while (iterator1.hasNext())
+		for (int j = 0; j < count; ++j)
 		{
-			buildPlan1 = iterator1.next();
-			buildPlan2 = iterator2.next();
-
-			if (buildPlan1.block == Blocks.reinforcedBridgeConduit)
-			{
-				int count = 1;
-
-				while (iterator2.hasNext())
-				{
-					buildPlan2 = iterator2.next();
-
-					if (buildPlan2.block != Blocks.reinforcedBridgeConduit)
-					{
-						buildPlan2 = iterator2.previous();
-						break;
-					}
-
-					++count;
-				}
-
-				buildPlan2 = iterator2.previous();
-
-				final int moves = 2 - count % 2;
-				count /= 2;
-
-				for (int i = 0; i < count; ++i)
-				{
-					iterator1.set(buildPlan2);
-					iterator2.set(buildPlan1);
-
-					buildPlan1 = iterator1.next();
-					buildPlan2 = iterator2.previous();
-				}
+			final Point point = points1.get(indices[j]);
 
-				--count;
+			minX = Math.min(minX, point.x);
+			minY = Math.min(minY, point.y);
+			maxX = Math.max(maxX, point.x);
+			maxY = Math.max(maxY, point.y);
+		}
 
-				for (int i = 0; i < count; ++i)
-				{
-					iterator1.next();
-					iterator2.next();
-				}
+		LinkedList<BuildPlan> buildPath;
 
-				for (int i = 0; i < moves; ++i)
-					iterator2.next();
-			}
+		// Yes I hate recursion
+		for (int margin = WINDOW_MARGIN; ; margin *= 2)
+		{
+			final boolean whole = SetWindow(minX, minY, maxX, maxY, margin);
+
+			FillMaps(masks, overrideX, overrideY, targets);
+
+			pathNodes1.Clear();
+			pathNodes2.Clear();
+
+			buildPath = SearchBuildPath
+			(
+				masks,
+				overrideX,
+				overrideY,
+				Arrays.copyOf(starts, count),
+				Arrays.copyOf(dRotates, count),
+				Arrays.copyOf(aMustRotates, count),
+				targets,
+				engine == PathEngine.BIDIRECTIONAL,
+				startTime
+			);
+
+			// Window grows only if there is no path in it, failure on time exceeded is final
+			if (buildPath != null || whole || (Frequency != -1 && Expired(startTime)))
+				break;
 		}
 
+		if (buildPath != null)
+			PathStart = indices[PathStart];
+
 		return buildPath;
 	}
 
+
 	/**
 	 * Updates internal map from building validation map
 	 * @param map - Building validation map
 	*/
-	public void UpdateMap(final boolean[] map)
+	public void UpdateMap(final TileBits map)
 	{
+		++mapStamp;
+
 		final Team team = Vars.player.team();
 		final Tiles tiles = Vars.world.tiles;
 
@@ -2372,6 +4393,9 @@ public class LiquidPathFinder
 		if (tiles == null)
 			throw new NullPointerException("Vars.world.tiles is null");
 
+		// Tiles of validation map become protect or block tiles
+		nMap.Copy(map);
+
 		// Divide all tiles into invisible, protect, block and empty tiles
 		for (int i = 0; i < _size; ++i)
 		{
@@ -2379,12 +4403,13 @@ public class LiquidPathFinder
 			final Block block = tile.block();
 			final Building build = tile.build;
 
-			if (map[i])
+			if (map.Get(i))
 			{
 				if (block == Blocks.reinforcedConduit && build != null && build.team == team)
 				{
 					_map[i] = INVISIBLE;
-					vMap[i] = build.rotation == RIGHT || build.rotation == LEFT;
+					nMap.Clear(i);
+					kMap[i] = build.rotation == RIGHT || build.rotation == LEFT ? kMap[i] | HORIZONTAL : kMap[i] & ~HORIZONTAL;
 				}
 				else if (block == Blocks.reinforcedBridgeConduit && build != null && build.team == team)
 					_map[i] = PROTECT;
@@ -2394,7 +4419,7 @@ public class LiquidPathFinder
 			else
 				_map[i] = EMPTY;
 
-			oMap[i] = block.outputsLiquid;
+			kMap[i] = block.outputsLiquid ? kMap[i] | OUTPUT : kMap[i] & ~OUTPUT;
 		}
 
 		// Divide empty tiles into collide, damage, danger, block and empty tiles
@@ -2425,6 +4450,10 @@ public class LiquidPathFinder
 							ProcessBlock(block, build.rotation, x, y, i);
 					}
 				}
+
+		// Internal map is updated at all
+		UpdateClusters(0, 0, _width, _height);
+		UpdateBlocked();
 	}
 
 	/**
@@ -2433,6 +4462,10 @@ public class LiquidPathFinder
 	*/
 	public void UpdateMap(final BuildPlan[] buildPlans)
 	{
+		++mapStamp;
+
+		nMap.Copy(cMap);
+
 		// Not update breaking plans because can not use their space until they are finished
 		// Divide all tiles under buildings on map
 		for (BuildPlan buildPlan : buildPlans)
@@ -2445,12 +4478,16 @@ public class LiquidPathFinder
 					int idx = buildPlan.x + buildPlan.y * _width;
 
 					_map[idx] = INVISIBLE;
-					vMap[idx] = buildPlan.rotation == RIGHT || buildPlan.rotation == LEFT;
+					nMap.Clear(idx);
+					kMap[idx] = buildPlan.rotation == RIGHT || buildPlan.rotation == LEFT ? kMap[idx] | HORIZONTAL : kMap[idx] & ~HORIZONTAL;
 				}
 				else if (block == Blocks.reinforcedBridgeConduit)
+				{
 					_map[buildPlan.x + buildPlan.y * _width] = PROTECT;
+					nMap.Set(buildPlan.x + buildPlan.y * _width);
+				}
 				else if (block.size == 1)
-					_map[buildPlan.x + buildPlan.y * _width] = BLOCK;
+					BlockTile(buildPlan.x + buildPlan.y * _width);
 				else
 				{
 					final int x1 = buildPlan.x + block.sizeOffset;
@@ -2465,13 +4502,13 @@ public class LiquidPathFinder
 						for (int y = y1, i = x1 + y1 * _width; y < y2; ++y, i += step)
 							for (int x = x1; x < x2; ++x, ++i)
 							{
-								_map[i] = BLOCK;
-								oMap[i] = true;
+								BlockTile(i);
+								kMap[i] |= OUTPUT;
 							}
 					else
 						for (int y = y1, i = x1 + y1 * _width; y < y2; ++y, i += step)
 							for (int x = x1; x < x2; ++x, ++i)
-								_map[i] = BLOCK;
+								BlockTile(i);
 				}
 			}
 
@@ -2487,6 +4524,14 @@ public class LiquidPathFinder
 					ProcessProtect(buildPlan.rotation, buildPlan.x, buildPlan.y, idx);
 				else if (block.outputsLiquid)
 					ProcessBlock(block, buildPlan.rotation, buildPlan.x, buildPlan.y, idx);
+
+				// Tiles under building and next to it are updated
+				final int x1 = buildPlan.x + block.sizeOffset;
+				final int y1 = buildPlan.y + block.sizeOffset;
+
+				UpdateClusters(x1 - 1, y1 - 1, x1 + block.size + 1, y1 + block.size + 1);
 			}
+
+		UpdateBlocked();
 	}
 }
\ No newline at end of file
@@ -2,7 +2,10 @@ package machindustry;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
@@ -35,6 +38,7 @@ import mindustry.game.EventType.DisposeEvent;
 import mindustry.game.EventType.Trigger;
 import mindustry.game.EventType.WorldLoadEvent;
 import mindustry.game.Team;
+import mindustry.game.Teams.TeamData;
 import mindustry.gen.Building;
 import mindustry.gen.Icon;
 import mindustry.gen.Tex;
@@ -48,9 +52,11 @@ import mindustry.world.Block;
 import mindustry.world.Build;
 import mindustry.world.Tile;
 import mindustry.world.Tiles;
+import mindustry.world.blocks.ConstructBlock.ConstructBuild;
 import mindustry.world.blocks.liquid.LiquidBlock;
 import mindustry.world.blocks.power.PowerGraph;
 import mindustry.world.blocks.storage.CoreBlock;
+import mindustry.world.blocks.storage.CoreBlock.CoreBuild;
 import mindustry.world.meta.Attribute;
 import mindustry.world.meta.BlockFlag;
 
@@ -71,6 +77,27 @@ public class Machindustry extends Mod
 
 	private static final String _buttonsName = "buttons";
 	private static final String _previewName = "preview";
+	private static final String _livePreviewName = "path-live-preview";
+
+	/**
+	 * Live path preview evaluations per world state update, search continues on the next one
+	*/
+	private static final long _livePreviewEvaluations = 100000;
+
+	/**
+	 * Tiles around broken route segment where detour is searched, tiles farther away are masked
+	*/
+	private static final int _repairRouteMargin = 6;
+
+	/**
+	 * Tiles between buildings of one network, buildings farther away are not its sources
+	*/
+	private static final int _networkGap = 2;
+
+	/**
+	 * Sources one network connects at most, each of them takes one search
+	*/
+	private static final int _networkSources = 32;
 
 	private static final String _polygonSafeZoneName = "polygon-safe-zone";
 	private static final String _radiusSafeZoneName = "radius-safe-zone";
@@ -91,6 +118,9 @@ public class Machindustry extends Mod
 	private static final String _beamMaskAroundSolidName = "beam-mask-around-solid";
 
 	private static final String _beamIgnoreMaskName = "beam-path-ignore-mask";
+	private static final String _beamEngineName = "beam-path-engine";
+	private static final String _beamDistanceFieldName = "beam-path-distance-field";
+	private static final String _beamNetworkName = "beam-path-network";
 	private static final String _beamTargetModeName = "beam-path-target-mode";
 
 	private static final String _liquidFrequencyName = "liquid-time-check-frequency";
@@ -103,6 +133,17 @@ public class Machindustry extends Mod
 	private static final String _liquidMaskAroundSolidName = "liquid-mask-around-solid";
 
 	private static final String _liquidIgnoreMaskName = "liquid-path-ignore-mask";
+	private static final String _liquidEngineName = "liquid-path-engine";
+	private static final String _liquidBestPathName = "liquid-path-best-of-candidates";
+	private static final String _liquidNetworkName = "liquid-path-network";
+	private static final String _liquidClustersName = "liquid-path-clusters";
+	private static final String _liquidDistanceFieldName = "liquid-path-distance-field";
+	private static final String _liquidLandmarksName = "liquid-path-landmarks";
+	private static final String _liquidAnytimeName = "liquid-path-anytime";
+	private static final String _liquidRepairRoutesName = "liquid-repair-routes";
+	private static final String _liquidParallelName = "liquid-path-parallel";
+	private static final String _liquidWindowName = "liquid-path-window";
+	private static final String _liquidJumpName = "liquid-path-jump";
 	private static final String _liquidTargetModeName = "liquid-path-target-mode";
 	private static final String _liquidManhattanName = "liquid-manhattan-distance";
 	private static final String _liquidReplaceOneName = "liquid-replace-one";
@@ -117,6 +158,17 @@ public class Machindustry extends Mod
 	private static final String _solidMaskAroundSolidName = "solid-mask-around-solid";
 
 	private static final String _solidIgnoreMaskName = "solid-path-ignore-mask";
+	private static final String _solidEngineName = "solid-path-engine";
+	private static final String _solidBestPathName = "solid-path-best-of-candidates";
+	private static final String _solidNetworkName = "solid-path-network";
+	private static final String _solidClustersName = "solid-path-clusters";
+	private static final String _solidDistanceFieldName = "solid-path-distance-field";
+	private static final String _solidLandmarksName = "solid-path-landmarks";
+	private static final String _solidAnytimeName = "solid-path-anytime";
+	private static final String _solidRepairRoutesName = "solid-repair-routes";
+	private static final String _solidParallelName = "solid-path-parallel";
+	private static final String _solidWindowName = "solid-path-window";
+	private static final String _solidJumpName = "solid-path-jump";
 	private static final String _solidTargetModeName = "solid-path-target-mode";
 	private static final String _solidManhattanName = "solid-manhattan-distance";
 	private static final String _solidDisableSorterName = "solid-disable-sorter";
@@ -135,9 +187,57 @@ public class Machindustry extends Mod
 	private final Runnable _worldUpdateRunnable = () -> WorldUpdateRunnable();
 
 	private final QueueSPSC<PathTask> _taskQueue = new QueueSPSC<PathTask>(100);
+
+	/**
+	 * Live path preview task, the worker works on it when there is no task in queue
+	*/
+	private volatile PathTask _previewTask = null;
+
+	/**
+	 * Live path preview task and its route from first tile, route is null if there is no route
+	*/
+	private volatile Pair<PathTask, int[]> _previewResult = null;
+
+	/**
+	 * Turbines or sources the last network has not reached. Worker thread only.
+	*/
+	private int _networkUnreached = 0;
+
+	/**
+	 * World state epoch live path preview map was updated at. Worker thread only.
+	*/
+	private long _previewEpoch = (long)-1;
+
+	/**
+	 * Blocked tiles map live path preview was last searched on. Worker thread only.
+	*/
+	private TileBits _previewMap = null;
+
+	/**
+	 * Tiles changed by the last live path preview map update. Worker thread only.
+	*/
+	private int[] _previewTiles = null;
+
+	/**
+	 * Replanner that got the last live path preview map changes, others compare maps by themselves. Worker thread only.
+	*/
+	private PathReplanner _previewReplanner = null;
+
+	/**
+	 * Routes built by the worker, they are checked and repaired when player build plans change. Worker thread only.
+	*/
+	private final ArrayList<Route> _routes = new ArrayList<Route>();
+
+	/**
+	 * Plan epoch routes were checked at
+	*/
+	private long _routesEpoch = (long)-1;
 	private final Thread _thread;
 
 	private String _failureMessage = null;
+	private String _enclosedFirstMessage = null;
+	private String _enclosedTargetMessage = null;
+	private String _unreachedMessage = null;
 	private String _successMessage = null;
 
 	private String _resultMessage1 = null;
@@ -169,14 +269,22 @@ public class Machindustry extends Mod
 	private int _width = -1;
 	private int _size = -1;
 
-	private boolean[] _buildMap = null;
-	private boolean[] _masksMap = null;
+	private TileBits _buildMap = null;
+	private TileBits _masksMap = null;
+	private TileBits _windowMap = null;
 	private WorldState _worldState = null;
 
 	private BeamPathFinder _beamPathFinder = null;
 	private LiquidPathFinder _liquidPathFinder = null;
 	private SolidPathFinder _solidPathFinder = null;
 
+	private PathReplanner _beamPathReplanner = null;
+	private PathReplanner _liquidPathReplanner = null;
+	private PathReplanner _solidPathReplanner = null;
+
+	private PathHistory _liquidHistory = null;
+	private PathHistory _solidHistory = null;
+
 	private boolean _beamButton = false;
 	private boolean _liquidButton = false;
 	private boolean _solidButton = false;
@@ -196,6 +304,8 @@ public class Machindustry extends Mod
 	private Point _ventLastPoint = null;
 
 	private boolean _resultFailure = false;
+	private int _resultEnclosed = PathComponents.ENCLOSED_NONE;
+	private int _resultUnreached = 0;
 	private boolean _resultSuccess = false;
 
 	private long _resultTimeAlgorithm = -1;
@@ -394,6 +504,66 @@ public class Machindustry extends Mod
 			return -1;
 	}
 
+	private static PathEngine GetBeamEngine(int value)
+	{
+		switch (value)
+		{
+			case 0:
+				return PathEngine.GREEDY;
+
+			case 1:
+				return PathEngine.BFS;
+
+			default:
+				return PathEngine.GREEDY;
+		}
+	}
+
+	private static PathEngine GetLiquidEngine(int value)
+	{
+		switch (value)
+		{
+			case 0:
+				return PathEngine.GREEDY;
+
+			case 1:
+				return PathEngine.ASTAR;
+
+			case 2:
+				return PathEngine.BIDIRECTIONAL;
+
+			case 3:
+				return PathEngine.PORTFOLIO;
+
+			case 4:
+				return PathEngine.ADAPTIVE;
+
+			default:
+				return PathEngine.GREEDY;
+		}
+	}
+
+	private static PathEngine GetSolidEngine(int value)
+	{
+		switch (value)
+		{
+			case 0:
+				return PathEngine.GREEDY;
+
+			case 1:
+				return PathEngine.ASTAR;
+
+			case 2:
+				return PathEngine.PORTFOLIO;
+
+			case 3:
+				return PathEngine.ADAPTIVE;
+
+			default:
+				return PathEngine.GREEDY;
+		}
+	}
+
 	private static int NotRotate(final int rotate)
 	{
 		switch (rotate)
@@ -502,6 +672,23 @@ public class Machindustry extends Mod
 			buildPlans.addLast(new BuildPlan(x, y, rotation, replaceWithBlock));
 	}
 
+	/**
+	 * Route tile can be cut, it does not link to tiles other than the next one
+	*/
+	private static boolean PlainBlock(final Block block)
+	{
+		return block == Blocks.duct || block == Blocks.armoredDuct || block == Blocks.reinforcedConduit;
+	}
+
+	/**
+	 * Route tile block, not routers that replace blocks at the beginning of the path
+	*/
+	private static boolean RouteBlock(final Block block)
+	{
+		return PlainBlock(block) || block == Blocks.ductBridge
+			|| block == Blocks.reinforcedBridgeConduit || block == Blocks.reinforcedLiquidJunction;
+	}
+
 	private static void SortPoints(final ArrayList<Point> edgePoints, final Point a, final Point b)
 	{
 		edgePoints.sort((p1, p2) ->
@@ -659,6 +846,7 @@ public class Machindustry extends Mod
 		machindustrySettingsTable.pref(invisibleSpace);
 		machindustrySettingsTable.checkPref(_buttonsName, Vars.mobile);
 		machindustrySettingsTable.checkPref(_previewName, Vars.mobile);
+		machindustrySettingsTable.checkPref(_livePreviewName, false);
 
 		machindustrySettingsTable.pref(invisibleSpace);
 		machindustrySettingsTable.checkPref(_polygonSafeZoneName, true);
@@ -714,6 +902,9 @@ public class Machindustry extends Mod
 		machindustrySettingsTable.checkPref(_beamIgnoreMaskName, true);
 
 		machindustrySettingsTable.pref(invisibleSpace);
+		machindustrySettingsTable.sliderPref(_beamEngineName, 0, 0, 1, 1, v -> Core.bundle.get("machindustry.engine-" + GetBeamEngine(v).name().toLowerCase()));
+		machindustrySettingsTable.checkPref(_beamDistanceFieldName, false);
+		machindustrySettingsTable.checkPref(_beamNetworkName, false);
 		machindustrySettingsTable.checkPref(_beamTargetModeName, true);
 
 		machindustrySettingsTable.pref(visibleSpace);
@@ -739,6 +930,17 @@ public class Machindustry extends Mod
 		machindustrySettingsTable.checkPref(_liquidIgnoreMaskName, true);
 
 		machindustrySettingsTable.pref(invisibleSpace);
+		machindustrySettingsTable.sliderPref(_liquidEngineName, 0, 0, 4, 1, v -> Core.bundle.get("machindustry.engine-" + GetLiquidEngine(v).name().toLowerCase()));
+		machindustrySettingsTable.checkPref(_liquidBestPathName, false);
+		machindustrySettingsTable.checkPref(_liquidNetworkName, false);
+		machindustrySettingsTable.checkPref(_liquidClustersName, false);
+		machindustrySettingsTable.checkPref(_liquidDistanceFieldName, false);
+		machindustrySettingsTable.checkPref(_liquidLandmarksName, false);
+		machindustrySettingsTable.checkPref(_liquidAnytimeName, false);
+		machindustrySettingsTable.checkPref(_liquidRepairRoutesName, false);
+		machindustrySettingsTable.checkPref(_liquidParallelName, false);
+		machindustrySettingsTable.checkPref(_liquidWindowName, false);
+		machindustrySettingsTable.checkPref(_liquidJumpName, false);
 		machindustrySettingsTable.checkPref(_liquidTargetModeName, false);
 		machindustrySettingsTable.checkPref(_liquidManhattanName, false);
 		machindustrySettingsTable.checkPref(_liquidReplaceOneName, true);
@@ -766,6 +968,17 @@ public class Machindustry extends Mod
 		machindustrySettingsTable.checkPref(_solidIgnoreMaskName, true);
 
 		machindustrySettingsTable.pref(invisibleSpace);
+		machindustrySettingsTable.sliderPref(_solidEngineName, 0, 0, 3, 1, v -> Core.bundle.get("machindustry.engine-" + GetSolidEngine(v).name().toLowerCase()));
+		machindustrySettingsTable.checkPref(_solidBestPathName, false);
+		machindustrySettingsTable.checkPref(_solidNetworkName, false);
+		machindustrySettingsTable.checkPref(_solidClustersName, false);
+		machindustrySettingsTable.checkPref(_solidDistanceFieldName, false);
+		machindustrySettingsTable.checkPref(_solidLandmarksName, false);
+		machindustrySettingsTable.checkPref(_solidAnytimeName, false);
+		machindustrySettingsTable.checkPref(_solidRepairRoutesName, false);
+		machindustrySettingsTable.checkPref(_solidParallelName, false);
+		machindustrySettingsTable.checkPref(_solidWindowName, false);
+		machindustrySettingsTable.checkPref(_solidJumpName, false);
 		machindustrySettingsTable.checkPref(_solidTargetModeName, false);
 		machindustrySettingsTable.checkPref(_solidManhattanName, false);
 		machindustrySettingsTable.checkPref(_solidDisableSorterName, false);
@@ -821,7 +1034,7 @@ public class Machindustry extends Mod
 			final BuildPlan aBuildPlan = GetPlanIntersection(worldState.BuildPlans, overrideX, overrideY);
 			final int overrideI = overrideX + overrideY * _width;
 
-			if (aBuildPlan == null && !worldState.Map[overrideI])
+			if (aBuildPlan == null && !worldState.Map.Get(overrideI))
 				return new Point(overrideX, overrideY, overrideI);
 		}
 
@@ -865,6 +1078,30 @@ public class Machindustry extends Mod
 		Draw.reset();
 	}
 
+	/**
+	 * Requests live path preview for current point and draws the last route found from the same first point
+	*/
+	private void DrawPreviewOverlay(final Point firstPoint, final Point currentPoint, final PathType type, final Color color)
+	{
+		if (!Core.settings.getBool(_livePreviewName))
+			return;
+
+		if (currentPoint.x < 0 || currentPoint.x >= _width || currentPoint.y < 0 || currentPoint.y >= _height
+			|| firstPoint.x < 0 || firstPoint.x >= _width || firstPoint.y < 0 || firstPoint.y >= _height)
+			return;
+
+		final PathTask previewTask = _previewTask;
+
+		if (previewTask == null || previewTask.type != type || previewTask.o1 != firstPoint || ((Point)previewTask.o2).i != currentPoint.i)
+			_previewTask = new PathTask(firstPoint, currentPoint, (long)-1, _taskEpoch, type);
+
+		final Pair<PathTask, int[]> previewResult = _previewResult;
+
+		if (previewResult != null && previewResult.a.o1 == firstPoint && previewResult.b != null)
+			for (final int i : previewResult.b)
+				DrawSquareOverlay(i % _width, i / _width, color);
+	}
+
 	private boolean Expired(long endTime, long taskEpoch)
 	{
 		return endTime <= System.nanoTime() || taskEpoch != _taskEpoch;
@@ -872,7 +1109,7 @@ public class Machindustry extends Mod
 
 	private void FillMasksMap
 	(
-		final boolean[] validMap,
+		final TileBits validMap,
 		final boolean maskAroundBuild,
 		final boolean maskAroundCore,
 		final boolean maskAroundLiquid,
@@ -913,7 +1150,7 @@ public class Machindustry extends Mod
 
 								if (y > -block.sizeOffset)
 									for (int j = x1; j < x2; ++j)
-										_masksMap[j] = true;
+										_masksMap.Set(j);
 
 								if (y < _height - (block.size + block.sizeOffset))
 								{
@@ -923,7 +1160,7 @@ public class Machindustry extends Mod
 									x2 += dx;
 
 									for (int j = x1; j < x2; ++j)
-										_masksMap[j] = true;
+										_masksMap.Set(j);
 								}
 
 								int y1 = i + block.sizeOffset * _width + block.sizeOffset - 1;
@@ -931,7 +1168,7 @@ public class Machindustry extends Mod
 
 								if (x > -block.sizeOffset)
 									for (int j = y1; j < y2; j += _width)
-										_masksMap[j] = true;
+										_masksMap.Set(j);
 
 								if (x < _width - (block.size + block.sizeOffset))
 								{
@@ -941,7 +1178,7 @@ public class Machindustry extends Mod
 									y2 += dy;
 
 									for (int j = y1; j < y2; j += _width)
-										_masksMap[j] = true;
+										_masksMap.Set(j);
 								}
 							}
 						}
@@ -949,81 +1186,26 @@ public class Machindustry extends Mod
 		}
 	}
 
-	private LinkedList<BuildPlan> FindPath
-	(
-		final Function<Pair<Point, Point>, LinkedList<BuildPlan>> function,
-		final ArrayList<Point> pointList1,
-		final ArrayList<Point> pointList2,
-		final long endTime,
-		final long taskEpoch
-	)
-	{
-		final int size1 = pointList1.size();
-		final int size2 = pointList2.size();
-
-		if (size1 != 0 && size2 != 0)
-		{
-			final int size = Math.max(size1, size2);
-
-			for (int k = 0; k < size; ++k)
-			{
-				if (Expired(endTime, taskEpoch))
-					return null;
-
-				final long aStartTime = System.nanoTime();
-				final LinkedList<BuildPlan> buildPlans = function.apply
-				(
-					new Pair<Point, Point>(pointList1.get(k % size1), pointList2.get(k % size2))
-				);
-				final long aEndTime = System.nanoTime();
-
-				if (buildPlans != null)
-				{
-					_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
-					return buildPlans;
-				}
-			}
-
-			for (int i = 0; i < size1; ++i)
-				for (int j = 0; j < size2; ++j)
-					if (i % size2 != j % size1)
-					{
-						if (Expired(endTime, taskEpoch))
-							return null;
-
-						final long aStartTime = System.nanoTime();
-						final LinkedList<BuildPlan> buildPlans = function.apply
-						(
-							new Pair<Point, Point>(pointList1.get(i), pointList2.get(j))
-						);
-						final long aEndTime = System.nanoTime();
-
-						if (buildPlans != null)
-						{
-							_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
-							return buildPlans;
-						}
-					}
-		}
-
-		return null;
-	}
-
-	private LinkedList<BuildPlan> FindPath
+	/**
+	 * Connects turbines to power graph with one beam node network instead of chain of paths. Network grows from all
+	 * its energy tiles at once (power graph, connected turbines and beam nodes placed so far), so each next turbine is
+	 * joined to the closest part of network and placed beam nodes are reused for free. Every path ends at turbine,
+	 * so network has no dead branches to prune. Turbines that are not reached are counted in _networkUnreached.
+	*/
+	private LinkedList<BuildPlan> FindNetwork
 	(
 		final BeamPathFinder pathFinder,
 		final WorldState worldState,
-		final int x1,
-		final int y1,
-		final int x2,
-		final int y2,
+		final LinkedList<Point> powers,
+		final LinkedList<Point> turbines,
 		final long taskEpoch
 	)
 	{
-		final long endTime = System.nanoTime() + (long)Core.settings.getInt(_beamBuildTotalTimeName) * (long)1000000;
+		final long endTime = System.nanoTime() + (long)Core.settings.getInt(_beamBuildTotalTimeName) * (long)turbines.size() * (long)1000000;
 
 		final boolean ignoreMask = Core.settings.getBool(_beamIgnoreMaskName);
 		final boolean targetMode = Core.settings.getBool(_beamTargetModeName);
+		final PathEngine engine = GetBeamEngine(Core.settings.getInt(_beamEngineName));
 
 		worldState.UpdateMap();
 
@@ -1049,39 +1231,114 @@ public class Machindustry extends Mod
 
 		pathFinder.UpdateMap(worldState.BuildPlans);
 
-		if (Expired(endTime, taskEpoch))
-			return null;
+		final LinkedList<BuildPlan> buildPlans = new LinkedList<BuildPlan>();
 
-		long aStartTime = System.nanoTime();
-		LinkedList<BuildPlan> buildPlans = pathFinder.BuildPath(x1, y1, x2, y2, targetMode, _masksMap);
-		long aEndTime = System.nanoTime();
+		final ArrayList<Point> network = new ArrayList<Point>(powers);
+		final ArrayList<Point> terminals = new ArrayList<Point>(turbines);
 
-		if (buildPlans == null && ignoreMask)
+		_networkUnreached = 0;
+
+		// Yes I hate recursion
+		while (terminals.size() != 0)
 		{
 			if (Expired(endTime, taskEpoch))
-				return null;
+			{
+				_networkUnreached += terminals.size();
+				return buildPlans;
+			}
 
-			aStartTime = System.nanoTime();
-			buildPlans = pathFinder.BuildPath(x1, y1, x2, y2, targetMode, null);
-			aEndTime = System.nanoTime();
-		}
+			Point point1 = null;
+			Point point2 = terminals.get(0);
 
-		if (buildPlans != null)
-			_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
+			int ntDistance = Integer.MAX_VALUE;
+
+			for (final Point point : network)
+				for (final Point terminal : terminals)
+				{
+					final int distance = Math.abs(point.x - terminal.x) + Math.abs(point.y - terminal.y);
+
+					if (ntDistance > distance)
+					{
+						point1 = point;
+						point2 = terminal;
+
+						ntDistance = distance;
+					}
+				}
+
+			LinkedList<BuildPlan> aBuildPlans = null;
+
+			if (point1 != null)
+			{
+				if (engine == PathEngine.GREEDY)
+				{
+					long aStartTime = System.nanoTime();
+					aBuildPlans = pathFinder.BuildPath(point1.x, point1.y, point2.x, point2.y, targetMode, _masksMap, engine);
+					long aEndTime = System.nanoTime();
+
+					if (aBuildPlans == null && ignoreMask)
+					{
+						if (Expired(endTime, taskEpoch))
+						{
+							_networkUnreached += terminals.size();
+							return buildPlans;
+						}
+
+						aStartTime = System.nanoTime();
+						aBuildPlans = pathFinder.BuildPath(point1.x, point1.y, point2.x, point2.y, targetMode, null, engine);
+						aEndTime = System.nanoTime();
+					}
+
+					if (aBuildPlans != null)
+						_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
+				}
+				else
+				{
+					final ArrayList<Point> pointList1 = new ArrayList<Point>(network);
+					final ArrayList<Point> pointList2 = new ArrayList<Point>(terminals);
+
+					// Single search from whole network to all left turbines, the closest pair only breaks ties
+					pointList1.remove(point1);
+					pointList1.add(0, point1);
+
+					pointList2.remove(point2);
+					pointList2.add(0, point2);
+
+					aBuildPlans = FindPath(pathFinder, pointList1, pointList2, ignoreMask, engine, endTime, taskEpoch);
+
+					if (aBuildPlans != null)
+						point2 = pointList2.get(pathFinder.PathEnd);
+				}
+			}
+
+			// Turbine that can not be reached is not powered, so it is not an energy tile for the next paths
+			if (aBuildPlans != null)
+			{
+				final BuildPlan[] aBuildPlansArray = aBuildPlans.toArray(new BuildPlan[aBuildPlans.size()]);
+
+				// Placed beam nodes are energy tiles for the next paths
+				pathFinder.UpdateMap(aBuildPlansArray);
+
+				for (final BuildPlan buildPlan : aBuildPlansArray)
+					network.add(new Point(buildPlan.x, buildPlan.y, buildPlan.x + buildPlan.y * _width));
+
+				buildPlans.addAll(aBuildPlans);
+				network.add(point2);
+			}
+			else
+				++_networkUnreached;
+
+			terminals.remove(point2);
+		}
 
 		return buildPlans;
 	}
 
-	private LinkedList<BuildPlan> FindPath
-	(
-		final LiquidPathFinder pathFinder,
-		final WorldState worldState,
-		final int x1,
-		final int y1,
-		final int x2,
-		final int y2,
-		final long taskEpoch
-	)
+	/**
+	 * Buildings of the block on tile within _networkGap tiles of each other, like drills on one ore field.
+	 * Ducts, conduits and other rotated blocks are never grouped, building on tile is the only source then.
+	*/
+	private ArrayList<Building> GetNetworkSources(final int x, final int y)
 	{
 		final Team team = Vars.player.team();
 		final Tiles tiles = Vars.world.tiles;
@@ -1092,58 +1349,715 @@ public class Machindustry extends Mod
 		if (tiles == null)
 			throw new NullPointerException("Vars.world.tiles is null");
 
-		final long endTime = System.nanoTime() + (long)Core.settings.getInt(_liquidBuildTotalTimeName) * (long)1000000;
-
-		final boolean ignoreMask = Core.settings.getBool(_liquidIgnoreMaskName);
-		final boolean targetMode = Core.settings.getBool(_liquidTargetModeName);
+		final ArrayList<Building> sources = new ArrayList<Building>();
+		final Building build = tiles.get(x, y).build;
 
-		worldState.UpdateMap();
+		if (build == null || build.team != team)
+			return sources;
 
-		if (Expired(endTime, taskEpoch))
-			return null;
+		final Block block = build.block;
 
-		final BuildPlan buildPlan2 = GetPlanIntersection(worldState.BuildPlans, x2, y2);
+		sources.add(build);
 
-		final Tile tile2 = tiles.get(x2, y2);
-		final Block block2 = buildPlan2 == null ? tile2.block() : buildPlan2.block;
+		if (block.rotate)
+			return sources;
 
-		if (block2 == Blocks.reinforcedConduit || block2 == Blocks.reinforcedBridgeConduit)
+		for (int k = 0; k < sources.size() && sources.size() < _networkSources; ++k)
 		{
-			final boolean[] wsMap = worldState.Map;
-			final int i2 = x2 + y2 * _width;
+			final Tile tile = sources.get(k).tile;
 
-			int rotation = -1;
+			final int xMax = Math.min((int)tile.x + block.sizeOffset + block.size - 1 + _networkGap, _width - 1);
+			final int xMin = Math.max((int)tile.x + block.sizeOffset - _networkGap, 0);
 
-			if (buildPlan2 == null)
-			{
-				final Building build = tile2.build;
+			final int yMax = Math.min((int)tile.y + block.sizeOffset + block.size - 1 + _networkGap, _height - 1);
+			final int yMin = Math.max((int)tile.y + block.sizeOffset - _networkGap, 0);
 
-				if (build != null && build.team == team)
-					rotation = build.rotation;
-			}
-			else
-				rotation = buildPlan2.rotation;
+			for (int yy = yMin; yy <= yMax; ++yy)
+				for (int xx = xMin; xx <= xMax; ++xx)
+				{
+					final Building other = tiles.get(xx, yy).build;
+
+					if (other != null && other.block == block && other.team == team && sources.size() < _networkSources
+						&& !sources.contains(other))
+						sources.add(other);
+				}
+		}
+
+		return sources;
+	}
+
+	/**
+	 * Connects sources around the first tile, like pumps on one lake, to the target with one conduit network
+	 * (see GetNetworkSources). Each step searches from all left sources to the target and conduits placed so far,
+	 * the closest source joins the closest part of network. Paths only run from sources, so no branch is left to cut.
+	 * Sources that are not reached are counted in _networkUnreached.
+	*/
+	private LinkedList<BuildPlan> FindNetwork
+	(
+		final LiquidPathFinder pathFinder,
+		final WorldState worldState,
+		final int x1,
+		final int y1,
+		final int x2,
+		final int y2,
+		final long taskEpoch
+	)
+	{
+		final Tiles tiles = Vars.world.tiles;
+
+		if (tiles == null)
+			throw new NullPointerException("Vars.world.tiles is null");
+
+		final ArrayList<Building> sources = GetNetworkSources(x1, y1);
+
+		// Target of the same block is not its own source
+		sources.remove(tiles.get(x2, y2).build);
+
+		_networkUnreached = 0;
+
+		// Single source has nothing to share, rotated target keeps its input sides like single path does
+		if (sources.size() < 2 || tiles.get(x2, y2).block().rotate)
+			return FindPath(pathFinder, worldState, x1, y1, x2, y2, taskEpoch);
+
+		final long endTime = System.nanoTime() + (long)Core.settings.getInt(_liquidBuildTotalTimeName) * (long)sources.size() * (long)1000000;
+
+		final boolean ignoreMask = Core.settings.getBool(_liquidIgnoreMaskName);
+		final PathEngine setting = GetLiquidEngine(Core.settings.getInt(_liquidEngineName));
+
+		// Network search starts from all sources at once, greedy walk takes one first tile only
+		final PathEngine engine = setting == PathEngine.GREEDY || setting == PathEngine.PORTFOLIO || setting == PathEngine.ADAPTIVE
+			? PathEngine.ASTAR : setting;
+
+		worldState.UpdateMap();
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		FillMasksMap
+		(
+			worldState.Map,
+			Core.settings.getBool(_liquidMaskAroundBuildName),
+			Core.settings.getBool(_liquidMaskAroundCoreName),
+			Core.settings.getBool(_liquidMaskAroundLiquidName),
+			Core.settings.getBool(_liquidMaskAroundSolidName)
+		);
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		pathFinder.UpdateMap(worldState.Map);
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		pathFinder.UpdateMap(worldState.BuildPlans);
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		if (pathFinder.Landmarks != null)
+		{
+			worldState.UpdateStaticMap();
+			pathFinder.Landmarks.Update(worldState.StaticMap);
+
+			if (Expired(endTime, taskEpoch))
+				return null;
+		}
+
+		pathFinder.PlansLimit = Integer.MAX_VALUE;
+
+		final TileBits wsMap = worldState.Map;
+
+		final LinkedList<BuildPlan> buildPlans = new LinkedList<BuildPlan>();
+
+		final ArrayList<Point> network = GetPoints(wsMap, x1, y1, x2, y2).b;
+		final ArrayList<Building> terminals = new ArrayList<Building>(sources);
+
+		// Yes I hate recursion
+		while (terminals.size() != 0)
+		{
+			if (Expired(endTime, taskEpoch))
+			{
+				_networkUnreached += terminals.size();
+				return buildPlans;
+			}
+
+			final ArrayList<Point> pointList1 = new ArrayList<Point>();
+			final ArrayList<Building> owners = new ArrayList<Building>();
+
+			for (final Building terminal : terminals)
+			{
+				final Tile tile = terminal.tile;
+
+				for (final Point point : GetOuterEdgePoints(terminal.block, (int)tile.x, (int)tile.y, (int)tile.x + (int)tile.y * _width))
+					if (!wsMap.Get(point.i))
+					{
+						pointList1.add(point);
+						owners.add(terminal);
+					}
+			}
+
+			int k1 = -1;
+			Point point2 = null;
+
+			int ntDistance = Integer.MAX_VALUE;
+
+			for (int k = 0; k < pointList1.size(); ++k)
+				for (final Point point : network)
+				{
+					final int distance = Math.abs(pointList1.get(k).x - point.x) + Math.abs(pointList1.get(k).y - point.y);
+
+					if (ntDistance > distance)
+					{
+						k1 = k;
+						point2 = point;
+
+						ntDistance = distance;
+					}
+				}
+
+			// Left sources are walled in or network has no free side
+			if (point2 == null)
+			{
+				_networkUnreached += terminals.size();
+				break;
+			}
+
+			// Single search from all left sources to whole network, the closest pair only breaks ties
+			pointList1.add(0, pointList1.remove(k1));
+			owners.add(0, owners.remove(k1));
+
+			final ArrayList<Point> pointList2 = new ArrayList<Point>(network);
+
+			pointList2.remove(point2);
+			pointList2.add(0, point2);
+
+			final int[] mustRotates = new int[pointList1.size()];
+
+			for (int k = 0; k < mustRotates.length; ++k)
+			{
+				final Building owner = owners.get(k);
+				final Point point = pointList1.get(k);
+
+				mustRotates[k] = GetRotate((int)owner.tile.x, (int)owner.tile.y, point.x, point.y);
+			}
+
+			final LinkedList<BuildPlan> aBuildPlans = FindPath
+			(
+				(m) -> pathFinder.BuildPath(pointList1, pointList2, -1, -1, mustRotates, m, engine),
+				pointList1,
+				pointList2,
+				ignoreMask,
+				endTime,
+				taskEpoch
+			);
+
+			// One search has tried all left sources, none of them reaches network
+			if (aBuildPlans == null)
+			{
+				_networkUnreached += terminals.size();
+				break;
+			}
+
+			final BuildPlan[] aBuildPlansArray = aBuildPlans.toArray(new BuildPlan[aBuildPlans.size()]);
+
+			pathFinder.UpdateMap(aBuildPlansArray);
+
+			for (final BuildPlan buildPlan : aBuildPlansArray)
+			{
+				final int i = buildPlan.x + buildPlan.y * _width;
+
+				// Placed tiles are not first tiles of the next paths
+				wsMap.Set(i);
+
+				// Next paths end in sides of placed conduits, bridges and junctions pass liquid through
+				if (buildPlan.block == Blocks.reinforcedConduit)
+					network.add(new Point(buildPlan.x, buildPlan.y, i));
+			}
+
+			buildPlans.addAll(aBuildPlans);
+			terminals.remove(owners.get(pathFinder.PathStart));
+		}
+
+		return buildPlans;
+	}
+
+	/**
+	 * Connects sources around the first tile, like drills on one ore field, to the target with one duct network
+	 * (see GetNetworkSources). Placed ducts are targets of the next searches, so later drills feed into trunk of
+	 * earlier ones for free. Sources that are not reached are counted in _networkUnreached.
+	*/
+	private LinkedList<BuildPlan> FindNetwork
+	(
+		final SolidPathFinder pathFinder,
+		final WorldState worldState,
+		final int x1,
+		final int y1,
+		final int x2,
+		final int y2,
+		final long taskEpoch
+	)
+	{
+		final Tiles tiles = Vars.world.tiles;
+
+		if (tiles == null)
+			throw new NullPointerException("Vars.world.tiles is null");
+
+		final ArrayList<Building> sources = GetNetworkSources(x1, y1);
+
+		// Target of the same block is not its own source
+		sources.remove(tiles.get(x2, y2).build);
+
+		_networkUnreached = 0;
+
+		// Single source has nothing to share, rotated target keeps its input sides like single path does
+		if (sources.size() < 2 || tiles.get(x2, y2).block().rotate)
+			return FindPath(pathFinder, worldState, x1, y1, x2, y2, taskEpoch);
+
+		final long endTime = System.nanoTime() + (long)Core.settings.getInt(_solidBuildTotalTimeName) * (long)sources.size() * (long)1000000;
+
+		final boolean ignoreMask = Core.settings.getBool(_solidIgnoreMaskName);
+		final PathEngine setting = GetSolidEngine(Core.settings.getInt(_solidEngineName));
+
+		// Network search starts from all sources at once, greedy walk takes one first tile only
+		final PathEngine engine = setting == PathEngine.GREEDY || setting == PathEngine.PORTFOLIO || setting == PathEngine.ADAPTIVE
+			? PathEngine.ASTAR : setting;
+
+		worldState.UpdateMap();
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		FillMasksMap
+		(
+			worldState.Map,
+			Core.settings.getBool(_solidMaskAroundBuildName),
+			Core.settings.getBool(_solidMaskAroundCoreName),
+			Core.settings.getBool(_solidMaskAroundLiquidName),
+			Core.settings.getBool(_solidMaskAroundSolidName)
+		);
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		pathFinder.UpdateMap(worldState.Map);
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		pathFinder.UpdateMap(worldState.BuildPlans);
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		if (pathFinder.Landmarks != null)
+		{
+			worldState.UpdateStaticMap();
+			pathFinder.Landmarks.Update(worldState.StaticMap);
+
+			if (Expired(endTime, taskEpoch))
+				return null;
+		}
+
+		pathFinder.PlansLimit = Integer.MAX_VALUE;
+
+		final TileBits wsMap = worldState.Map;
+
+		final LinkedList<BuildPlan> buildPlans = new LinkedList<BuildPlan>();
+
+		final ArrayList<Point> network = GetPoints(wsMap, x1, y1, x2, y2).b;
+		final ArrayList<Building> terminals = new ArrayList<Building>(sources);
+
+		// Yes I hate recursion
+		while (terminals.size() != 0)
+		{
+			if (Expired(endTime, taskEpoch))
+			{
+				_networkUnreached += terminals.size();
+				return buildPlans;
+			}
+
+			final ArrayList<Point> pointList1 = new ArrayList<Point>();
+			final ArrayList<Building> owners = new ArrayList<Building>();
+
+			for (final Building terminal : terminals)
+			{
+				final Tile tile = terminal.tile;
+
+				for (final Point point : GetOuterEdgePoints(terminal.block, (int)tile.x, (int)tile.y, (int)tile.x + (int)tile.y * _width))
+					if (!wsMap.Get(point.i))
+					{
+						pointList1.add(point);
+						owners.add(terminal);
+					}
+			}
+
+			int k1 = -1;
+			Point point2 = null;
+
+			int ntDistance = Integer.MAX_VALUE;
+
+			for (int k = 0; k < pointList1.size(); ++k)
+				for (final Point point : network)
+				{
+					final int distance = Math.abs(pointList1.get(k).x - point.x) + Math.abs(pointList1.get(k).y - point.y);
+
+					if (ntDistance > distance)
+					{
+						k1 = k;
+						point2 = point;
+
+						ntDistance = distance;
+					}
+				}
+
+			// Left sources are walled in or network has no free side
+			if (point2 == null)
+			{
+				_networkUnreached += terminals.size();
+				break;
+			}
+
+			// Single search from all left sources to whole network, the closest pair only breaks ties
+			pointList1.add(0, pointList1.remove(k1));
+			owners.add(0, owners.remove(k1));
+
+			final ArrayList<Point> pointList2 = new ArrayList<Point>(network);
+
+			pointList2.remove(point2);
+			pointList2.add(0, point2);
+
+			final int[] notRotates = new int[pointList1.size()];
+
+			for (int k = 0; k < notRotates.length; ++k)
+			{
+				final Building owner = owners.get(k);
+				final Point point = pointList1.get(k);
+
+				notRotates[k] = NotRotate(GetRotate((int)owner.tile.x, (int)owner.tile.y, point.x, point.y));
+			}
+
+			final LinkedList<BuildPlan> aBuildPlans = FindPath
+			(
+				(m) -> pathFinder.BuildPath(pointList1, pointList2, -1, -1, notRotates, m, engine),
+				pointList1,
+				pointList2,
+				ignoreMask,
+				endTime,
+				taskEpoch
+			);
+
+			// One search has tried all left sources, none of them reaches network
+			if (aBuildPlans == null)
+			{
+				_networkUnreached += terminals.size();
+				break;
+			}
+
+			final BuildPlan[] aBuildPlansArray = aBuildPlans.toArray(new BuildPlan[aBuildPlans.size()]);
+
+			pathFinder.UpdateMap(aBuildPlansArray);
+
+			for (final BuildPlan buildPlan : aBuildPlansArray)
+			{
+				final int i = buildPlan.x + buildPlan.y * _width;
+
+				// Placed tiles are not first tiles of the next paths
+				wsMap.Set(i);
+
+				// Next paths end in sides of placed ducts, bridges take items at their ends only
+				if (buildPlan.block == Blocks.duct || buildPlan.block == Blocks.armoredDuct)
+					network.add(new Point(buildPlan.x, buildPlan.y, i));
+			}
+
+			buildPlans.addAll(aBuildPlans);
+			terminals.remove(owners.get(pathFinder.PathStart));
+		}
+
+		return buildPlans;
+	}
+
+	/**
+	 * Tries pairs of points until the first path is found. If best is set tries all pairs
+	 * instead and returns the last found path, function is supposed to fail on paths not
+	 * better than the previous one. Best path found so far is returned when time is out
+	*/
+	private LinkedList<BuildPlan> FindPath
+	(
+		final Function<Pair<Point, Point>, LinkedList<BuildPlan>> function,
+		final ArrayList<Point> pointList1,
+		final ArrayList<Point> pointList2,
+		final long endTime,
+		final long taskEpoch,
+		final boolean best
+	)
+	{
+		final int size1 = pointList1.size();
+		final int size2 = pointList2.size();
+
+		final long startTime = System.nanoTime();
+
+		LinkedList<BuildPlan> bestPlans = null;
+
+		if (size1 != 0 && size2 != 0)
+		{
+			final int size = Math.max(size1, size2);
+
+			for (int k = 0; k < size; ++k)
+			{
+				if (Expired(endTime, taskEpoch))
+					return bestPlans;
+
+				final long aStartTime = System.nanoTime();
+				final LinkedList<BuildPlan> buildPlans = function.apply
+				(
+					new Pair<Point, Point>(pointList1.get(k % size1), pointList2.get(k % size2))
+				);
+				final long aEndTime = System.nanoTime();
+
+				if (buildPlans != null)
+				{
+					_resultTimeAlgorithm = (aEndTime - (best ? startTime : aStartTime)) / (long)1000000;
+
+					if (!best)
+						return buildPlans;
+
+					bestPlans = buildPlans;
+				}
+			}
+
+			for (int i = 0; i < size1; ++i)
+				for (int j = 0; j < size2; ++j)
+					if (i % size2 != j % size1)
+					{
+						if (Expired(endTime, taskEpoch))
+							return bestPlans;
+
+						final long aStartTime = System.nanoTime();
+						final LinkedList<BuildPlan> buildPlans = function.apply
+						(
+							new Pair<Point, Point>(pointList1.get(i), pointList2.get(j))
+						);
+						final long aEndTime = System.nanoTime();
+
+						if (buildPlans != null)
+						{
+							_resultTimeAlgorithm = (aEndTime - (best ? startTime : aStartTime)) / (long)1000000;
+
+							if (!best)
+								return buildPlans;
+
+							bestPlans = buildPlans;
+						}
+					}
+		}
+
+		return bestPlans;
+	}
+
+	private LinkedList<BuildPlan> FindPath
+	(
+		final Function<TileBits, LinkedList<BuildPlan>> function,
+		final ArrayList<Point> pointList1,
+		final ArrayList<Point> pointList2,
+		final boolean ignoreMask,
+		final long endTime,
+		final long taskEpoch
+	)
+	{
+		if (pointList1.size() == 0 || pointList2.size() == 0 || Expired(endTime, taskEpoch))
+			return null;
+
+		final boolean[] masks = new boolean[pointList1.size() + pointList2.size() * 4];
+
+		long aStartTime = System.nanoTime();
+		MaskPoints(masks, true, pointList1, pointList2);
+		LinkedList<BuildPlan> buildPlans = function.apply(_masksMap);
+		MaskPoints(masks, false, pointList1, pointList2);
+		long aEndTime = System.nanoTime();
+
+		if (buildPlans == null && ignoreMask && !Expired(endTime, taskEpoch))
+		{
+			aStartTime = System.nanoTime();
+			buildPlans = function.apply(null);
+			aEndTime = System.nanoTime();
+		}
+
+		if (buildPlans != null)
+			_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
+
+		return buildPlans;
+	}
+
+	private LinkedList<BuildPlan> FindPath
+	(
+		final BeamPathFinder pathFinder,
+		final ArrayList<Point> pointList1,
+		final ArrayList<Point> pointList2,
+		final boolean ignoreMask,
+		final PathEngine engine,
+		final long endTime,
+		final long taskEpoch
+	)
+	{
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		long aStartTime = System.nanoTime();
+		LinkedList<BuildPlan> buildPlans = pathFinder.BuildPath(pointList1, pointList2, _masksMap, engine);
+		long aEndTime = System.nanoTime();
+
+		if (buildPlans == null && ignoreMask && !Expired(endTime, taskEpoch))
+		{
+			aStartTime = System.nanoTime();
+			buildPlans = pathFinder.BuildPath(pointList1, pointList2, null, engine);
+			aEndTime = System.nanoTime();
+		}
+
+		if (buildPlans != null)
+			_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
+
+		return buildPlans;
+	}
+
+	private LinkedList<BuildPlan> FindPath
+	(
+		final BeamPathFinder pathFinder,
+		final WorldState worldState,
+		final int x1,
+		final int y1,
+		final int x2,
+		final int y2,
+		final long taskEpoch
+	)
+	{
+		final long endTime = System.nanoTime() + (long)Core.settings.getInt(_beamBuildTotalTimeName) * (long)1000000;
+
+		final boolean ignoreMask = Core.settings.getBool(_beamIgnoreMaskName);
+		final boolean targetMode = Core.settings.getBool(_beamTargetModeName);
+		final PathEngine engine = GetBeamEngine(Core.settings.getInt(_beamEngineName));
+
+		worldState.UpdateMap();
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		FillMasksMap
+		(
+			worldState.Map,
+			Core.settings.getBool(_beamMaskAroundBuildName),
+			Core.settings.getBool(_beamMaskAroundCoreName),
+			Core.settings.getBool(_beamMaskAroundLiquidName),
+			Core.settings.getBool(_beamMaskAroundSolidName)
+		);
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		pathFinder.UpdateMap(worldState.Map);
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		pathFinder.UpdateMap(worldState.BuildPlans);
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		long aStartTime = System.nanoTime();
+		LinkedList<BuildPlan> buildPlans = pathFinder.BuildPath(x1, y1, x2, y2, targetMode, _masksMap, engine);
+		long aEndTime = System.nanoTime();
+
+		if (buildPlans == null && ignoreMask)
+		{
+			if (Expired(endTime, taskEpoch))
+				return null;
+
+			aStartTime = System.nanoTime();
+			buildPlans = pathFinder.BuildPath(x1, y1, x2, y2, targetMode, null, engine);
+			aEndTime = System.nanoTime();
+		}
+
+		if (buildPlans != null)
+			_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
+
+		return buildPlans;
+	}
+
+	private LinkedList<BuildPlan> FindPath
+	(
+		final LiquidPathFinder pathFinder,
+		final WorldState worldState,
+		final int x1,
+		final int y1,
+		final int x2,
+		final int y2,
+		final long taskEpoch
+	)
+	{
+		final Team team = Vars.player.team();
+		final Tiles tiles = Vars.world.tiles;
+
+		if (team == null)
+			throw new NullPointerException("Vars.player.team is null");
+
+		if (tiles == null)
+			throw new NullPointerException("Vars.world.tiles is null");
+
+		final long endTime = System.nanoTime() + (long)Core.settings.getInt(_liquidBuildTotalTimeName) * (long)1000000;
+
+		final boolean ignoreMask = Core.settings.getBool(_liquidIgnoreMaskName);
+		final boolean targetMode = Core.settings.getBool(_liquidTargetModeName);
+		final PathEngine setting = GetLiquidEngine(Core.settings.getInt(_liquidEngineName));
+		final boolean best = Core.settings.getBool(_liquidBestPathName);
+
+		worldState.UpdateMap();
+
+		if (Expired(endTime, taskEpoch))
+			return null;
+
+		final BuildPlan buildPlan2 = GetPlanIntersection(worldState.BuildPlans, x2, y2);
+
+		final Tile tile2 = tiles.get(x2, y2);
+		final Block block2 = buildPlan2 == null ? tile2.block() : buildPlan2.block;
+
+		if (block2 == Blocks.reinforcedConduit || block2 == Blocks.reinforcedBridgeConduit)
+		{
+			final TileBits wsMap = worldState.Map;
+			final int i2 = x2 + y2 * _width;
+
+			int rotation = -1;
+
+			if (buildPlan2 == null)
+			{
+				final Building build = tile2.build;
+
+				if (build != null && build.team == team)
+					rotation = build.rotation;
+			}
+			else
+				rotation = buildPlan2.rotation;
 
 			switch (rotation)
 			{
 				case RIGHT:
 					if (x2 + 1 < _width)
-						wsMap[i2 + 1] = true;
+						wsMap.Set(i2 + 1);
 					break;
 
 				case UPPER:
 					if (y2 + 1 < _height)
-						wsMap[i2 + _width] = true;
+						wsMap.Set(i2 + _width);
 					break;
 
 				case LEFT:
 					if (x2 > 0)
-						wsMap[i2 - 1] = true;
+						wsMap.Set(i2 - 1);
 					break;
 
 				case BOTTOM:
 					if (y2 > 0)
-						wsMap[i2 - _width] = true;
+						wsMap.Set(i2 - _width);
 					break;
 
 				default:
@@ -1176,6 +2090,15 @@ public class Machindustry extends Mod
 		if (Expired(endTime, taskEpoch))
 			return null;
 
+		if (pathFinder.Landmarks != null)
+		{
+			worldState.UpdateStaticMap();
+			pathFinder.Landmarks.Update(worldState.StaticMap);
+
+			if (Expired(endTime, taskEpoch))
+				return null;
+		}
+
 		final Pair<ArrayList<Point>, ArrayList<Point>> pair = GetPoints(worldState.Map, x1, y1, x2, y2);
 		final boolean[] masks = new boolean[5];
 
@@ -1260,52 +2183,23 @@ public class Machindustry extends Mod
 		final int overrideX = zOverrideX;
 		final int overrideY = zOverrideY;
 
-		final AtomicReference<Point> firstPoint = new AtomicReference<Point>();
-
-		LinkedList<BuildPlan> buildPlans = FindPath
-		(
-			(p) ->
-			{
-				firstPoint.set(p.a);
+		final int features = GetFeatures(worldState, x1, y1, x2, y2);
+		final PathEngine engine = setting == PathEngine.ADAPTIVE ? _liquidHistory.Predict(features) : setting;
+		final long searchTime = System.nanoTime();
 
-				int aOverrideX = -1;
-				int aOverrideY = -1;
+		final AtomicReference<Point> firstPoint = new AtomicReference<Point>();
 
-				if (overrideX == p.a.x && overrideY == p.a.y)
-				{
-					aOverrideX = overrideX;
-					aOverrideY = overrideY;
-				}
+		LinkedList<BuildPlan> buildPlans;
 
-				MaskPoints(masks, true, p.a, p.b);
-				LinkedList<BuildPlan> path = pathFinder.BuildPath
-				(
-					p.a.x,
-					p.a.y,
-					p.b.x,
-					p.b.y,
-					aOverrideX,
-					aOverrideY,
-					GetRotate(x1, y1, p.a.x, p.a.y),
-					targetMode,
-					_masksMap
-				);
-				MaskPoints(masks, false, p.a, p.b);
-				return path;
-			},
-			pair.a,
-			pair.b,
-			endTime,
-			taskEpoch
-		);
+		// Every engine keeps the limit, best path of the previous request must not cut this one
+		pathFinder.PlansLimit = Integer.MAX_VALUE;
 
-		if (buildPlans == null && ignoreMask && !Expired(endTime, taskEpoch))
+		if (engine == PathEngine.GREEDY || engine == PathEngine.PORTFOLIO)
+		{
 			buildPlans = FindPath
 			(
 				(p) ->
 				{
-					firstPoint.set(p.a);
-
 					int aOverrideX = -1;
 					int aOverrideY = -1;
 
@@ -1315,7 +2209,8 @@ public class Machindustry extends Mod
 						aOverrideY = overrideY;
 					}
 
-					return pathFinder.BuildPath
+					MaskPoints(masks, true, p.a, p.b);
+					LinkedList<BuildPlan> path = pathFinder.BuildPath
 					(
 						p.a.x,
 						p.a.y,
@@ -1325,14 +2220,130 @@ public class Machindustry extends Mod
 						aOverrideY,
 						GetRotate(x1, y1, p.a.x, p.a.y),
 						targetMode,
-						null
+						_masksMap,
+						engine
+					);
+					MaskPoints(masks, false, p.a, p.b);
+
+					if (path != null)
+					{
+						firstPoint.set(p.a);
+
+						// Next candidates have to beat this path
+						if (best)
+							pathFinder.PlansLimit = path.size();
+					}
+
+					return path;
+				},
+				pair.a,
+				pair.b,
+				endTime,
+				taskEpoch,
+				best
+			);
+
+			if (buildPlans == null && ignoreMask && !Expired(endTime, taskEpoch))
+				buildPlans = FindPath
+				(
+					(p) ->
+					{
+						int aOverrideX = -1;
+						int aOverrideY = -1;
+
+						if (overrideX == p.a.x && overrideY == p.a.y)
+						{
+							aOverrideX = overrideX;
+							aOverrideY = overrideY;
+						}
+
+						final LinkedList<BuildPlan> path = pathFinder.BuildPath
+						(
+							p.a.x,
+							p.a.y,
+							p.b.x,
+							p.b.y,
+							aOverrideX,
+							aOverrideY,
+							GetRotate(x1, y1, p.a.x, p.a.y),
+							targetMode,
+							null,
+							engine
+						);
+
+						if (path != null)
+						{
+							firstPoint.set(p.a);
+
+							// Next candidates have to beat this path
+							if (best)
+								pathFinder.PlansLimit = path.size();
+						}
+
+						return path;
+					},
+					pair.a,
+					pair.b,
+					endTime,
+					taskEpoch,
+					best
+				);
+		}
+		else
+		{
+			final int[] mustRotates = new int[pair.a.size()];
+
+			int aOverrideX = -1;
+			int aOverrideY = -1;
+
+			for (int k = 0; k < mustRotates.length; ++k)
+			{
+				final Point point = pair.a.get(k);
+
+				mustRotates[k] = GetRotate(x1, y1, point.x, point.y);
+
+				if (overrideX == point.x && overrideY == point.y)
+				{
+					aOverrideX = overrideX;
+					aOverrideY = overrideY;
+				}
+			}
+
+			final int bOverrideX = aOverrideX;
+			final int bOverrideY = aOverrideY;
+
+			// Single search from all first tiles to all targets, points order only breaks ties
+			buildPlans = FindPath
+			(
+				(m) ->
+				{
+					final LinkedList<BuildPlan> path = pathFinder.BuildPath
+					(
+						pair.a,
+						pair.b,
+						bOverrideX,
+						bOverrideY,
+						mustRotates,
+						m,
+						engine
 					);
+
+					if (path != null)
+						firstPoint.set(pair.a.get(pathFinder.PathStart));
+
+					return path;
 				},
 				pair.a,
 				pair.b,
+				ignoreMask,
 				endTime,
 				taskEpoch
 			);
+		}
+
+		// Cancelled task says nothing about engine
+		if (setting == PathEngine.ADAPTIVE && taskEpoch == _taskEpoch)
+			_liquidHistory.Record(features, engine, System.nanoTime() - searchTime, buildPlans == null ? -1 : buildPlans.size());
 
 		if (buildPlans != null)
 		{
@@ -1371,6 +2382,8 @@ public class Machindustry extends Mod
 
 		final boolean ignoreMask = Core.settings.getBool(_solidIgnoreMaskName);
 		final boolean targetMode = Core.settings.getBool(_solidTargetModeName);
+		final PathEngine setting = GetSolidEngine(Core.settings.getInt(_solidEngineName));
+		final boolean best = Core.settings.getBool(_solidBestPathName);
 
 		worldState.UpdateMap();
 
@@ -1388,7 +2401,7 @@ public class Machindustry extends Mod
 
 		if (isDuct2 || isRouter2)
 		{
-			final boolean[] wsMap = worldState.Map;
+			final TileBits wsMap = worldState.Map;
 			final int i2 = x2 + y2 * _width;
 
 			final boolean right = x2 + 1 < _width;
@@ -1418,22 +2431,22 @@ public class Machindustry extends Mod
 				{
 					case RIGHT:
 						if (right)
-							wsMap[i2_right] = true;
+							wsMap.Set(i2_right);
 						break;
 
 					case UPPER:
 						if (upper)
-							wsMap[i2_upper] = true;
+							wsMap.Set(i2_upper);
 						break;
 
 					case LEFT:
 						if (left)
-							wsMap[i2_left] = true;
+							wsMap.Set(i2_left);
 						break;
 
 					case BOTTOM:
 						if (bottom)
-							wsMap[i2_bottom] = true;
+							wsMap.Set(i2_bottom);
 						break;
 
 					default:
@@ -1445,38 +2458,38 @@ public class Machindustry extends Mod
 				{
 					case RIGHT:
 						if (right)
-							wsMap[i2_right] = true;
+							wsMap.Set(i2_right);
 						if (upper)
-							wsMap[i2_upper] = true;
+							wsMap.Set(i2_upper);
 						if (bottom)
-							wsMap[i2_bottom] = true;
+							wsMap.Set(i2_bottom);
 						break;
 
 					case UPPER:
 						if (right)
-							wsMap[i2_right] = true;
+							wsMap.Set(i2_right);
 						if (upper)
-							wsMap[i2_upper] = true;
+							wsMap.Set(i2_upper);
 						if (left)
-							wsMap[i2_left] = true;
+							wsMap.Set(i2_left);
 						break;
 
 					case LEFT:
 						if (upper)
-							wsMap[i2_upper] = true;
+							wsMap.Set(i2_upper);
 						if (left)
-							wsMap[i2_left] = true;
+							wsMap.Set(i2_left);
 						if (bottom)
-							wsMap[i2_bottom] = true;
+							wsMap.Set(i2_bottom);
 						break;
 
 					case BOTTOM:
 						if (right)
-							wsMap[i2_right] = true;
+							wsMap.Set(i2_right);
 						if (left)
-							wsMap[i2_left] = true;
+							wsMap.Set(i2_left);
 						if (bottom)
-							wsMap[i2_bottom] = true;
+							wsMap.Set(i2_bottom);
 						break;
 
 					default:
@@ -1509,6 +2522,15 @@ public class Machindustry extends Mod
 		if (Expired(endTime, taskEpoch))
 			return null;
 
+		if (pathFinder.Landmarks != null)
+		{
+			worldState.UpdateStaticMap();
+			pathFinder.Landmarks.Update(worldState.StaticMap);
+
+			if (Expired(endTime, taskEpoch))
+				return null;
+		}
+
 		final Pair<ArrayList<Point>, ArrayList<Point>> pair = GetPoints(worldState.Map, x1, y1, x2, y2);
 		final boolean[] masks = new boolean[5];
 
@@ -1631,52 +2653,23 @@ public class Machindustry extends Mod
 		final int overrideX = zOverrideX;
 		final int overrideY = zOverrideY;
 
-		final AtomicReference<Point> firstPoint = new AtomicReference<Point>();
-
-		LinkedList<BuildPlan> buildPlans = FindPath
-		(
-			(p) ->
-			{
-				firstPoint.set(p.a);
+		final int features = GetFeatures(worldState, x1, y1, x2, y2);
+		final PathEngine engine = setting == PathEngine.ADAPTIVE ? _solidHistory.Predict(features) : setting;
+		final long searchTime = System.nanoTime();
 
-				int aOverrideX = -1;
-				int aOverrideY = -1;
+		final AtomicReference<Point> firstPoint = new AtomicReference<Point>();
 
-				if (overrideX == p.a.x && overrideY == p.a.y)
-				{
-					aOverrideX = overrideX;
-					aOverrideY = overrideY;
-				}
+		LinkedList<BuildPlan> buildPlans;
 
-				MaskPoints(masks, true, p.a, p.b);
-				LinkedList<BuildPlan> path = pathFinder.BuildPath
-				(
-					p.a.x,
-					p.a.y,
-					p.b.x,
-					p.b.y,
-					aOverrideX,
-					aOverrideY,
-					NotRotate(GetRotate(x1, y1, p.a.x, p.a.y)),
-					targetMode,
-					_masksMap
-				);
-				MaskPoints(masks, false, p.a, p.b);
-				return path;
-			},
-			pair.a,
-			pair.b,
-			endTime,
-			taskEpoch
-		);
+		// Every engine keeps the limit, best path of the previous request must not cut this one
+		pathFinder.PlansLimit = Integer.MAX_VALUE;
 
-		if (buildPlans == null && ignoreMask && !Expired(endTime, taskEpoch))
+		if (engine == PathEngine.GREEDY || engine == PathEngine.PORTFOLIO)
+		{
 			buildPlans = FindPath
 			(
 				(p) ->
 				{
-					firstPoint.set(p.a);
-
 					int aOverrideX = -1;
 					int aOverrideY = -1;
 
@@ -1686,7 +2679,8 @@ public class Machindustry extends Mod
 						aOverrideY = overrideY;
 					}
 
-					return pathFinder.BuildPath
+					MaskPoints(masks, true, p.a, p.b);
+					LinkedList<BuildPlan> path = pathFinder.BuildPath
 					(
 						p.a.x,
 						p.a.y,
@@ -1696,14 +2690,130 @@ public class Machindustry extends Mod
 						aOverrideY,
 						NotRotate(GetRotate(x1, y1, p.a.x, p.a.y)),
 						targetMode,
-						null
+						_masksMap,
+						engine
+					);
+					MaskPoints(masks, false, p.a, p.b);
+
+					if (path != null)
+					{
+						firstPoint.set(p.a);
+
+						// Next candidates have to beat this path
+						if (best)
+							pathFinder.PlansLimit = path.size();
+					}
+
+					return path;
+				},
+				pair.a,
+				pair.b,
+				endTime,
+				taskEpoch,
+				best
+			);
+
+			if (buildPlans == null && ignoreMask && !Expired(endTime, taskEpoch))
+				buildPlans = FindPath
+				(
+					(p) ->
+					{
+						int aOverrideX = -1;
+						int aOverrideY = -1;
+
+						if (overrideX == p.a.x && overrideY == p.a.y)
+						{
+							aOverrideX = overrideX;
+							aOverrideY = overrideY;
+						}
+
+						final LinkedList<BuildPlan> path = pathFinder.BuildPath
+						(
+							p.a.x,
+							p.a.y,
+							p.b.x,
+							p.b.y,
+							aOverrideX,
+							aOverrideY,
+							NotRotate(GetRotate(x1, y1, p.a.x, p.a.y)),
+							targetMode,
+							null,
+							engine
+						);
+
+						if (path != null)
+						{
+							firstPoint.set(p.a);
+
+							// Next candidates have to beat this path
+							if (best)
+								pathFinder.PlansLimit = path.size();
+						}
+
+						return path;
+					},
+					pair.a,
+					pair.b,
+					endTime,
+					taskEpoch,
+					best
+				);
+		}
+		else
+		{
+			final int[] notRotates = new int[pair.a.size()];
+
+			int aOverrideX = -1;
+			int aOverrideY = -1;
+
+			for (int k = 0; k < notRotates.length; ++k)
+			{
+				final Point point = pair.a.get(k);
+
+				notRotates[k] = NotRotate(GetRotate(x1, y1, point.x, point.y));
+
+				if (overrideX == point.x && overrideY == point.y)
+				{
+					aOverrideX = overrideX;
+					aOverrideY = overrideY;
+				}
+			}
+
+			final int bOverrideX = aOverrideX;
+			final int bOverrideY = aOverrideY;
+
+			// Single search from all first tiles to all targets, points order only breaks ties
+			buildPlans = FindPath
+			(
+				(m) ->
+				{
+					final LinkedList<BuildPlan> path = pathFinder.BuildPath
+					(
+						pair.a,
+						pair.b,
+						bOverrideX,
+						bOverrideY,
+						notRotates,
+						m,
+						engine
 					);
+
+					if (path != null)
+						firstPoint.set(pair.a.get(pathFinder.PathStart));
+
+					return path;
 				},
 				pair.a,
 				pair.b,
+				ignoreMask,
 				endTime,
 				taskEpoch
 			);
+		}
+
+		// Cancelled task says nothing about engine
+		if (setting == PathEngine.ADAPTIVE && taskEpoch == _taskEpoch)
+			_solidHistory.Record(features, engine, System.nanoTime() - searchTime, buildPlans == null ? -1 : buildPlans.size());
 
 		if (buildPlans != null)
 		{
@@ -1731,6 +2841,7 @@ public class Machindustry extends Mod
 
 		final boolean ignoreMask = Core.settings.getBool(_beamIgnoreMaskName);
 		final boolean targetMode = Core.settings.getBool(_beamTargetModeName);
+		final PathEngine engine = GetBeamEngine(Core.settings.getInt(_beamEngineName));
 
 		worldState.UpdateMap();
 
@@ -1788,24 +2899,9 @@ public class Machindustry extends Mod
 
 		if (point1 != null)
 		{
-			long aStartTime = System.nanoTime();
-			buildPlans = pathFinder.BuildPath
-			(
-				point1.x,
-				point1.y,
-				point2.x,
-				point2.y,
-				targetMode,
-				_masksMap
-			);
-			long aEndTime = System.nanoTime();
-
-			if (buildPlans == null && ignoreMask)
+			if (engine == PathEngine.GREEDY)
 			{
-				if (Expired(endTime, taskEpoch))
-					return buildPlans;
-
-				aStartTime = System.nanoTime();
+				long aStartTime = System.nanoTime();
 				buildPlans = pathFinder.BuildPath
 				(
 					point1.x,
@@ -1813,13 +2909,50 @@ public class Machindustry extends Mod
 					point2.x,
 					point2.y,
 					targetMode,
-					null
+					_masksMap,
+					engine
 				);
-				aEndTime = System.nanoTime();
+				long aEndTime = System.nanoTime();
+
+				if (buildPlans == null && ignoreMask)
+				{
+					if (Expired(endTime, taskEpoch))
+						return buildPlans;
+
+					aStartTime = System.nanoTime();
+					buildPlans = pathFinder.BuildPath
+					(
+						point1.x,
+						point1.y,
+						point2.x,
+						point2.y,
+						targetMode,
+						null,
+						engine
+					);
+					aEndTime = System.nanoTime();
+				}
+
+				if (buildPlans != null)
+					_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
 			}
+			else
+			{
+				final ArrayList<Point> pointList1 = new ArrayList<Point>(powers);
+				final ArrayList<Point> pointList2 = new ArrayList<Point>(turbines);
+
+				// Single search from all powers to all turbines, the closest pair only breaks ties
+				pointList1.remove(point1);
+				pointList1.add(0, point1);
 
-			if (buildPlans != null)
-				_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
+				pointList2.remove(point2);
+				pointList2.add(0, point2);
+
+				buildPlans = FindPath(pathFinder, pointList1, pointList2, ignoreMask, engine, endTime, taskEpoch);
+
+				if (buildPlans != null)
+					point2 = pointList2.get(pathFinder.PathEnd);
+			}
 		}
 
 		if (buildPlans == null)
@@ -1853,24 +2986,11 @@ public class Machindustry extends Mod
 			if (Expired(endTime, taskEpoch))
 				return buildPlans;
 
-			long aStartTime = System.nanoTime();
-			LinkedList<BuildPlan> aBuildPlans = pathFinder.BuildPath
-			(
-				point1.x,
-				point1.y,
-				point2.x,
-				point2.y,
-				targetMode,
-				_masksMap
-			);
-			long aEndTime = System.nanoTime();
+			LinkedList<BuildPlan> aBuildPlans;
 
-			if (aBuildPlans == null && ignoreMask)
+			if (engine == PathEngine.GREEDY)
 			{
-				if (Expired(endTime, taskEpoch))
-					return buildPlans;
-
-				aStartTime = System.nanoTime();
+				long aStartTime = System.nanoTime();
 				aBuildPlans = pathFinder.BuildPath
 				(
 					point1.x,
@@ -1878,16 +2998,56 @@ public class Machindustry extends Mod
 					point2.x,
 					point2.y,
 					targetMode,
-					null
+					_masksMap,
+					engine
 				);
-				aEndTime = System.nanoTime();
+				long aEndTime = System.nanoTime();
+
+				if (aBuildPlans == null && ignoreMask)
+				{
+					if (Expired(endTime, taskEpoch))
+						return buildPlans;
+
+					aStartTime = System.nanoTime();
+					aBuildPlans = pathFinder.BuildPath
+					(
+						point1.x,
+						point1.y,
+						point2.x,
+						point2.y,
+						targetMode,
+						null,
+						engine
+					);
+					aEndTime = System.nanoTime();
+				}
+
+				if (aBuildPlans != null)
+					_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
+			}
+			else
+			{
+				final ArrayList<Point> pointList1 = new ArrayList<Point>();
+				final ArrayList<Point> pointList2 = new ArrayList<Point>(turbines);
+
+				final Point shitForJava3 = point1;
+
+				// Single search to all left turbines, the closest one only breaks ties
+				pointList1.add(point1);
+				pointList2.sort((p1, p2) -> Integer.compare
+				(
+					Math.abs(shitForJava3.x - p1.x) + Math.abs(shitForJava3.y - p1.y),
+					Math.abs(shitForJava3.x - p2.x) + Math.abs(shitForJava3.y - p2.y)
+				));
+
+				aBuildPlans = FindPath(pathFinder, pointList1, pointList2, ignoreMask, engine, endTime, taskEpoch);
+
+				if (aBuildPlans != null)
+					point2 = pointList2.get(pathFinder.PathEnd);
 			}
 
 			if (aBuildPlans != null)
-			{
-				_resultTimeAlgorithm = (aEndTime - aStartTime) / (long)1000000;
 				buildPlans.addAll(aBuildPlans);
-			}
 
 			final Point shitForJava2 = point2;
 			turbines.removeIf(v -> v == shitForJava2);
@@ -1923,7 +3083,7 @@ public class Machindustry extends Mod
 		final Queue<BuildPlan> buildQueue = Vars.player.unit().plans;
 		final Seq<BuildPlan> previewQueue = Vars.control.input.selectPlans;
 
-		Arrays.fill(_buildMap, false);
+		_buildMap.Fill(false);
 
 		for (final BuildPlan buildPlan : buildQueue)
 		{
@@ -1938,7 +3098,7 @@ public class Machindustry extends Mod
 			final int sstep = _width + xxMin - xxMax - 1;
 			for (int y = yyMin, i = xxMin + yyMin * _width; y <= yyMax; ++y, i += sstep)
 				for (int x = xxMin; x <= xxMax; ++x, ++i)
-					_buildMap[i] = true;
+					_buildMap.Set(i);
 		}
 
 		for (final BuildPlan buildPlan : previewQueue)
@@ -1956,7 +3116,7 @@ public class Machindustry extends Mod
 				final int sstep = _width + xxMin - xxMax - 1;
 				for (int y = yyMin, i = xxMin + yyMin * _width; y <= yyMax; ++y, i += sstep)
 					for (int x = xxMin; x <= xxMax; ++x, ++i)
-						_buildMap[i] = true;
+						_buildMap.Set(i);
 			}
 		}
 
@@ -1968,7 +3128,7 @@ public class Machindustry extends Mod
 				Tile tile = tiles.geti(i);
 				Building build = tile.build;
 
-				if (tile.floor().attributes.get(Attribute.steam) <= 0F || (build != null && build.team == team) || _buildMap[i])
+				if (tile.floor().attributes.get(Attribute.steam) <= 0F || (build != null && build.team == team) || _buildMap.Get(i))
 					continue CHECK_VENT;
 
 				final int xxMax = x + 1;
@@ -1984,7 +3144,7 @@ public class Machindustry extends Mod
 						tile = tiles.geti(ii);
 						build = tile.build;
 
-						if (tile.floor().attributes.get(Attribute.steam) <= 0F || (build != null && build.team == team) || _buildMap[ii])
+						if (tile.floor().attributes.get(Attribute.steam) <= 0F || (build != null && build.team == team) || _buildMap.Get(ii))
 							continue CHECK_VENT;
 					}
 
@@ -2166,9 +3326,44 @@ public class Machindustry extends Mod
 		return edgePoints;
 	}
 
+	/**
+	 * Returns features class of path search between two tiles for engines history, see PathHistory
+	*/
+	private int GetFeatures(final WorldState worldState, final int x1, final int y1, final int x2, final int y2)
+	{
+		final Tiles tiles = Vars.world.tiles;
+		final TileBits wsMap = worldState.Map;
+
+		final int minX = Math.min(x1, x2);
+		final int minY = Math.min(y1, y2);
+		final int maxX = Math.max(x1, x2);
+		final int maxY = Math.max(y1, y2);
+
+		int blocked = 0;
+
+		for (int y = minY; y <= maxY; ++y)
+			for (int x = minX, i = minX + y * _width; x <= maxX; ++x, ++i)
+				if (wsMap.Get(i))
+					++blocked;
+
+		final BuildPlan buildPlan1 = GetPlanIntersection(worldState.BuildPlans, x1, y1);
+		final BuildPlan buildPlan2 = GetPlanIntersection(worldState.BuildPlans, x2, y2);
+
+		final Block block1 = buildPlan1 == null ? tiles.get(x1, y1).block() : buildPlan1.block;
+		final Block block2 = buildPlan2 == null ? tiles.get(x2, y2).block() : buildPlan2.block;
+
+		return PathHistory.Features
+		(
+			Math.abs(x1 - x2) + Math.abs(y1 - y2),
+			blocked,
+			(maxX - minX + 1) * (maxY - minY + 1),
+			Math.max(block1.size, block2.size)
+		);
+	}
+
 	private Pair<ArrayList<Point>, ArrayList<Point>> GetPoints
 	(
-		final boolean[] validMap,
+		final TileBits validMap,
 		final int x1,
 		final int y1,
 		final int x2,
@@ -2217,7 +3412,7 @@ public class Machindustry extends Mod
 		{
 			Point point = p1.get(i);
 
-			if (!validMap[point.i])
+			if (!validMap.Get(point.i))
 				pointList1.add(point);
 		}
 
@@ -2225,10 +3420,10 @@ public class Machindustry extends Mod
 		{
 			Point point = p2.get(i);
 
-			if ((point.x < _width - 1 && !validMap[point.i + 1])
-				|| (point.y < _height - 1 && !validMap[point.i + _width])
-				|| (point.x > 0 && !validMap[point.i - 1])
-				|| (point.y > 0 && !validMap[point.i - _width]))
+			if ((point.x < _width - 1 && !validMap.Get(point.i + 1))
+				|| (point.y < _height - 1 && !validMap.Get(point.i + _width))
+				|| (point.x > 0 && !validMap.Get(point.i - 1))
+				|| (point.y > 0 && !validMap.Get(point.i - _width)))
 				pointList2.add(point);
 		}
 
@@ -2272,6 +3467,7 @@ public class Machindustry extends Mod
 
 		_beamFirstPoint = null;
 		_beamLastPoint = null;
+		_previewTask = null;
 
 		_beamButton = false;
 	}
@@ -2305,6 +3501,7 @@ public class Machindustry extends Mod
 
 		_beamFirstPoint = null;
 		_beamLastPoint = null;
+		_previewTask = null;
 	}
 
 	private void HandleLiquidButton()
@@ -2341,6 +3538,7 @@ public class Machindustry extends Mod
 
 		_liquidFirstPoint = null;
 		_liquidLastPoint = null;
+		_previewTask = null;
 
 		_liquidButton = false;
 	}
@@ -2374,6 +3572,7 @@ public class Machindustry extends Mod
 
 		_liquidFirstPoint = null;
 		_liquidLastPoint = null;
+		_previewTask = null;
 	}
 
 	private void HandleSolidButton()
@@ -2412,6 +3611,7 @@ public class Machindustry extends Mod
 
 		_solidFirstPoint = null;
 		_solidLastPoint = null;
+		_previewTask = null;
 
 		_solidButton = false;
 	}
@@ -2447,6 +3647,7 @@ public class Machindustry extends Mod
 
 		_solidFirstPoint = null;
 		_solidLastPoint = null;
+		_previewTask = null;
 	}
 
 	private void HandleTakeButton()
@@ -2613,8 +3814,9 @@ public class Machindustry extends Mod
 		if (_worldState != null)
 			_worldState.close();
 
-		_buildMap = new boolean[_size];
-		_masksMap = new boolean[_size];
+		_buildMap = new TileBits(_size);
+		_masksMap = new TileBits(_size);
+		_windowMap = new TileBits(_size);
 		_worldState = new WorldState
 		(
 			_height,
@@ -2634,80 +3836,455 @@ public class Machindustry extends Mod
 			(long)Core.settings.getInt(_beamBuildTimeName)
 		);
 
-		_liquidPathFinder = new LiquidPathFinder
-		(
-			_height,
-			_width,
-			(long)Core.settings.getInt(_liquidFrequencyName),
-			(long)Core.settings.getInt(_liquidBuildTimeName),
-			Core.settings.getBool(_liquidManhattanName)
-		);
+		_beamPathFinder.DistanceField = Core.settings.getBool(_beamDistanceFieldName);
+
+		_liquidPathFinder = new LiquidPathFinder
+		(
+			_height,
+			_width,
+			(long)Core.settings.getInt(_liquidFrequencyName),
+			(long)Core.settings.getInt(_liquidBuildTimeName),
+			Core.settings.getBool(_liquidManhattanName)
+		);
+
+		_liquidPathFinder.Clusters = Core.settings.getBool(_liquidClustersName);
+		_liquidPathFinder.DistanceField = Core.settings.getBool(_liquidDistanceFieldName);
+		_liquidPathFinder.Anytime = Core.settings.getBool(_liquidAnytimeName);
+		_liquidPathFinder.Parallel = Core.settings.getBool(_liquidParallelName);
+		_liquidPathFinder.Window = Core.settings.getBool(_liquidWindowName);
+		_liquidPathFinder.Jump = Core.settings.getBool(_liquidJumpName);
+
+		_solidPathFinder = new SolidPathFinder
+		(
+			_height,
+			_width,
+			(long)Core.settings.getInt(_solidFrequencyName),
+			(long)Core.settings.getInt(_solidBuildTimeName),
+			Core.settings.getBool(_solidManhattanName)
+		);
+
+		_solidPathFinder.Clusters = Core.settings.getBool(_solidClustersName);
+		_solidPathFinder.DistanceField = Core.settings.getBool(_solidDistanceFieldName);
+		_solidPathFinder.Anytime = Core.settings.getBool(_solidAnytimeName);
+		_solidPathFinder.Parallel = Core.settings.getBool(_solidParallelName);
+		_solidPathFinder.Window = Core.settings.getBool(_solidWindowName);
+		_solidPathFinder.Jump = Core.settings.getBool(_solidJumpName);
+
+		_windowMap.Fill(true);
+
+		// Engines history is kept for current map only
+		_liquidHistory = new PathHistory(new PathEngine[] { PathEngine.GREEDY, PathEngine.ASTAR, PathEngine.BIDIRECTIONAL });
+		_solidHistory = new PathHistory(new PathEngine[] { PathEngine.GREEDY, PathEngine.ASTAR });
+
+		_beamPathReplanner = new PathReplanner(_height, _width, 10);
+		_liquidPathReplanner = new PathReplanner(_height, _width, 4);
+		_solidPathReplanner = new PathReplanner(_height, _width, 4);
+
+		_previewEpoch = (long)-1;
+		_previewMap = new TileBits(_height * _width);
+		_previewTiles = new int[_height * _width / 16 + 1];
+		_previewReplanner = null;
+
+		if (Core.settings.getBool(_liquidLandmarksName) || Core.settings.getBool(_solidLandmarksName))
+		{
+			final PathLandmarks pathLandmarks = new PathLandmarks(_height, _width, 4, GetCoreTiles());
+
+			_worldState.UpdateStaticMap();
+			pathLandmarks.Update(_worldState.StaticMap);
+
+			if (Core.settings.getBool(_liquidLandmarksName))
+				_liquidPathFinder.Landmarks = pathLandmarks;
+
+			if (Core.settings.getBool(_solidLandmarksName))
+				_solidPathFinder.Landmarks = pathLandmarks;
+		}
+	}
+
+	/**
+	 * INVOKE ONLY IN MAIN GAME THREAD
+	 * @return tiles of player team cores
+	*/
+	private int[] GetCoreTiles()
+	{
+		final Team team = Vars.player.team();
+		final ArrayList<Integer> coreTiles = new ArrayList<Integer>();
+
+		for (final TeamData teamData : Vars.state.teams.active)
+			if (teamData.team == team)
+				for (final CoreBuild core : teamData.cores)
+				{
+					final int x = Math.round(core.x / (float)Vars.tilesize);
+					final int y = Math.round(core.y / (float)Vars.tilesize);
 
-		_solidPathFinder = new SolidPathFinder
-		(
-			_height,
-			_width,
-			(long)Core.settings.getInt(_solidFrequencyName),
-			(long)Core.settings.getInt(_solidBuildTimeName),
-			Core.settings.getBool(_solidManhattanName)
-		);
+					if (x >= 0 && x < _width && y >= 0 && y < _height)
+						coreTiles.add(x + y * _width);
+				}
+
+		return coreTiles.stream().mapToInt(Integer::intValue).toArray();
 	}
 
 	private void MaskPoints(final boolean[] masks, final boolean mask, final Point a, final Point b)
 	{
 		if (mask)
 		{
-			masks[0] = _masksMap[a.i];
-			_masksMap[a.i] = false;
+			masks[0] = _masksMap.Get(a.i);
+			_masksMap.Clear(a.i);
 
 			if (b.x + 1 < _width)
 			{
 				final int index = b.i + 1;
 
-				masks[1] = _masksMap[index];
-				_masksMap[index] = false;
+				masks[1] = _masksMap.Get(index);
+				_masksMap.Clear(index);
 			}
 
 			if (b.y + 1 < _height)
 			{
 				final int index = b.i + _width;
 
-				masks[2] = _masksMap[index];
-				_masksMap[index] = false;
+				masks[2] = _masksMap.Get(index);
+				_masksMap.Clear(index);
 			}
 
 			if (b.x > 0)
 			{
 				final int index = b.i - 1;
 
-				masks[3] = _masksMap[index];
-				_masksMap[index] = false;
+				masks[3] = _masksMap.Get(index);
+				_masksMap.Clear(index);
 			}
 
 			if (b.y > 0)
 			{
 				final int index = b.i - _width;
 
-				masks[4] = _masksMap[index];
-				_masksMap[index] = false;
+				masks[4] = _masksMap.Get(index);
+				_masksMap.Clear(index);
 			}
 		}
 		else
 		{
-			_masksMap[a.i] = masks[0];
+			_masksMap.Put(a.i, masks[0]);
 
 			if (b.x + 1 < _width)
-				_masksMap[b.i + 1] = masks[1];
+				_masksMap.Put(b.i + 1, masks[1]);
 
 			if (b.y + 1 < _height)
-				_masksMap[b.i + _width] = masks[2];
+				_masksMap.Put(b.i + _width, masks[2]);
 
 			if (b.x > 0)
-				_masksMap[b.i - 1] = masks[3];
+				_masksMap.Put(b.i - 1, masks[3]);
 
 			if (b.y > 0)
-				_masksMap[b.i - _width] = masks[4];
+				_masksMap.Put(b.i - _width, masks[4]);
+		}
+	}
+
+	private void MaskPoints(final boolean[] masks, final boolean mask, final ArrayList<Point> a, final ArrayList<Point> b)
+	{
+		final int size1 = a.size();
+		final int size2 = b.size();
+
+		if (mask)
+		{
+			for (int k = 0; k < size1; ++k)
+			{
+				final int index = a.get(k).i;
+
+				masks[k] = _masksMap.Get(index);
+				_masksMap.Clear(index);
+			}
+
+			for (int k = 0; k < size2; ++k)
+			{
+				final Point point = b.get(k);
+				final int j = size1 + k * 4;
+
+				if (point.x + 1 < _width)
+				{
+					final int index = point.i + 1;
+
+					masks[j] = _masksMap.Get(index);
+					_masksMap.Clear(index);
+				}
+
+				if (point.y + 1 < _height)
+				{
+					final int index = point.i + _width;
+
+					masks[j + 1] = _masksMap.Get(index);
+					_masksMap.Clear(index);
+				}
+
+				if (point.x > 0)
+				{
+					final int index = point.i - 1;
+
+					masks[j + 2] = _masksMap.Get(index);
+					_masksMap.Clear(index);
+				}
+
+				if (point.y > 0)
+				{
+					final int index = point.i - _width;
+
+					masks[j + 3] = _masksMap.Get(index);
+					_masksMap.Clear(index);
+				}
+			}
+		}
+		// Restore in reverse order because points may share tiles
+		else
+		{
+			for (int k = size2 - 1; k >= 0; --k)
+			{
+				final Point point = b.get(k);
+				final int j = size1 + k * 4;
+
+				if (point.y > 0)
+					_masksMap.Put(point.i - _width, masks[j + 3]);
+
+				if (point.x > 0)
+					_masksMap.Put(point.i - 1, masks[j + 2]);
+
+				if (point.y + 1 < _height)
+					_masksMap.Put(point.i + _width, masks[j + 1]);
+
+				if (point.x + 1 < _width)
+					_masksMap.Put(point.i + 1, masks[j]);
+			}
+
+			for (int k = size1 - 1; k >= 0; --k)
+				_masksMap.Put(a.get(k).i, masks[k]);
+		}
+	}
+
+	/**
+	 * Checks route tiles and searches detour around the first segment whose tiles are taken by something else.
+	 * Detour is searched in window around the segment only and replaces segment plans in player build plans.
+	 * @return false if route is built, removed by player or can not be repaired
+	*/
+	private boolean RepairRoute(final Route route, final Set<BuildPlan> queued, final BuildPlan[] buildPlans, final Tiles tiles)
+	{
+		final BuildPlan[] plans = route.plans;
+		final boolean[] conflicts = new boolean[plans.length];
+
+		int built = 0;
+		int a = -1;
+		int b = -1;
+
+		for (int k = 0; k < plans.length; ++k)
+		{
+			final BuildPlan plan = plans[k];
+			final Tile tile = tiles.get(plan.x, plan.y);
+			final Block block = tile.block();
+
+			if (block == plan.block)
+				++built;
+			else if (!(tile.build instanceof ConstructBuild && ((ConstructBuild)tile.build).current == plan.block))
+			{
+				// Tile is taken by something else since route was queued
+				if (block != route.blocks[k] && block != Blocks.air)
+				{
+					conflicts[k] = true;
+
+					if (a == -1)
+						a = b = k;
+					else if (b == k - 1)
+						b = k;
+				}
+				else if (!queued.contains(plan))
+					return false;
+			}
+		}
+
+		if (built == plans.length)
+			return false;
+
+		if (a == -1)
+			return true;
+
+		int s = a - 1;
+		int e = b + 1;
+
+		// Detour is spliced between plain tiles, so bridges and junctions are never cut
+		while (s >= 0 && !PlainBlock(plans[s].block))
+			--s;
+
+		while (e < plans.length && (conflicts[e] || !PlainBlock(plans[e].block)))
+			++e;
+
+		if (s < 0 || e >= plans.length)
+			return false;
+
+		int xMin = _width;
+		int yMin = _height;
+		int xMax = -1;
+		int yMax = -1;
+
+		for (int k = s; k <= e; ++k)
+		{
+			xMin = Math.min(xMin, plans[k].x);
+			yMin = Math.min(yMin, plans[k].y);
+			xMax = Math.max(xMax, plans[k].x);
+			yMax = Math.max(yMax, plans[k].y);
+		}
+
+		xMin = Math.max(xMin - _repairRouteMargin, 0);
+		yMin = Math.max(yMin - _repairRouteMargin, 0);
+		xMax = Math.min(xMax + _repairRouteMargin, _width - 1);
+		yMax = Math.min(yMax + _repairRouteMargin, _height - 1);
+
+		final BuildPlan[] removedPlans = Arrays.copyOfRange(plans, s, e);
+		final Set<BuildPlan> removed = Collections.newSetFromMap(new IdentityHashMap<BuildPlan, Boolean>());
+
+		Collections.addAll(removed, removedPlans);
+
+		final BuildPlan[] otherPlans = new BuildPlan[buildPlans.length];
+		int count = 0;
+
+		for (final BuildPlan buildPlan : buildPlans)
+			if (!removed.contains(buildPlan))
+				otherPlans[count++] = buildPlan;
+
+		final BuildPlan start = plans[s];
+		final BuildPlan target = plans[e];
+
+		final int rotate = s == 0 ? GetRotate(route.x, route.y, start.x, start.y) : plans[s - 1].rotation;
+
+		LinkedList<BuildPlan> path;
+
+		_worldState.UpdateMap();
+
+		for (int y = yMin; y <= yMax; ++y)
+			_windowMap.Fill(xMin + y * _width, xMax + y * _width + 1, false);
+
+		// Detour feeds kept target like FindPath targets: never through its front, and armored duct or conduit
+		// takes bridge output only from its back, so its sides are masked too
+		for (int r = 0; r < 4; ++r)
+			if (r == target.rotation || (target.block != Blocks.duct && r != ((target.rotation + 2) & 3)))
+			{
+				final int x = target.x + (r == RIGHT ? 1 : r == LEFT ? -1 : 0);
+				final int y = target.y + (r == UPPER ? 1 : r == BOTTOM ? -1 : 0);
+
+				if (x >= 0 && x < _width && y >= 0 && y < _height)
+					_windowMap.Set(x + y * _width);
+			}
+
+		try
+		{
+			if (route.type == PathType.LIQUID)
+			{
+				_liquidPathFinder.UpdateMap(_worldState.Map);
+				_liquidPathFinder.UpdateMap(Arrays.copyOf(otherPlans, count));
+				_liquidPathFinder.PlansLimit = Integer.MAX_VALUE;
+
+				final PathEngine engine = GetLiquidEngine(Core.settings.getInt(_liquidEngineName));
+
+				path = _liquidPathFinder.BuildPath
+				(
+					start.x,
+					start.y,
+					target.x,
+					target.y,
+					start.x,
+					start.y,
+					rotate,
+					Core.settings.getBool(_liquidTargetModeName),
+					_windowMap,
+					engine == PathEngine.ADAPTIVE ? _liquidHistory.Predict(GetFeatures(_worldState, start.x, start.y, target.x, target.y)) : engine
+				);
+			}
+			else
+			{
+				_solidPathFinder.UpdateMap(_worldState.Map);
+				_solidPathFinder.UpdateMap(Arrays.copyOf(otherPlans, count));
+				_solidPathFinder.PlansLimit = Integer.MAX_VALUE;
+
+				final PathEngine engine = GetSolidEngine(Core.settings.getInt(_solidEngineName));
+
+				path = _solidPathFinder.BuildPath
+				(
+					start.x,
+					start.y,
+					target.x,
+					target.y,
+					start.x,
+					start.y,
+					NotRotate(rotate),
+					Core.settings.getBool(_solidTargetModeName),
+					_windowMap,
+					engine == PathEngine.ADAPTIVE ? _solidHistory.Predict(GetFeatures(_worldState, start.x, start.y, target.x, target.y)) : engine
+				);
+			}
+		}
+		finally
+		{
+			for (int y = yMin; y <= yMax; ++y)
+				_windowMap.Fill(xMin + y * _width, xMax + y * _width + 1, true);
+		}
+
+		if (path == null)
+			return false;
+
+		final BuildPlan[] pathPlans = path.toArray(new BuildPlan[path.size()]);
+
+		// Detour takes place of removed plans in build queue, so route is still built in its order
+		while (_running && !Vars.state.isMenu() && !_worldState.BuildPlansReplaced.Produce(new BuildPlan[][] { removedPlans, pathPlans }))
+		{
+			try
+			{
+				Thread.sleep((long)1);
+			}
+			catch (InterruptedException ex) {}
+		}
+
+		final BuildPlan[] newPlans = new BuildPlan[s + pathPlans.length + plans.length - e];
+		final Block[] newBlocks = new Block[newPlans.length];
+
+		System.arraycopy(plans, 0, newPlans, 0, s);
+		System.arraycopy(route.blocks, 0, newBlocks, 0, s);
+
+		// Path plans are constructed from the last tile to the first one
+		for (int k = 0, i = s; k < pathPlans.length; ++k, ++i)
+		{
+			newPlans[i] = pathPlans[pathPlans.length - k - 1];
+			newBlocks[i] = tiles.get(newPlans[i].x, newPlans[i].y).block();
 		}
+
+		System.arraycopy(plans, e, newPlans, s + pathPlans.length, plans.length - e);
+		System.arraycopy(route.blocks, e, newBlocks, s + pathPlans.length, plans.length - e);
+
+		route.plans = newPlans;
+		route.blocks = newBlocks;
+		route.planEpoch = _worldState.BuildPlanEpoch + (long)2;
+
+		return true;
+	}
+
+	/**
+	 * Checks routes against the latest copy of player build plans, forgets routes that are built or can not be repaired
+	*/
+	private void RepairRoutes()
+	{
+		final long planEpoch = _worldState.BuildPlanEpoch;
+		final BuildPlan[] buildPlans = _worldState.BuildPlans;
+		final Tiles tiles = Vars.world.tiles;
+
+		if (tiles == null)
+			throw new NullPointerException("Vars.world.tiles is null");
+
+		_routesEpoch = planEpoch;
+
+		if (buildPlans == null)
+			return;
+
+		final Set<BuildPlan> queued = Collections.newSetFromMap(new IdentityHashMap<BuildPlan, Boolean>());
+
+		Collections.addAll(queued, buildPlans);
+
+		// Plans of route are checked after they reach player build plans
+		_routes.removeIf(r -> r.taskEpoch != _taskEpoch || (planEpoch >= r.planEpoch && !RepairRoute(r, queued, buildPlans, tiles)));
 	}
 
 	private String ShowResultTime()
@@ -2817,6 +4394,44 @@ public class Machindustry extends Mod
 			queue.addLast(buildPlan);
 	}
 
+	/**
+	 * Keeps path task plans as route in path order, so it can be repaired when its tiles are taken
+	*/
+	private void TrackRoute(final PathTask task, final BuildPlan[] buildPlans)
+	{
+		final Tiles tiles = Vars.world.tiles;
+
+		if (tiles == null)
+			throw new NullPointerException("Vars.world.tiles is null");
+
+		final ArrayList<BuildPlan> plans = new ArrayList<BuildPlan>(buildPlans.length);
+
+		// Path plans are constructed from the last tile to the first one
+		for (int k = buildPlans.length - 1; k >= 0; --k)
+			if (RouteBlock(buildPlans[k].block))
+				plans.add(buildPlans[k]);
+
+		if (plans.size() == 0)
+			return;
+
+		final Route route = new Route
+		(
+			plans.toArray(new BuildPlan[plans.size()]),
+			((Point)task.o1).x,
+			((Point)task.o1).y,
+			task.taskEpoch,
+			task.type
+		);
+
+		for (int k = 0; k < route.plans.length; ++k)
+			route.blocks[k] = tiles.get(route.plans[k].x, route.plans[k].y).block();
+
+		// Plans reach player build plans at the next world state update at the latest
+		route.planEpoch = _worldState.BuildPlanEpoch + (long)2;
+
+		_routes.add(route);
+	}
+
 	private void TaskWorker()
 	{
 		while (_running)
@@ -2825,9 +4440,72 @@ public class Machindustry extends Mod
 				_taskQueue.Clear();
 
 			final PathTask task = _taskQueue.Consume();
+			final PathTask previewTask = _previewTask;
+			final Pair<PathTask, int[]> previewResult = _previewResult;
+
+			if (task == null && previewTask != null && previewTask.taskEpoch == _taskEpoch
+				&& (previewResult == null || previewResult.a != previewTask))
+			{
+				try
+				{
+					final PathReplanner pathReplanner = previewTask.type == PathType.BEAM ? _beamPathReplanner
+						: (previewTask.type == PathType.LIQUID ? _liquidPathReplanner : _solidPathReplanner);
+
+					final long worldEpoch = _worldState.WorldEpoch;
+
+					int count = 0;
+
+					// Map is updated only after world changes, replanner gets the changed tiles only
+					if (worldEpoch != _previewEpoch)
+					{
+						_worldState.UpdateMap();
+
+						count = _worldState.Map.Difference(_previewMap, _previewTiles);
+
+						_previewMap.Copy(_worldState.Map);
+						_previewEpoch = worldEpoch;
+					}
+
+					final int[] tiles = pathReplanner == _previewReplanner ? _previewTiles : null;
+					_previewReplanner = pathReplanner;
+
+					if (pathReplanner.Replan(_previewMap, tiles, count, ((Point)previewTask.o1).i, ((Point)previewTask.o2).i, _livePreviewEvaluations))
+						_previewResult = new Pair<PathTask, int[]>(previewTask, pathReplanner.Path);
+					else
+					{
+						// Search continues at the next step, let other threads run in between
+						try
+						{
+							Thread.sleep((long)1);
+						}
+						catch (InterruptedException e) {}
+					}
+				}
+				catch (Exception e)
+				{
+					PrintLine("Exception catched when working on preview task: '" + e.getMessage() + "'");
+					e.printStackTrace();
 
-			if (task == null)
+					_previewResult = new Pair<PathTask, int[]>(previewTask, null);
+				}
+			}
+			else if (task == null)
 			{
+				if (_routes.size() != 0 && _worldState.BuildPlanEpoch != _routesEpoch)
+				{
+					try
+					{
+						RepairRoutes();
+					}
+					catch (Exception e)
+					{
+						PrintLine("Exception catched when repairing routes: '" + e.getMessage() + "'");
+						e.printStackTrace();
+
+						_routes.clear();
+					}
+				}
+
 				try
 				{
 					Thread.sleep((long)1);
@@ -2844,6 +4522,9 @@ public class Machindustry extends Mod
 					catch (InterruptedException e) {}
 
 				LinkedList<BuildPlan> buildPlans = null;
+				int enclosed = PathComponents.ENCLOSED_NONE;
+				int unreached = 0;
+				boolean tree = false;
 
 				try
 				{
@@ -2864,40 +4545,105 @@ public class Machindustry extends Mod
 							break;
 
 						case LIQUID:
-							buildPlans = FindPath
-							(
-								_liquidPathFinder,
-								_worldState,
-								((Point)task.o1).x,
-								((Point)task.o1).y,
-								((Point)task.o2).x,
-								((Point)task.o2).y, 
-								task.taskEpoch
-							);
+							_liquidPathFinder.PathEnclosed = PathComponents.ENCLOSED_NONE;
+
+							if (Core.settings.getBool(_liquidNetworkName))
+							{
+								tree = true;
+
+								buildPlans = FindNetwork
+								(
+									_liquidPathFinder,
+									_worldState,
+									((Point)task.o1).x,
+									((Point)task.o1).y,
+									((Point)task.o2).x,
+									((Point)task.o2).y,
+									task.taskEpoch
+								);
+
+								// Plans of reached sources are placed, failure toast tells how many are not
+								unreached = _networkUnreached;
+							}
+							else
+								buildPlans = FindPath
+								(
+									_liquidPathFinder,
+									_worldState,
+									((Point)task.o1).x,
+									((Point)task.o1).y,
+									((Point)task.o2).x,
+									((Point)task.o2).y, 
+									task.taskEpoch
+								);
+
+							// Failure toast tells which endpoint is walled off
+							if (buildPlans == null)
+								enclosed = _liquidPathFinder.PathEnclosed;
 							break;
 
 						case SOLID:
-							buildPlans = FindPath
-							(
-								_solidPathFinder,
-								_worldState,
-								((Point)task.o1).x,
-								((Point)task.o1).y,
-								((Point)task.o2).x,
-								((Point)task.o2).y, 
-								task.taskEpoch
-							);
+							_solidPathFinder.PathEnclosed = PathComponents.ENCLOSED_NONE;
+
+							if (Core.settings.getBool(_solidNetworkName))
+							{
+								tree = true;
+
+								buildPlans = FindNetwork
+								(
+									_solidPathFinder,
+									_worldState,
+									((Point)task.o1).x,
+									((Point)task.o1).y,
+									((Point)task.o2).x,
+									((Point)task.o2).y,
+									task.taskEpoch
+								);
+
+								// Plans of reached sources are placed, failure toast tells how many are not
+								unreached = _networkUnreached;
+							}
+							else
+								buildPlans = FindPath
+								(
+									_solidPathFinder,
+									_worldState,
+									((Point)task.o1).x,
+									((Point)task.o1).y,
+									((Point)task.o2).x,
+									((Point)task.o2).y, 
+									task.taskEpoch
+								);
+
+							// Failure toast tells which endpoint is walled off
+							if (buildPlans == null)
+								enclosed = _solidPathFinder.PathEnclosed;
 							break;
 
 						case VENT:
-							buildPlans = FindPath
-							(
-								_beamPathFinder,
-								_worldState,
-								(LinkedList<Point>)task.o1,
-								(LinkedList<Point>)task.o2,
-								task.taskEpoch
-							);
+							if (Core.settings.getBool(_beamNetworkName))
+							{
+								buildPlans = FindNetwork
+								(
+									_beamPathFinder,
+									_worldState,
+									(LinkedList<Point>)task.o1,
+									(LinkedList<Point>)task.o2,
+									task.taskEpoch
+								);
+
+								// Plans of reached turbines are placed, failure toast tells how many are not
+								unreached = _networkUnreached;
+							}
+							else
+								buildPlans = FindPath
+								(
+									_beamPathFinder,
+									_worldState,
+									(LinkedList<Point>)task.o1,
+									(LinkedList<Point>)task.o2,
+									task.taskEpoch
+								);
 							break;
 
 						default:
@@ -2930,10 +4676,22 @@ public class Machindustry extends Mod
 				}
 
 				if (buildPlans == null)
+				{
+					_resultEnclosed = enclosed;
+					_resultUnreached = 0;
 					_resultFailure = true;
+				}
 				else
 				{
-					_resultSuccess = true;
+					if (unreached != 0)
+					{
+						_resultEnclosed = PathComponents.ENCLOSED_NONE;
+						_resultUnreached = unreached;
+						_resultFailure = true;
+					}
+					else
+						_resultSuccess = true;
+
 					final BuildPlan[] buildPlansArray = buildPlans.toArray(new BuildPlan[buildPlans.size()]);
 
 					while (_running && !Vars.state.isMenu() && !_worldState.BuildPlansMachinary.Produce(buildPlansArray))
@@ -2944,6 +4702,11 @@ public class Machindustry extends Mod
 						}
 						catch (InterruptedException e) {}
 					}
+
+					// Route is one chain of plans, network plans are several paths joined into tree
+					if (!tree && ((task.type == PathType.LIQUID && Core.settings.getBool(_liquidRepairRoutesName))
+						|| (task.type == PathType.SOLID && Core.settings.getBool(_solidRepairRoutesName))))
+						TrackRoute(task, buildPlansArray);
 				}
 			}
 		}
@@ -2959,18 +4722,21 @@ public class Machindustry extends Mod
 			{
 				DrawSquareOverlay(_beamFirstPoint.x, _beamFirstPoint.y, _beamPointColor);
 				DrawSquareOverlay(currentPoint.x, currentPoint.y, _beamPointColor);
+				DrawPreviewOverlay(_beamFirstPoint, currentPoint, PathType.BEAM, _beamPointColor);
 			}
 
 			if (_liquidFirstPoint != null)
 			{
 				DrawSquareOverlay(_liquidFirstPoint.x, _liquidFirstPoint.y, _liquidPointColor);
 				DrawSquareOverlay(currentPoint.x, currentPoint.y, _liquidPointColor);
+				DrawPreviewOverlay(_liquidFirstPoint, currentPoint, PathType.LIQUID, _liquidPointColor);
 			}
 
 			if (_solidFirstPoint != null)
 			{
 				DrawSquareOverlay(_solidFirstPoint.x, _solidFirstPoint.y, _solidPointColor);
 				DrawSquareOverlay(currentPoint.x, currentPoint.y, _solidPointColor);
+				DrawPreviewOverlay(_solidFirstPoint, currentPoint, PathType.SOLID, _solidPointColor);
 			}
 
 			if (_takeFirstPoint != null)
@@ -3034,8 +4800,19 @@ public class Machindustry extends Mod
 
 		if (_resultFailure)
 		{
+			String failure = _failureMessage;
+
+			if ((_resultEnclosed & PathComponents.ENCLOSED_FIRST) != 0)
+				failure += _enclosedFirstMessage;
+
+			if ((_resultEnclosed & PathComponents.ENCLOSED_TARGET) != 0)
+				failure += _enclosedTargetMessage;
+
+			if (_resultUnreached != 0)
+				failure += _unreachedMessage + _resultUnreached;
+
 			_resultFailure = false;
-			Vars.ui.showInfoToast(_failureMessage + ShowResultTime(), 1F);
+			Vars.ui.showInfoToast(failure + ShowResultTime(), 1F);
 		}
 
 		if (_resultSuccess)
@@ -3064,6 +4841,9 @@ public class Machindustry extends Mod
 	public void init()
 	{
 		_failureMessage = Core.bundle.get("machindustry.failure-message");
+		_enclosedFirstMessage = Core.bundle.get("machindustry.enclosed-first-message");
+		_enclosedTargetMessage = Core.bundle.get("machindustry.enclosed-target-message");
+		_unreachedMessage = Core.bundle.get("machindustry.unreached-message");
 		_successMessage = Core.bundle.get("machindustry.success-message");
 
 		_resultMessage1 = " [[";
@@ -3204,6 +4984,39 @@ public class Machindustry extends Mod
 		}
 	};
 
+	/**
+	 * Path task plans in path order with blocks of their tiles when they were queued
+	*/
+	private class Route
+	{
+		public BuildPlan[] plans;
+		public Block[] blocks;
+
+		/**
+		 * Source block tile
+		*/
+		public final int x;
+		public final int y;
+
+		/**
+		 * Plan epoch plans are in player build plans since
+		*/
+		public long planEpoch = (long)0;
+
+		public final long taskEpoch;
+		public final PathType type;
+
+		public Route(BuildPlan[] plans, int x, int y, long taskEpoch, PathType type)
+		{
+			this.plans = plans;
+			this.blocks = new Block[plans.length];
+			this.x = x;
+			this.y = y;
+			this.taskEpoch = taskEpoch;
+			this.type = type;
+		}
+	}
+
 	private static class SpaceSetting extends Setting
 	{
 		private final Color _color;
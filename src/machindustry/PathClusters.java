@@ -0,0 +1,727 @@
+package machindustry;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical abstraction over path finder tile map. Map is split into square chunks, every border between
+ * two chunks is split into entrances (runs of rows or columns that can be crossed by duct or bridge) and
+ * entrances of one chunk are connected with costs of paths inside the chunk. Coarse A* search over entrances
+ * gives the corridor of chunks, path finders then refine path inside the corridor only.
+ * Chunks are rebuilt lazily by coarse search, only after their tiles have changed.
+*/
+public class PathClusters
+{
+	/**
+	 * Chunk side, tiles
+	*/
+	public static final int CHUNK = 16;
+
+	/**
+	 * Bridge range, tiles
+	*/
+	private static final int RANGE = 4;
+
+	/**
+	 * Internal map height
+	*/
+	private final int _height;
+
+	/**
+	 * Internal map width
+	*/
+	private final int _width;
+
+	/**
+	 * Internal map size
+	*/
+	private final int _size;
+
+	/**
+	 * Chunks map height
+	*/
+	private final int _cHeight;
+
+	/**
+	 * Chunks map width
+	*/
+	private final int _cWidth;
+
+	/**
+	 * Chunks map size
+	*/
+	private final int _cSize;
+
+	/**
+	 * Blocked tiles map chunks were built from
+	*/
+	private final boolean[] _map;
+
+	/**
+	 * Entrances between chunk and its right neighbour, stored as (tile, tile, cost) triples
+	*/
+	private final int[][] _rBorders;
+
+	/**
+	 * Entrances between chunk and its upper neighbour, stored as (tile, tile, cost) triples
+	*/
+	private final int[][] _uBorders;
+
+	/**
+	 * Entrance tiles of chunk
+	*/
+	private final int[][] _nodes;
+
+	/**
+	 * Costs between entrance tiles of chunk, nodes * nodes matrix
+	*/
+	private final int[][] _costs;
+
+	/**
+	 * Links of chunk entrance tiles to the neighbour chunks, stored as (node, tile, cost) triples
+	*/
+	private final int[][] _links;
+
+	/**
+	 * Right borders to rebuild
+	*/
+	private final boolean[] rDirty;
+
+	/**
+	 * Upper borders to rebuild
+	*/
+	private final boolean[] uDirty;
+
+	/**
+	 * Chunks to rebuild
+	*/
+	private final boolean[] cDirty;
+
+	/**
+	 * Corridor chunks map of the last search
+	*/
+	private final boolean[] cMap;
+
+	/**
+	 * Entrance tile index in its chunk nodes, -1 if tile is not entrance
+	*/
+	private final int[] nMap;
+
+	/**
+	 * Coarse search cost map, tile after the last one is the goal
+	*/
+	private final int[] gMap;
+
+	/**
+	 * Coarse search parent map
+	*/
+	private final int[] sMap;
+
+	/**
+	 * Coarse search cost to the targets map
+	*/
+	private final int[] hMap;
+
+	/**
+	 * Chunk local costs map
+	*/
+	private final int[] lMap;
+
+	/**
+	 * Coarse search touched tiles, reset before the next search
+	*/
+	private int[] touched = new int[256];
+
+	private int touchedSize = 0;
+
+	private final PathHeap heap = new PathHeap(256);
+
+	private final PathHeap lHeap = new PathHeap(CHUNK * CHUNK);
+
+	/**
+	 * Evaluates distance from tile to the first tile that can be crossed by duct in given direction
+	 * @return -1 if there is no such tile in bridge range
+	*/
+	private int Depth(final int i, final int delta, final int depth)
+	{
+		for (int d = 0; d < RANGE && d < depth; ++d)
+			if (!_map[i + d * delta])
+				return d;
+
+		return -1;
+	}
+
+	/**
+	 * Evaluates entrances of the border between two chunks. Entrance is crossing of the border
+	 * by duct or bridge, one entrance is made in the middle of every run of crossings.
+	 * @return         Entrances stored as (tile, tile, cost) triples
+	 * @param i      - First tile of the border in the first chunk
+	 * @param along  - Index delta along the border
+	 * @param across - Index delta across the border
+	 * @param length - Border length
+	 * @param depthA - Tiles in the first chunk across the border
+	 * @param depthB - Tiles in the second chunk across the border
+	*/
+	private int[] BuildBorder(final int i, final int along, final int across, final int length, final int depthA, final int depthB)
+	{
+		final int[] border = new int[(length + 1) / 2 * 3];
+
+		int size = 0;
+		int run = -1;
+
+		for (int k = 0, j = i; k <= length; ++k, j += along)
+		{
+			boolean cross = false;
+
+			if (k < length)
+			{
+				final int a = Depth(j, -across, depthA);
+				final int b = Depth(j + across, across, depthB);
+
+				cross = a != -1 && b != -1 && a + b + 1 <= RANGE;
+			}
+
+			if (cross)
+			{
+				if (run == -1)
+					run = k;
+			}
+			else if (run != -1)
+			{
+				final int m = i + (run + k - 1) / 2 * along;
+
+				final int a = Depth(m, -across, depthA);
+				final int b = Depth(m + across, across, depthB);
+
+				border[size++] = m - a * across;
+				border[size++] = m + (b + 1) * across;
+				border[size++] = a + b + 1;
+
+				run = -1;
+			}
+		}
+
+		return Arrays.copyOf(border, size);
+	}
+
+	/**
+	 * Evaluates costs from sources to all tiles of chunk, moves are ducts and bridges inside chunk
+	*/
+	private void Spread(final int c, final int[] sources, final int count)
+	{
+		final int x0 = (c % _cWidth) * CHUNK;
+		final int y0 = (c / _cWidth) * CHUNK;
+
+		final int w = Math.min(CHUNK, _width - x0);
+		final int h = Math.min(CHUNK, _height - y0);
+
+		Arrays.fill(lMap, Integer.MAX_VALUE);
+		lHeap.Clear();
+
+		for (int k = 0; k < count; ++k)
+		{
+			final int l = sources[k] % _width - x0 + (sources[k] / _width - y0) * CHUNK;
+
+			lMap[l] = 0;
+			lHeap.Push(0, l);
+		}
+
+		while (!lHeap.IsEmpty())
+		{
+			final long key = lHeap.PeekKey();
+			final int l = lHeap.Pop();
+			final int cost = lMap[l];
+
+			// Skip tile if it was pushed again with lower cost
+			if (key != cost)
+				continue;
+
+			final int lx = l % CHUNK;
+			final int ly = l / CHUNK;
+
+			final int idx = x0 + lx + (y0 + ly) * _width;
+
+			for (int s = 1; s <= RANGE; ++s)
+			{
+				if (lx + s < w && !_map[idx + s] && cost + s < lMap[l + s])
+				{
+					lMap[l + s] = cost + s;
+					lHeap.Push(cost + s, l + s);
+				}
+
+				if (ly + s < h && !_map[idx + s * _width] && cost + s < lMap[l + s * CHUNK])
+				{
+					lMap[l + s * CHUNK] = cost + s;
+					lHeap.Push(cost + s, l + s * CHUNK);
+				}
+
+				if (lx - s >= 0 && !_map[idx - s] && cost + s < lMap[l - s])
+				{
+					lMap[l - s] = cost + s;
+					lHeap.Push(cost + s, l - s);
+				}
+
+				if (ly - s >= 0 && !_map[idx - s * _width] && cost + s < lMap[l - s * CHUNK])
+				{
+					lMap[l - s * CHUNK] = cost + s;
+					lHeap.Push(cost + s, l - s * CHUNK);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Local index of tile in chunk
+	*/
+	private int Local(final int c, final int idx)
+	{
+		return idx % _width - (c % _cWidth) * CHUNK + (idx / _width - (c / _cWidth) * CHUNK) * CHUNK;
+	}
+
+	/**
+	 * Rebuilds dirty borders of chunk, chunks on both sides of changed border become dirty
+	*/
+	private void EnsureBorders(final int c)
+	{
+		final int cx = c % _cWidth;
+		final int cy = c / _cWidth;
+
+		final int x0 = cx * CHUNK;
+		final int y0 = cy * CHUNK;
+
+		final int w = Math.min(CHUNK, _width - x0);
+		final int h = Math.min(CHUNK, _height - y0);
+
+		if (cx + 1 < _cWidth && rDirty[c])
+		{
+			final int[] border = BuildBorder
+			(
+				x0 + CHUNK - 1 + y0 * _width,
+				_width,
+				1,
+				h,
+				CHUNK,
+				Math.min(CHUNK, _width - x0 - CHUNK)
+			);
+
+			if (!Arrays.equals(border, _rBorders[c]))
+			{
+				_rBorders[c] = border;
+
+				cDirty[c] = true;
+				cDirty[c + 1] = true;
+			}
+
+			rDirty[c] = false;
+		}
+
+		if (cy + 1 < _cHeight && uDirty[c])
+		{
+			final int[] border = BuildBorder
+			(
+				x0 + (y0 + CHUNK - 1) * _width,
+				1,
+				_width,
+				w,
+				CHUNK,
+				Math.min(CHUNK, _height - y0 - CHUNK)
+			);
+
+			if (!Arrays.equals(border, _uBorders[c]))
+			{
+				_uBorders[c] = border;
+
+				cDirty[c] = true;
+				cDirty[c + _cWidth] = true;
+			}
+
+			uDirty[c] = false;
+		}
+	}
+
+	/**
+	 * Rebuilds chunk and its borders if they are dirty
+	*/
+	private void Ensure(final int c)
+	{
+		final int cx = c % _cWidth;
+		final int cy = c / _cWidth;
+
+		EnsureBorders(c);
+
+		if (cx > 0)
+			EnsureBorders(c - 1);
+
+		if (cy > 0)
+			EnsureBorders(c - _cWidth);
+
+		if (!cDirty[c])
+			return;
+
+		cDirty[c] = false;
+
+		if (_nodes[c] != null)
+			for (int k = 0; k < _nodes[c].length; ++k)
+				nMap[_nodes[c][k]] = -1;
+
+		final int[] rBorder1 = _rBorders[c];
+		final int[] uBorder1 = _uBorders[c];
+		final int[] rBorder2 = cx > 0 ? _rBorders[c - 1] : null;
+		final int[] uBorder2 = cy > 0 ? _uBorders[c - _cWidth] : null;
+
+		final int count = (rBorder1 == null ? 0 : rBorder1.length) + (uBorder1 == null ? 0 : uBorder1.length)
+			+ (rBorder2 == null ? 0 : rBorder2.length) + (uBorder2 == null ? 0 : uBorder2.length);
+
+		final int[] nodes = new int[count / 3];
+		final int[] links = new int[count];
+
+		int n = 0;
+		int size = 0;
+
+		// Entrance tile is the first one of triple on own borders and the second one on the neighbour's borders
+		for (int b = 0; b < 4; ++b)
+		{
+			final int[] border = b == 0 ? rBorder1 : b == 1 ? uBorder1 : b == 2 ? rBorder2 : uBorder2;
+
+			if (border == null)
+				continue;
+
+			final int own = b < 2 ? 0 : 1;
+
+			for (int k = 0; k < border.length; k += 3)
+			{
+				final int tile = border[k + own];
+
+				int node = nMap[tile];
+
+				if (node == -1)
+				{
+					node = n;
+					nMap[tile] = n;
+					nodes[n++] = tile;
+				}
+
+				links[size++] = node;
+				links[size++] = border[k + 1 - own];
+				links[size++] = border[k + 2];
+			}
+		}
+
+		final int[] costs = new int[n * n];
+		final int[] source = new int[1];
+
+		for (int k = 0; k < n; ++k)
+		{
+			source[0] = nodes[k];
+			Spread(c, source, 1);
+
+			for (int j = 0; j < n; ++j)
+				costs[k * n + j] = lMap[Local(c, nodes[j])];
+		}
+
+		_nodes[c] = Arrays.copyOf(nodes, n);
+		_costs[c] = costs;
+		_links[c] = links;
+	}
+
+	/**
+	 * Marks chunk and borders that depend on tile as dirty
+	*/
+	private void Invalidate(final int idx)
+	{
+		final int x = idx % _width;
+		final int y = idx / _width;
+
+		final int cx = x / CHUNK;
+		final int cy = y / CHUNK;
+		final int c = cx + cy * _cWidth;
+
+		cDirty[c] = true;
+
+		if (x % CHUNK >= CHUNK - RANGE)
+			rDirty[c] = true;
+
+		if (x % CHUNK < RANGE && cx > 0)
+			rDirty[c - 1] = true;
+
+		if (y % CHUNK >= CHUNK - RANGE)
+			uDirty[c] = true;
+
+		if (y % CHUNK < RANGE && cy > 0)
+			uDirty[c - _cWidth] = true;
+	}
+
+	private void Push(final int idx, final int cost, final int parent, final int estimate)
+	{
+		if (gMap[idx] == Integer.MAX_VALUE)
+		{
+			if (touchedSize == touched.length)
+				touched = Arrays.copyOf(touched, touchedSize * 2);
+
+			touched[touchedSize++] = idx;
+		}
+
+		gMap[idx] = cost;
+		sMap[idx] = parent;
+
+		heap.Push(((long)estimate << 32) | (long)cost, idx);
+	}
+
+	/**
+	 * Marks chunk with its neighbours as corridor
+	*/
+	private void Mark(final int c)
+	{
+		final int cx = c % _cWidth;
+		final int cy = c / _cWidth;
+
+		for (int y = Math.max(cy - 1, 0); y <= Math.min(cy + 1, _cHeight - 1); ++y)
+			for (int x = Math.max(cx - 1, 0); x <= Math.min(cx + 1, _cWidth - 1); ++x)
+				cMap[x + y * _cWidth] = true;
+	}
+
+	private int Chunk(final int idx)
+	{
+		return (idx % _width) / CHUNK + (idx / _width) / CHUNK * _cWidth;
+	}
+
+	public PathClusters(int height, int width)
+	{
+		_height = height;
+		_width = width;
+		_size = height * width;
+		_cHeight = (height + CHUNK - 1) / CHUNK;
+		_cWidth = (width + CHUNK - 1) / CHUNK;
+		_cSize = _cHeight * _cWidth;
+		_map = new boolean[_size];
+		_rBorders = new int[_cSize][];
+		_uBorders = new int[_cSize][];
+		_nodes = new int[_cSize][];
+		_costs = new int[_cSize][];
+		_links = new int[_cSize][];
+		rDirty = new boolean[_cSize];
+		uDirty = new boolean[_cSize];
+		cDirty = new boolean[_cSize];
+		cMap = new boolean[_cSize];
+		nMap = new int[_size];
+		gMap = new int[_size + 1];
+		sMap = new int[_size + 1];
+		hMap = new int[_size];
+		lMap = new int[CHUNK * CHUNK];
+
+		Arrays.fill(rDirty, true);
+		Arrays.fill(uDirty, true);
+		Arrays.fill(cDirty, true);
+		Arrays.fill(nMap, -1);
+		Arrays.fill(gMap, Integer.MAX_VALUE);
+		Arrays.fill(hMap, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Updates tile, chunks that depend on changed tile are rebuilt on next search
+	 * @param idx     - Tile index
+	 * @param blocked - Whether tile can not be crossed by duct
+	*/
+	public void Update(final int idx, final boolean blocked)
+	{
+		if (_map[idx] != blocked)
+		{
+			_map[idx] = blocked;
+			Invalidate(idx);
+		}
+	}
+
+	/**
+	 * Checks if tile is inside the corridor of the last search
+	*/
+	public boolean Corridor(final int x, final int y)
+	{
+		return cMap[x / CHUNK + y / CHUNK * _cWidth];
+	}
+
+	/**
+	 * Evaluates corridor of chunks from any first tile to any target with coarse A* search over chunk entrances
+	 * @return      true if corridor is evaluated, false if targets are close to first tiles or there is no coarse path
+	 * @param starts  - First tiles of the path
+	 * @param targets - Tiles after the last tile of the path
+	*/
+	public boolean Search(final int[] starts, final int[] targets)
+	{
+		// Route through adjacent chunks is short enough to search without corridor
+		for (int i = 0; i < starts.length; ++i)
+			for (int j = 0; j < targets.length; ++j)
+			{
+				final int c1 = Chunk(starts[i]);
+				final int c2 = Chunk(targets[j]);
+
+				if (Math.abs(c1 % _cWidth - c2 % _cWidth) <= 1 && Math.abs(c1 / _cWidth - c2 / _cWidth) <= 1)
+					return false;
+			}
+
+		// Reset tiles touched by previous search
+		for (int i = 0; i < touchedSize; ++i)
+			gMap[touched[i]] = Integer.MAX_VALUE;
+
+		touchedSize = 0;
+		heap.Clear();
+
+		int minX = targets[0] % _width;
+		int minY = targets[0] / _width;
+		int maxX = minX;
+		int maxY = minY;
+
+		for (int k = 0; k < targets.length; ++k)
+		{
+			minX = Math.min(minX, targets[k] % _width);
+			minY = Math.min(minY, targets[k] / _width);
+			maxX = Math.max(maxX, targets[k] % _width);
+			maxY = Math.max(maxY, targets[k] / _width);
+		}
+
+		final int[] sources = new int[Math.max(starts.length, targets.length)];
+
+		// Costs from target chunk entrances to targets
+		for (int k = 0; k < targets.length; ++k)
+		{
+			final int c = Chunk(targets[k]);
+
+			// Chunk is handled with the first target in it
+			int first = 0;
+
+			while (Chunk(targets[first]) != c)
+				++first;
+
+			if (first != k)
+				continue;
+
+			int count = 0;
+
+			for (int j = k; j < targets.length; ++j)
+				if (Chunk(targets[j]) == c)
+					sources[count++] = targets[j];
+
+			Ensure(c);
+			Spread(c, sources, count);
+
+			for (int j = 0; j < _nodes[c].length; ++j)
+			{
+				final int cost = lMap[Local(c, _nodes[c][j])];
+
+				if (cost < hMap[_nodes[c][j]])
+					hMap[_nodes[c][j]] = cost;
+			}
+		}
+
+		// Costs from first tiles to first chunk entrances
+		for (int k = 0; k < starts.length; ++k)
+		{
+			final int c = Chunk(starts[k]);
+
+			int first = 0;
+
+			while (Chunk(starts[first]) != c)
+				++first;
+
+			if (first != k)
+				continue;
+
+			int count = 0;
+
+			for (int j = k; j < starts.length; ++j)
+				if (Chunk(starts[j]) == c)
+					sources[count++] = starts[j];
+
+			Ensure(c);
+			Spread(c, sources, count);
+
+			for (int j = 0; j < _nodes[c].length; ++j)
+			{
+				final int idx = _nodes[c][j];
+				final int cost = lMap[Local(c, idx)];
+
+				if (cost != Integer.MAX_VALUE && cost < gMap[idx])
+					Push(idx, cost, -1, cost + Estimate(idx, minX, minY, maxX, maxY));
+			}
+		}
+
+		boolean found = false;
+
+		while (!heap.IsEmpty())
+		{
+			final long key = heap.PeekKey();
+			final int idx = heap.Pop();
+			final int g = gMap[idx];
+
+			// Skip tile if it was pushed again with lower cost
+			if ((int)key != g)
+				continue;
+
+			if (idx == _size)
+			{
+				found = true;
+				break;
+			}
+
+			final int c = Chunk(idx);
+
+			Ensure(c);
+
+			final int node = nMap[idx];
+
+			if (hMap[idx] != Integer.MAX_VALUE && g + hMap[idx] < gMap[_size])
+				Push(_size, g + hMap[idx], idx, g + hMap[idx]);
+
+			final int[] nodes = _nodes[c];
+			final int[] costs = _costs[c];
+			final int[] links = _links[c];
+			final int n = nodes.length;
+
+			for (int j = 0; j < n; ++j)
+			{
+				final int cost = costs[node * n + j];
+
+				if (cost != Integer.MAX_VALUE && g + cost < gMap[nodes[j]])
+					Push(nodes[j], g + cost, idx, g + cost + Estimate(nodes[j], minX, minY, maxX, maxY));
+			}
+
+			for (int k = 0; k < links.length; k += 3)
+				if (links[k] == node && g + links[k + 2] < gMap[links[k + 1]])
+					Push(links[k + 1], g + links[k + 2], idx, g + links[k + 2] + Estimate(links[k + 1], minX, minY, maxX, maxY));
+		}
+
+		// Reset costs to targets
+		for (int k = 0; k < targets.length; ++k)
+		{
+			final int[] nodes = _nodes[Chunk(targets[k])];
+
+			for (int j = 0; j < nodes.length; ++j)
+				hMap[nodes[j]] = Integer.MAX_VALUE;
+		}
+
+		if (!found)
+			return false;
+
+		Arrays.fill(cMap, false);
+
+		for (int k = 0; k < starts.length; ++k)
+			Mark(Chunk(starts[k]));
+
+		for (int k = 0; k < targets.length; ++k)
+			Mark(Chunk(targets[k]));
+
+		for (int idx = sMap[_size]; idx != -1; idx = sMap[idx])
+			Mark(Chunk(idx));
+
+		return true;
+	}
+
+	/**
+	 * Coarse A* heuristic, tiles to pass before targets bounding box
+	*/
+	private int Estimate(final int idx, final int minX, final int minY, final int maxX, final int maxY)
+	{
+		final int x = idx % _width;
+		final int y = idx / _width;
+
+		return Math.max(Math.max(minX - x, x - maxX), 0) + Math.max(Math.max(minY - y, y - maxY), 0);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,273 @@
+package machindustry;
+
+/**
+ * Connected components of passable tiles labeled with union-find. Tiles are connected if they are adjacent or if
+ * bridge can pass from one to another, so components are supersets of what path finders can reach and the tiles
+ * of different components have no path between them for sure. Labels are built from blocked tiles map in one pass
+ * and are read in O(1), path finders rebuild them after map updates that change blocked tiles.
+*/
+public class PathComponents
+{
+	/**
+	 * No endpoint is enclosed, path may exist
+	*/
+	public static final int ENCLOSED_NONE = 0;
+
+	/**
+	 * First tiles are enclosed
+	*/
+	public static final int ENCLOSED_FIRST = 1;
+
+	/**
+	 * Targets are enclosed
+	*/
+	public static final int ENCLOSED_TARGET = 2;
+
+	/**
+	 * Internal map height
+	*/
+	private final int _height;
+
+	/**
+	 * Internal map width
+	*/
+	private final int _width;
+
+	/**
+	 * Internal map size
+	*/
+	private final int _size;
+
+	/**
+	 * Maximum tiles passed by one hop
+	*/
+	private final int _range;
+
+	/**
+	 * Union-find parents, component root after build, -1 for blocked tiles
+	*/
+	private final int[] lMap;
+
+	/**
+	 * Component tiles count by root tile
+	*/
+	private final int[] sMap;
+
+	private int Find(int i)
+	{
+		// Yes I hate recursion
+		while (lMap[i] != i)
+		{
+			lMap[i] = lMap[lMap[i]];
+			i = lMap[i];
+		}
+
+		return i;
+	}
+
+	private void Union(final int i, final int j)
+	{
+		int a = Find(i);
+		int b = Find(j);
+
+		if (a == b)
+			return;
+
+		// Smaller tree goes under bigger one
+		if (sMap[a] < sMap[b])
+		{
+			final int c = a;
+			a = b;
+			b = c;
+		}
+
+		lMap[b] = a;
+		sMap[a] += sMap[b];
+	}
+
+	/**
+	 * Adds label of tile to labels if tile is passable and label is not added yet
+	 * @return labels count
+	*/
+	private int Add(final int[] labels, int count, final int i)
+	{
+		final int label = lMap[i];
+
+		if (label == -1)
+			return count;
+
+		for (int k = 0; k < count; ++k)
+			if (labels[k] == label)
+				return count;
+
+		labels[count] = label;
+		return count + 1;
+	}
+
+	/**
+	 * Adds labels of tiles one hop away from tile in four directions
+	 * @return labels count
+	*/
+	private int AddHops(final int[] labels, int count, final int i)
+	{
+		final int x = i % _width;
+		final int y = i / _width;
+
+		for (int k = 1; k <= _range; ++k)
+		{
+			if (x + k < _width)
+				count = Add(labels, count, i + k);
+
+			if (y + k < _height)
+				count = Add(labels, count, i + k * _width);
+
+			if (x - k >= 0)
+				count = Add(labels, count, i - k);
+
+			if (y - k >= 0)
+				count = Add(labels, count, i - k * _width);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Adds labels of four adjacent tiles
+	 * @return labels count
+	*/
+	private int AddNeighbours(final int[] labels, int count, final int i)
+	{
+		final int x = i % _width;
+		final int y = i / _width;
+
+		if (x + 1 < _width)
+			count = Add(labels, count, i + 1);
+
+		if (y + 1 < _height)
+			count = Add(labels, count, i + _width);
+
+		if (x - 1 >= 0)
+			count = Add(labels, count, i - 1);
+
+		if (y - 1 >= 0)
+			count = Add(labels, count, i - _width);
+
+		return count;
+	}
+
+	/**
+	 * @param range - Maximum tiles passed by one hop (bridge range)
+	*/
+	public PathComponents(int height, int width, int range)
+	{
+		_height = height;
+		_width = width;
+		_size = height * width;
+		_range = range;
+		lMap = new int[_size];
+		sMap = new int[_size];
+	}
+
+	/**
+	 * Labels components of passable tiles
+	 * @param map - Blocked tiles map
+	*/
+	public void Build(final TileBits map)
+	{
+		for (int i = 0; i < _size; ++i)
+		{
+			lMap[i] = map.Get(i) ? -1 : i;
+			sMap[i] = 1;
+		}
+
+		for (int y = 0, i = 0; y < _height; ++y)
+			for (int x = 0; x < _width; ++x, ++i)
+				if (!map.Get(i))
+					for (int k = 1; k <= _range; ++k)
+					{
+						if (x + k < _width && !map.Get(i + k))
+							Union(i, i + k);
+
+						if (y + k < _height && !map.Get(i + k * _width))
+							Union(i, i + k * _width);
+					}
+
+		// Labels are roots, so they are read without finds
+		for (int i = 0; i < _size; ++i)
+			if (lMap[i] != -1)
+				lMap[i] = Find(i);
+	}
+
+	/**
+	 * Checks whether first tiles can reach tiles in front of targets
+	 * @param starts   - First tiles of the path
+	 * @param targets  - Tiles after the last tile of the path
+	 * @param override - Tile with overriden state that is passable for sure, -1 if no such tile
+	 * @return ENCLOSED_NONE if path may exist, flags of enclosed endpoints if there is no path for sure
+	*/
+	public int Enclosed(final int[] starts, final int[] targets, final int override)
+	{
+		int overrideStart = -1;
+
+		for (int k = 0; k < starts.length; ++k)
+			if (starts[k] == override)
+				overrideStart = override;
+
+		// Overriden tile that is not first tile joins components, labels do not know it
+		if (override != -1 && overrideStart == -1 && lMap[override] == -1)
+			return ENCLOSED_NONE;
+
+		final int[] labels1 = new int[starts.length * (4 * _range + 1)];
+		final int[] labels2 = new int[targets.length * 4];
+
+		int count1 = 0;
+		int count2 = 0;
+
+		for (int k = 0; k < starts.length; ++k)
+		{
+			// Overriden first tile is passable, it is reached from tiles one hop away
+			if (starts[k] == overrideStart && lMap[starts[k]] == -1)
+				count1 = AddHops(labels1, count1, starts[k]);
+			else
+				count1 = Add(labels1, count1, starts[k]);
+		}
+
+		for (int k = 0; k < targets.length; ++k)
+		{
+			count2 = AddNeighbours(labels2, count2, targets[k]);
+
+			// First tile in front of target is the whole path
+			if (overrideStart != -1 && Math.abs(overrideStart % _width - targets[k] % _width)
+				+ Math.abs(overrideStart / _width - targets[k] / _width) == 1)
+				return ENCLOSED_NONE;
+		}
+
+		for (int i = 0; i < count1; ++i)
+			for (int j = 0; j < count2; ++j)
+				if (labels1[i] == labels2[j])
+					return ENCLOSED_NONE;
+
+		int enclosed = ENCLOSED_NONE;
+
+		if (count1 == 0)
+			enclosed |= ENCLOSED_FIRST;
+
+		if (count2 == 0)
+			enclosed |= ENCLOSED_TARGET;
+
+		if (enclosed != ENCLOSED_NONE)
+			return enclosed;
+
+		// Both endpoints have passable tiles, the one in smaller components is enclosed
+		int size1 = 0;
+		int size2 = 0;
+
+		for (int i = 0; i < count1; ++i)
+			size1 += sMap[labels1[i]];
+
+		for (int j = 0; j < count2; ++j)
+			size2 += sMap[labels2[j]];
+
+		return size1 <= size2 ? ENCLOSED_FIRST : ENCLOSED_TARGET;
+	}
+}
\ No newline at end of file
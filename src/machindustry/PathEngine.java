@@ -0,0 +1,38 @@
+package machindustry;
+
+/**
+ * Path search engine used by path finders
+*/
+public enum PathEngine
+{
+	/**
+	 * Greedy depth-first walk with backtracking, fast on open ground but may spend all the time in mazes
+	*/
+	GREEDY,
+
+	/**
+	 * Best-first search over (tile, incoming direction, bridge state), finds the cheapest route
+	*/
+	ASTAR,
+
+	/**
+	 * A* search growing from both the first tile and the target until frontiers meet
+	*/
+	BIDIRECTIONAL,
+
+	/**
+	 * Breadth-first search over beam node hops, finds the path with the fewest beam nodes
+	*/
+	BFS,
+
+	/**
+	 * Greedy walk and A* search racing on two threads, first path wins unless the other one is cheaper in grace time
+	*/
+	PORTFOLIO,
+
+	/**
+	 * Engine predicted to be the fastest by history of searches on the current map (see PathHistory),
+	 * it is picked before path finders are invoked
+	*/
+	ADAPTIVE
+}
\ No newline at end of file
@@ -0,0 +1,283 @@
+package machindustry;
+
+import java.util.Arrays;
+
+/**
+ * Distance fields from targets over tile map. Distance is tiles passed by path that goes to adjacent tile or
+ * hops over any tiles to the tile in range, so it knows walls that can not be hopped over and never exceeds
+ * real path length. Blocked tiles get distance of the shortest hop over them. Several fields are kept for
+ * different targets, so candidate pairs of one request build every field once.
+*/
+public class PathField
+{
+	/**
+	 * Internal map height
+	*/
+	private final int _height;
+
+	/**
+	 * Internal map width
+	*/
+	private final int _width;
+
+	/**
+	 * Internal map size
+	*/
+	private final int _size;
+
+	/**
+	 * Distance maps, allocated on first use
+	*/
+	private final int[][] _maps;
+
+	/**
+	 * Targets distance maps were built for
+	*/
+	private final int[][] _targets;
+
+	/**
+	 * Map stamps distance maps were built for
+	*/
+	private final long[] _stamps;
+
+	/**
+	 * Last use of distance maps
+	*/
+	private final long[] _uses;
+
+	private long use = 0;
+
+	/**
+	 * Distance map selected by the last Build
+	*/
+	private int[] dMap = null;
+
+	/**
+	 * Bucket queue of Dijkstra search, hop distances are small so every distance has its own bucket
+	*/
+	private int[][] buckets = null;
+
+	private int[] bucketSizes = null;
+
+	/**
+	 * Pushes tile to the bucket of its distance
+	*/
+	private void Push(final int distance, final int idx)
+	{
+		final int b = distance % buckets.length;
+
+		if (bucketSizes[b] == buckets[b].length)
+			buckets[b] = Arrays.copyOf(buckets[b], bucketSizes[b] * 2);
+
+		buckets[b][bucketSizes[b]++] = idx;
+	}
+
+	public PathField(int height, int width, int slots)
+	{
+		if (slots < 1)
+			throw new IllegalArgumentException("PathField slots must be positive");
+
+		_height = height;
+		_width = width;
+		_size = height * width;
+		_maps = new int[slots][];
+		_targets = new int[slots][];
+		_stamps = new long[slots];
+		_uses = new long[slots];
+	}
+
+	/**
+	 * Builds distance map from targets with Dijkstra search, only the nearest tile that can be placed on is searched
+	 * in each direction, the farther ones are reached from it with the same distance.
+	 * Map is not kept by this field, use it for distance maps that are stored elsewhere.
+	*/
+	public void Build(final int[] map, final TileBits blocked, final int[] targets, final int range)
+	{
+		// Hop is not longer than range, so range + 1 buckets hold all pushed distances
+		if (buckets == null || buckets.length != range + 1)
+		{
+			buckets = new int[range + 1][256];
+			bucketSizes = new int[range + 1];
+		}
+
+		Arrays.fill(map, Integer.MAX_VALUE);
+		Arrays.fill(bucketSizes, 0);
+
+		for (int k = 0; k < targets.length; ++k)
+		{
+			map[targets[k]] = 0;
+			Push(0, targets[k]);
+		}
+
+		int pushed = targets.length;
+		int current = 0;
+
+		// Yes I hate recursion
+		while (pushed != 0)
+		{
+			final int b = current % buckets.length;
+
+			if (bucketSizes[b] == 0)
+			{
+				++current;
+				continue;
+			}
+
+			final int idx = buckets[b][--bucketSizes[b]];
+			final int distance = current;
+
+			--pushed;
+
+			// Skip tile if it was pushed again with lower distance
+			if (map[idx] != distance)
+				continue;
+
+			final int x = idx % _width;
+			final int y = idx / _width;
+
+			for (int k = 1, i = idx + 1; k <= range && x + k < _width; ++k, ++i)
+				if (!blocked.Get(i))
+				{
+					if (distance + k < map[i])
+					{
+						map[i] = distance + k;
+						Push(distance + k, i);
+						++pushed;
+					}
+
+					break;
+				}
+
+			for (int k = 1, i = idx + _width; k <= range && y + k < _height; ++k, i += _width)
+				if (!blocked.Get(i))
+				{
+					if (distance + k < map[i])
+					{
+						map[i] = distance + k;
+						Push(distance + k, i);
+						++pushed;
+					}
+
+					break;
+				}
+
+			for (int k = 1, i = idx - 1; k <= range && x - k >= 0; ++k, --i)
+				if (!blocked.Get(i))
+				{
+					if (distance + k < map[i])
+					{
+						map[i] = distance + k;
+						Push(distance + k, i);
+						++pushed;
+					}
+
+					break;
+				}
+
+			for (int k = 1, i = idx - _width; k <= range && y - k >= 0; ++k, i -= _width)
+				if (!blocked.Get(i))
+				{
+					if (distance + k < map[i])
+					{
+						map[i] = distance + k;
+						Push(distance + k, i);
+						++pushed;
+					}
+
+					break;
+				}
+		}
+
+		// Blocked tile is hopped over to the nearest tile behind it that can be placed on
+		for (int y = 0, idx = 0; y < _height; ++y)
+			for (int x = 0; x < _width; ++x, ++idx)
+				if (blocked.Get(idx) && map[idx] != 0)
+				{
+					int distance = Integer.MAX_VALUE;
+
+					for (int k = 1, i = idx + 1; k < range && x + k < _width; ++k, ++i)
+						if (!blocked.Get(i))
+						{
+							if (map[i] != Integer.MAX_VALUE)
+								distance = Math.min(distance, map[i] + k);
+
+							break;
+						}
+
+					for (int k = 1, i = idx + _width; k < range && y + k < _height; ++k, i += _width)
+						if (!blocked.Get(i))
+						{
+							if (map[i] != Integer.MAX_VALUE)
+								distance = Math.min(distance, map[i] + k);
+
+							break;
+						}
+
+					for (int k = 1, i = idx - 1; k < range && x - k >= 0; ++k, --i)
+						if (!blocked.Get(i))
+						{
+							if (map[i] != Integer.MAX_VALUE)
+								distance = Math.min(distance, map[i] + k);
+
+							break;
+						}
+
+					for (int k = 1, i = idx - _width; k < range && y - k >= 0; ++k, i -= _width)
+						if (!blocked.Get(i))
+						{
+							if (map[i] != Integer.MAX_VALUE)
+								distance = Math.min(distance, map[i] + k);
+
+							break;
+						}
+
+					map[idx] = distance;
+				}
+	}
+
+	/**
+	 * Selects distance map for targets, builds it in place of the least recently used one if there is no such map
+	 * @param blocked - Tiles path can not be placed on
+	 * @param targets - Tiles after the last tile of the path
+	 * @param range   - Maximum tiles passed by one hop
+	 * @param stamp   - Map version, distance maps built for other versions are outdated
+	*/
+	public void Build(final TileBits blocked, final int[] targets, final int range, final long stamp)
+	{
+		int slot = 0;
+
+		++use;
+
+		for (int k = 0; k < _maps.length; ++k)
+		{
+			if (_maps[k] != null && _stamps[k] == stamp && Arrays.equals(_targets[k], targets))
+			{
+				_uses[k] = use;
+				dMap = _maps[k];
+				return;
+			}
+
+			if (_uses[k] < _uses[slot])
+				slot = k;
+		}
+
+		if (_maps[slot] == null)
+			_maps[slot] = new int[_size];
+
+		Build(_maps[slot], blocked, targets, range);
+
+		_targets[slot] = Arrays.copyOf(targets, targets.length);
+		_stamps[slot] = stamp;
+		_uses[slot] = use;
+
+		dMap = _maps[slot];
+	}
+
+	/**
+	 * Returns distance from tile to the nearest target of the last Build, Integer.MAX_VALUE if target can not be reached
+	*/
+	public int Distance(final int i)
+	{
+		return dMap[i];
+	}
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+package machindustry;
+
+/**
+ * Binary min-heap of search states. Every state is stored as int value with long priority key.
+ * The heap does not support decrease-key operation: push state again with lower key and
+ * skip stale entries on pop. The underlying buffers grow twice when they are full.
+*/
+public class PathHeap
+{
+	private long[] _keys;
+	private int[] _values;
+	private int _size = 0;
+
+	public PathHeap(int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("PathHeap capacity must be positive");
+
+		_keys = new long[capacity];
+		_values = new int[capacity];
+	}
+
+	public void Clear()
+	{
+		_size = 0;
+	}
+
+	public boolean IsEmpty()
+	{
+		return _size == 0;
+	}
+
+	/**
+	 * Returns key of the top state, heap must not be empty
+	*/
+	public long PeekKey()
+	{
+		return _keys[0];
+	}
+
+	/**
+	 * Returns value of the top state, heap must not be empty
+	*/
+	public int PeekValue()
+	{
+		return _values[0];
+	}
+
+	/**
+	 * Removes the top state and returns its value, heap must not be empty
+	*/
+	public int Pop()
+	{
+		final int value = _values[0];
+
+		--_size;
+
+		if (_size != 0)
+		{
+			final long key = _keys[_size];
+			final int last = _values[_size];
+
+			int i = 0;
+
+			// Yes I hate recursion
+			while (true)
+			{
+				int c = i * 2 + 1;
+
+				if (c >= _size)
+					break;
+
+				if (c + 1 < _size && _keys[c + 1] < _keys[c])
+					++c;
+
+				if (_keys[c] >= key)
+					break;
+
+				_keys[i] = _keys[c];
+				_values[i] = _values[c];
+				i = c;
+			}
+
+			_keys[i] = key;
+			_values[i] = last;
+		}
+
+		return value;
+	}
+
+	public void Push(final long key, final int value)
+	{
+		if (_size == _keys.length)
+		{
+			final long[] keys = new long[_size * 2];
+			final int[] values = new int[_size * 2];
+
+			System.arraycopy(_keys, 0, keys, 0, _size);
+			System.arraycopy(_values, 0, values, 0, _size);
+
+			_keys = keys;
+			_values = values;
+		}
+
+		int i = _size;
+
+		++_size;
+
+		while (i != 0)
+		{
+			final int p = (i - 1) / 2;
+
+			if (_keys[p] <= key)
+				break;
+
+			_keys[i] = _keys[p];
+			_values[i] = _values[p];
+			i = p;
+		}
+
+		_keys[i] = key;
+		_values[i] = value;
+	}
+
+	public int Size()
+	{
+		return _size;
+	}
+}
\ No newline at end of file
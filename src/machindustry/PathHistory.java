@@ -0,0 +1,213 @@
+package machindustry;
+
+/**
+ * Per-map history of path searches that predicts the fastest engine for the next search. Searches are divided into
+ * classes by features (distance between endpoints, blocked tiles density inside their bounding box, endpoint block
+ * size), every class keeps search count, success count, time and plans of every engine. Class that has not seen some
+ * engine yet asks the coarser class of the same distance, engine unknown to both of them is tried first. Engines are
+ * tried again while they have few searches for searches count of their class (logarithmic like UCB does), so engine
+ * that was unlucky in its first searches is not dropped forever.
+*/
+public class PathHistory
+{
+	/**
+	 * Distance classes, distance class is log2 of distance
+	*/
+	private static final int DISTANCES = 8;
+
+	/**
+	 * Density classes, blocked tiles density is split evenly
+	*/
+	private static final int DENSITIES = 4;
+
+	/**
+	 * Endpoint block size classes, the last one is for size 4 and bigger blocks
+	*/
+	private static final int SIZES = 4;
+
+	/**
+	 * Features classes count
+	*/
+	private static final int CLASSES = DISTANCES * DENSITIES * SIZES;
+
+	/**
+	 * Engine is tried again while its searches count is less than PROBES * ln(class searches count + 1)
+	*/
+	private static final double PROBES = 2.0;
+
+	/**
+	 * Engines history is kept for
+	*/
+	private final PathEngine[] _engines;
+
+	/**
+	 * Searches count by features class and engine
+	*/
+	private final int[][] cMap;
+
+	/**
+	 * Successful searches count by features class and engine
+	*/
+	private final int[][] sMap;
+
+	/**
+	 * Total search time in nanoseconds by features class and engine
+	*/
+	private final long[][] tMap;
+
+	/**
+	 * Total plans of successful searches by features class and engine
+	*/
+	private final long[][] pMap;
+
+	/**
+	 * Coarse classes of the same distance, indices follow features classes
+	*/
+	private final int[][] cDistanceMap;
+	private final int[][] sDistanceMap;
+	private final long[][] tDistanceMap;
+	private final long[][] pDistanceMap;
+
+	/**
+	 * Expected time of successful search, Long.MAX_VALUE if engine never succeeded
+	*/
+	private static long Expected(final int successes, final long time)
+	{
+		return successes == 0 ? Long.MAX_VALUE : time / (long)successes;
+	}
+
+	/**
+	 * @param engines - Engines to pick from, the first one wins ties
+	*/
+	public PathHistory(PathEngine[] engines)
+	{
+		_engines = engines;
+
+		cMap = new int[CLASSES][engines.length];
+		sMap = new int[CLASSES][engines.length];
+		tMap = new long[CLASSES][engines.length];
+		pMap = new long[CLASSES][engines.length];
+
+		cDistanceMap = new int[DISTANCES][engines.length];
+		sDistanceMap = new int[DISTANCES][engines.length];
+		tDistanceMap = new long[DISTANCES][engines.length];
+		pDistanceMap = new long[DISTANCES][engines.length];
+	}
+
+	/**
+	 * Returns features class of search
+	 * @param distance - Manhattan distance between endpoints
+	 * @param blocked  - Blocked tiles count inside endpoints bounding box
+	 * @param area     - Endpoints bounding box area
+	 * @param size     - The biggest endpoint block size
+	*/
+	public static int Features(final int distance, final int blocked, final int area, final int size)
+	{
+		final int dClass = Math.min(31 - Integer.numberOfLeadingZeros(Math.max(distance, 1)), DISTANCES - 1);
+		final int bClass = area <= 0 ? 0 : Math.min((int)((long)blocked * (long)DENSITIES / (long)area), DENSITIES - 1);
+		final int sClass = Math.min(Math.max(size, 1), SIZES) - 1;
+
+		return (dClass * DENSITIES + bClass) * SIZES + sClass;
+	}
+
+	/**
+	 * Returns engine with the least expected time of successful search for features class, engines that
+	 * succeeded equally fast are compared by plans count. Engine with too few searches is returned instead,
+	 * the one with the least searches first.
+	*/
+	public PathEngine Predict(final int features)
+	{
+		final int distance = features / (DENSITIES * SIZES);
+
+		int classSearches = 0;
+		int distanceSearches = 0;
+
+		for (int k = 0; k < _engines.length; ++k)
+		{
+			classSearches += cMap[features][k];
+			distanceSearches += cDistanceMap[distance][k];
+		}
+
+		int best = 0;
+		int probe = -1;
+		int probeCount = Integer.MAX_VALUE;
+
+		long bestTime = Long.MAX_VALUE;
+		long bestPlans = Long.MAX_VALUE;
+
+		for (int k = 0; k < _engines.length; ++k)
+		{
+			int count = cMap[features][k];
+			int successes = sMap[features][k];
+			long time = tMap[features][k];
+			long plans = pMap[features][k];
+			int searches = classSearches;
+
+			// Class has not seen engine yet, coarse class knows better than nothing
+			if (count == 0)
+			{
+				count = cDistanceMap[distance][k];
+				successes = sDistanceMap[distance][k];
+				time = tDistanceMap[distance][k];
+				plans = pDistanceMap[distance][k];
+				searches = distanceSearches;
+			}
+
+			// Engine is unknown for such searches, try it
+			if (count == 0)
+				return _engines[k];
+
+			// Engine has few searches to judge it by, try it again
+			if (count < PROBES * Math.log(searches + 1) && count < probeCount)
+			{
+				probe = k;
+				probeCount = count;
+			}
+
+			final long expected = Expected(successes, time);
+			final long average = successes == 0 ? Long.MAX_VALUE : plans / (long)successes;
+
+			if (expected < bestTime || (expected == bestTime && average < bestPlans))
+			{
+				best = k;
+				bestTime = expected;
+				bestPlans = average;
+			}
+		}
+
+		return _engines[probe != -1 ? probe : best];
+	}
+
+	/**
+	 * Stores search outcome
+	 * @param features - Features class of search
+	 * @param engine   - Engine used by search, searches of unknown engines are not stored
+	 * @param time     - Search time in nanoseconds
+	 * @param plans    - Plans count of found path, -1 if search failed
+	*/
+	public void Record(final int features, final PathEngine engine, final long time, final int plans)
+	{
+		final int distance = features / (DENSITIES * SIZES);
+
+		for (int k = 0; k < _engines.length; ++k)
+			if (_engines[k] == engine)
+			{
+				++cMap[features][k];
+				++cDistanceMap[distance][k];
+
+				tMap[features][k] += time;
+				tDistanceMap[distance][k] += time;
+
+				if (plans >= 0)
+				{
+					++sMap[features][k];
+					++sDistanceMap[distance][k];
+
+					pMap[features][k] += (long)plans;
+					pDistanceMap[distance][k] += (long)plans;
+				}
+
+				return;
+			}
+	}
+}
\ No newline at end of file
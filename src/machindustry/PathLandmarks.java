@@ -0,0 +1,234 @@
+package machindustry;
+
+/**
+ * Landmark distance tables for A* heuristic. Distances from several landmark tiles are built on static tiles map
+ * and give lower bound of distance between any two tiles by triangle inequality: |d(L, a) - d(L, b)| <= d(a, b).
+ * Buildings only block more tiles and make paths longer, so bounds stay admissible until static map frees tile.
+ * Tables are rebuilt lazily, when static map frees tile or when it blocks enough tiles to make bounds loose.
+*/
+public class PathLandmarks
+{
+	/**
+	 * Maximum landmarks count
+	*/
+	public static final int LANDMARKS = 8;
+
+	/**
+	 * Tables are rebuilt after (map size / CHANGES_DIVIDER) tiles are blocked since last build
+	*/
+	private static final int CHANGES_DIVIDER = 64;
+
+	/**
+	 * Internal map height
+	*/
+	private final int _height;
+
+	/**
+	 * Internal map width
+	*/
+	private final int _width;
+
+	/**
+	 * Internal map size
+	*/
+	private final int _size;
+
+	/**
+	 * Maximum tiles passed by one hop
+	*/
+	private final int _range;
+
+	/**
+	 * Core tiles that are always landmarks
+	*/
+	private final int[] _cores;
+
+	/**
+	 * Static tiles map tables were built from
+	*/
+	private final TileBits _map;
+
+	/**
+	 * Landmark tiles
+	*/
+	private final int[] _landmarks = new int[LANDMARKS];
+
+	/**
+	 * Distance tables of landmarks, allocated on first build
+	*/
+	private final int[][] _tables = new int[LANDMARKS][];
+
+	/**
+	 * Distance tables builder
+	*/
+	private final PathField _field;
+
+	/**
+	 * Landmarks count
+	*/
+	private int count = 0;
+
+	/**
+	 * Minimum distance from landmark to targets of the last Prepare, Integer.MAX_VALUE if landmark does not reach them
+	*/
+	private final int[] lows = new int[LANDMARKS];
+
+	/**
+	 * Maximum distance from landmark to targets of the last Prepare
+	*/
+	private final int[] highs = new int[LANDMARKS];
+
+	/**
+	 * Targets of the last Prepare can be estimated
+	*/
+	private boolean prepared = false;
+
+	/**
+	 * Returns tile that can be placed on nearest to given tile, -1 if there is no such tile
+	*/
+	private int Nearest(final int x, final int y)
+	{
+		int nearest = -1;
+		int distance = Integer.MAX_VALUE;
+
+		for (int ty = 0, i = 0; ty < _height; ++ty)
+			for (int tx = 0; tx < _width; ++tx, ++i)
+				if (!_map.Get(i) && Math.abs(tx - x) + Math.abs(ty - y) < distance)
+				{
+					nearest = i;
+					distance = Math.abs(tx - x) + Math.abs(ty - y);
+				}
+
+		return nearest;
+	}
+
+	/**
+	 * Adds landmark if it is not added yet and there is place for it
+	*/
+	private void Add(final int landmark)
+	{
+		if (landmark < 0 || count == LANDMARKS)
+			return;
+
+		for (int k = 0; k < count; ++k)
+			if (_landmarks[k] == landmark)
+				return;
+
+		_landmarks[count++] = landmark;
+	}
+
+	/**
+	 * Picks landmarks (map corners and cores) and builds their distance tables
+	*/
+	private void Build(final TileBits map)
+	{
+		_map.Copy(map);
+
+		count = 0;
+
+		Add(Nearest(0, 0));
+		Add(Nearest(_width - 1, 0));
+		Add(Nearest(0, _height - 1));
+		Add(Nearest(_width - 1, _height - 1));
+
+		for (int k = 0; k < _cores.length; ++k)
+			Add(_cores[k]);
+
+		for (int k = 0; k < count; ++k)
+		{
+			if (_tables[k] == null)
+				_tables[k] = new int[_size];
+
+			_field.Build(_tables[k], _map, new int[] { _landmarks[k] }, _range);
+		}
+
+		prepared = false;
+	}
+
+	/**
+	 * @param cores - Core tiles, landmarks in addition to map corners
+	*/
+	public PathLandmarks(int height, int width, int range, int[] cores)
+	{
+		_height = height;
+		_width = width;
+		_size = height * width;
+		_range = range;
+		_cores = cores;
+		_map = new TileBits(_size);
+		_field = new PathField(height, width, 1);
+	}
+
+	/**
+	 * Rebuilds distance tables if they are not built yet, if static map freed tile tables were built with
+	 * or if it blocked too many tiles since last build
+	 * @param map - Static tiles map, tiles that are always blocked
+	*/
+	public void Update(final TileBits map)
+	{
+		if (count == 0)
+		{
+			Build(map);
+			return;
+		}
+
+		// Freed tile makes distances longer than they are, bounds are not admissible anymore
+		if (!map.Covers(_map) || map.Difference(_map) > _size / CHANGES_DIVIDER)
+			Build(map);
+	}
+
+	/**
+	 * Prepares distance bounds for targets, static map must not block targets
+	 * @param targets - Tiles after the last tile of the path
+	*/
+	public void Prepare(final int[] targets)
+	{
+		prepared = count != 0;
+
+		for (int k = 0; k < targets.length; ++k)
+			if (_map.Get(targets[k]))
+				prepared = false;
+
+		if (!prepared)
+			return;
+
+		for (int k = 0; k < count; ++k)
+		{
+			final int[] table = _tables[k];
+
+			lows[k] = Integer.MAX_VALUE;
+			highs[k] = 0;
+
+			for (int j = 0; j < targets.length; ++j)
+				if (table[targets[j]] != Integer.MAX_VALUE)
+				{
+					lows[k] = Math.min(lows[k], table[targets[j]]);
+					highs[k] = Math.max(highs[k], table[targets[j]]);
+				}
+		}
+	}
+
+	/**
+	 * Returns lower bound of tiles passed from tile to the nearest target of the last Prepare, 0 if it is unknown
+	*/
+	public int Estimate(final int i)
+	{
+		if (!prepared || _map.Get(i))
+			return 0;
+
+		int estimate = 0;
+
+		for (int k = 0; k < count; ++k)
+		{
+			final int distance = _tables[k][i];
+
+			// Tile and targets are in other part of map than landmark, it knows nothing about them
+			if (distance == Integer.MAX_VALUE || lows[k] == Integer.MAX_VALUE)
+				continue;
+
+			estimate = Math.max(estimate, Math.max(distance - highs[k], lows[k] - distance));
+		}
+
+		return estimate;
+	}
+}
\ No newline at end of file
@@ -44,4 +44,28 @@ public class PathNode
 		y = o.y;
 		i = o.i;
 	}
+
+	/**
+	 * Resets fields, so one node serves every evaluation step
+	*/
+	public void Set(int r, int s, int x, int y, int i)
+	{
+		this.r = r;
+		this.s = s;
+		this.x = x;
+		this.y = y;
+		this.i = i;
+	}
+
+	/**
+	 * Copies fields of other node
+	*/
+	public void Set(PathNode o)
+	{
+		r = o.r;
+		s = o.s;
+		x = o.x;
+		y = o.y;
+		i = o.i;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,483 @@
+package machindustry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hash distributed A* (HDA*) search over int states for long searches on big maps. Every state is owned by one search
+ * thread chosen by state hash, the owner keeps its cost and parent in its own states table (see PathStates) and
+ * expands it from its own open list. Successor
+ * states are sent to their owners in batches through single-producer single-consumer queues (see QueueSPSC), one
+ * queue per pair of threads, so threads never lock each other. First goal found does not stop the search, it goes on
+ * while open lists hold states cheaper than the best goal found so far.
+*/
+public class PathParallel
+{
+	/**
+	 * Search graph, its methods are invoked by all search threads at once and must not change shared data
+	*/
+	public interface Graph
+	{
+		/**
+		 * Writes successor states and their costs to arrays
+		 * @param thread - Search thread index, threads can keep their own scratch data by it
+		 * @param state  - Expanded state
+		 * @param parent - Parent of expanded state, -1 if it is first state
+		 * @param cost   - Cost of expanded state
+		 * @return successors count, (~tag) if state is goal, tag is any non-negative number kept for the caller
+		*/
+		int Expand(int thread, int state, int parent, int cost, int[] states, int[] costs);
+
+		/**
+		 * Heuristic estimate of cost from state to goal
+		*/
+		int Estimate(int state);
+	}
+
+	/**
+	 * Maximum successors of one state
+	*/
+	public static final int MOVES = 16;
+
+	/**
+	 * Messages (state, cost, parent) in one batch sent to another thread
+	*/
+	private static final int BATCH = 64;
+
+	/**
+	 * Expansions after which partial batches are sent, so other threads do not starve
+	*/
+	private static final int FLUSH = 16;
+
+	/**
+	 * Search threads count including the calling thread
+	*/
+	public final int Threads;
+
+	/**
+	 * Batch queues, queue (i * Threads + j) is written by thread i and read by thread j
+	*/
+	private final ArrayList<QueueSPSC<int[]>> _queues;
+
+	private final Searcher[] _searchers;
+
+	/**
+	 * Workers of search threads except the calling one, _workers[0] is null
+	*/
+	private final PathWorker[] _workers;
+
+	/**
+	 * Busy threads count plus batches sent but not processed yet. It never grows from zero because it only
+	 * grows by busy threads, so zero means search is finished.
+	*/
+	private final AtomicLong work = new AtomicLong();
+
+	private Graph graph = null;
+
+	private long startTime = (long)-1;
+	private long frequency = (long)-1;
+	private long buildTime = (long)-1;
+
+	/**
+	 * Search is stopped by time or failure of any thread
+	*/
+	private volatile boolean stop = false;
+
+	/**
+	 * Cost of the best goal found so far, states that are not cheaper are not expanded
+	*/
+	private volatile int bound = Integer.MAX_VALUE;
+
+	private Throwable failure = null;
+
+	/**
+	 * Best goal state of the last search, -1 if goal is not found
+	*/
+	public int Goal = -1;
+
+	/**
+	 * Tag of the best goal state of the last search
+	*/
+	public int Tag = -1;
+
+	/**
+	 * Cost of the best goal state of the last search
+	*/
+	public int Cost = Integer.MAX_VALUE;
+
+	/**
+	 * @return batch queue written by thread i and read by thread j
+	*/
+	private QueueSPSC<int[]> Queue(final int i, final int j)
+	{
+		return _queues.get(i * Threads + j);
+	}
+
+	private int Owner(final int state)
+	{
+		return ((state * 0x9E3779B9) >>> 8) % Threads;
+	}
+
+	private synchronized void Found(final int state, final int tag, final int cost)
+	{
+		if (cost < Cost)
+		{
+			Goal = state;
+			Tag = tag;
+			Cost = cost;
+
+			bound = cost;
+		}
+	}
+
+	private synchronized void Fail(final Throwable e)
+	{
+		if (failure == null)
+			failure = e;
+
+		stop = true;
+	}
+
+	/**
+	 * Search thread, it owns states with its index hash
+	*/
+	private class Searcher implements Runnable
+	{
+		private final int id;
+
+		private final PathHeap heap = new PathHeap(256);
+
+		/**
+		 * Costs and parents of states this thread owns
+		*/
+		private final PathStates gStates = new PathStates(256);
+
+		private final int[] states = new int[MOVES];
+		private final int[] costs = new int[MOVES];
+
+		/**
+		 * Batches being filled for other threads
+		*/
+		private final int[][] batches;
+		private final int[] batchSizes;
+
+		private boolean idle = false;
+
+		private Searcher(final int id)
+		{
+			this.id = id;
+
+			batches = new int[Threads][BATCH * 3];
+			batchSizes = new int[Threads];
+		}
+
+		private void Push(final int state, final int cost, final int parent)
+		{
+			if (cost >= gStates.Cost(state))
+				return;
+
+			gStates.Put(state, cost, parent);
+
+			heap.Push(((long)(cost + graph.Estimate(state)) << 32) | (long)(Integer.MAX_VALUE - cost), state);
+		}
+
+		private void Send(final int state, final int cost, final int parent)
+		{
+			final int owner = Owner(state);
+
+			if (owner == id)
+			{
+				Push(state, cost, parent);
+				return;
+			}
+
+			int[] batch = batches[owner];
+			int size = batchSizes[owner];
+
+			// Queue may be full, batch grows until it is sent
+			if (size == batch.length)
+				batch = batches[owner] = Arrays.copyOf(batch, size * 2);
+
+			batch[size++] = state;
+			batch[size++] = cost;
+			batch[size++] = parent;
+
+			batchSizes[owner] = size;
+
+			if (size >= BATCH * 3)
+				Flush(owner);
+		}
+
+		/**
+		 * @return true if batch is sent or there is nothing to send
+		*/
+		private boolean Flush(final int owner)
+		{
+			final int size = batchSizes[owner];
+
+			if (size == 0)
+				return true;
+
+			final int[] batch = Arrays.copyOf(batches[owner], size);
+
+			work.incrementAndGet();
+
+			if (!Queue(id, owner).Produce(batch))
+			{
+				work.decrementAndGet();
+				return false;
+			}
+
+			batchSizes[owner] = 0;
+			return true;
+		}
+
+		private boolean FlushAll()
+		{
+			boolean flushed = true;
+
+			for (int k = 0; k < Threads; ++k)
+				if (k != id && !Flush(k))
+					flushed = false;
+
+			return flushed;
+		}
+
+		private void Receive()
+		{
+			for (int k = 0; k < Threads; ++k)
+			{
+				if (k == id)
+					continue;
+
+				final QueueSPSC<int[]> queue = Queue(k, id);
+
+				int[] batch;
+
+				while ((batch = queue.Consume()) != null)
+				{
+					// Thread becomes busy before batch is counted out, so work does not fall to zero in between
+					if (idle)
+					{
+						idle = false;
+						work.incrementAndGet();
+					}
+
+					for (int j = 0; j < batch.length; j += 3)
+						Push(batch[j], batch[j + 1], batch[j + 2]);
+
+					work.decrementAndGet();
+				}
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				Search();
+			}
+			catch (Throwable e)
+			{
+				Fail(e);
+			}
+		}
+
+		private void Search()
+		{
+			long evaluations = 0;
+			int expansions = 0;
+
+			// Yes I hate recursion
+			while (!stop)
+			{
+				Receive();
+
+				if (frequency != -1)
+				{
+					// If time exceeds stop all threads
+					if (evaluations >= frequency)
+					{
+						if (startTime + buildTime <= System.nanoTime())
+						{
+							stop = true;
+							break;
+						}
+						else
+							evaluations = 0;
+					}
+					else
+						++evaluations;
+				}
+
+				if (!heap.IsEmpty() && (int)(heap.PeekKey() >> 32) < bound)
+				{
+					final long key = heap.PeekKey();
+					final int state = heap.Pop();
+					final int g = gStates.Cost(state);
+
+					// Skip state if it was pushed again with lower cost
+					if (Integer.MAX_VALUE - (int)key != g)
+						continue;
+
+					final int count = graph.Expand(id, state, gStates.Parent(state), g, states, costs);
+
+					if (count < 0)
+						Found(state, ~count, g);
+					else
+						for (int k = 0; k < count; ++k)
+							Send(states[k], costs[k], state);
+
+					if (++expansions == FLUSH)
+					{
+						FlushAll();
+						expansions = 0;
+					}
+
+					continue;
+				}
+
+				if (!FlushAll())
+				{
+					Thread.yield();
+					continue;
+				}
+
+				// Bound never grows, states that are not cheaper are never expanded
+				if (!idle)
+				{
+					idle = true;
+					heap.Clear();
+
+					work.decrementAndGet();
+				}
+
+				if (work.get() == 0)
+					break;
+
+				Thread.yield();
+			}
+		}
+	}
+
+	/**
+	 * @param threads - Search threads count including the calling thread
+	*/
+	public PathParallel(int threads)
+	{
+		if (threads < 2)
+			throw new IllegalArgumentException("PathParallel threads must be at least 2");
+
+		Threads = threads;
+		_queues = new ArrayList<QueueSPSC<int[]>>(threads * threads);
+		_searchers = new Searcher[threads];
+		_workers = new PathWorker[threads];
+
+		for (int i = 0; i < threads; ++i)
+		{
+			for (int j = 0; j < threads; ++j)
+				_queues.add(i != j ? new QueueSPSC<int[]>(256) : null);
+
+			_searchers[i] = new Searcher(i);
+
+			if (i != 0)
+				_workers[i] = new PathWorker("machindustry-search-" + i);
+		}
+	}
+
+	/**
+	 * Returns threads count worth to search with, less than 2 if parallel search is not worth it
+	*/
+	public static int AvailableThreads()
+	{
+		// One core is left for the game
+		return Math.min(Runtime.getRuntime().availableProcessors() - 1, 8);
+	}
+
+	/**
+	 * Searches from first states until best goal is found, invoking thread is one of search threads
+	 * @param graph     - Search graph
+	 * @param starts    - First states
+	 * @param costs     - First states costs
+	 * @param startTime - Search start time
+	 * @param frequency - Time check frequency, expansions of one thread, -1 if time is not checked
+	 * @param buildTime - Maximum search time
+	 * @return true if goal is found, it is stored in Goal, Tag and Cost
+	*/
+	public boolean Search(final Graph graph, final int[] starts, final int[] costs, final long startTime, final long frequency, final long buildTime)
+	{
+		this.graph = graph;
+		this.startTime = startTime;
+		this.frequency = frequency;
+		this.buildTime = buildTime;
+
+		stop = false;
+		bound = Integer.MAX_VALUE;
+		failure = null;
+
+		Goal = -1;
+		Tag = -1;
+		Cost = Integer.MAX_VALUE;
+
+		// Reset states of previous search, no search thread is running
+		for (final Searcher searcher : _searchers)
+		{
+			searcher.gStates.Clear();
+			searcher.idle = false;
+
+			searcher.heap.Clear();
+
+			Arrays.fill(searcher.batchSizes, 0);
+		}
+
+		for (int i = 0; i < Threads; ++i)
+			for (int j = 0; j < Threads; ++j)
+				if (i != j)
+					Queue(i, j).Clear();
+
+		for (int k = 0; k < starts.length; ++k)
+			_searchers[Owner(starts[k])].Push(starts[k], costs[k], -1);
+
+		work.set((long)Threads);
+
+		// Workers are kept between searches, so threads are not started for every search
+		for (int i = 1; i < Threads; ++i)
+			_workers[i].Start(_searchers[i]);
+
+		_searchers[0].run();
+
+		for (int i = 1; i < Threads; ++i)
+			while (!_workers[i].Join())
+				stop = true;
+
+		this.graph = null;
+
+		if (failure != null)
+			throw new RuntimeException("Parallel search failed", failure);
+
+		return Goal != -1;
+	}
+
+	/**
+	 * Writes states of the best goal path of the last search with their costs and parents to table,
+	 * so the path is traced from the table like single thread search path is
+	*/
+	public void Path(final PathStates states)
+	{
+		states.Clear();
+
+		int state = Goal;
+
+		// Yes I hate recursion
+		while (state != -1)
+		{
+			final PathStates owner = _searchers[Owner(state)].gStates;
+			final int parent = owner.Parent(state);
+
+			states.Put(state, owner.Cost(state), parent);
+			state = parent;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package machindustry;
+
+import java.util.Arrays;
+
+/**
+ * Directional ray tables of tile state map. For every tile and direction table stores distance to the nearest tile
+ * of given state ahead, so range scans of beam nodes and bridges know where they stop without walking tile by tile.
+ * Distances are capped at range plus one, tiles beyond the map border are never of given state.
+*/
+public class PathRays
+{
+	/**
+	 * Internal map height
+	*/
+	private final int _height;
+
+	/**
+	 * Internal map width
+	*/
+	private final int _width;
+
+	/**
+	 * Internal map size
+	*/
+	private final int _size;
+
+	/**
+	 * Distance returned if there is no tile of given state in range
+	*/
+	private final byte _cap;
+
+	/**
+	 * Nearest rows of tiles of given state by column, used by column sweeps
+	*/
+	private final int[] lMap;
+
+	/**
+	 * Distances by (tile * 4 + rotation), rotations are RIGHT, UPPER, LEFT, BOTTOM like path finders have
+	*/
+	public final byte[] Rays;
+
+	/**
+	 * @param range - Maximum distance that is stored exactly, range must be less than 127
+	*/
+	public PathRays(int height, int width, int range)
+	{
+		if (range >= Byte.MAX_VALUE)
+			throw new IllegalArgumentException("PathRays range must be less than 127");
+
+		_height = height;
+		_width = width;
+		_size = height * width;
+		_cap = (byte)(range + 1);
+		Rays = new byte[_size * 4];
+		lMap = new int[width];
+	}
+
+	/**
+	 * Evaluates distances to tiles of given state
+	 * @param map   - Tile state map
+	 * @param state - Tile state rays stop at
+	*/
+	public void Build(final byte[] map, final byte state)
+	{
+		final int cap = _cap;
+
+		// Nearest tiles of given state are tracked by position, so sweeps have no data dependent branches
+		for (int y = 0; y < _height; ++y)
+		{
+			final int beg = y * _width;
+			final int end = beg + _width - 1;
+
+			int last = end + cap;
+
+			for (int i = end; i >= beg; --i)
+			{
+				Rays[i * 4] = (byte)Math.min(last - i, cap);
+
+				if (map[i] == state)
+					last = i;
+			}
+
+			last = beg - cap;
+
+			for (int i = beg; i <= end; ++i)
+			{
+				Rays[i * 4 + 2] = (byte)Math.min(i - last, cap);
+
+				if (map[i] == state)
+					last = i;
+			}
+		}
+
+		// Columns are swept row by row, so memory is read in order
+		Arrays.fill(lMap, _height - 1 + cap);
+
+		for (int y = _height - 1; y >= 0; --y)
+			for (int x = 0, i = y * _width; x < _width; ++x, ++i)
+			{
+				Rays[i * 4 + 1] = (byte)Math.min(lMap[x] - y, cap);
+
+				if (map[i] == state)
+					lMap[x] = y;
+			}
+
+		Arrays.fill(lMap, -cap);
+
+		for (int y = 0, i = 0; y < _height; ++y)
+			for (int x = 0; x < _width; ++x, ++i)
+			{
+				Rays[i * 4 + 3] = (byte)Math.min(y - lMap[x], cap);
+
+				if (map[i] == state)
+					lMap[x] = y;
+			}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,396 @@
+package machindustry;
+
+import java.util.Arrays;
+
+/**
+ * Incremental route search (D* Lite) from fixed root tile to moving start tile, used by live path previews.
+ * Route goes to adjacent tile or hops over any tiles to the tile in range like distance fields do (see PathField).
+ * Search tree is kept between queries, so start moves and tile changes repair only the affected tiles.
+ * Search can be limited by evaluations, the next query continues it.
+*/
+public class PathReplanner
+{
+	/**
+	 * Search is started again if more than (map size / RESET_DIVIDER) tiles changed since last query
+	*/
+	private static final int RESET_DIVIDER = 16;
+
+	/**
+	 * Internal map height
+	*/
+	private final int _height;
+
+	/**
+	 * Internal map width
+	*/
+	private final int _width;
+
+	/**
+	 * Internal map size
+	*/
+	private final int _size;
+
+	/**
+	 * Maximum tiles passed by one hop
+	*/
+	private final int _range;
+
+	/**
+	 * Blocked tiles map search tree was built on
+	*/
+	private final TileBits _map;
+
+	/**
+	 * Changed tiles found by comparing maps, allocated when they are not passed to query
+	*/
+	private int[] _tiles = null;
+
+	/**
+	 * Tile route costs to root, allocated on first query
+	*/
+	private int[] gMap = null;
+
+	/**
+	 * Tile route costs to root by neighbour tiles (one-step lookahead)
+	*/
+	private int[] rMap = null;
+
+	/**
+	 * Open list keys of tiles, -1 if tile is not in open list
+	*/
+	private long[] kMap = null;
+
+	private PathHeap heap = null;
+
+	/**
+	 * Root tile, -1 if search is not started
+	*/
+	private int root = -1;
+
+	/**
+	 * Start tile
+	*/
+	private int start = -1;
+
+	/**
+	 * Sum of start moves, keeps open list keys valid after start moved
+	*/
+	private int km = 0;
+
+	/**
+	 * Route from root to start found by the last finished query, null if there is no route
+	*/
+	public int[] Path = null;
+
+	/**
+	 * Root and start are passable even if they are blocked
+	*/
+	private boolean Free(final int i)
+	{
+		return !_map.Get(i) || i == root || i == start;
+	}
+
+	private long Key(final int i)
+	{
+		final int cost = Math.min(gMap[i], rMap[i]);
+
+		if (cost == Integer.MAX_VALUE)
+			return Long.MAX_VALUE;
+
+		return ((long)(cost + Cost(i, start) + km) << 32) | (long)cost;
+	}
+
+	/**
+	 * Returns the least open list key, skips keys of tiles that were pushed again or removed
+	*/
+	private long TopKey()
+	{
+		while (!heap.IsEmpty())
+		{
+			if (kMap[heap.PeekValue()] == heap.PeekKey())
+				return heap.PeekKey();
+
+			heap.Pop();
+		}
+
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns neighbour of tile in direction (the nearest passable tile in range), -1 if there is no such tile
+	*/
+	private int Neighbour(final int i, final int r)
+	{
+		final int x = i % _width;
+		final int y = i / _width;
+
+		for (int k = 1; k <= _range; ++k)
+		{
+			int n;
+
+			switch (r)
+			{
+				case 0:
+					n = x + k < _width ? i + k : -1;
+					break;
+
+				case 1:
+					n = y + k < _height ? i + k * _width : -1;
+					break;
+
+				case 2:
+					n = x - k >= 0 ? i - k : -1;
+					break;
+
+				default:
+					n = y - k >= 0 ? i - k * _width : -1;
+					break;
+			}
+
+			if (n == -1)
+				return -1;
+
+			if (Free(n))
+				return n;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Manhattan distance between tiles, it is hop cost for tiles of one row or column
+	*/
+	private int Cost(final int i, final int j)
+	{
+		return Math.abs(i % _width - j % _width) + Math.abs(i / _width - j / _width);
+	}
+
+	private void UpdateVertex(final int i)
+	{
+		if (i != root)
+		{
+			int cost = Integer.MAX_VALUE;
+
+			if (Free(i))
+				for (int r = 0; r < 4; ++r)
+				{
+					final int n = Neighbour(i, r);
+
+					if (n != -1 && gMap[n] != Integer.MAX_VALUE)
+						cost = Math.min(cost, gMap[n] + Cost(i, n));
+				}
+
+			rMap[i] = cost;
+		}
+
+		if (gMap[i] != rMap[i])
+		{
+			kMap[i] = Key(i);
+			heap.Push(kMap[i], i);
+		}
+		else
+			kMap[i] = -1;
+	}
+
+	/**
+	 * Updates tile and the tiles whose neighbours are changed by its state
+	*/
+	private void UpdateTile(final int i)
+	{
+		UpdateVertex(i);
+
+		for (int r = 0; r < 4; ++r)
+		{
+			final int n = Neighbour(i, r);
+
+			if (n != -1)
+				UpdateVertex(n);
+		}
+	}
+
+	private void Reset(final TileBits map, final int root, final int start)
+	{
+		if (gMap == null)
+		{
+			gMap = new int[_size];
+			rMap = new int[_size];
+			kMap = new long[_size];
+			heap = new PathHeap(256);
+		}
+
+		_map.Copy(map);
+
+		Arrays.fill(gMap, Integer.MAX_VALUE);
+		Arrays.fill(rMap, Integer.MAX_VALUE);
+		Arrays.fill(kMap, (long)-1);
+
+		heap.Clear();
+
+		this.root = root;
+		this.start = start;
+
+		km = 0;
+
+		rMap[root] = 0;
+		UpdateVertex(root);
+	}
+
+	/**
+	 * Expands tiles until start cost is known or evaluations limit is reached
+	 * @return true if search is finished
+	*/
+	private boolean Search(long evaluations)
+	{
+		// Yes I hate recursion
+		while (TopKey() < Key(start) || gMap[start] != rMap[start])
+		{
+			if (evaluations-- == 0)
+				return false;
+
+			final long key = TopKey();
+			final int i = heap.Pop();
+
+			kMap[i] = -1;
+
+			if (key < Key(i))
+			{
+				kMap[i] = Key(i);
+				heap.Push(kMap[i], i);
+			}
+			else if (gMap[i] > rMap[i])
+			{
+				gMap[i] = rMap[i];
+
+				for (int r = 0; r < 4; ++r)
+				{
+					final int n = Neighbour(i, r);
+
+					if (n != -1)
+						UpdateVertex(n);
+				}
+			}
+			else
+			{
+				gMap[i] = Integer.MAX_VALUE;
+				UpdateTile(i);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Stores route from root to start in Path following the cheapest neighbours
+	*/
+	private void Trace()
+	{
+		Path = null;
+
+		if (gMap[start] == Integer.MAX_VALUE)
+			return;
+
+		int[] path = new int[64];
+
+		int count = 0;
+		int i = start;
+
+		path[count++] = i;
+
+		while (i != root)
+		{
+			int next = -1;
+			int cost = Integer.MAX_VALUE;
+
+			for (int r = 0; r < 4; ++r)
+			{
+				final int n = Neighbour(i, r);
+
+				if (n != -1 && gMap[n] != Integer.MAX_VALUE && gMap[n] + Cost(i, n) < cost)
+				{
+					next = n;
+					cost = gMap[n] + Cost(i, n);
+				}
+			}
+
+			// Tree is not consistent in this place, it is fixed by the next query
+			if (next == -1 || count == _size)
+				return;
+
+			if (count == path.length)
+				path = Arrays.copyOf(path, count * 2);
+
+			path[count++] = i = next;
+		}
+
+		Path = new int[count];
+
+		for (int k = 0; k < count; ++k)
+			Path[k] = path[count - k - 1];
+	}
+
+	public PathReplanner(int height, int width, int range)
+	{
+		_height = height;
+		_width = width;
+		_size = height * width;
+		_range = range;
+		_map = new TileBits(_size);
+	}
+
+	/**
+	 * Repairs search tree for changed tiles and start, then continues search
+	 * @param map         - Blocked tiles map
+	 * @param tiles       - Tiles changed since the last query, null if they are not known and map is compared to the
+	 *                      previous one
+	 * @param count       - Changed tiles count, whole map is compared if it is greater than tiles array length
+	 * @param root        - Fixed tile of the route, search tree is started again if it changes
+	 * @param start       - Moving tile of the route
+	 * @param evaluations - Evaluations limit, -1 if not limited
+	 * @return true if search is finished and Path is updated, false if limit is reached
+	*/
+	public boolean Replan(final TileBits map, int[] tiles, int count, final int root, final int start, final long evaluations)
+	{
+		if (tiles == null || count > tiles.length)
+		{
+			if (_tiles == null)
+				_tiles = new int[_size / RESET_DIVIDER + 1];
+
+			tiles = _tiles;
+			count = root != this.root ? 0 : map.Difference(_map, tiles);
+		}
+
+		if (root != this.root || count > _size / RESET_DIVIDER)
+			Reset(map, root, start);
+		else
+		{
+			if (start != this.start)
+			{
+				final int last = this.start;
+
+				km += Cost(last, start);
+				this.start = start;
+
+				// Old start is not passable anymore if it is blocked, new one is passable
+				UpdateTile(last);
+				UpdateTile(start);
+			}
+
+			for (int k = 0; k < count; ++k)
+			{
+				final int i = tiles[k];
+
+				if (map.Get(i) != _map.Get(i))
+				{
+					_map.Put(i, map.Get(i));
+					UpdateTile(i);
+				}
+			}
+		}
+
+		if (!Search(evaluations))
+			return false;
+
+		Trace();
+		return true;
+	}
+}
\ No newline at end of file
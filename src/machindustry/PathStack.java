@@ -0,0 +1,166 @@
+package machindustry;
+
+import java.util.Arrays;
+
+/**
+ * Stack of path nodes stored as parallel int columns (r, s, x, y, i like PathNode fields), so pushing node allocates
+ * nothing and no node object lives longer than the search that made it. The columns grow twice when they are full.
+*/
+public class PathStack
+{
+	private int[] _r;
+	private int[] _s;
+	private int[] _x;
+	private int[] _y;
+	private int[] _i;
+	private int _size = 0;
+
+	private void Grow()
+	{
+		final int capacity = _r.length * 2;
+
+		_r = Arrays.copyOf(_r, capacity);
+		_s = Arrays.copyOf(_s, capacity);
+		_x = Arrays.copyOf(_x, capacity);
+		_y = Arrays.copyOf(_y, capacity);
+		_i = Arrays.copyOf(_i, capacity);
+	}
+
+	public PathStack(int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("PathStack capacity must be positive");
+
+		_r = new int[capacity];
+		_s = new int[capacity];
+		_x = new int[capacity];
+		_y = new int[capacity];
+		_i = new int[capacity];
+	}
+
+	public void Clear()
+	{
+		_size = 0;
+	}
+
+	public int Size()
+	{
+		return _size;
+	}
+
+	/**
+	 * Returns distance/rotation of node k
+	*/
+	public int R(final int k)
+	{
+		return _r[k];
+	}
+
+	/**
+	 * Returns step of node k
+	*/
+	public int S(final int k)
+	{
+		return _s[k];
+	}
+
+	/**
+	 * Returns X coordinate of node k
+	*/
+	public int X(final int k)
+	{
+		return _x[k];
+	}
+
+	/**
+	 * Returns Y coordinate of node k
+	*/
+	public int Y(final int k)
+	{
+		return _y[k];
+	}
+
+	/**
+	 * Returns linear index of node k
+	*/
+	public int I(final int k)
+	{
+		return _i[k];
+	}
+
+	/**
+	 * Changes distance/rotation of node k
+	*/
+	public void SetR(final int k, final int r)
+	{
+		_r[k] = r;
+	}
+
+	/**
+	 * Pushes node to the top of the stack
+	*/
+	public void Add(final int r, final int s, final int x, final int y, final int i)
+	{
+		if (_size == _r.length)
+			Grow();
+
+		_r[_size] = r;
+		_s[_size] = s;
+		_x[_size] = x;
+		_y[_size] = y;
+		_i[_size] = i;
+
+		++_size;
+	}
+
+	/**
+	 * Pushes copy of node to the top of the stack, node may be reused after
+	*/
+	public void Add(final PathNode node)
+	{
+		Add(node.r, node.s, node.x, node.y, node.i);
+	}
+
+	/**
+	 * Pushes copy of node k of other stack to the top of the stack
+	*/
+	public void Add(final PathStack stack, final int k)
+	{
+		Add(stack._r[k], stack._s[k], stack._x[k], stack._y[k], stack._i[k]);
+	}
+
+	/**
+	 * Removes the top node, stack must not be empty
+	*/
+	public void RemoveLast()
+	{
+		--_size;
+	}
+
+	/**
+	 * Reverses nodes order
+	*/
+	public void Reverse()
+	{
+		for (int a = 0, b = _size - 1; a < b; ++a, --b)
+		{
+			final int r = _r[a];
+			final int s = _s[a];
+			final int x = _x[a];
+			final int y = _y[a];
+			final int i = _i[a];
+
+			_r[a] = _r[b];
+			_s[a] = _s[b];
+			_x[a] = _x[b];
+			_y[a] = _y[b];
+			_i[a] = _i[b];
+
+			_r[b] = r;
+			_s[b] = s;
+			_x[b] = x;
+			_y[b] = y;
+			_i[b] = i;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package machindustry;
+
+import java.util.Arrays;
+
+/**
+ * Costs and parents of search states kept in open addressing hash table, so memory follows states the search
+ * touched and not states the map has. Table is cleared in O(1) by generation like TileInts does and grows twice
+ * when it is half full, states of older generations are free slots.
+*/
+public class PathStates
+{
+	/**
+	 * States of slots, valid if slot generation is the current one
+	*/
+	private int[] _keys;
+
+	/**
+	 * State costs by slot
+	*/
+	private int[] _costs;
+
+	/**
+	 * State parents by slot
+	*/
+	private int[] _parents;
+
+	/**
+	 * Generations slots were written in
+	*/
+	private int[] _stamps;
+
+	/**
+	 * Shift of state hash to slot index, table has 2^(32 - shift) slots
+	*/
+	private int shift;
+
+	/**
+	 * States count of current generation
+	*/
+	private int size = 0;
+
+	/**
+	 * Current generation, slots start in generation 0 that is never current
+	*/
+	private int generation = 1;
+
+	/**
+	 * @return slot of state, free slot it would take if state is not written since the last clear
+	*/
+	private int Slot(final int state)
+	{
+		final int mask = _keys.length - 1;
+
+		int i = (state * 0x9E3779B9) >>> shift;
+
+		// Yes I hate recursion
+		while (_stamps[i] == generation && _keys[i] != state)
+			i = (i + 1) & mask;
+
+		return i;
+	}
+
+	/**
+	 * Moves states of current generation to table of twice the size
+	*/
+	private void Grow()
+	{
+		final int[] keys = _keys;
+		final int[] costs = _costs;
+		final int[] parents = _parents;
+		final int[] stamps = _stamps;
+
+		_keys = new int[keys.length * 2];
+		_costs = new int[keys.length * 2];
+		_parents = new int[keys.length * 2];
+		_stamps = new int[keys.length * 2];
+
+		--shift;
+
+		for (int k = 0; k < keys.length; ++k)
+			if (stamps[k] == generation)
+			{
+				final int i = Slot(keys[k]);
+
+				_keys[i] = keys[k];
+				_costs[i] = costs[k];
+				_parents[i] = parents[k];
+				_stamps[i] = generation;
+			}
+	}
+
+	/**
+	 * @param capacity - Initial slots count, it is rounded up to power of two
+	*/
+	public PathStates(int capacity)
+	{
+		final int slots = Integer.highestOneBit(Math.max(capacity, 16) * 2 - 1);
+
+		shift = 32 - Integer.numberOfTrailingZeros(slots);
+
+		_keys = new int[slots];
+		_costs = new int[slots];
+		_parents = new int[slots];
+		_stamps = new int[slots];
+	}
+
+	/**
+	 * @return state cost, Integer.MAX_VALUE if state was not written since the last clear
+	*/
+	public int Cost(final int state)
+	{
+		final int i = Slot(state);
+		return _stamps[i] == generation ? _costs[i] : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @return state parent, -1 if state was not written since the last clear
+	*/
+	public int Parent(final int state)
+	{
+		final int i = Slot(state);
+		return _stamps[i] == generation ? _parents[i] : -1;
+	}
+
+	/**
+	 * Writes state cost and parent
+	*/
+	public void Put(final int state, final int cost, final int parent)
+	{
+		int i = Slot(state);
+
+		if (_stamps[i] != generation)
+		{
+			// Half full table keeps probe sequences short
+			if (++size * 2 > _keys.length)
+			{
+				Grow();
+				i = Slot(state);
+			}
+
+			_keys[i] = state;
+			_stamps[i] = generation;
+		}
+
+		_costs[i] = cost;
+		_parents[i] = parent;
+	}
+
+	/**
+	 * @return states count written since the last clear
+	*/
+	public int Size()
+	{
+		return size;
+	}
+
+	/**
+	 * Removes all states, table keeps its size
+	*/
+	public void Clear()
+	{
+		// Stamps are reset once per 2^31 clears, so old generations never come back
+		if (generation == Integer.MAX_VALUE)
+		{
+			Arrays.fill(_stamps, 0);
+			generation = 0;
+		}
+
+		++generation;
+		size = 0;
+	}
+}
\ No newline at end of file
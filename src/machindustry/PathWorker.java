@@ -0,0 +1,133 @@
+package machindustry;
+
+/**
+ * Thread that runs path finder tasks one at a time. Thread is started by the first task and waits for the next one
+ * parked on monitor, so searches do not start new thread every time. It exits after idle time without tasks and the
+ * next task starts it again, so workers of dropped path finders do not live forever.
+*/
+public class PathWorker
+{
+	/**
+	 * Time without tasks after which thread exits, milliseconds
+	*/
+	private static final long IDLE_TIME = 10000;
+
+	/**
+	 * Thread name
+	*/
+	private final String _name;
+
+	/**
+	 * Worker thread, null if it is not started or has exited
+	*/
+	private Thread thread = null;
+
+	/**
+	 * Task that is not taken by worker thread yet
+	*/
+	private Runnable task = null;
+
+	/**
+	 * Task is given and not finished yet
+	*/
+	private boolean busy = false;
+
+	private void Work()
+	{
+		// Yes I hate recursion
+		while (true)
+		{
+			final Runnable runnable;
+
+			synchronized (this)
+			{
+				final long idleTime = System.currentTimeMillis() + IDLE_TIME;
+
+				while (task == null)
+				{
+					final long waitTime = idleTime - System.currentTimeMillis();
+
+					// Next task starts new thread
+					if (waitTime <= 0)
+					{
+						thread = null;
+						return;
+					}
+
+					try
+					{
+						wait(waitTime);
+					}
+					catch (InterruptedException e) {}
+				}
+
+				runnable = task;
+				task = null;
+			}
+
+			try
+			{
+				runnable.run();
+			}
+			catch (Throwable e)
+			{
+				System.err.println("[Machindustry] PathWorker: task failed");
+				e.printStackTrace();
+			}
+
+			synchronized (this)
+			{
+				busy = false;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * @param name - Thread name
+	*/
+	public PathWorker(String name)
+	{
+		_name = name;
+	}
+
+	/**
+	 * Runs task on worker thread, previous task must be joined
+	*/
+	public synchronized void Start(final Runnable runnable)
+	{
+		if (busy)
+			throw new IllegalStateException("PathWorker task is not joined");
+
+		task = runnable;
+		busy = true;
+
+		if (thread == null)
+		{
+			thread = new Thread(() -> Work(), _name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		else
+			notifyAll();
+	}
+
+	/**
+	 * Waits until task is finished
+	 * @return true if task is finished, false if waiting thread was interrupted
+	*/
+	public synchronized boolean Join()
+	{
+		try
+		{
+			while (busy)
+				wait();
+		}
+		catch (InterruptedException e)
+		{
+			return false;
+		}
+
+		return true;
+	}
+}
\ No newline at end of file
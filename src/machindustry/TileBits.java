@@ -0,0 +1,277 @@
+package machindustry;
+
+import java.util.Arrays;
+
+/**
+ * Boolean tile layer packed into 64-bit words, tile i is bit (i % 64) of word (i / 64). Layers of the same size are
+ * copied, united and masked word by word, so 64 tiles are composed by one operation, and set tiles are iterated by
+ * skipping zero words. Bits past the last tile are always zero.
+*/
+public class TileBits
+{
+	/**
+	 * Tiles count
+	*/
+	public final int Size;
+
+	/**
+	 * Packed tiles
+	*/
+	private final long[] _words;
+
+	/**
+	 * @param size - Tiles count
+	*/
+	public TileBits(int size)
+	{
+		Size = size;
+		_words = new long[(size + 63) >>> 6];
+	}
+
+	/**
+	 * @return true if tile is set
+	*/
+	public boolean Get(final int i)
+	{
+		return (_words[i >>> 6] & (1L << i)) != 0L;
+	}
+
+	/**
+	 * Sets tile
+	*/
+	public void Set(final int i)
+	{
+		_words[i >>> 6] |= 1L << i;
+	}
+
+	/**
+	 * Clears tile
+	*/
+	public void Clear(final int i)
+	{
+		_words[i >>> 6] &= ~(1L << i);
+	}
+
+	/**
+	 * Sets or clears tile
+	*/
+	public void Put(final int i, final boolean value)
+	{
+		final long bit = 1L << i;
+
+		// Branchless, so tiles of random values do not stall filling
+		_words[i >>> 6] = (_words[i >>> 6] & ~bit) | (value ? bit : 0L);
+	}
+
+	/**
+	 * Sets or clears all tiles
+	*/
+	public void Fill(final boolean value)
+	{
+		Arrays.fill(_words, value ? -1L : 0L);
+
+		// Bits past the last tile stay zero
+		if (value && (Size & 63) != 0)
+			_words[_words.length - 1] = -1L >>> -Size;
+	}
+
+	/**
+	 * Sets or clears tiles from (inclusive) to (exclusive), whole words in between are filled at once
+	*/
+	public void Fill(final int from, final int to, final boolean value)
+	{
+		if (from >= to)
+			return;
+
+		final int first = from >>> 6;
+		final int last = (to - 1) >>> 6;
+
+		final long firstMask = -1L << from;
+		final long lastMask = -1L >>> -to;
+
+		if (first == last)
+		{
+			if (value)
+				_words[first] |= firstMask & lastMask;
+			else
+				_words[first] &= ~(firstMask & lastMask);
+
+			return;
+		}
+
+		if (value)
+		{
+			_words[first] |= firstMask;
+			Arrays.fill(_words, first + 1, last, -1L);
+			_words[last] |= lastMask;
+		}
+		else
+		{
+			_words[first] &= ~firstMask;
+			Arrays.fill(_words, first + 1, last, 0L);
+			_words[last] &= ~lastMask;
+		}
+	}
+
+	/**
+	 * Sets tiles of given state and clears the others, every word is built in place before it is stored
+	 * @param map   - Tile state map of the same size
+	 * @param state - Tile state that is set
+	*/
+	public void Match(final byte[] map, final byte state)
+	{
+		for (int k = 0, i = 0; k < _words.length; ++k)
+		{
+			final int end = Math.min(i + 64, Size);
+
+			long word = 0L;
+
+			for (; i < end; ++i)
+				word |= (map[i] == state ? 1L : 0L) << i;
+
+			_words[k] = word;
+		}
+	}
+
+	/**
+	 * Copies tiles of layer of the same size
+	*/
+	public void Copy(final TileBits bits)
+	{
+		System.arraycopy(bits._words, 0, _words, 0, _words.length);
+	}
+
+	/**
+	 * Sets tiles that are set on layer of the same size
+	*/
+	public void Or(final TileBits bits)
+	{
+		final long[] words = bits._words;
+
+		for (int k = 0; k < _words.length; ++k)
+			_words[k] |= words[k];
+	}
+
+	/**
+	 * Clears tiles that are set on layer of the same size
+	*/
+	public void AndNot(final TileBits bits)
+	{
+		final long[] words = bits._words;
+
+		for (int k = 0; k < _words.length; ++k)
+			_words[k] &= ~words[k];
+	}
+
+	/**
+	 * @return true if layer of the same size has the same tiles set
+	*/
+	public boolean Equals(final TileBits bits)
+	{
+		return Arrays.equals(_words, bits._words);
+	}
+
+	/**
+	 * @return true if every tile set on layer of the same size is set on this layer
+	*/
+	public boolean Covers(final TileBits bits)
+	{
+		final long[] words = bits._words;
+
+		for (int k = 0; k < _words.length; ++k)
+			if ((words[k] & ~_words[k]) != 0L)
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * @return count of tiles that differ from layer of the same size
+	*/
+	public int Difference(final TileBits bits)
+	{
+		final long[] words = bits._words;
+
+		int count = 0;
+
+		for (int k = 0; k < _words.length; ++k)
+			count += Long.bitCount(_words[k] ^ words[k]);
+
+		return count;
+	}
+
+	/**
+	 * Stores tiles that differ from layer of the same size to tiles array while it has space
+	 * @return count of tiles that differ, it is greater than tiles array length if some of them are not stored
+	*/
+	public int Difference(final TileBits bits, final int[] tiles)
+	{
+		final long[] words = bits._words;
+
+		int count = 0;
+
+		for (int k = 0; k < _words.length; ++k)
+		{
+			long word = _words[k] ^ words[k];
+
+			// Yes I hate recursion
+			while (word != 0L)
+			{
+				if (count < tiles.length)
+					tiles[count] = (k << 6) + Long.numberOfTrailingZeros(word);
+
+				++count;
+				word &= word - 1L;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * @return the first set tile from i (inclusive), -1 if there is no such tile
+	*/
+	public int Next(final int i)
+	{
+		return Next(i, Size);
+	}
+
+	/**
+	 * @return the first set tile from i (inclusive) to end (exclusive), -1 if there is no such tile
+	*/
+	public int Next(final int i, final int end)
+	{
+		if (i >= end)
+			return -1;
+
+		final int last = (end - 1) >>> 6;
+
+		int k = i >>> 6;
+		long word = _words[k] & (-1L << i);
+
+		// Yes I hate recursion
+		while (word == 0L)
+		{
+			if (++k > last)
+				return -1;
+
+			word = _words[k];
+		}
+
+		final int next = (k << 6) + Long.numberOfTrailingZeros(word);
+		return next < end ? next : -1;
+	}
+
+	/**
+	 * @return set tiles count
+	*/
+	public int Count()
+	{
+		int count = 0;
+
+		for (int k = 0; k < _words.length; ++k)
+			count += Long.bitCount(_words[k]);
+
+		return count;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package machindustry;
+
+import java.util.Arrays;
+
+/**
+ * Int tile layer that is cleared to its default value in O(1). Every tile keeps generation it was written in,
+ * tiles of older generations read as default value, so clearing is one increment of generation counter and path
+ * building setup costs what the search touches, not what the map has.
+*/
+public class TileInts
+{
+	/**
+	 * Tiles count
+	*/
+	public final int Size;
+
+	/**
+	 * Value of tiles not written since the last clear
+	*/
+	private final int _default;
+
+	/**
+	 * Tile values, valid if tile generation is the current one
+	*/
+	private final int[] _values;
+
+	/**
+	 * Generations tiles were written in
+	*/
+	private final int[] _stamps;
+
+	/**
+	 * Current generation, tiles start in generation 0 that is never current
+	*/
+	private int generation = 1;
+
+	/**
+	 * @param size  - Tiles count
+	 * @param value - Default value
+	*/
+	public TileInts(int size, int value)
+	{
+		Size = size;
+		_default = value;
+		_values = new int[size];
+		_stamps = new int[size];
+	}
+
+	/**
+	 * @return tile value, default value if tile was not written since the last clear
+	*/
+	public int Get(final int i)
+	{
+		return _stamps[i] == generation ? _values[i] : _default;
+	}
+
+	/**
+	 * Writes tile value
+	*/
+	public void Put(final int i, final int value)
+	{
+		_values[i] = value;
+		_stamps[i] = generation;
+	}
+
+	/**
+	 * Adds delta to tile value
+	*/
+	public void Add(final int i, final int delta)
+	{
+		Put(i, Get(i) + delta);
+	}
+
+	/**
+	 * Sets all tiles to default value
+	*/
+	public void Clear()
+	{
+		// Stamps are reset once per 2^31 clears, so old generations never come back
+		if (generation == Integer.MAX_VALUE)
+		{
+			Arrays.fill(_stamps, 0);
+			generation = 0;
+		}
+
+		++generation;
+	}
+}
\ No newline at end of file
@@ -15,6 +15,7 @@ import mindustry.Vars;
 import mindustry.content.Blocks;
 import mindustry.entities.units.BuildPlan;
 import mindustry.game.Team;
+import mindustry.game.EventType.TileChangeEvent;
 import mindustry.game.EventType.Trigger;
 import mindustry.game.Teams.TeamData;
 import mindustry.gen.Building;
@@ -44,6 +45,21 @@ public class WorldState implements AutoCloseable
 	*/
 	private final Cons<?> _updater = e -> MainGameThreadUpdate();
 
+	/**
+	 * Counts tile changes in main game thread
+	*/
+	private final Cons<TileChangeEvent> _tileChanger = e -> TileChange();
+
+	/**
+	 * Incremented when a tile changes, static map is updated only when it is not the same
+	*/
+	private volatile long _tileEpoch = (long)0;
+
+	/**
+	 * Tile epoch static map was updated at
+	*/
+	private long _staticEpoch = (long)-1;
+
 	/**
 	 * Used to check if close invoked in same thread as constructor; assuming constructor was invoked in main game thread
 	*/
@@ -67,13 +83,24 @@ public class WorldState implements AutoCloseable
 	/**
 	 * Building validation map
 	*/
-	public final boolean[] Map;
+	public final TileBits Map;
+
+	/**
+	 * Tiles that are blocked whatever is built on map (static walls, deep or not placeable floors, darkness)
+	*/
+	public final TileBits StaticMap;
 
 	/**
 	 * Build plans to be added to player build plans at the next game update
 	*/
 	public final QueueSPSC<BuildPlan[]> BuildPlansMachinary = new QueueSPSC<>(100);
 
+	/**
+	 * Build plans to be replaced in player build plans at the next game update: the first array is removed and the
+	 * second one is inserted where the first removed plan was queued, so replaced part keeps its place in build order
+	*/
+	public final QueueSPSC<BuildPlan[][]> BuildPlansReplaced = new QueueSPSC<>(100);
+
 	/**
 	 * Latest copy of player build plans. Do not direct access, copy first.
 	*/
@@ -86,6 +113,12 @@ public class WorldState implements AutoCloseable
 	*/
 	public long BuildPlanEpoch = (long)0;
 
+	/**
+	 * Incremented when a tile, player build plans or cores change, so maps are updated only when it is not the same.
+	 * It must be locally stored BEFORE map update.
+	*/
+	public volatile long WorldEpoch = (long)0;
+
 	/**
 	 * Add build plans to prewiev queue not to build queue
 	*/
@@ -111,8 +144,101 @@ public class WorldState implements AutoCloseable
 	*/
 	public Runnable BeforeUpdateFunc = null;
 
+	/**
+	 * @return true if plan is one of plans (by reference)
+	*/
+	private static boolean Contains(final BuildPlan[] plans, final BuildPlan plan)
+	{
+		for (final BuildPlan buildPlan : plans)
+			if (buildPlan == plan)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Removes plans from build queue and inserts new plans where the first removed plan was
+	 * @return false if none of removed plans is in build queue, queue is not changed then
+	*/
+	private static boolean ReplacePlans(final Queue<BuildPlan> queue, final BuildPlan[] removed, final BuildPlan[] added)
+	{
+		int index = -1;
+
+		for (int k = 0; k < queue.size && index == -1; ++k)
+			if (Contains(removed, queue.get(k)))
+				index = k;
+
+		if (index == -1)
+			return false;
+
+		// Queue can not insert in the middle, so it is refilled around new plans
+		final BuildPlan[] plans = new BuildPlan[queue.size];
+
+		for (int k = 0; k < plans.length; ++k)
+			plans[k] = queue.get(k);
+
+		queue.clear();
+		queue.ensureCapacity(plans.length + added.length);
+
+		for (int k = 0; k < plans.length; ++k)
+		{
+			if (k == index)
+				for (final BuildPlan buildPlan : added)
+					queue.addLast(buildPlan);
+
+			if (!Contains(removed, plans[k]))
+				queue.addLast(plans[k]);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Removes plans from preview queue and inserts new plans where the first removed plan was
+	 * @return false if none of removed plans is in preview queue, queue is not changed then
+	*/
+	private static boolean ReplacePlans(final Seq<BuildPlan> queue, final BuildPlan[] removed, final BuildPlan[] added)
+	{
+		int index = -1;
+
+		for (int k = 0; k < queue.size && index == -1; ++k)
+			if (Contains(removed, queue.get(k)))
+				index = k;
+
+		if (index == -1)
+			return false;
+
+		final BuildPlan[] plans = new BuildPlan[queue.size];
+
+		for (int k = 0; k < plans.length; ++k)
+			plans[k] = queue.get(k);
+
+		queue.clear();
+
+		for (int k = 0; k < plans.length; ++k)
+		{
+			if (k == index)
+				queue.addAll(added, 0, added.length);
+
+			if (!Contains(removed, plans[k]))
+				queue.add(plans[k]);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Counts tile change in main game thread
+	*/
+	private void TileChange()
+	{
+		++_tileEpoch;
+		++WorldEpoch;
+	}
+
 	/**
 	 * Interacts with game data in main game thread.
+	 * BuildPlansReplaced field is spliced into player building plans.
 	 * BuildPlansMachinary field is copied to player building plans.
 	 * Player building plans are copied to BuildPlans field.
 	 * Map cores are copied to _cores field.
@@ -129,6 +255,22 @@ public class WorldState implements AutoCloseable
 		final Seq<BuildPlan> previewQueue = Vars.control.input.selectPlans;
 		final Seq<TeamData> teams = Vars.state.teams.active;
 
+		while (!BuildPlansReplaced.IsEmpty())
+		{
+			final BuildPlan[][] buildPlansReplaced = BuildPlansReplaced.Consume();
+
+			if (!ReplacePlans(buildQueue, buildPlansReplaced[0], buildPlansReplaced[1])
+				&& !ReplacePlans(previewQueue, buildPlansReplaced[0], buildPlansReplaced[1]))
+			{
+				// None of replaced plans is queued anymore, new plans go to the end like machinary plans do
+				if (BuildPlansPreview)
+					previewQueue.addAll(buildPlansReplaced[1], 0, buildPlansReplaced[1].length);
+				else
+					for (final BuildPlan buildPlan : buildPlansReplaced[1])
+						buildQueue.addLast(buildPlan);
+			}
+		}
+
 		if (BuildPlansPreview)
 			while (!BuildPlansMachinary.IsEmpty())
 			{
@@ -184,6 +326,9 @@ public class WorldState implements AutoCloseable
 			for (final CoreBuild coreBuild : teamData.cores)
 				cores[count++] = coreBuild;
 
+		if (!Arrays.equals(cores, _cores) || !Arrays.equals(buildPlans, BuildPlans))
+			++WorldEpoch;
+
 		_cores = cores;
 		BuildPlans = buildPlans;
 
@@ -214,7 +359,8 @@ public class WorldState implements AutoCloseable
 		Height = height;
 		Width = width;
 		Size = height * width;
-		Map = new boolean[Size];
+		Map = new TileBits(Size);
+		StaticMap = new TileBits(Size);
 		BuildPlansPreview = preview;
 
 		try
@@ -232,6 +378,8 @@ public class WorldState implements AutoCloseable
 			System.err.println("[Machindustry] WorldState: ARC events reflection access error");
 			e.printStackTrace();
 		}
+
+		Events.on(TileChangeEvent.class, _tileChanger);
 	}
 
 	/**
@@ -278,7 +426,7 @@ public class WorldState implements AutoCloseable
 		if (cores == null)
 			throw new NullPointerException("WorldState.cores is null");
 
-		Arrays.fill(Map, false);
+		Map.Fill(false);
 
 		if (Vars.state.rules.polygonCoreProtection)
 		{
@@ -319,21 +467,21 @@ public class WorldState implements AutoCloseable
 					while (x1 >= 0 && x1 < Width && y1 >= 0 && y1 < Height)
 					{
 						final int i = x1 + y1 * Width;
-						Map[i] = true;
+						Map.Set(i);
 
 						if (PolygonSafeZone)
 						{
 							if (x1 + 1 < Width)
-								Map[i + 1] = true;
+								Map.Set(i + 1);
 
 							if (y1 + 1 < Height)
-								Map[i + Width] = true;
+								Map.Set(i + Width);
 
 							if (x1 - 1 >= 0)
-								Map[i - 1] = true;
+								Map.Set(i - 1);
 
 							if (y1 - 1 >= 0)
-								Map[i - Width] = true;
+								Map.Set(i - Width);
 						}
 
 						if (x1 == x2 && y1 == y2)
@@ -381,10 +529,10 @@ public class WorldState implements AutoCloseable
 						y = point.y;
 						i = point.i;
 
-						if (x < 0 || x >= Width || y < 0 || y >= Height || Map[i])
+						if (x < 0 || x >= Width || y < 0 || y >= Height || Map.Get(i))
 							continue;
 
-						Map[i] = true;
+						Map.Set(i);
 
 						queue.add(new Point(x + 1, y, i + 1));
 						queue.add(new Point(x, y + 1, i + Width));
@@ -416,7 +564,7 @@ public class WorldState implements AutoCloseable
 						float fx = (float)xMin * tilesize;
 						for (int x = xMin; x <= xMax; ++x, ++i, fx += tilesize)
 							if (Mathf.dst2(fx, fy, core.x, core.y) < tileRadiusSquare)
-								Map[i] = true;
+								Map.Set(i);
 					}
 				}
 		}
@@ -454,14 +602,14 @@ public class WorldState implements AutoCloseable
 					float fx = (float)xMin * tilesize;
 					for (int x = xMin; x <= xMax; ++x, ++i, fx += tilesize)
 						if (Mathf.dst2(fx, fy, build.x, build.y) < tileRadiusSquare)
-							Map[i] = true;
+							Map.Set(i);
 				}
 			}
 		}
 
 		for (int y = 0, i = 0; y < Height; ++y)
 			for (int x = 0; x < Width; ++x, ++i)
-				if (!Map[i])
+				if (!Map.Get(i))
 				{
 					final Tile tile = tiles.geti(i);
 
@@ -470,10 +618,41 @@ public class WorldState implements AutoCloseable
 
 					if (!block.alwaysReplace || !floor.placeableOn || floor.isDeep() || !tile.interactable(team) || (Vars.state.rules.fog
 						&& Vars.state.rules.staticFog && !Vars.fogControl.isDiscovered(team, x, y)) || Vars.world.getDarkness(x, y) >= 3)
-						Map[i] = true;
+						Map.Set(i);
 				}
 	}
 
+	/**
+	 * Updates internal static tiles map, those tiles are blocked by {@link #UpdateMap} too.
+	 * Map is scanned only if a tile changed since the last update.
+	*/
+	public void UpdateStaticMap()
+	{
+		final Tiles tiles = Vars.world.tiles;
+
+		if (tiles == null)
+			throw new NullPointerException("Vars.world.tiles is null");
+
+		// Stored before scan, so tile changed during scan makes the next update scan again
+		final long tileEpoch = _tileEpoch;
+
+		if (tileEpoch == _staticEpoch)
+			return;
+
+		for (int y = 0, i = 0; y < Height; ++y)
+			for (int x = 0; x < Width; ++x, ++i)
+			{
+				final Tile tile = tiles.geti(i);
+
+				final Block block = tile.block();
+				final Floor floor = tile.floor();
+
+				StaticMap.Put(i, block.isStatic() || !floor.placeableOn || floor.isDeep() || Vars.world.getDarkness(x, y) >= 3);
+			}
+
+		_staticEpoch = tileEpoch;
+	}
+
 	/**
 	 * INVOKE ONLY IN MAIN GAME THREAD
 	*/
@@ -502,6 +681,8 @@ public class WorldState implements AutoCloseable
 				e.printStackTrace();
 			}
 
+			Events.remove(TileChangeEvent.class, _tileChanger);
+
 			_closed = true;
 		}
 	}